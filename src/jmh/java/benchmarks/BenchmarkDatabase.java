@@ -0,0 +1,164 @@
+package benchmarks;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+
+/**
+ * Database HSQLDB in memoria usato dai benchmark, con le tabelle e le procedure delle entity di prova
+ * @author amelani
+ *
+ */
+public class BenchmarkDatabase
+{
+	public static final String URL = "jdbc:hsqldb:mem:mel8bench";
+	public static final String USERNAME = "SA";
+	public static final String PASSWORD = "";
+
+	private static final String[] SCHEMA = new String[]
+	{
+		"DROP SCHEMA PUBLIC CASCADE",
+		"CREATE TABLE NARROW_ENTITY (ID BIGINT PRIMARY KEY, NAME VARCHAR(100), AMOUNT DECIMAL(18,2))",
+		"CREATE TABLE WIDE_ENTITY (ID BIGINT PRIMARY KEY, NAME VARCHAR(100), DESCRIPTION VARCHAR(400), CODE VARCHAR(20), CATEGORY VARCHAR(50), STATUS VARCHAR(20), "
+			+ "QUANTITY INT, PRIORITY INT, VERSION_NO INT, RANK_NO INT, PRICE DECIMAL(18,2), COST DECIMAL(18,2), TAX DECIMAL(18,2), "
+			+ "CREATED_AT TIMESTAMP, UPDATED_AT TIMESTAMP, SCORE DOUBLE)",
+		"CREATE PROCEDURE SAVE_NARROW(IN ID BIGINT, IN NAME VARCHAR(100), IN AMOUNT DECIMAL(18,2)) MODIFIES SQL DATA "
+			+ "MERGE INTO NARROW_ENTITY T USING (VALUES(ID, NAME, AMOUNT)) AS S(ID, NAME, AMOUNT) ON T.ID = S.ID "
+			+ "WHEN MATCHED THEN UPDATE SET T.NAME = S.NAME, T.AMOUNT = S.AMOUNT "
+			+ "WHEN NOT MATCHED THEN INSERT VALUES S.ID, S.NAME, S.AMOUNT",
+		"CREATE PROCEDURE DELETE_NARROW(IN ID BIGINT) MODIFIES SQL DATA BEGIN ATOMIC DECLARE V BIGINT; SET V = ID; DELETE FROM NARROW_ENTITY WHERE NARROW_ENTITY.ID = V; END",
+		"CREATE PROCEDURE LIST_NARROW(IN MINID BIGINT) READS SQL DATA DYNAMIC RESULT SETS 1 BEGIN ATOMIC "
+			+ "DECLARE RESULT CURSOR WITH RETURN FOR SELECT ID, NAME, AMOUNT FROM NARROW_ENTITY WHERE ID >= MINID ORDER BY ID; OPEN RESULT; END",
+		"CREATE PROCEDURE SAVE_WIDE(IN ID BIGINT, IN NAME VARCHAR(100), IN DESCRIPTION VARCHAR(400), IN CODE VARCHAR(20), IN CATEGORY VARCHAR(50), IN STATUS VARCHAR(20), "
+			+ "IN QUANTITY INT, IN PRIORITY INT, IN VERSION_NO INT, IN RANK_NO INT, IN PRICE DECIMAL(18,2), IN COST DECIMAL(18,2), IN TAX DECIMAL(18,2), "
+			+ "IN CREATED_AT TIMESTAMP, IN UPDATED_AT TIMESTAMP, IN SCORE DOUBLE) MODIFIES SQL DATA "
+			+ "MERGE INTO WIDE_ENTITY T USING (VALUES(ID, NAME, DESCRIPTION, CODE, CATEGORY, STATUS, QUANTITY, PRIORITY, VERSION_NO, RANK_NO, PRICE, COST, TAX, CREATED_AT, UPDATED_AT, SCORE)) "
+			+ "AS S(ID, NAME, DESCRIPTION, CODE, CATEGORY, STATUS, QUANTITY, PRIORITY, VERSION_NO, RANK_NO, PRICE, COST, TAX, CREATED_AT, UPDATED_AT, SCORE) ON T.ID = S.ID "
+			+ "WHEN MATCHED THEN UPDATE SET T.NAME = S.NAME, T.DESCRIPTION = S.DESCRIPTION, T.CODE = S.CODE, T.CATEGORY = S.CATEGORY, T.STATUS = S.STATUS, "
+			+ "T.QUANTITY = S.QUANTITY, T.PRIORITY = S.PRIORITY, T.VERSION_NO = S.VERSION_NO, T.RANK_NO = S.RANK_NO, T.PRICE = S.PRICE, T.COST = S.COST, T.TAX = S.TAX, "
+			+ "T.CREATED_AT = S.CREATED_AT, T.UPDATED_AT = S.UPDATED_AT, T.SCORE = S.SCORE "
+			+ "WHEN NOT MATCHED THEN INSERT VALUES S.ID, S.NAME, S.DESCRIPTION, S.CODE, S.CATEGORY, S.STATUS, S.QUANTITY, S.PRIORITY, S.VERSION_NO, S.RANK_NO, "
+			+ "S.PRICE, S.COST, S.TAX, S.CREATED_AT, S.UPDATED_AT, S.SCORE",
+		"CREATE PROCEDURE NOOP_WIDE(IN ID BIGINT, IN NAME VARCHAR(100), IN DESCRIPTION VARCHAR(400), IN CODE VARCHAR(20), IN CATEGORY VARCHAR(50), IN STATUS VARCHAR(20), "
+			+ "IN QUANTITY INT, IN PRIORITY INT, IN VERSION_NO INT, IN RANK_NO INT, IN PRICE DECIMAL(18,2), IN COST DECIMAL(18,2), IN TAX DECIMAL(18,2), "
+			+ "IN CREATED_AT TIMESTAMP, IN UPDATED_AT TIMESTAMP, IN SCORE DOUBLE) BEGIN ATOMIC END",
+		"CREATE PROCEDURE DELETE_WIDE(IN ID BIGINT) MODIFIES SQL DATA BEGIN ATOMIC DECLARE V BIGINT; SET V = ID; DELETE FROM WIDE_ENTITY WHERE WIDE_ENTITY.ID = V; END",
+		"CREATE PROCEDURE LIST_WIDE(IN MINID BIGINT, IN CATEGORY_FILTER VARCHAR(50), IN STATUS_FILTER VARCHAR(20), IN CREATED_FROM TIMESTAMP, IN CREATED_TO TIMESTAMP) "
+			+ "READS SQL DATA DYNAMIC RESULT SETS 1 BEGIN ATOMIC "
+			+ "DECLARE RESULT CURSOR WITH RETURN FOR SELECT * FROM WIDE_ENTITY WHERE ID >= MINID "
+			+ "AND (CATEGORY_FILTER IS NULL OR CATEGORY = CATEGORY_FILTER) AND (STATUS_FILTER IS NULL OR STATUS = STATUS_FILTER) "
+			+ "AND (CREATED_FROM IS NULL OR CREATED_AT >= CREATED_FROM) AND (CREATED_TO IS NULL OR CREATED_AT <= CREATED_TO) ORDER BY ID; OPEN RESULT; END"
+	};
+
+	/**
+	 * Ricrea tabelle e procedure, svuotando il database
+	 * @throws SQLException In caso di errori nella creazione dello schema
+	 */
+	public static void Reset() throws SQLException
+	{
+		Connection connection = Open();
+		try
+		{
+			Statement statement = connection.createStatement();
+			for (String sql : SCHEMA)
+				statement.execute(sql);
+			statement.close();
+		}
+		finally
+		{
+			connection.close();
+		}
+	}
+
+	/**
+	 * Apre una connessione diretta al database dei benchmark
+	 * @return Connessione al database
+	 * @throws SQLException In caso di errori nell'apertura della connessione
+	 */
+	public static Connection Open() throws SQLException
+	{
+		return DriverManager.getConnection(URL, USERNAME, PASSWORD);
+	}
+
+	/**
+	 * Inserisce delle righe nella tabella delle entity strette
+	 * @param rows Numero di righe da inserire
+	 * @throws SQLException In caso di errori nell'inserimento
+	 */
+	public static void FillNarrow(int rows) throws SQLException
+	{
+		Connection connection = Open();
+		try
+		{
+			PreparedStatement statement = connection.prepareStatement("INSERT INTO NARROW_ENTITY VALUES (?, ?, ?)");
+			for (int i = 0; i < rows; i++)
+			{
+				statement.setLong(1, i);
+				statement.setString(2, "Name " + i);
+				statement.setBigDecimal(3, BigDecimal.valueOf(i, 2));
+				statement.addBatch();
+			}
+			statement.executeBatch();
+			statement.close();
+		}
+		finally
+		{
+			connection.close();
+		}
+	}
+
+	/**
+	 * Inserisce delle righe nella tabella delle entity larghe
+	 * @param rows Numero di righe da inserire
+	 * @throws SQLException In caso di errori nell'inserimento
+	 */
+	public static void FillWide(int rows) throws SQLException
+	{
+		Connection connection = Open();
+		try
+		{
+			PreparedStatement statement = connection.prepareStatement("INSERT INTO WIDE_ENTITY VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+			for (int i = 0; i < rows; i++)
+			{
+				WideEntity e = WideEntity.Sample(i);
+				statement.setLong(1, e.Id);
+				statement.setString(2, e.Name);
+				statement.setString(3, e.Description);
+				statement.setString(4, e.Code);
+				statement.setString(5, e.Category);
+				statement.setString(6, e.Status);
+				statement.setInt(7, e.Quantity);
+				statement.setInt(8, e.Priority);
+				statement.setInt(9, e.VersionNo);
+				statement.setInt(10, e.RankNo);
+				statement.setBigDecimal(11, e.Price);
+				statement.setBigDecimal(12, e.Cost);
+				statement.setBigDecimal(13, e.Tax);
+				statement.setTimestamp(14, e.CreatedAt);
+				statement.setTimestamp(15, e.UpdatedAt);
+				statement.setDouble(16, e.Score);
+				statement.addBatch();
+			}
+			statement.executeBatch();
+			statement.close();
+		}
+		finally
+		{
+			connection.close();
+		}
+	}
+
+	/**
+	 * Timestamp fisso usato per le entity di prova
+	 * @param offset Millisecondi da aggiungere
+	 * @return Timestamp di prova
+	 */
+	public static Timestamp SampleTimestamp(long offset)
+	{
+		return new Timestamp(1420070400000L + offset);
+	}
+}
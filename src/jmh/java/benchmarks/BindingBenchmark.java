@@ -0,0 +1,59 @@
+package benchmarks;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import javax.naming.NamingException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sql.DBResponse;
+
+/**
+ * Costo del binding dei parametri di una entity su un CallableStatement, misurato con una procedura che non esegue nulla
+ * @author amelani
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BindingBenchmark
+{
+	private WideEntityManager _manager;
+	private WideEntityList _list;
+
+	@Setup
+	public void Setup() throws SQLException, NamingException
+	{
+		BenchmarkDatabase.Reset();
+		_manager = new WideEntityManager()
+		{
+			@Override
+			public String GetSaveProcedureName()
+			{
+				return "{call NOOP_WIDE(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)}";
+			}
+		};
+		_list = new WideEntityList();
+		for (int i = 0; i < 100; i++)
+			_list.add(WideEntity.Sample(i));
+	}
+
+	@Benchmark
+	public DBResponse<WideEntity, WideEntityList> BindWideEntities() throws SQLException, IllegalAccessException
+	{
+		return _manager.Save(_list);
+	}
+}
@@ -0,0 +1,94 @@
+package benchmarks;
+
+import java.io.UnsupportedEncodingException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+import javax.naming.NamingException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import entities.EntityRowMapper;
+
+/**
+ * Costo della costruzione delle entity da un ResultSet: mapper con colonne risolte una volta per ResultSet, EntityFromResultSet di default riga per riga e costruttore riflessivo di BaseEntity
+ * @author amelani
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappingBenchmark
+{
+	@Param({ "100", "10000" })
+	public int Rows;
+
+	private Connection _connection;
+	private WideEntityManager _manager;
+
+	@Setup(Level.Trial)
+	public void Setup() throws SQLException, NamingException
+	{
+		BenchmarkDatabase.Reset();
+		BenchmarkDatabase.FillWide(Rows);
+		_connection = BenchmarkDatabase.Open();
+		_manager = new WideEntityManager();
+	}
+
+	@TearDown(Level.Trial)
+	public void TearDown() throws SQLException
+	{
+		_connection.close();
+	}
+
+	@Benchmark
+	public void RowMapper(Blackhole blackhole) throws SQLException, InstantiationException
+	{
+		Statement statement = _connection.createStatement();
+		ResultSet rs = statement.executeQuery("SELECT * FROM WIDE_ENTITY");
+		EntityRowMapper<WideEntity> mapper = EntityRowMapper.Get(WideEntity.class);
+		int[] columns = mapper.ResolveColumns(rs);
+		while (rs.next())
+			blackhole.consume(mapper.MapRow(rs, columns));
+		statement.close();
+	}
+
+	@Benchmark
+	public void EntityFromResultSet(Blackhole blackhole) throws SQLException, InstantiationException
+	{
+		Statement statement = _connection.createStatement();
+		ResultSet rs = statement.executeQuery("SELECT * FROM WIDE_ENTITY");
+		while (rs.next())
+			blackhole.consume(_manager.EntityFromResultSet(rs));
+		statement.close();
+	}
+
+	@Benchmark
+	public void ResultSetConstructor(Blackhole blackhole) throws SQLException, IllegalAccessException, UnsupportedEncodingException
+	{
+		Statement statement = _connection.createStatement();
+		ResultSet rs = statement.executeQuery("SELECT * FROM WIDE_ENTITY");
+		while (rs.next())
+			blackhole.consume(new WideEntity(rs));
+		statement.close();
+	}
+}
@@ -0,0 +1,39 @@
+package benchmarks;
+
+import java.math.BigDecimal;
+
+import entities.BaseEntity;
+import entities.EntityAttribute;
+import entities.EntityFieldAttribute;
+
+/**
+ * Entity di prova con pochi campi
+ * @author amelani
+ *
+ */
+@EntityAttribute(Name = "NARROW_ENTITY")
+public class NarrowEntity extends BaseEntity
+{
+	@EntityFieldAttribute(Name = "ID", Key = true)
+	public Long Id;
+
+	@EntityFieldAttribute(Name = "NAME")
+	public String Name;
+
+	@EntityFieldAttribute(Name = "AMOUNT")
+	public BigDecimal Amount;
+
+	/**
+	 * Crea una entity di prova
+	 * @param id Chiave della entity
+	 * @return NarrowEntity valorizzata
+	 */
+	public static NarrowEntity Sample(long id)
+	{
+		NarrowEntity e = new NarrowEntity();
+		e.Id = id;
+		e.Name = "Name " + id;
+		e.Amount = BigDecimal.valueOf(id, 2);
+		return e;
+	}
+}
@@ -0,0 +1,15 @@
+package benchmarks;
+
+import filters.BaseFilter;
+import filters.FilterFieldAttribute;
+
+/**
+ * Filtro di prova per le entity strette
+ * @author amelani
+ *
+ */
+public class NarrowEntityFilter extends BaseFilter<NarrowEntity>
+{
+	@FilterFieldAttribute(Name = "MINID")
+	public Long MinId;
+}
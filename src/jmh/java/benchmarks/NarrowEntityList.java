@@ -0,0 +1,8 @@
+package benchmarks;
+
+import entities.BaseEntityList;
+
+public class NarrowEntityList extends BaseEntityList<NarrowEntity>
+{
+	private static final long serialVersionUID = 4310725632514183522L;
+}
@@ -0,0 +1,87 @@
+package benchmarks;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import sql.SQLParameter;
+import enumerations.ParameterDirection;
+
+/**
+ * Costo della costruzione dei parametri SQL da entity e filtri e della deduzione del tipo SQL dal valore
+ * @author amelani
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParametersBenchmark
+{
+	private NarrowEntity _narrowEntity;
+	private WideEntity _wideEntity;
+	private NarrowEntityFilter _narrowFilter;
+	private WideEntityFilter _wideFilter;
+	private Object[] _values;
+
+	@Setup
+	public void Setup()
+	{
+		_narrowEntity = NarrowEntity.Sample(42);
+		_wideEntity = WideEntity.Sample(42);
+		_narrowFilter = new NarrowEntityFilter();
+		_narrowFilter.MinId = 42L;
+		_wideFilter = new WideEntityFilter();
+		_wideFilter.MinId = 42L;
+		_wideFilter.Category = "Category 2";
+		_wideFilter.Status = "ACTIVE";
+		_wideFilter.CreatedFrom = BenchmarkDatabase.SampleTimestamp(0);
+		_wideFilter.CreatedTo = BenchmarkDatabase.SampleTimestamp(1000);
+		_values = new Object[] { "text", 42, 42L, BigDecimal.TEN, 4.2, true, BenchmarkDatabase.SampleTimestamp(0) };
+	}
+
+	@Benchmark
+	public ArrayList<SQLParameter> NarrowEntityParameters() throws IllegalAccessException
+	{
+		return _narrowEntity.GetParameters();
+	}
+
+	@Benchmark
+	public ArrayList<SQLParameter> WideEntityParameters() throws IllegalAccessException
+	{
+		return _wideEntity.GetParameters();
+	}
+
+	@Benchmark
+	public ArrayList<SQLParameter> NarrowFilterParameters() throws IllegalAccessException
+	{
+		return _narrowFilter.GetParameters();
+	}
+
+	@Benchmark
+	public ArrayList<SQLParameter> WideFilterParameters() throws IllegalAccessException
+	{
+		return _wideFilter.GetParameters();
+	}
+
+	@Benchmark
+	public void SqlTypeInference(Blackhole blackhole)
+	{
+		for (Object value : _values)
+			blackhole.consume(new SQLParameter("P", value, ParameterDirection.IN));
+	}
+}
@@ -0,0 +1,90 @@
+package benchmarks;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import javax.naming.NamingException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sql.DBResponse;
+
+/**
+ * Costo completo di Save e List attraverso BaseJDBCManager, con entity strette e larghe e liste di dimensioni diverse
+ * @author amelani
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoundTripBenchmark
+{
+	@Param({ "1", "100", "10000" })
+	public int ListSize;
+
+	private NarrowEntityManager _narrowManager;
+	private WideEntityManager _wideManager;
+	private NarrowEntityList _narrowList;
+	private WideEntityList _wideList;
+	private NarrowEntityFilter _narrowFilter;
+	private WideEntityFilter _wideFilter;
+
+	@Setup(Level.Trial)
+	public void Setup() throws SQLException, NamingException
+	{
+		BenchmarkDatabase.Reset();
+		BenchmarkDatabase.FillNarrow(ListSize);
+		BenchmarkDatabase.FillWide(ListSize);
+		_narrowManager = new NarrowEntityManager();
+		_wideManager = new WideEntityManager();
+		_narrowList = new NarrowEntityList();
+		_wideList = new WideEntityList();
+		for (int i = 0; i < ListSize; i++)
+		{
+			_narrowList.add(NarrowEntity.Sample(i));
+			_wideList.add(WideEntity.Sample(i));
+		}
+		_narrowFilter = new NarrowEntityFilter();
+		_narrowFilter.MinId = 0L;
+		_wideFilter = new WideEntityFilter();
+		_wideFilter.MinId = 0L;
+	}
+
+	@Benchmark
+	public DBResponse<NarrowEntity, NarrowEntityList> SaveNarrow() throws SQLException, IllegalAccessException
+	{
+		return _narrowManager.Save(_narrowList);
+	}
+
+	@Benchmark
+	public DBResponse<WideEntity, WideEntityList> SaveWide() throws SQLException, IllegalAccessException
+	{
+		return _wideManager.Save(_wideList);
+	}
+
+	@Benchmark
+	public DBResponse<NarrowEntity, NarrowEntityList> ListNarrow() throws SQLException, IllegalAccessException, InstantiationException
+	{
+		return _narrowManager.List(_narrowFilter, NarrowEntityList.class);
+	}
+
+	@Benchmark
+	public DBResponse<WideEntity, WideEntityList> ListWide() throws SQLException, IllegalAccessException, InstantiationException
+	{
+		return _wideManager.List(_wideFilter, WideEntityList.class);
+	}
+}
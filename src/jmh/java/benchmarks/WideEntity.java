@@ -0,0 +1,105 @@
+package benchmarks;
+
+import java.io.UnsupportedEncodingException;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+import entities.BaseEntity;
+import entities.EntityAttribute;
+import entities.EntityFieldAttribute;
+
+/**
+ * Entity di prova con molti campi di tipi diversi
+ * @author amelani
+ *
+ */
+@EntityAttribute(Name = "WIDE_ENTITY")
+public class WideEntity extends BaseEntity
+{
+	@EntityFieldAttribute(Name = "ID", Key = true)
+	public Long Id;
+
+	@EntityFieldAttribute(Name = "NAME")
+	public String Name;
+
+	@EntityFieldAttribute(Name = "DESCRIPTION")
+	public String Description;
+
+	@EntityFieldAttribute(Name = "CODE")
+	public String Code;
+
+	@EntityFieldAttribute(Name = "CATEGORY")
+	public String Category;
+
+	@EntityFieldAttribute(Name = "STATUS")
+	public String Status;
+
+	@EntityFieldAttribute(Name = "QUANTITY")
+	public Integer Quantity;
+
+	@EntityFieldAttribute(Name = "PRIORITY")
+	public Integer Priority;
+
+	@EntityFieldAttribute(Name = "VERSION_NO")
+	public Integer VersionNo;
+
+	@EntityFieldAttribute(Name = "RANK_NO")
+	public Integer RankNo;
+
+	@EntityFieldAttribute(Name = "PRICE")
+	public BigDecimal Price;
+
+	@EntityFieldAttribute(Name = "COST")
+	public BigDecimal Cost;
+
+	@EntityFieldAttribute(Name = "TAX")
+	public BigDecimal Tax;
+
+	@EntityFieldAttribute(Name = "CREATED_AT")
+	public Timestamp CreatedAt;
+
+	@EntityFieldAttribute(Name = "UPDATED_AT")
+	public Timestamp UpdatedAt;
+
+	@EntityFieldAttribute(Name = "SCORE")
+	public Double Score;
+
+	public WideEntity()
+	{
+
+	}
+
+	public WideEntity(ResultSet rs) throws SQLException, IllegalArgumentException, IllegalAccessException, UnsupportedEncodingException
+	{
+		super(rs);
+	}
+
+	/**
+	 * Crea una entity di prova
+	 * @param id Chiave della entity
+	 * @return WideEntity valorizzata
+	 */
+	public static WideEntity Sample(long id)
+	{
+		WideEntity e = new WideEntity();
+		e.Id = id;
+		e.Name = "Name " + id;
+		e.Description = "Description of the benchmark entity number " + id;
+		e.Code = "C" + id;
+		e.Category = "Category " + (id % 10);
+		e.Status = id % 2 == 0 ? "ACTIVE" : "INACTIVE";
+		e.Quantity = (int)(id % 1000);
+		e.Priority = (int)(id % 5);
+		e.VersionNo = 1;
+		e.RankNo = (int)id;
+		e.Price = BigDecimal.valueOf(id * 3, 2);
+		e.Cost = BigDecimal.valueOf(id * 2, 2);
+		e.Tax = BigDecimal.valueOf(id, 2);
+		e.CreatedAt = BenchmarkDatabase.SampleTimestamp(id);
+		e.UpdatedAt = BenchmarkDatabase.SampleTimestamp(id * 2);
+		e.Score = id / 7.0;
+		return e;
+	}
+}
@@ -0,0 +1,29 @@
+package benchmarks;
+
+import java.sql.Timestamp;
+
+import filters.BaseFilter;
+import filters.FilterFieldAttribute;
+
+/**
+ * Filtro di prova per le entity larghe
+ * @author amelani
+ *
+ */
+public class WideEntityFilter extends BaseFilter<WideEntity>
+{
+	@FilterFieldAttribute(Name = "MINID")
+	public Long MinId;
+
+	@FilterFieldAttribute(Name = "CATEGORY_FILTER")
+	public String Category;
+
+	@FilterFieldAttribute(Name = "STATUS_FILTER")
+	public String Status;
+
+	@FilterFieldAttribute(Name = "CREATED_FROM")
+	public Timestamp CreatedFrom;
+
+	@FilterFieldAttribute(Name = "CREATED_TO")
+	public Timestamp CreatedTo;
+}
@@ -0,0 +1,8 @@
+package benchmarks;
+
+import entities.BaseEntityList;
+
+public class WideEntityList extends BaseEntityList<WideEntity>
+{
+	private static final long serialVersionUID = -1894316524853260974L;
+}
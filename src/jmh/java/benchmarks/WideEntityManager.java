@@ -0,0 +1,87 @@
+package benchmarks;
+
+import java.sql.Driver;
+import java.sql.SQLException;
+
+import javax.naming.NamingException;
+
+import dal.BaseJDBCManager;
+
+/**
+ * Manager di prova sul database HSQLDB in memoria, con connection pool interno
+ * @author amelani
+ *
+ */
+public class WideEntityManager extends BaseJDBCManager<WideEntity, WideEntityList>
+{
+	public WideEntityManager() throws SQLException, NamingException
+	{
+		super();
+	}
+
+	@Override
+	public boolean UsingConnectionPool()
+	{
+		return false;
+	}
+
+	@Override
+	public boolean UsingEmbeddedConnectionPool()
+	{
+		return true;
+	}
+
+	@Override
+	public String GetConnectionPoolName()
+	{
+		return null;
+	}
+
+	@Override
+	public String GetConnectionString()
+	{
+		return BenchmarkDatabase.URL;
+	}
+
+	@Override
+	public String GetUsername()
+	{
+		return BenchmarkDatabase.USERNAME;
+	}
+
+	@Override
+	public String GetPassword()
+	{
+		return BenchmarkDatabase.PASSWORD;
+	}
+
+	@Override
+	public Driver GetJDBCDriver()
+	{
+		return new org.hsqldb.jdbc.JDBCDriver();
+	}
+
+	@Override
+	public String GetSaveProcedureName()
+	{
+		return "{call SAVE_WIDE(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)}";
+	}
+
+	@Override
+	public String GetDeleteProcedureName()
+	{
+		return "{call DELETE_WIDE(?)}";
+	}
+
+	@Override
+	public String GetProcedureName()
+	{
+		return "{call LIST_WIDE(?, ?, ?, ?, ?)}";
+	}
+
+	@Override
+	public String GetListProcedureName()
+	{
+		return "{call LIST_WIDE(?, ?, ?, ?, ?)}";
+	}
+}
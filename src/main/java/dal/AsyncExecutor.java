@@ -0,0 +1,220 @@
+package dal;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Esecutore limitato delle operazioni asincrone di BaseJDBCManager.
+ * Ha un numero fisso di thread e una coda limitata: quando la coda è piena chi invia un'operazione resta bloccato fino a SubmitTimeout millisecondi,
+ * così che un database lento o un connection pool esaurito rallentino i chiamanti invece di accumulare operazioni in memoria.
+ * @author amelani
+ *
+ */
+public class AsyncExecutor
+{
+	private static final Map<String, AsyncExecutor> _executors = new HashMap<String, AsyncExecutor>();
+	/** Esecutore di cui il thread corrente sta eseguendo un'operazione */
+	private static final ThreadLocal<AsyncExecutor> _current = new ThreadLocal<AsyncExecutor>();
+
+	private final ThreadPoolExecutor _executor;
+	private final AsyncExecutorConfiguration _configuration;
+
+	private final AtomicLong _submitted = new AtomicLong();
+	private final AtomicLong _completed = new AtomicLong();
+	private final AtomicLong _rejected = new AtomicLong();
+	private final AtomicLong _throttled = new AtomicLong();
+	private final AtomicLong _totalQueueNanos = new AtomicLong();
+	private final AtomicLong _totalExecutionNanos = new AtomicLong();
+	private final AtomicLong _maxLatencyNanos = new AtomicLong();
+
+	/**
+	 * Restituisce l'esecutore con il nome indicato, creandolo se non esiste ancora
+	 * @param name Nome dell'esecutore, normalmente la connection string del manager
+	 * @param configuration Configurazione dell'esecutore, usata soltanto alla sua creazione
+	 * @return AsyncExecutor condiviso per il nome indicato
+	 */
+	public static AsyncExecutor GetExecutor(String name, AsyncExecutorConfiguration configuration)
+	{
+		synchronized (_executors)
+		{
+			AsyncExecutor executor = _executors.get(name);
+			if (executor == null)
+			{
+				executor = new AsyncExecutor(name, configuration == null ? new AsyncExecutorConfiguration() : configuration);
+				_executors.put(name, executor);
+			}
+			return executor;
+		}
+	}
+
+	/**
+	 * Arresta tutti gli esecutori creati, lasciando terminare le operazioni già accettate
+	 */
+	public static void ShutdownAll()
+	{
+		ArrayList<AsyncExecutor> executors;
+		synchronized (_executors)
+		{
+			executors = new ArrayList<AsyncExecutor>(_executors.values());
+			_executors.clear();
+		}
+		for (AsyncExecutor executor : executors)
+			executor.Shutdown();
+	}
+
+	/**
+	 * Costruisce un esecutore con thread daemon
+	 * @param name Nome usato per i thread dell'esecutore
+	 * @param configuration Configurazione dell'esecutore
+	 */
+	public AsyncExecutor(final String name, AsyncExecutorConfiguration configuration)
+	{
+		if (configuration.Threads < 1 || configuration.QueueSize < 1)
+			throw new IllegalArgumentException("Dimensioni dell'esecutore asincrono non valide: thread " + configuration.Threads + ", coda " + configuration.QueueSize);
+		_configuration = configuration;
+		ThreadFactory threadFactory = new ThreadFactory()
+		{
+			private final AtomicInteger _count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable r)
+			{
+				Thread thread = new Thread(r, "mel8fw-async-" + _count.incrementAndGet() + " [" + name + "]");
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+		RejectedExecutionHandler blockingHandler = new RejectedExecutionHandler()
+		{
+			@Override
+			public void rejectedExecution(Runnable r, ThreadPoolExecutor executor)
+			{
+				//coda piena: blocco il chiamante finché non si libera un posto
+				_throttled.incrementAndGet();
+				try
+				{
+					if (executor.isShutdown() || !executor.getQueue().offer(r, _configuration.SubmitTimeout, TimeUnit.MILLISECONDS))
+					{
+						_rejected.incrementAndGet();
+						throw new RejectedExecutionException("Coda delle operazioni asincrone piena da più di " + _configuration.SubmitTimeout + "ms");
+					}
+				}
+				catch (InterruptedException exc)
+				{
+					Thread.currentThread().interrupt();
+					_rejected.incrementAndGet();
+					throw new RejectedExecutionException("Interrotto in attesa di un posto nella coda delle operazioni asincrone", exc);
+				}
+			}
+		};
+		_executor = new ThreadPoolExecutor(configuration.Threads, configuration.Threads, 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<Runnable>(configuration.QueueSize), threadFactory, blockingHandler);
+	}
+
+	/**
+	 * Accoda un'operazione. Se la coda è piena blocca il chiamante al massimo SubmitTimeout millisecondi.
+	 * @param task Operazione da eseguire
+	 * @return Future con il risultato dell'operazione
+	 * @throws RejectedExecutionException Se la coda resta piena oltre SubmitTimeout o l'esecutore è stato arrestato
+	 */
+	public <T> Future<T> Submit(Callable<T> task)
+	{
+		TimedTask<T> timedTask = new TimedTask<T>(task);
+		_executor.execute(timedTask);
+		_submitted.incrementAndGet();
+		return timedTask;
+	}
+
+	/**
+	 * Restituisce lo stato attuale dell'esecutore
+	 * @return AsyncExecutorStatistics con i contatori dell'esecutore
+	 */
+	public AsyncExecutorStatistics GetStatistics()
+	{
+		AsyncExecutorStatistics stats = new AsyncExecutorStatistics();
+		stats.QueueDepth = _executor.getQueue().size();
+		stats.Active = _executor.getActiveCount();
+		stats.Submitted = _submitted.get();
+		stats.Completed = _completed.get();
+		stats.Rejected = _rejected.get();
+		stats.Throttled = _throttled.get();
+		stats.TotalQueueTime = TimeUnit.NANOSECONDS.toMillis(_totalQueueNanos.get());
+		stats.TotalExecutionTime = TimeUnit.NANOSECONDS.toMillis(_totalExecutionNanos.get());
+		stats.MaxLatency = TimeUnit.NANOSECONDS.toMillis(_maxLatencyNanos.get());
+		return stats;
+	}
+
+	/**
+	 * Numero di thread dell'esecutore, cioè di operazioni eseguite contemporaneamente
+	 * @return Numero di thread
+	 */
+	public int GetThreads()
+	{
+		return _configuration.Threads;
+	}
+
+	/**
+	 * Indica se il thread corrente sta eseguendo un'operazione di questo esecutore: in questo caso attendere altre operazioni dello stesso esecutore potrebbe bloccarlo
+	 * @return True se il chiamante è uno dei thread dell'esecutore
+	 */
+	public boolean IsCurrentThread()
+	{
+		return _current.get() == this;
+	}
+
+	/**
+	 * Arresta l'esecutore, lasciando terminare le operazioni già accettate
+	 */
+	public void Shutdown()
+	{
+		_executor.shutdown();
+	}
+
+	/**
+	 * Operazione che misura il tempo passato in coda e quello di esecuzione
+	 */
+	private class TimedTask<T> extends FutureTask<T>
+	{
+		private final long _submittedAt = System.nanoTime();
+
+		public TimedTask(Callable<T> callable)
+		{
+			super(callable);
+		}
+
+		@Override
+		public void run()
+		{
+			long startedAt = System.nanoTime();
+			_current.set(AsyncExecutor.this);
+			try
+			{
+				super.run();
+			}
+			finally
+			{
+				_current.remove();
+				long endedAt = System.nanoTime();
+				_totalQueueNanos.addAndGet(startedAt - _submittedAt);
+				_totalExecutionNanos.addAndGet(endedAt - startedAt);
+				long latency = endedAt - _submittedAt;
+				long max = _maxLatencyNanos.get();
+				while (latency > max && !_maxLatencyNanos.compareAndSet(max, latency))
+					max = _maxLatencyNanos.get();
+				_completed.incrementAndGet();
+			}
+		}
+	}
+}
@@ -0,0 +1,18 @@
+package dal;
+
+/**
+ * Parametri di configurazione dell'AsyncExecutor usato dai metodi asincroni di BaseJDBCManager
+ * @author amelani
+ *
+ */
+public class AsyncExecutorConfiguration
+{
+	/** Numero di thread che eseguono le operazioni. Conviene che non superi il numero massimo di connessioni disponibili */
+	public int Threads = 10;
+
+	/** Numero massimo di operazioni in coda in attesa di un thread libero */
+	public int QueueSize = 100;
+
+	/** Tempo massimo (in millisecondi) per cui chi invia un'operazione resta bloccato quando la coda è piena, prima che l'operazione venga rifiutata */
+	public long SubmitTimeout = 30000;
+}
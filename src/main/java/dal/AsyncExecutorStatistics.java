@@ -0,0 +1,61 @@
+package dal;
+
+/**
+ * Fotografia dello stato di un AsyncExecutor in un dato istante
+ * @author amelani
+ *
+ */
+public class AsyncExecutorStatistics
+{
+	/** Operazioni in coda in attesa di un thread libero */
+	public int QueueDepth;
+
+	/** Thread che stanno eseguendo un'operazione */
+	public int Active;
+
+	/** Numero di operazioni accettate */
+	public long Submitted;
+
+	/** Numero di operazioni terminate, con successo o con errore */
+	public long Completed;
+
+	/** Numero di operazioni rifiutate perché la coda è rimasta piena oltre SubmitTimeout */
+	public long Rejected;
+
+	/** Numero di invii che hanno dovuto attendere perché la coda era piena */
+	public long Throttled;
+
+	/** Tempo totale (in millisecondi) passato in coda dalle operazioni terminate */
+	public long TotalQueueTime;
+
+	/** Tempo totale (in millisecondi) di esecuzione delle operazioni terminate */
+	public long TotalExecutionTime;
+
+	/** Tempo massimo (in millisecondi) fra l'invio e la fine di un'operazione */
+	public long MaxLatency;
+
+	/**
+	 * Tempo medio passato in coda da un'operazione
+	 * @return Tempo medio in coda in millisecondi
+	 */
+	public double GetAverageQueueTime()
+	{
+		return Completed == 0 ? 0 : (double)TotalQueueTime / Completed;
+	}
+
+	/**
+	 * Tempo medio di esecuzione di un'operazione
+	 * @return Tempo medio di esecuzione in millisecondi
+	 */
+	public double GetAverageExecutionTime()
+	{
+		return Completed == 0 ? 0 : (double)TotalExecutionTime / Completed;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "QueueDepth:" + QueueDepth + " Active:" + Active + " Submitted:" + Submitted + " Completed:" + Completed + " Rejected:" + Rejected
+				+ " Throttled:" + Throttled + " TotalQueueTime:" + TotalQueueTime + " TotalExecutionTime:" + TotalExecutionTime + " MaxLatency:" + MaxLatency;
+	}
+}
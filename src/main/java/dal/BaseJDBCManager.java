@@ -1,12 +1,35 @@
 package dal;
 
+import java.sql.BatchUpdateException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.math.BigDecimal;
 import java.sql.CallableStatement;
 import java.sql.Connection;
 import java.sql.Driver;
 import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import javax.naming.Context;
 import javax.naming.InitialContext;
@@ -14,13 +37,20 @@ import javax.naming.NamingException;
 import javax.sql.DataSource;
 
 import sql.DBResponse;
+import sql.EntitySQL;
+import sql.SQLFieldMetadata;
 import sql.SQLParameter;
 import sql.SQLQuerable;
+import sql.SQLQuerableMetadata;
+import sql.SQLValueBinder;
 import entities.BaseEntity;
 import entities.BaseEntityList;
-import entities.EntityAttribute;
+import entities.ColumnarEntityList;
+import entities.EntityRowMapper;
 import enumerations.ParameterDirection;
 import filters.BaseFilter;
+import filters.FilterPartitioner;
+import filters.KeysetCursor;
 
 /**
  * Classe base per i metodi più comuni di accesso ad una base di dati attraverso driver JDBC
@@ -29,8 +59,23 @@ import filters.BaseFilter;
  */
 public abstract class BaseJDBCManager<TEntity extends BaseEntity, TEntityList extends BaseEntityList<TEntity>> 
 {
-	private static Context _initialContext; 
-	private static DataSource _dataSource;
+	private DataSource _dataSource;
+	private ReplicaRouter _replicaRouter;
+	private ConnectionPool _connectionPool;
+	private Class<TEntity> _entityType;
+	private Class<TEntityList> _entityListType;
+	private Boolean _defaultMapping;
+	private EntityCache _entityCache;
+	private SingleFlight _singleFlight;
+	private WriteBehindBuffer<TEntity, TEntityList> _writeBehind;
+	private AsyncExecutor _asyncExecutor;
+	private AsyncExecutor _partitionExecutor;
+	private ConnectionLeakDetector _leakDetector;
+	private EntitySQL _entitySQL;
+	private JDBCInstrumentation _instrumentation = JDBCInstrumentation.NONE;
+	private boolean _instrumented;
+	private boolean _dirtyTracking;
+	private boolean _positionalBinding;
 	
 	/**
 	 * Indica se si usa o meno un connection pool
@@ -92,6 +137,374 @@ public abstract class BaseJDBCManager<TEntity extends BaseEntity, TEntityList ex
 	 */
 	public abstract String GetListProcedureName();
 	
+	/**
+	 * DataSource del database principale del manager. Se restituisce null il DataSource viene cercato via JNDI con GetConnectionString() quando UsingConnectionPool() è true.
+	 * @return DataSource del database principale, null per il comportamento di default
+	 */
+	public DataSource GetDataSource()
+	{
+		return null;
+	}
+	
+	/**
+	 * Repliche di sola lettura a cui inviare Get, List ed ExecuteSelection. Scritture e letture all'interno di una UnitOfWork usano sempre il database principale,
+	 * così come le letture quando nessuna replica è disponibile e le Get che popolano la cache (vedi UsingEntityCache), così che la cache non conservi dati precedenti all'ultimo salvataggio. Le repliche sono condivise fra i manager della stessa classe e vengono lette soltanto alla creazione del primo.
+	 * @return DataSource delle repliche, null o vuota per leggere dal database principale
+	 */
+	public List<DataSource> GetReadReplicas()
+	{
+		return null;
+	}
+	
+	/**
+	 * Configurazione dell'instradamento delle letture verso le repliche. Viene considerata soltanto alla creazione del router.
+	 * @return ReplicaRoutingConfiguration da usare per le repliche
+	 */
+	public ReplicaRoutingConfiguration GetReplicaRoutingConfiguration()
+	{
+		return new ReplicaRoutingConfiguration();
+	}
+	
+	/**
+	 * Restituisce lo stato dell'instradamento delle letture verso le repliche
+	 * @return ReplicaRoutingStatistics con i contatori del router, null se il manager non ha repliche
+	 */
+	public ReplicaRoutingStatistics GetReplicaRoutingStatistics()
+	{
+		return _replicaRouter == null ? null : _replicaRouter.GetStatistics();
+	}
+	
+	/**
+	 * Indica se, quando non si usa un connection pool JNDI, le connessioni devono essere gestite dal connection pool interno invece di essere aperte ad ogni chiamata
+	 * @return True per usare il connection pool interno, false per aprire una connessione tramite DriverManager ad ogni chiamata
+	 */
+	public boolean UsingEmbeddedConnectionPool()
+	{
+		return false;
+	}
+	
+	/**
+	 * Configurazione del connection pool interno. Viene considerata soltanto alla creazione del pool, che è condiviso fra i manager con la stessa connection string e lo stesso utente.
+	 * @return ConnectionPoolConfiguration da usare per il connection pool interno
+	 */
+	public ConnectionPoolConfiguration GetConnectionPoolConfiguration()
+	{
+		return new ConnectionPoolConfiguration();
+	}
+	
+	/**
+	 * Restituisce lo stato del connection pool interno
+	 * @return ConnectionPoolStatistics con i contatori del pool, null se il manager non usa il connection pool interno
+	 */
+	public ConnectionPoolStatistics GetConnectionPoolStatistics()
+	{
+		return _connectionPool == null ? null : _connectionPool.GetStatistics();
+	}
+	
+	/**
+	 * Millisecondi oltre i quali una connessione ottenuta dal manager è considerata trattenuta e viene segnalata nel log, con il punto del codice in cui è stata ottenuta.
+	 * Il rilevatore è condiviso fra i manager con la stessa connection string e lo stesso utente; la soglia viene considerata soltanto alla sua creazione.
+	 * @return Soglia in millisecondi, 0 per non tracciare le connessioni
+	 */
+	public long GetLeakDetectionThreshold()
+	{
+		return 0;
+	}
+	
+	/**
+	 * Restituisce lo stato del rilevatore delle connessioni trattenute
+	 * @return ConnectionLeakStatistics con i contatori del rilevatore, null se il manager non traccia le connessioni
+	 */
+	public ConnectionLeakStatistics GetLeakDetectionStatistics()
+	{
+		return _leakDetector == null ? null : _leakDetector.GetStatistics();
+	}
+	
+	/**
+	 * Indica se i risultati di Get devono passare da una cache, condivisa fra i manager della stessa classe e invalidata da Save e Delete.
+	 * Le entity in cache sono le stesse istanze restituite ai chiamanti, che quindi non devono modificarle senza salvarle.
+	 * La cache non viene usata se la entity ha campi LOB (vedi EntityRowMapper.HasLobFields), che non possono essere letti da più chiamanti.
+	 * @return True per usare la cache, false per leggere sempre dal database
+	 */
+	public boolean UsingEntityCache()
+	{
+		return false;
+	}
+	
+	/**
+	 * Configurazione della cache di Get. Viene considerata soltanto alla creazione della cache.
+	 * @return EntityCacheConfiguration da usare per la cache
+	 */
+	public EntityCacheConfiguration GetEntityCacheConfiguration()
+	{
+		return new EntityCacheConfiguration();
+	}
+	
+	/**
+	 * Restituisce lo stato della cache di Get
+	 * @return EntityCacheStatistics con i contatori della cache, null se il manager non usa la cache
+	 */
+	public EntityCacheStatistics GetEntityCacheStatistics()
+	{
+		return _entityCache == null ? null : _entityCache.GetStatistics();
+	}
+	
+	/**
+	 * Indica se le chiamate concorrenti di Get ed ExecuteSelection con la stessa procedura e gli stessi parametri devono essere raggruppate:
+	 * la prima viene eseguita e le altre ne attendono la fine ricevendone lo stesso risultato, senza occupare altre connessioni.
+	 * Le chiamate raggruppate ricevono liste distinte ma le stesse istanze delle entity, che quindi non devono essere modificate senza salvarle.
+	 * Le chiamate all'interno di una UnitOfWork non vengono mai raggruppate, come quelle dei manager di entity con campi LOB (vedi EntityRowMapper.HasLobFields).
+	 * @return True per raggruppare le chiamate identiche, false per eseguirle sempre
+	 */
+	public boolean UsingRequestCoalescing()
+	{
+		return false;
+	}
+	
+	/**
+	 * Restituisce lo stato del raggruppamento delle chiamate identiche
+	 * @return SingleFlightStatistics con il numero di chiamate eseguite e raggruppate, null se il manager non raggruppa le chiamate
+	 */
+	public SingleFlightStatistics GetRequestCoalescingStatistics()
+	{
+		return _singleFlight == null ? null : _singleFlight.GetStatistics();
+	}
+	
+	/**
+	 * Indica se il manager può salvare le entity in modo differito con SaveBehind
+	 * @return True per abilitare SaveBehind, false altrimenti
+	 */
+	public boolean UsingWriteBehind()
+	{
+		return false;
+	}
+	
+	/**
+	 * Configurazione del buffer di scrittura differita, condiviso fra le istanze della stessa classe di manager
+	 * @return WriteBehindConfiguration da usare per il buffer
+	 */
+	public WriteBehindConfiguration GetWriteBehindConfiguration()
+	{
+		return new WriteBehindConfiguration();
+	}
+	
+	/**
+	 * Restituisce lo stato del buffer di scrittura differita
+	 * @return WriteBehindStatistics con i contatori del buffer, null se non è ancora stato usato SaveBehind
+	 */
+	public WriteBehindStatistics GetWriteBehindStatistics()
+	{
+		return _writeBehind == null ? null : _writeBehind.GetStatistics();
+	}
+	
+	/**
+	 * Restituisce il buffer di scrittura differita, creandolo al primo utilizzo
+	 * @return WriteBehindBuffer del manager
+	 */
+	private synchronized WriteBehindBuffer<TEntity, TEntityList> _getWriteBehind()
+	{
+		if (_writeBehind == null)
+			_writeBehind = WriteBehindBuffer.GetBuffer(this, GetWriteBehindConfiguration());
+		return _writeBehind;
+	}
+	
+	/**
+	 * Configurazione dell'esecutore dei metodi asincroni, condiviso fra i manager con la stessa connection string e lo stesso utente.
+	 * Di default, se si usa il connection pool interno, il numero di thread è pari al numero massimo di connessioni del pool.
+	 * @return AsyncExecutorConfiguration da usare per l'esecutore
+	 */
+	public AsyncExecutorConfiguration GetAsyncExecutorConfiguration()
+	{
+		AsyncExecutorConfiguration configuration = new AsyncExecutorConfiguration();
+		if (_connectionPool != null)
+			configuration.Threads = GetConnectionPoolConfiguration().MaxSize;
+		return configuration;
+	}
+	
+	/**
+	 * Restituisce lo stato dell'esecutore dei metodi asincroni
+	 * @return AsyncExecutorStatistics con i contatori dell'esecutore, null se non è ancora stato usato alcun metodo asincrono
+	 */
+	public AsyncExecutorStatistics GetAsyncExecutorStatistics()
+	{
+		return _asyncExecutor == null ? null : _asyncExecutor.GetStatistics();
+	}
+	
+	/**
+	 * Restituisce l'esecutore dei metodi asincroni, creandolo al primo utilizzo
+	 * @return AsyncExecutor del manager
+	 */
+	private synchronized AsyncExecutor _getAsyncExecutor()
+	{
+		if (_asyncExecutor == null)
+			_asyncExecutor = AsyncExecutor.GetExecutor(_getConnectionKey(), GetAsyncExecutorConfiguration());
+		return _asyncExecutor;
+	}
+	
+	/**
+	 * Restituisce lo stato dell'esecutore delle partizioni delle selezioni parallele
+	 * @return AsyncExecutorStatistics con i contatori dell'esecutore, null se non è ancora stata eseguita alcuna selezione parallela
+	 */
+	public AsyncExecutorStatistics GetPartitionExecutorStatistics()
+	{
+		return _partitionExecutor == null ? null : _partitionExecutor.GetStatistics();
+	}
+	
+	/**
+	 * Restituisce l'esecutore delle partizioni delle selezioni parallele, creandolo al primo utilizzo.
+	 * È distinto da quello dei metodi asincroni, così che una selezione parallela avviata da un'operazione asincrona non attenda partizioni accodate dietro di sé.
+	 * Ha la stessa configurazione dell'esecutore dei metodi asincroni.
+	 * @return AsyncExecutor delle partizioni del manager
+	 */
+	private synchronized AsyncExecutor _getPartitionExecutor()
+	{
+		if (_partitionExecutor == null)
+			_partitionExecutor = AsyncExecutor.GetExecutor(_getConnectionKey() + " partitions", GetAsyncExecutorConfiguration());
+		return _partitionExecutor;
+	}
+	
+	/**
+	 * Numero massimo di partizioni lette contemporaneamente dalle selezioni parallele. Di default è pari al numero di thread dell'esecutore delle partizioni.
+	 * @return Numero massimo di partizioni lette contemporaneamente
+	 */
+	public int GetPartitionParallelism()
+	{
+		return _getPartitionExecutor().GetThreads();
+	}
+	
+	/**
+	 * Tempo massimo (in millisecondi) di attesa delle partizioni di una selezione parallela. Le partizioni non completate entro questo tempo vengono annullate e risultano fallite.
+	 * @return Tempo massimo di attesa dell'intera selezione parallela
+	 */
+	public long GetPartitionTimeout()
+	{
+		return 600000;
+	}
+	
+	/**
+	 * Indica se le entity lette dal manager devono memorizzare i valori dei propri campi, così che Save invii al database soltanto quelle modificate.
+	 * Il costo è una copia dei valori dei campi annotati per ogni entity letta.
+	 * @return True per tracciare le modifiche, false per salvare sempre tutte le entity
+	 */
+	public boolean UsingDirtyTracking()
+	{
+		return false;
+	}
+	
+	/**
+	 * Indica se i parametri delle procedure devono essere scritti per posizione invece che per nome, per i driver che non gestiscono i parametri con nome.
+	 * Le posizioni seguono l'ordine di dichiarazione dei campi annotati, a partire da quelli della superclasse più lontana (o l'ordine della lista restituita da GetParameters), seguiti dai parametri della paginazione:
+	 * i segnaposto della chiamata devono essere nello stesso ordine.
+	 * @return True per scrivere i parametri per posizione, false per scriverli per nome
+	 */
+	public boolean UsingPositionalBinding()
+	{
+		return false;
+	}
+	
+	/**
+	 * Indica se il manager deve eseguire istruzioni SQL generate dalle annotazioni della entity (vedi EntitySQL) invece delle procedure.
+	 * Save esegue UPDATE per chiave e INSERT delle entity non trovate nella stessa transazione, o MERGE se UsingMergeStatements(); Delete esegue DELETE per chiave;
+	 * Get e List eseguono una SELECT che confronta ogni campo valorizzato del filtro con la colonna con lo stesso nome e Delete(filter) la DELETE corrispondente, che richiede almeno un campo valorizzato.
+	 * Se la entity ha un campo di versione, Save e Delete la confrontano con quella sul database e Save la incrementa: le entity modificate da altri non vengono salvate.
+	 * I nomi delle procedure non vengono usati e possono essere null. Tutti i parametri vengono scritti per posizione, anche quelli delle istruzioni passate a ExecuteSelection e ExecuteUpdate;
+	 * la paginazione per chiave e GetMultiGetProcedureName non sono disponibili.
+	 * @return True per usare le istruzioni SQL generate, false per chiamare le procedure
+	 */
+	public boolean UsingDirectSQL()
+	{
+		return false;
+	}
+	
+	/**
+	 * Indica se, nella modalità SQL diretta, Save deve usare un'unica MERGE per entity, nella sintassi Oracle, invece di UPDATE seguita da INSERT delle entity non trovate.
+	 * La MERGE non viene usata per le entity con un campo di versione.
+	 * @return True per salvare con MERGE, false per salvare con UPDATE e INSERT
+	 */
+	public boolean UsingMergeStatements()
+	{
+		return false;
+	}
+	
+	/**
+	 * Numero massimo di chiamate inviate al database in un unico batch da Save e Delete su una lista
+	 * @return Dimensione del blocco di chiamate
+	 */
+	public int GetBatchSize()
+	{
+		return 1000;
+	}
+	
+	/**
+	 * Indica se Save e Delete su una lista devono eseguire il commit ad ogni blocco di GetBatchSize() elementi invece che una sola volta alla fine.
+	 * Nella modalità SQL diretta UPDATE e INSERT delle righe mancanti (e la DELETE con controllo della versione) di ogni blocco vengono confermate insieme.
+	 * In una UnitOfWork il commit avviene comunque alla sua conclusione.
+	 * @return True per il commit ad ogni blocco, false per un unico commit alla fine (in caso di errore non viene salvato nulla)
+	 */
+	public boolean CommitEachBatch()
+	{
+		return false;
+	}
+	
+	/**
+	 * Nome del parametro delle procedure di selezione che riceve BaseFilter.PageSize nelle selezioni paginate
+	 * @return Nome del parametro della dimensione della pagina
+	 */
+	public String GetPageSizeParameterName()
+	{
+		return "PAGE_SIZE";
+	}
+	
+	/**
+	 * Prefisso dei parametri delle procedure di selezione che ricevono i valori dei campi chiave dell'ultima entity della pagina precedente.
+	 * Per ogni campo chiave della entity viene passato il parametro con il prefisso seguito dal nome del campo, null per la prima pagina.
+	 * @return Prefisso dei parametri della chiave di partenza
+	 */
+	public String GetKeysetParameterPrefix()
+	{
+		return "AFTER_";
+	}
+	
+	/**
+	 * Procedura che recupera più entity in una sola chiamata (vedi GetMany): per ogni parametro di ingresso del filtro riceve la lista dei valori separati da virgole
+	 * e restituisce le entity corrispondenti, ad esempio con una condizione IN sulla lista. Per default è null e GetMany esegue GetProcedureName una volta per filtro.
+	 * @return Nome della procedura di lettura multipla, null se il database non ne ha una
+	 */
+	public String GetMultiGetProcedureName()
+	{
+		return null;
+	}
+	
+	/**
+	 * Numero massimo di filtri passati in una sola chiamata a GetMultiGetProcedureName
+	 * @return Numero di valori di ciascuna lista
+	 */
+	public int GetMultiGetChunkSize()
+	{
+		return 100;
+	}
+	
+	/**
+	 * Tipo SQL con cui registrare i parametri di OUT di tipo REF CURSOR nelle selezioni a grafo (vedi ExecuteGraphSelection).
+	 * Il default è il tipo REF_CURSOR di JDBC 4.2; i driver che non lo supportano richiedono il proprio tipo, come OracleTypes.CURSOR.
+	 * @return Tipo SQL dei cursori
+	 */
+	public int GetRefCursorSqlType()
+	{
+		//Types.REF_CURSOR, non disponibile nelle versioni di Java precedenti alla 8
+		return 2012;
+	}
+	
+	/**
+	 * Strumentazione che riceve i tempi di connessione, preparazione ed esecuzione delle chiamate, le righe lette e i commit e rollback.
+	 * Viene letta una sola volta alla costruzione del manager; con il default JDBCInstrumentation.NONE il manager non misura alcun tempo.
+	 * @return JDBCInstrumentation da usare per il manager
+	 */
+	public JDBCInstrumentation GetInstrumentation()
+	{
+		return JDBCInstrumentation.NONE;
+	}
+	
 	/**
 	 * Costruttore base del JDBCManager, che registra il driver JDBC
 	 * @throws SQLException In caso di errori nella registrazione del driver JDBC
@@ -99,304 +512,2435 @@ public abstract class BaseJDBCManager<TEntity extends BaseEntity, TEntityList ex
 	 */
 	public BaseJDBCManager() throws SQLException, NamingException
 	{
-		if (UsingConnectionPool())
+		//un DataSource fornito dalla classe derivata sostituisce JNDI, pool interno e DriverManager
+		_dataSource = GetDataSource();
+		if (_dataSource == null)
+		{
+			if (UsingConnectionPool())
+			{
+				Context initialContext = new InitialContext();
+				_dataSource = (DataSource)initialContext.lookup(GetConnectionString());
+			}
+			else
+			{
+				DriverManager.registerDriver(GetJDBCDriver());
+				if (UsingEmbeddedConnectionPool())
+					_connectionPool = ConnectionPool.GetPool(GetConnectionString(), GetUsername(), GetPassword(), GetConnectionPoolConfiguration());
+			}
+		}
+		long leakDetectionThreshold = GetLeakDetectionThreshold();
+		if (leakDetectionThreshold > 0)
+			_leakDetector = ConnectionLeakDetector.GetDetector(_getConnectionKey(), leakDetectionThreshold);
+		List<DataSource> replicas = GetReadReplicas();
+		if (replicas != null && !replicas.isEmpty())
+			_replicaRouter = ReplicaRouter.GetRouter(this.getClass().getName(), replicas, GetReplicaRoutingConfiguration());
+		//i campi LOB si possono leggere una sola volta: le entity che li contengono non vanno condivise fra chiamanti
+		Class<TEntity> sharedType = GetEntityType();
+		boolean shareable = sharedType == null || !EntityRowMapper.Get(sharedType).HasLobFields();
+		if (UsingEntityCache() && shareable)
+			_entityCache = EntityCache.GetCache(this.getClass().getName(), GetEntityCacheConfiguration());
+		if (UsingRequestCoalescing() && shareable)
+			_singleFlight = SingleFlight.GetGroup(this.getClass().getName());
+		_dirtyTracking = UsingDirtyTracking();
+		if (UsingDirectSQL())
 		{
-			_initialContext = new InitialContext();
-			_dataSource = (DataSource)_initialContext.lookup(GetConnectionString());
+			Class<TEntity> entityType = GetEntityType();
+			if (entityType == null)
+				throw new IllegalStateException("Impossibile ricavare la classe della entity per la modalità SQL diretta: ridefinire GetEntityType");
+			_entitySQL = EntitySQL.Get(entityType);
 		}
-		else
-			DriverManager.registerDriver(GetJDBCDriver());
+		_positionalBinding = UsingPositionalBinding() || _entitySQL != null;
+		JDBCInstrumentation instrumentation = GetInstrumentation();
+		if (instrumentation != null && instrumentation != JDBCInstrumentation.NONE)
+		{
+			_instrumentation = instrumentation;
+			_instrumented = true;
+		}
+	}
+	
+	/**
+	 * Chiave che identifica il database del manager, composta da connection string e utente
+	 * @return Chiave del database
+	 */
+	private String _getConnectionKey()
+	{
+		return GetConnectionString() + "|" + GetUsername();
+	}
+	
+	/**
+	 * Restituisce una connessione al database. Se sul thread è aperta una UnitOfWork restituisce la sua connessione, senza autocommit anche per le letture così da vedere le modifiche non ancora confermate.
+	 * @param autoCommit Autocommit della connessione se non si è in una UnitOfWork
+	 * @return Connessione al Database, da rilasciare con _release
+	 * @throws SQLException In caso di errori nella creazione della connessione
+	 */
+	private Connection _getConnection(boolean autoCommit) throws SQLException
+	{
+		UnitOfWork unitOfWork = UnitOfWork.Current();
+		if (unitOfWork == null)
+			return _openConnection(autoCommit);
+		String key = _getConnectionKey();
+		Connection theConnection = unitOfWork.GetConnection(key);
+		if (theConnection == null)
+		{
+			theConnection = _openConnection(false);
+			try
+			{
+				unitOfWork.Enlist(key, theConnection);
+			}
+			catch (SQLException exc)
+			{
+				theConnection.close();
+				throw exc;
+			}
+		}
+		return theConnection;
+	}
+	
+	/**
+	 * Restituisce una connessione in autocommit per una selezione: da una replica se il manager ne ha e non si è in una UnitOfWork, altrimenti dal database principale
+	 * @return Connessione al Database, da rilasciare con _release
+	 * @throws SQLException In caso di errori nella creazione della connessione
+	 */
+	private Connection _getReadConnection() throws SQLException
+	{
+		if (_replicaRouter != null && UnitOfWork.Current() == null)
+		{
+			long start = _instrumented ? System.nanoTime() : 0;
+			Connection theConnection = _replicaRouter.GetConnection();
+			if (theConnection != null)
+			{
+				try
+				{
+					theConnection.setAutoCommit(true);
+				}
+				catch (SQLException exc)
+				{
+					theConnection.close();
+					throw exc;
+				}
+				if (_instrumented)
+					_instrumentation.ConnectionAcquired(System.nanoTime() - start);
+				return _leakDetector == null ? theConnection : _leakDetector.Track(theConnection);
+			}
+		}
+		return _getConnection(true);
 	}
 	
 	/**
-	 * Restituisce una connessione al database. La connessione è già aperta senza autocommit.
+	 * Apre una connessione al database principale, dal DataSource del manager, dal connection pool interno o dal DriverManager
+	 * @param autoCommit Autocommit della connessione
 	 * @return Connessione al Database
 	 * @throws SQLException In caso di errori nella creazione della connessione
 	 */
-	private Connection _getConnection() throws SQLException
+	private Connection _openConnection(boolean autoCommit) throws SQLException
 	{
+		long start = _instrumented ? System.nanoTime() : 0;
 		Connection theConnection;
-		if (UsingConnectionPool())
+		if (_dataSource != null)
 			theConnection = _dataSource.getConnection();
+		else if (_connectionPool != null)
+			theConnection = _connectionPool.GetConnection();
 		else
 			theConnection = DriverManager.getConnection(GetConnectionString(), GetUsername(), GetPassword());
-		theConnection.setAutoCommit(false);
-		return theConnection;
+		try
+		{
+			theConnection.setAutoCommit(autoCommit);
+		}
+		catch (SQLException exc)
+		{
+			theConnection.close();
+			throw exc;
+		}
+		if (_instrumented)
+			_instrumentation.ConnectionAcquired(System.nanoTime() - start);
+		return _leakDetector == null ? theConnection : _leakDetector.Track(theConnection);
+	}
+	
+	/**
+	 * Chiude uno statement e rilascia la connessione, a meno che non appartenga alla UnitOfWork del thread
+	 * @param dbConnection Connessione da rilasciare
+	 * @param statement Statement da chiudere, può essere null
+	 * @throws SQLException In caso di errori nella chiusura
+	 */
+	private void _release(Connection dbConnection, Statement statement) throws SQLException
+	{
+		_release(dbConnection, statement, null);
+	}
+	
+	/**
+	 * Chiude nell'ordine ResultSet, statement e connessione, a meno che la connessione non appartenga alla UnitOfWork del thread.
+	 * Ogni chiusura avviene anche se la precedente fallisce, così che un errore non lasci cursori aperti sul database.
+	 * @param dbConnection Connessione da rilasciare, può essere null
+	 * @param statement Statement da chiudere, può essere null
+	 * @param rs ResultSet da chiudere, può essere null
+	 * @throws SQLException In caso di errori nella chiusura
+	 */
+	private void _release(Connection dbConnection, Statement statement, ResultSet rs) throws SQLException
+	{
+		try
+		{
+			if (rs != null)
+				rs.close();
+		}
+		finally
+		{
+			try
+			{
+				if (statement != null)
+					statement.close();
+			}
+			finally
+			{
+				UnitOfWork unitOfWork = UnitOfWork.Current();
+				if (dbConnection != null && (unitOfWork == null || !unitOfWork.Owns(dbConnection)))
+					dbConnection.close();
+			}
+		}
 	}
 
 	/**
 	 * Aggiunge una serie di parametri ad un CallableStatement recuperandoli dai campi di una classe
 	 * @param e Classe da cui prendere i parametri
 	 * @param stmt CallableStatement a cui aggiungere i parametri
+	 * @return True se fra i parametri ce n'è almeno uno di OUT o INOUT, false altrimenti
 	 * @throws IllegalArgumentException Se il campo che si tenta di accedere non appartiene alla classe
 	 * @throws SQLException Se il nome del parametro in corrisponde a quello della procedura 
 	 * @throws IllegalAccessException Se il campo della classe non è accessibile
 	 */
-	private void _addParameters(SQLQuerable e, CallableStatement stmt) throws IllegalArgumentException, SQLException, IllegalAccessException
+	private boolean _addParameters(SQLQuerable e, CallableStatement stmt) throws IllegalArgumentException, SQLException, IllegalAccessException
 	{
+		boolean hasOutParameters = false;
 		ArrayList<SQLParameter> params = e.GetParameters();
 		if (params != null)
-			for(SQLParameter param : params)
+			for (int i = 0; i < params.size(); i++)
 			{
+				SQLParameter param = params.get(i);
+				String name = _positionalBinding ? null : param.Name;
 				if (param.Direction == ParameterDirection.IN || param.Direction == ParameterDirection.INOUT)
-					stmt.setObject(param.Name, param.Value);
+					SQLValueBinder.SetParameter(stmt, name, i + 1, param.SqlType, param.Value);
 				if (param.Direction == ParameterDirection.OUT || param.Direction == ParameterDirection.INOUT)
-					stmt.registerOutParameter(param.Name, param.SqlType);
+				{
+					if (name != null)
+						stmt.registerOutParameter(name, SQLValueBinder.ResolveType(param.SqlType, param.Value));
+					else
+						stmt.registerOutParameter(i + 1, SQLValueBinder.ResolveType(param.SqlType, param.Value));
+					hasOutParameters = true;
+				}
 			}
+		return hasOutParameters;
 	}
 	
-	/** Prepara un CallableStatement completo di parametri
-	 * @param dbConnection Connessione al db da cui istanziare la Connection
-	 * @param e SQLQuerable da cui prendere i parametri da agganciare al Callable statement
-	 * @param procedureName Nome della procedura da eseguire
-	 * @return CallableStatement completo di parametri
+	/**
+	 * Aggiunge i parametri di un SQLQuerable ad un CallableStatement, se la sua classe è mappata sulla base di dati.
+	 * I campi vengono letti direttamente attraverso le informazioni di mappatura della classe, senza costruire la lista di SQLParameter, a meno che la classe non ridefinisca GetParameters,
+	 * e scritti con il setter tipizzato scelto una sola volta per tipo di campo.
+	 * @param e SQLQuerable da cui prendere i parametri
+	 * @param stmt CallableStatement a cui aggiungere i parametri
+	 * @return True se fra i parametri aggiunti ce n'è almeno uno di OUT o INOUT, false altrimenti
+	 * @throws SQLException In caso di errori nella scrittura dei parametri nella procedura
+	 * @throws IllegalAccessException Se il campo della classe non fosse accessibile
+	 */
+	private boolean _bindParameters(SQLQuerable e, CallableStatement stmt) throws SQLException, IllegalAccessException
+	{
+		SQLQuerableMetadata metadata = SQLQuerableMetadata.Get(e.getClass());
+		if (!metadata.Mapped)
+			return false;
+		if (metadata.CustomParameters)
+			return _addParameters(e, stmt);
+		SQLFieldMetadata[] fields = metadata.Fields;
+		for (int i = 0; i < fields.length; i++)
+		{
+			if (_positionalBinding)
+				fields[i].Bind(stmt, i + 1, e);
+			else
+				fields[i].Bind(stmt, e);
+		}
+		return metadata.HasOutputFields;
+	}
+	
+	/**
+	 * Copia nei campi di un SQLQuerable i valori dei parametri di OUT e INOUT di un CallableStatement già eseguito.
+	 * Se la classe ridefinisce GetParameters vengono copiati soltanto i parametri di uscita che corrispondono ad un campo annotato.
+	 * @param e SQLQuerable da cui sono stati presi i parametri
+	 * @param stmt CallableStatement eseguito
+	 * @throws SQLException In caso di errori nella lettura dei parametri
+	 * @throws IllegalAccessException Se il campo della classe non fosse accessibile
+	 */
+	private void _readOutputParameters(SQLQuerable e, CallableStatement stmt) throws SQLException, IllegalAccessException
+	{
+		SQLQuerableMetadata metadata = SQLQuerableMetadata.Get(e.getClass());
+		if (!metadata.Mapped)
+			return;
+		if (!metadata.CustomParameters)
+		{
+			if (!_positionalBinding)
+			{
+				for (SQLFieldMetadata field : metadata.OutputFields)
+					field.ReadOutput(stmt, e);
+				return;
+			}
+			for (int i = 0; i < metadata.Fields.length; i++)
+				if (metadata.Fields[i].IsOutput())
+					metadata.Fields[i].ReadOutput(stmt, i + 1, e);
+			return;
+		}
+		ArrayList<SQLParameter> params = e.GetParameters();
+		if (params != null)
+			for (int i = 0; i < params.size(); i++)
+			{
+				SQLParameter param = params.get(i);
+				if (param.Direction == ParameterDirection.OUT || param.Direction == ParameterDirection.INOUT)
+				{
+					SQLFieldMetadata field = metadata.GetField(param.Name);
+					if (field == null)
+						continue;
+					if (_positionalBinding)
+						field.ReadOutput(stmt, i + 1, e);
+					else
+						field.ReadOutput(stmt, e);
+				}
+			}
+	}
+	
+	/**
+	 * Aggiunge ad un CallableStatement i parametri di una selezione paginata per chiave: la dimensione della pagina e i valori dei campi chiave da cui ripartire, ricavati dal token di continuazione
+	 * @param filter Filtro con dimensione della pagina e token di continuazione
+	 * @param stmt CallableStatement a cui aggiungere i parametri
+	 * @return Campi chiave della entity, con cui costruire il token della pagina successiva
+	 * @throws SQLException In caso di errori nella scrittura dei parametri nella procedura
+	 * @throws InstantiationException Se non è possibile ricavare la classe della entity o questa non ha campi chiave
+	 * @throws IllegalAccessException Se un campo del filtro non è accessibile
+	 */
+	private SQLFieldMetadata[] _bindPage(BaseFilter<TEntity> filter, CallableStatement stmt) throws SQLException, InstantiationException, IllegalAccessException
+	{
+		Class<TEntity> entityType = GetEntityType();
+		if (entityType == null)
+			throw new InstantiationException("Impossibile ricavare la classe della entity: ridefinire GetEntityType");
+		SQLFieldMetadata[] keyFields = SQLQuerableMetadata.Get(entityType).KeyFields;
+		if (keyFields.length == 0)
+			throw new InstantiationException("La paginazione richiede almeno un campo chiave nella entity " + entityType.getName());
+		Object[] values = filter.ContinuationToken == null ? new Object[keyFields.length] : KeysetCursor.Decode(keyFields, filter.ContinuationToken);
+		//per posizione i parametri della paginazione seguono quelli del filtro
+		int index = _parameterCount(filter);
+		SQLValueBinder.SetParameter(stmt, _positionalBinding ? null : GetPageSizeParameterName(), ++index, SQLValueBinder.INTEGER, Types.INTEGER, filter.PageSize);
+		String prefix = GetKeysetParameterPrefix();
+		for (int i = 0; i < keyFields.length; i++)
+			SQLValueBinder.SetParameter(stmt, _positionalBinding ? null : prefix + keyFields[i].Name, ++index, keyFields[i].SqlType, values[i]);
+		return keyFields;
+	}
+	
+	/**
+	 * Restituisce il numero di parametri agganciati ad uno statement da _bindParameters, dopo i quali vanno aggiunti per posizione gli altri parametri
+	 * @param e SQLQuerable da cui sono stati presi i parametri
+	 * @return Numero di parametri, 0 se il binding è per nome
+	 * @throws IllegalAccessException Se il campo della classe non fosse accessibile
+	 */
+	private int _parameterCount(SQLQuerable e) throws IllegalAccessException
+	{
+		if (!_positionalBinding)
+			return 0;
+		SQLQuerableMetadata metadata = SQLQuerableMetadata.Get(e.getClass());
+		if (!metadata.CustomParameters)
+			return metadata.Fields.length;
+		ArrayList<SQLParameter> params = e.GetParameters();
+		return params == null ? 0 : params.size();
+	}
+	
+	/**
+	 * Aggiunge i parametri di un SQLQuerable ad uno statement: le istruzioni per filtro della modalità SQL diretta hanno parametri soltanto per i campi valorizzati (vedi EntitySQL.BindFilter)
+	 * @param e SQLQuerable da cui prendere i parametri
+	 * @param stmt CallableStatement a cui aggiungere i parametri
+	 * @param procedureName Nome della procedura o testo dell'istruzione dello statement
+	 * @throws SQLException In caso di errori nella scrittura dei parametri
+	 * @throws IllegalAccessException Se il campo della classe non fosse accessibile
+	 */
+	private void _bindStatement(SQLQuerable e, CallableStatement stmt, String procedureName) throws SQLException, IllegalAccessException
+	{
+		if (_entitySQL != null && _entitySQL.IsFilterStatement(procedureName))
+			_entitySQL.BindFilter(stmt, e);
+		else
+			_bindParameters(e, stmt);
+	}
+	
+	/** Prepara un CallableStatement completo di parametri
+	 * @param dbConnection Connessione al db da cui istanziare la Connection
+	 * @param e SQLQuerable da cui prendere i parametri da agganciare al Callable statement
+	 * @param procedureName Nome della procedura da eseguire
+	 * @return CallableStatement completo di parametri
 	 * @throws SQLException In caso di errori nella scrittura dei parametri nella procedura
 	 * @throws IllegalAccessException Se il campo della classe non fosse accessibile
 	 */
 	private CallableStatement _prepareStatement(Connection dbConnection, SQLQuerable e, String procedureName) throws SQLException, IllegalAccessException 
 	{
-		EntityAttribute entityInfo = e.getClass().getAnnotation(EntityAttribute.class);
+		long start = _instrumented ? System.nanoTime() : 0;
 		CallableStatement callableStatement = dbConnection.prepareCall(procedureName);
-		if (e.getClass() == BaseFilter.class || entityInfo != null)
-			_addParameters(e, callableStatement);
+		boolean bound = false;
+		try
+		{
+			_bindStatement(e, callableStatement, procedureName);
+			bound = true;
+		}
+		finally
+		{
+			//se il binding fallisce lo statement non arriva al chiamante: lo chiudo qui
+			if (!bound)
+				callableStatement.close();
+		}
+		if (_instrumented)
+			_instrumentation.StatementPrepared(procedureName, System.nanoTime() - start);
 		return callableStatement;
 	}
 	
 	/**
-	 * Resituisce una entity a partire da un ResultSet
+	 * Esegue un CallableStatement di aggiornamento, misurandone il tempo se il manager è strumentato
+	 * @param callableStatement CallableStatement da eseguire
+	 * @param procedureName Nome della procedura
+	 * @param parameters SQLQuerable da cui sono stati presi i parametri
+	 * @return Numero di righe aggiornate
+	 * @throws SQLException In caso di errori nell'esecuzione della procedura
+	 */
+	private int _executeUpdate(CallableStatement callableStatement, String procedureName, SQLQuerable parameters) throws SQLException
+	{
+		if (!_instrumented)
+			return callableStatement.executeUpdate();
+		long start = System.nanoTime();
+		boolean success = false;
+		try
+		{
+			int count = callableStatement.executeUpdate();
+			success = true;
+			return count;
+		}
+		finally
+		{
+			_instrumentation.StatementExecuted(procedureName, parameters, 1, System.nanoTime() - start, success);
+		}
+	}
+	
+	/**
+	 * Esegue un CallableStatement di selezione, misurandone il tempo se il manager è strumentato
+	 * @param callableStatement CallableStatement da eseguire
+	 * @param procedureName Nome della procedura
+	 * @param parameters SQLQuerable da cui sono stati presi i parametri
+	 * @return ResultSet della procedura
+	 * @throws SQLException In caso di errori nell'esecuzione della procedura
+	 */
+	private ResultSet _executeQuery(CallableStatement callableStatement, String procedureName, SQLQuerable parameters) throws SQLException
+	{
+		if (!_instrumented)
+			return callableStatement.executeQuery();
+		long start = System.nanoTime();
+		boolean success = false;
+		try
+		{
+			ResultSet rs = callableStatement.executeQuery();
+			success = true;
+			return rs;
+		}
+		finally
+		{
+			_instrumentation.StatementExecuted(procedureName, parameters, 1, System.nanoTime() - start, success);
+		}
+	}
+	
+	/**
+	 * Esegue un CallableStatement che può restituire più result set, misurandone il tempo se il manager è strumentato
+	 * @param callableStatement CallableStatement da eseguire
+	 * @param procedureName Nome della procedura
+	 * @param parameters SQLQuerable da cui sono stati presi i parametri
+	 * @return True se il primo risultato è un ResultSet, false se è un numero di righe aggiornate o non ci sono risultati
+	 * @throws SQLException In caso di errori nell'esecuzione della procedura
+	 */
+	private boolean _execute(CallableStatement callableStatement, String procedureName, SQLQuerable parameters) throws SQLException
+	{
+		if (!_instrumented)
+			return callableStatement.execute();
+		long start = System.nanoTime();
+		boolean success = false;
+		try
+		{
+			boolean isResultSet = callableStatement.execute();
+			success = true;
+			return isResultSet;
+		}
+		finally
+		{
+			_instrumentation.StatementExecuted(procedureName, parameters, 1, System.nanoTime() - start, success);
+		}
+	}
+	
+	/**
+	 * Esegue il commit della transazione, segnalandolo alla strumentazione. Se la connessione appartiene alla UnitOfWork del thread il commit è rimandato alla sua conclusione.
+	 * @param dbConnection Connessione della transazione
+	 * @param procedureName Nome della procedura che ha originato la transazione
+	 * @return True se il commit è stato eseguito, false se è stato rimandato alla UnitOfWork
+	 * @throws SQLException In caso di errori nel commit
+	 */
+	private boolean _commit(Connection dbConnection, String procedureName) throws SQLException
+	{
+		UnitOfWork unitOfWork = UnitOfWork.Current();
+		if (unitOfWork != null && unitOfWork.Owns(dbConnection))
+			return false;
+		dbConnection.commit();
+		if (_instrumented)
+			_instrumentation.Committed(procedureName);
+		return true;
+	}
+	
+	/**
+	 * Esegue il rollback della transazione, segnalandolo alla strumentazione. Se la connessione appartiene alla UnitOfWork del thread, anche questa viene annullata.
+	 * @param dbConnection Connessione della transazione
+	 * @param procedureName Nome della procedura che ha originato la transazione
+	 * @throws SQLException In caso di errori nel rollback
+	 */
+	private void _rollback(Connection dbConnection, String procedureName) throws SQLException
+	{
+		UnitOfWork unitOfWork = UnitOfWork.Current();
+		if (unitOfWork != null && unitOfWork.Owns(dbConnection))
+			unitOfWork.SetRollbackOnly();
+		dbConnection.rollback();
+		if (_instrumented)
+			_instrumentation.RolledBack(procedureName);
+	}
+	
+	/**
+	 * Segnala alla strumentazione le righe lette da un ResultSet
+	 * @param procedureName Nome della procedura
+	 * @param rows Numero di righe lette
+	 * @param start Valore di System.nanoTime() all'inizio della lettura
+	 */
+	private void _resultsMapped(String procedureName, long rows, long start)
+	{
+		if (_instrumented)
+			_instrumentation.ResultsMapped(procedureName, rows, System.nanoTime() - start);
+	}
+	
+	/**
+	 * Esegue una procedura per ogni elemento di una lista riusando un unico CallableStatement e inviando le chiamate al database a blocchi di GetBatchSize() elementi.
+	 * Le entity con parametri di OUT o INOUT vengono eseguite singolarmente, perché JDBC non consente di leggere i parametri di uscita di un batch, e i valori di uscita vengono copiati nei loro campi.
+	 * @param list Lista delle entity da passare alla procedura
+	 * @param procedureName Nome della procedura
+	 * @return DBResponse con il risultato dell'esecuzione, il numero di righe aggiornate per ogni entity e le entity fallite
+	 * @throws SQLException In caso di errori nella gestione della connessione
+	 * @throws IllegalAccessException Se almeno un campo della classe non è accessibile
+	 */
+	private DBResponse<TEntity, TEntityList> _executeBatch(List<TEntity> list, String procedureName) throws SQLException, IllegalAccessException
+	{
+		return _executeBatch(list, procedureName, null);
+	}
+	
+	/**
+	 * Come _executeBatch(list, procedureName), ma se fields non è null i parametri vengono scritti per posizione con i soli valori dei campi indicati, nel loro ordine
+	 * @param list Lista delle entity da passare all'istruzione
+	 * @param procedureName Nome della procedura o testo dell'istruzione SQL
+	 * @param fields Campi da cui leggere i valori dei parametri, null per i parametri della entity
+	 * @return DBResponse con il risultato dell'esecuzione, il numero di righe aggiornate per ogni entity e le entity fallite
+	 * @throws SQLException In caso di errori nella gestione della connessione
+	 * @throws IllegalAccessException Se almeno un campo della classe non è accessibile
+	 */
+	private DBResponse<TEntity, TEntityList> _executeBatch(List<TEntity> list, String procedureName, SQLFieldMetadata[] fields) throws SQLException, IllegalAccessException
+	{
+		DBResponse<TEntity, TEntityList> theResponse = new DBResponse<TEntity, TEntityList>();
+		theResponse.UpdateCounts = new int[list.size()];
+		theResponse.FailedRows = new ArrayList<Integer>();
+		Arrays.fill(theResponse.UpdateCounts, Statement.EXECUTE_FAILED);
+		int batchSize = Math.max(1, GetBatchSize());
+		boolean commitEachBatch = CommitEachBatch();
+		//righe accodate nel batch corrente e prima riga non ancora confermata
+		int[] batchRows = new int[batchSize];
+		int pending = 0;
+		int uncommitted = 0;
+		int current = -1;
+		Connection dbConnection = _getConnection(false);
+		CallableStatement callableStatement = null;
+		try
+		{
+			long start = _instrumented ? System.nanoTime() : 0;
+			callableStatement = dbConnection.prepareCall(procedureName);
+			if (_instrumented)
+				_instrumentation.StatementPrepared(procedureName, System.nanoTime() - start);
+			for (current = 0; current < list.size(); current++)
+			{
+				if (fields != null)
+				{
+					for (int i = 0; i < fields.length; i++)
+						fields[i].BindValue(callableStatement, i + 1, list.get(current));
+					callableStatement.addBatch();
+					batchRows[pending++] = current;
+				}
+				else if (_bindParameters(list.get(current), callableStatement))
+				{
+					_flushBatch(callableStatement, procedureName, list, batchRows, pending, theResponse.UpdateCounts);
+					pending = 0;
+					theResponse.UpdateCounts[current] = _executeUpdate(callableStatement, procedureName, list.get(current));
+					_readOutputParameters(list.get(current), callableStatement);
+				}
+				else
+				{
+					callableStatement.addBatch();
+					batchRows[pending++] = current;
+				}
+				if ((current + 1) % batchSize == 0 || current == list.size() - 1)
+				{
+					_flushBatch(callableStatement, procedureName, list, batchRows, pending, theResponse.UpdateCounts);
+					pending = 0;
+					if (commitEachBatch && _commit(dbConnection, procedureName))
+						uncommitted = current + 1;
+				}
+			}
+			_commit(dbConnection, procedureName);
+			theResponse.Success = true;
+		}
+		catch (SQLException exc)
+		{
+			theResponse.Success = false;
+			theResponse.Message = exc.getLocalizedMessage();
+			if (exc instanceof BatchUpdateException)
+			{
+				int[] counts = ((BatchUpdateException)exc).getUpdateCounts();
+				int executed = counts == null ? 0 : counts.length;
+				for (int i = 0; i < executed && i < pending; i++)
+					if (counts[i] == Statement.EXECUTE_FAILED)
+						theResponse.FailedRows.add(batchRows[i]);
+				if (executed < pending)
+					theResponse.FailedRows.add(batchRows[executed]);
+			}
+			else if (current >= 0 && current < list.size())
+				theResponse.FailedRows.add(current);
+			exc.printStackTrace();
+			_rollback(dbConnection, procedureName);
+			//le righe successive all'ultimo commit non sono state salvate
+			Arrays.fill(theResponse.UpdateCounts, uncommitted, list.size(), Statement.EXECUTE_FAILED);
+		}
+		finally
+		{
+			_release(dbConnection, callableStatement);
+		}
+		return theResponse;
+	}
+	
+	/**
+	 * Invia al database le chiamate accodate nel batch di un CallableStatement
+	 * @param callableStatement CallableStatement con le chiamate accodate
+	 * @param procedureName Nome della procedura
+	 * @param list Lista delle entity passate alla procedura
+	 * @param batchRows Posizioni nella lista delle entity accodate
+	 * @param pending Numero di chiamate accodate
+	 * @param updateCounts Array in cui scrivere il numero di righe aggiornate per ogni entity
+	 * @throws SQLException In caso di errori nell'esecuzione del batch
+	 */
+	private void _flushBatch(CallableStatement callableStatement, String procedureName, List<TEntity> list, int[] batchRows, int pending, int[] updateCounts) throws SQLException
+	{
+		if (pending == 0)
+			return;
+		int[] counts;
+		if (!_instrumented)
+			counts = callableStatement.executeBatch();
+		else
+		{
+			long start = System.nanoTime();
+			boolean success = false;
+			try
+			{
+				counts = callableStatement.executeBatch();
+				success = true;
+			}
+			finally
+			{
+				_instrumentation.StatementExecuted(procedureName, list.get(batchRows[0]), pending, System.nanoTime() - start, success);
+			}
+		}
+		for (int i = 0; i < counts.length && i < pending; i++)
+			updateCounts[batchRows[i]] = counts[i];
+	}
+	
+	/**
+	 * Se il manager traccia le modifiche, memorizza i valori dei campi di una entity appena letta
+	 * @param e Entity letta dal database
+	 * @return La stessa entity
+	 * @throws IllegalAccessException Se un campo della classe non è accessibile
+	 */
+	private TEntity _loaded(TEntity e) throws IllegalAccessException
+	{
+		if (_dirtyTracking && e != null)
+			e.MarkClean();
+		return e;
+	}
+	
+	/**
+	 * Resituisce una entity a partire da un ResultSet. Di default usa l'EntityRowMapper della entity, costruito dalle annotazioni EntityFieldAttribute.
 	 * @param rs ResultSet che contiene i dati della entity
 	 * @throws InstantiationException In caso di errori nella creazione dell'oggetto
 	 * @return TEntity popolata
 	 */
-	public abstract TEntity EntityFromResultSet(ResultSet rs) throws InstantiationException;
+	public TEntity EntityFromResultSet(ResultSet rs) throws InstantiationException
+	{
+		EntityRowMapper<TEntity> mapper = _getRowMapper();
+		try
+		{
+			return mapper.MapRow(rs, mapper.ResolveColumns(rs));
+		}
+		catch (SQLException exc)
+		{
+			throw new InstantiationException(exc.getLocalizedMessage());
+		}
+	}
+	
+	/**
+	 * Classe delle entity gestite dal manager. Di default viene ricavata dai parametri generici della classe derivata.
+	 * @return Classe della TEntity, null se non è possibile ricavarla
+	 */
+	@SuppressWarnings("unchecked")
+	public Class<TEntity> GetEntityType()
+	{
+		if (_entityType == null)
+			_entityType = (Class<TEntity>)_resolveTypeArgument(0);
+		return _entityType;
+	}
+	
+	/**
+	 * Classe delle liste di entity gestite dal manager. Di default viene ricavata dai parametri generici della classe derivata.
+	 * @return Classe della TEntityList, null se non è possibile ricavarla
+	 */
+	@SuppressWarnings("unchecked")
+	public Class<TEntityList> GetEntityListType()
+	{
+		if (_entityListType == null)
+			_entityListType = (Class<TEntityList>)_resolveTypeArgument(1);
+		return _entityListType;
+	}
+	
+	/**
+	 * Ricava la classe concreta di un parametro generico di BaseJDBCManager risalendo la gerarchia della classe derivata
+	 * @param index Posizione del parametro generico (0 per TEntity, 1 per TEntityList)
+	 * @return Classe del parametro, null se non è possibile ricavarla
+	 */
+	private Class<?> _resolveTypeArgument(int index)
+	{
+		HashMap<TypeVariable<?>, Type> bindings = new HashMap<TypeVariable<?>, Type>();
+		Class<?> current = this.getClass();
+		while (current != null && current != BaseJDBCManager.class)
+		{
+			Type superType = current.getGenericSuperclass();
+			Class<?> superClass = current.getSuperclass();
+			if (superType instanceof ParameterizedType)
+			{
+				Type[] arguments = ((ParameterizedType)superType).getActualTypeArguments();
+				TypeVariable<?>[] variables = superClass.getTypeParameters();
+				for (int i = 0; i < arguments.length; i++)
+				{
+					Type argument = arguments[i];
+					if (argument instanceof TypeVariable && bindings.containsKey(argument))
+						argument = bindings.get(argument);
+					bindings.put(variables[i], argument);
+				}
+			}
+			current = superClass;
+		}
+		Type resolved = bindings.get(BaseJDBCManager.class.getTypeParameters()[index]);
+		if (resolved instanceof Class)
+			return (Class<?>)resolved;
+		if (resolved instanceof ParameterizedType)
+			return (Class<?>)((ParameterizedType)resolved).getRawType();
+		return null;
+	}
+	
+	/**
+	 * Indica se la classe derivata usa l'implementazione di default di EntityFromResultSet
+	 * @return True se EntityFromResultSet non è ridefinito
+	 */
+	private boolean _usesDefaultMapping()
+	{
+		if (_defaultMapping == null)
+		{
+			try
+			{
+				_defaultMapping = this.getClass().getMethod("EntityFromResultSet", ResultSet.class).getDeclaringClass() == BaseJDBCManager.class;
+			}
+			catch (NoSuchMethodException exc)
+			{
+				_defaultMapping = false;
+			}
+		}
+		return _defaultMapping;
+	}
+	
+	/**
+	 * Restituisce l'EntityRowMapper della entity gestita dal manager
+	 * @return EntityRowMapper della TEntity
+	 * @throws InstantiationException Se non è possibile ricavare la classe della entity
+	 */
+	private EntityRowMapper<TEntity> _getRowMapper() throws InstantiationException
+	{
+		Class<TEntity> entityType = GetEntityType();
+		if (entityType == null)
+			throw new InstantiationException("Impossibile ricavare la classe della entity: ridefinire GetEntityType o EntityFromResultSet");
+		return EntityRowMapper.Get(entityType);
+	}
 
 	/**
-	 * Salva una TEntity sulla base di dati
-	 * @param e TEntity da salvare 
-	 * @param listType Tipo della lista relativa alla entity da salvare
-	 * @return DBResponse con il risultato dell'esecuzione della query
-	 * @throws InstantiationException Nel caso di errori nella creazione dell'istanza della classe
+	 * Procedura o istruzione di Get per un filtro: nella modalità SQL diretta la SELECT generata per la classe del filtro
+	 * @param filter Filtro della Get
+	 * @return Nome della procedura o testo della SELECT
+	 */
+	private String _getProcedureName(BaseFilter<TEntity> filter) throws IllegalAccessException
+	{
+		return _entitySQL == null ? GetProcedureName() : _entitySQL.Select(filter);
+	}
+	
+	/**
+	 * Procedura o istruzione di List per un filtro: nella modalità SQL diretta la SELECT generata per la classe del filtro
+	 * @param filter Filtro della List
+	 * @return Nome della procedura o testo della SELECT
+	 */
+	private String _getListProcedureName(BaseFilter<TEntity> filter) throws IllegalAccessException
+	{
+		return _entitySQL == null ? GetListProcedureName() : _entitySQL.Select(filter);
+	}
+	
+	/**
+	 * Salva una lista di entity con la procedura di salvataggio o, nella modalità SQL diretta, con le istruzioni generate
+	 * @param list Lista da salvare
+	 * @return DBResponse con il risultato dell'esecuzione, il numero di righe aggiornate per ogni entity e le entity fallite
+	 * @throws SQLException In caso di errori nella gestione della connessione
+	 * @throws IllegalAccessException Se almeno un campo della classe non è accessibile
+	 */
+	private DBResponse<TEntity, TEntityList> _save(List<TEntity> list) throws SQLException, IllegalAccessException
+	{
+		if (_entitySQL == null)
+			return _executeBatch(list, GetSaveProcedureName());
+		if (_entitySQL.Merge != null && UsingMergeStatements())
+			return _executeBatch(list, _entitySQL.Merge, _entitySQL.MergeFields);
+		return _executeDirect(list, false);
+	}
+	
+	/**
+	 * Esegue nella modalità SQL diretta le operazioni che devono essere confermate insieme: UPDATE e INSERT delle righe mancanti in Save, DELETE con controllo della versione in Delete.
+	 * Se CommitEachBatch() e il thread non è in una UnitOfWork, le entity vengono elaborate e confermate a blocchi di GetBatchSize():
+	 * al primo blocco fallito l'elaborazione si interrompe e le entity dei blocchi successivi risultano non eseguite (Statement.EXECUTE_FAILED).
+	 * @param list Lista delle entity
+	 * @param delete True per la cancellazione, false per il salvataggio
+	 * @return DBResponse con il risultato dell'esecuzione, il numero di righe aggiornate per ogni entity e le entity fallite
+	 * @throws SQLException In caso di errori nella gestione della connessione
+	 * @throws IllegalAccessException Se almeno un campo della classe non è accessibile
+	 */
+	private DBResponse<TEntity, TEntityList> _executeDirect(List<TEntity> list, boolean delete) throws SQLException, IllegalAccessException
+	{
+		int batchSize = Math.max(1, GetBatchSize());
+		if (!CommitEachBatch() || list.size() <= batchSize || UnitOfWork.Current() != null)
+			return _executeTransaction(list, delete);
+		DBResponse<TEntity, TEntityList> theResponse = new DBResponse<TEntity, TEntityList>();
+		theResponse.UpdateCounts = new int[list.size()];
+		theResponse.FailedRows = new ArrayList<Integer>();
+		theResponse.Success = true;
+		Arrays.fill(theResponse.UpdateCounts, Statement.EXECUTE_FAILED);
+		for (int from = 0; from < list.size() && theResponse.Success; from += batchSize)
+		{
+			List<TEntity> chunk = list.subList(from, Math.min(from + batchSize, list.size()));
+			DBResponse<TEntity, TEntityList> chunkResponse = _executeTransaction(chunk, delete);
+			System.arraycopy(chunkResponse.UpdateCounts, 0, theResponse.UpdateCounts, from, chunk.size());
+			for (Integer failed : chunkResponse.FailedRows)
+				theResponse.FailedRows.add(from + failed);
+			theResponse.Success = chunkResponse.Success;
+			theResponse.Message = chunkResponse.Message;
+		}
+		return theResponse;
+	}
+	
+	/**
+	 * Esegue in un'unica transazione UPDATE e INSERT delle righe mancanti, o DELETE con controllo della versione, di una lista di entity.
+	 * Se il thread è già in una UnitOfWork la transazione è la sua, altrimenti ne viene aperta una.
+	 * @param list Lista delle entity
+	 * @param delete True per la cancellazione, false per il salvataggio
+	 * @return DBResponse con il risultato dell'esecuzione, il numero di righe aggiornate per ogni entity e le entity fallite
+	 * @throws SQLException In caso di errori nella gestione della connessione
+	 * @throws IllegalAccessException Se almeno un campo della classe non è accessibile
+	 */
+	private DBResponse<TEntity, TEntityList> _executeTransaction(List<TEntity> list, boolean delete) throws SQLException, IllegalAccessException
+	{
+		UnitOfWork unitOfWork = UnitOfWork.Begin();
+		try
+		{
+			DBResponse<TEntity, TEntityList> theResponse;
+			if (delete)
+			{
+				theResponse = _executeBatch(list, _entitySQL.Delete, _entitySQL.DeleteFields);
+				if (theResponse.Success)
+					_checkDeleted(theResponse);
+			}
+			else
+			{
+				theResponse = _executeBatch(list, _entitySQL.Update, _entitySQL.UpdateFields);
+				boolean[] inserted = new boolean[list.size()];
+				if (theResponse.Success)
+					_insertMissing(list, theResponse, inserted);
+				if (theResponse.Success)
+					_advanceVersionsAfterCommit(unitOfWork, list, inserted);
+			}
+			if (!theResponse.Success)
+			{
+				unitOfWork.Rollback();
+				Arrays.fill(theResponse.UpdateCounts, Statement.EXECUTE_FAILED);
+				return theResponse;
+			}
+			try
+			{
+				unitOfWork.Commit();
+			}
+			catch (SQLException exc)
+			{
+				theResponse.Success = false;
+				theResponse.Message = exc.getLocalizedMessage();
+				Arrays.fill(theResponse.UpdateCounts, Statement.EXECUTE_FAILED);
+				exc.printStackTrace();
+			}
+			return theResponse;
+		}
+		finally
+		{
+			unitOfWork.Close();
+		}
+	}
+	
+	/**
+	 * Fa avanzare le versioni delle entity salvate quando la transazione più esterna viene confermata
+	 * @param unitOfWork UnitOfWork del salvataggio
+	 * @param list Lista delle entity salvate
+	 * @param inserted Entity inserite invece che aggiornate
+	 * @throws SQLException Se la UnitOfWork è già stata conclusa
+	 */
+	private void _advanceVersionsAfterCommit(UnitOfWork unitOfWork, List<TEntity> list, boolean[] inserted) throws SQLException
+	{
+		if (_entitySQL.VersionField == null)
+			return;
+		final EntitySQL entitySQL = _entitySQL;
+		final ArrayList<TEntity> saved = new ArrayList<TEntity>(list);
+		final boolean[] savedInserted = inserted;
+		unitOfWork.AfterCommit(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				try
+				{
+					for (int i = 0; i < saved.size(); i++)
+						entitySQL.AdvanceVersion(saved.get(i), savedInserted[i]);
+				}
+				catch (IllegalAccessException exc)
+				{
+					throw new IllegalStateException(exc);
+				}
+			}
+		});
+	}
+	
+	/**
+	 * Dopo la DELETE con controllo della versione della modalità SQL diretta fa fallire la cancellazione se qualche entity non ha cancellato nessuna riga:
+	 * la riga è stata modificata o cancellata da altri dopo la lettura.
+	 * Se il driver non restituisce il numero di righe cancellate (Statement.SUCCESS_NO_INFO) non è possibile verificare le versioni e la cancellazione fallisce.
+	 * @param theResponse DBResponse della DELETE
+	 */
+	private void _checkDeleted(DBResponse<TEntity, TEntityList> theResponse)
+	{
+		for (int i = 0; i < theResponse.UpdateCounts.length; i++)
+		{
+			if (theResponse.UpdateCounts[i] == Statement.SUCCESS_NO_INFO)
+			{
+				theResponse.Success = false;
+				theResponse.Message = "Il driver non restituisce il numero di righe cancellate: impossibile verificare le versioni delle entity";
+				return;
+			}
+			if (theResponse.UpdateCounts[i] == 0)
+				theResponse.FailedRows.add(i);
+		}
+		if (!theResponse.FailedRows.isEmpty())
+			_failStale(theResponse);
+	}
+	
+	/**
+	 * Fa fallire un salvataggio o una cancellazione con versione per le entity in FailedRows
+	 * @param theResponse DBResponse da far fallire
+	 */
+	private static void _failStale(DBResponse<?, ?> theResponse)
+	{
+		theResponse.Success = false;
+		theResponse.Message = theResponse.FailedRows.size() + " entity sono state modificate o cancellate da un altro utente dopo essere state lette";
+	}
+	
+	/**
+	 * Dopo l'UPDATE della modalità SQL diretta inserisce le entity che non hanno aggiornato nessuna riga.
+	 * Le entity con una versione che non hanno aggiornato nessuna riga sono state modificate o cancellate da altri: non vengono inserite e il salvataggio fallisce.
+	 * Se il driver non restituisce il numero di righe aggiornate (Statement.SUCCESS_NO_INFO) non è possibile sapere quali entity inserire e il salvataggio fallisce: in questo caso va usato UsingMergeStatements.
+	 * @param list Lista delle entity salvate
+	 * @param theResponse DBResponse dell'UPDATE, in cui riportare il risultato degli inserimenti
+	 * @param inserted Array in cui segnare le entity inserite
+	 * @throws SQLException In caso di errori nella gestione della connessione
+	 * @throws IllegalAccessException Se almeno un campo della classe non è accessibile
+	 */
+	private void _insertMissing(List<TEntity> list, DBResponse<TEntity, TEntityList> theResponse, boolean[] inserted) throws SQLException, IllegalAccessException
+	{
+		ArrayList<TEntity> missing = new ArrayList<TEntity>();
+		int[] positions = new int[list.size()];
+		for (int i = 0; i < list.size(); i++)
+		{
+			if (theResponse.UpdateCounts[i] == Statement.SUCCESS_NO_INFO)
+			{
+				theResponse.Success = false;
+				theResponse.Message = "Il driver non restituisce il numero di righe aggiornate: impossibile distinguere le entity da inserire, usare UsingMergeStatements";
+				return;
+			}
+			if (theResponse.UpdateCounts[i] != 0)
+				continue;
+			if (_entitySQL.VersionField != null && !_entitySQL.IsNew(list.get(i)))
+				theResponse.FailedRows.add(i);
+			else
+			{
+				positions[missing.size()] = i;
+				missing.add(list.get(i));
+			}
+		}
+		if (!theResponse.FailedRows.isEmpty())
+		{
+			_failStale(theResponse);
+			return;
+		}
+		if (missing.isEmpty())
+			return;
+		DBResponse<TEntity, TEntityList> insertResponse = _executeBatch(missing, _entitySQL.Insert, _entitySQL.InsertFields);
+		for (int j = 0; j < missing.size(); j++)
+		{
+			theResponse.UpdateCounts[positions[j]] = insertResponse.UpdateCounts[j];
+			inserted[positions[j]] = true;
+		}
+		for (Integer failed : insertResponse.FailedRows)
+			theResponse.FailedRows.add(positions[failed]);
+		theResponse.Success = insertResponse.Success;
+		theResponse.Message = insertResponse.Message;
+	}
+	
+	/**
+	 * Salva una TEntity sulla base di dati
+	 * @param e TEntity da salvare 
+	 * @param listType Tipo della lista relativa alla entity da salvare
+	 * @return DBResponse con il risultato dell'esecuzione della query
+	 * @throws InstantiationException Nel caso di errori nella creazione dell'istanza della classe
+	 * @throws IllegalAccessException Nel caso di errori nell'accesso ai campi della classe
+	 * @throws SQLException In caso di errori nell'esecuzione delle procedure SQL
+	 * @throws IllegalArgumentException In caso di anomalie nell'accesso ai campi della classe
+	 */
+	public DBResponse<TEntity, TEntityList> Save(TEntity e, Class<TEntityList> listType) throws InstantiationException, IllegalAccessException, IllegalArgumentException, SQLException
+	{
+		TEntityList theList = listType.newInstance();
+		theList.add(e);
+		return Save(theList);
+	}
+
+	/**
+	 * Salva una lista di oggetti TEntity sulla base di dati, inviando le chiamate alla procedura di salvataggio a blocchi di GetBatchSize() elementi.
+	 * I valori dei parametri di OUT e INOUT (ad esempio le chiavi generate) vengono copiati nei campi delle entity.
+	 * Se il manager traccia le modifiche, le entity non modificate dal caricamento non vengono inviate al database: il loro numero di righe aggiornate è 0 e sono contate in DBResponse.Skipped.
+	 * @param list Lista da salvare
+	 * @return DBResponse con il risultato dell'esecuzione della query e il numero di righe aggiornate per ogni entity
+	 * @throws SQLException In caso di errori nell'esecuzione delle procedure SQL
+	 * @throws IllegalArgumentException In caso di anomalie nell'accesso ai campi della classe o se la lista è una ColumnarEntityList
+	 * @throws IllegalAccessException Se almeno un campo della classe non è accessibile
+	 */
+	public DBResponse<TEntity, TEntityList> Save(TEntityList list) throws SQLException, IllegalArgumentException, IllegalAccessException
+	{
+		_checkWritable(list);
+		if (!_dirtyTracking)
+		{
+			try
+			{
+				return _save(list);
+			}
+			finally
+			{
+				_invalidateCache(list);
+			}
+		}
+		ArrayList<TEntity> changed = new ArrayList<TEntity>();
+		int[] positions = new int[list.size()];
+		for (int i = 0; i < list.size(); i++)
+			if (list.get(i).IsDirty())
+			{
+				positions[changed.size()] = i;
+				changed.add(list.get(i));
+			}
+		DBResponse<TEntity, TEntityList> changedResponse;
+		if (changed.isEmpty())
+		{
+			changedResponse = new DBResponse<TEntity, TEntityList>();
+			changedResponse.UpdateCounts = new int[0];
+			changedResponse.FailedRows = new ArrayList<Integer>();
+			changedResponse.Success = true;
+		}
+		else
+		{
+			try
+			{
+				changedResponse = _save(changed);
+			}
+			finally
+			{
+				_invalidateCache(changed);
+			}
+		}
+		//riporto i risultati alle posizioni della lista originale
+		DBResponse<TEntity, TEntityList> theResponse = new DBResponse<TEntity, TEntityList>();
+		theResponse.Success = changedResponse.Success;
+		theResponse.Message = changedResponse.Message;
+		theResponse.Skipped = list.size() - changed.size();
+		theResponse.UpdateCounts = new int[list.size()];
+		theResponse.FailedRows = new ArrayList<Integer>();
+		for (int j = 0; j < changed.size(); j++)
+			theResponse.UpdateCounts[positions[j]] = changedResponse.UpdateCounts[j];
+		for (Integer failed : changedResponse.FailedRows)
+			theResponse.FailedRows.add(positions[failed]);
+		_markSaved(changed, changedResponse.UpdateCounts);
+		return theResponse;
+	}
+	
+	/**
+	 * Segna come non modificate le entity salvate. In una UnitOfWork il salvataggio potrebbe ancora essere annullato:
+	 * i valori salvati vengono catturati subito e le entity segnate soltanto dopo il commit della UnitOfWork più esterna.
+	 * @param saved Entity inviate al database
+	 * @param updateCounts Numero di righe aggiornate per ogni entity, Statement.EXECUTE_FAILED per quelle non salvate
+	 * @throws SQLException Se la UnitOfWork del thread è già stata conclusa
+	 * @throws IllegalAccessException Se un campo della classe non è accessibile
+	 */
+	private void _markSaved(List<TEntity> saved, int[] updateCounts) throws SQLException, IllegalAccessException
+	{
+		UnitOfWork unitOfWork = UnitOfWork.Current();
+		if (unitOfWork == null)
+		{
+			for (int j = 0; j < saved.size(); j++)
+				if (updateCounts[j] != Statement.EXECUTE_FAILED)
+					saved.get(j).MarkClean();
+			return;
+		}
+		final ArrayList<TEntity> entities = new ArrayList<TEntity>();
+		final ArrayList<Object> states = new ArrayList<Object>();
+		for (int j = 0; j < saved.size(); j++)
+			if (updateCounts[j] != Statement.EXECUTE_FAILED)
+			{
+				entities.add(saved.get(j));
+				states.add(saved.get(j).CaptureState());
+			}
+		unitOfWork.AfterCommit(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				for (int j = 0; j < entities.size(); j++)
+					entities.get(j).MarkClean(states.get(j));
+			}
+		});
+	}
+
+	/**
+	 * Verifica che una lista possa essere passata a Save o Delete: una ColumnarEntityList restituisce copie delle entity, su cui andrebbero persi i parametri di uscita e lo stato delle modifiche
+	 * @param list Lista da salvare o cancellare
+	 * @throws IllegalArgumentException Se la lista è una ColumnarEntityList
+	 */
+	private static void _checkWritable(List<?> list)
+	{
+		if (list instanceof ColumnarEntityList)
+			throw new IllegalArgumentException("Una ColumnarEntityList è in sola lettura per Save e Delete: copiare le entity in una lista ordinaria");
+	}
+	
+	/**
+	 * Accoda una TEntity per il salvataggio differito (vedi WriteBehindBuffer): la entity viene salvata in seguito, insieme ad altre, da un thread del buffer.
+	 * Se la stessa entity viene accodata più volte prima del salvataggio, viene salvata soltanto l'ultima versione. Il salvataggio avviene fuori dalla UnitOfWork del thread.
+	 * @param e TEntity da salvare
+	 * @throws IllegalAccessException Se un campo chiave della entity non è accessibile
+	 * @throws IllegalStateException Se il manager non usa la scrittura differita
+	 * @throws java.util.concurrent.RejectedExecutionException Se il buffer resta pieno oltre WriteBehindConfiguration.OfferTimeout o è stato arrestato
+	 */
+	public void SaveBehind(TEntity e) throws IllegalAccessException
+	{
+		if (!UsingWriteBehind())
+			throw new IllegalStateException("Il manager " + getClass().getName() + " non usa la scrittura differita: ridefinire UsingWriteBehind");
+		_getWriteBehind().Put(e);
+	}
+	
+	/**
+	 * Fa salvare subito le entity accodate con SaveBehind e ne attende il salvataggio. I salvataggi avvengono sul thread del buffer, fuori dalla UnitOfWork del chiamante.
+	 */
+	public void FlushWriteBehind()
+	{
+		if (UsingWriteBehind())
+			_getWriteBehind().Flush();
+	}
+	
+	/**
+	 * Cancella una TEntity dalla base di dati
+	 * @param e TEntity da cancellare 
+	 * @param listType Tipo della lista relativo alla entity da cancellare
+	 * @return DBResponse con il risultato dell'esecuzione della query
+	 * @throws InstantiationException Nel caso di errori nella creazione dell'istanza della classe
+	 * @throws IllegalAccessException Nel caso di errori nell'accesso ai campi della classe
+	 * @throws SQLException In caso di errori nell'esecuzione delle procedure SQL
+	 * @throws IllegalArgumentException In caso di anomalie nell'accesso ai campi della classe
+	 */
+	public DBResponse<TEntity, TEntityList> Delete(TEntity e, Class<TEntityList> listType) throws InstantiationException, IllegalAccessException, IllegalArgumentException, SQLException
+	{
+		TEntityList theList = listType.newInstance();
+		theList.add(e);
+		return Delete(theList);
+	}
+
+	/**
+	 * Cancella una TEntityList dalla base di dati, inviando le chiamate alla procedura di cancellazione a blocchi di GetBatchSize() elementi.
+	 * Nella modalità SQL diretta, se la entity ha un campo di versione, la cancellazione fallisce e viene annullata quando qualche entity non cancella nessuna riga
+	 * perché modificata o cancellata da altri dopo la lettura: le loro posizioni sono in DBResponse.FailedRows.
+	 * @param list TEntityList da cancellare 
+	 * @return DBResponse con il risultato dell'esecuzione della query e il numero di righe aggiornate per ogni entity
+	 * @throws InstantiationException Nel caso di errori nella creazione dell'istanza della classe
+	 * @throws SQLException In caso di errori nell'esecuzione delle procedure SQL
+	 * @throws IllegalArgumentException Se la lista è una ColumnarEntityList
+	 */
+	public DBResponse<TEntity, TEntityList> Delete(TEntityList list) throws IllegalAccessException, SQLException
+	{
+		_checkWritable(list);
+		try
+		{
+			if (_entitySQL == null)
+				return _executeBatch(list, GetDeleteProcedureName());
+			//con la versione le righe non cancellate vanno segnalate e la cancellazione annullata
+			return _entitySQL.VersionField == null ? _executeBatch(list, _entitySQL.Delete, _entitySQL.DeleteFields) : _executeDirect(list, true);
+		}
+		finally
+		{
+			_invalidateCache(list);
+		}
+	}
+		
+	/**
+	 * Esegue la procedura di cancellazione dalla base di dati con dei filtri
+	 * @param filter Filtri da eseguire in cancellazione
+	 * @return DBResponse con il risultato dell'esecuzione della query
+	 * @throws SQLException
+	 * @throws IllegalAccessException
+	 */
+	public DBResponse<TEntity, TEntityList> Delete(BaseFilter<TEntity> filter) throws SQLException, IllegalAccessException
+	{
+		DBResponse<TEntity, TEntityList> theResponse = new DBResponse<TEntity, TEntityList>();
+		String procedureName = _entitySQL == null ? GetDeleteProcedureName() : _entitySQL.DeleteWhere(filter);
+		Connection dbConnection = _getConnection(false);
+		CallableStatement callableStatement = null;
+		try
+		{
+			callableStatement = _prepareStatement(dbConnection, filter, procedureName);
+			_executeUpdate(callableStatement, procedureName, filter);
+			_readOutputParameters(filter, callableStatement);
+			_commit(dbConnection, procedureName);
+			theResponse.Success = true;
+		}
+		catch (SQLException exc)
+		{
+			theResponse.Success = false;
+			theResponse.Message = exc.getLocalizedMessage();
+			exc.printStackTrace();
+			_rollback(dbConnection, procedureName);
+		}
+		finally
+		{
+			_release(dbConnection, callableStatement);
+			//non conoscendo le entity modificate svuoto la cache
+			_clearCache();
+		}
+		return theResponse;
+		
+	}
+	
+	/**
+	 * Rimuove dalla cache di Get i risultati che contengono delle entity salvate o cancellate.
+	 * In una UnitOfWork l'invalidazione avviene alla conclusione di quella più esterna, quando le modifiche sono confermate o annullate:
+	 * fino ad allora le letture fuori dalla UnitOfWork vedono ancora i dati precedenti, coerenti con la cache.
+	 * @param entities Entity salvate o cancellate
+	 * @throws SQLException Se la UnitOfWork del thread è già stata conclusa
+	 * @throws IllegalAccessException Se un campo chiave delle entity non è accessibile
+	 */
+	private void _invalidateCache(List<TEntity> entities) throws SQLException, IllegalAccessException
+	{
+		if (_entityCache == null)
+			return;
+		UnitOfWork unitOfWork = UnitOfWork.Current();
+		if (unitOfWork == null)
+		{
+			_entityCache.Invalidate(entities);
+			return;
+		}
+		final EntityCache cache = _entityCache;
+		final ArrayList<TEntity> invalidated = new ArrayList<TEntity>(entities);
+		unitOfWork.AfterCompletion(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				try
+				{
+					cache.Invalidate(invalidated);
+				}
+				catch (IllegalAccessException exc)
+				{
+					cache.Clear();
+				}
+			}
+		});
+	}
+	
+	/**
+	 * Svuota la cache di Get dopo un aggiornamento di cui non si conoscono le entity modificate; in una UnitOfWork alla conclusione di quella più esterna (vedi _invalidateCache)
+	 * @throws SQLException Se la UnitOfWork del thread è già stata conclusa
+	 */
+	private void _clearCache() throws SQLException
+	{
+		if (_entityCache == null)
+			return;
+		UnitOfWork unitOfWork = UnitOfWork.Current();
+		if (unitOfWork == null)
+		{
+			_entityCache.Clear();
+			return;
+		}
+		final EntityCache cache = _entityCache;
+		unitOfWork.AfterCompletion(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				cache.Clear();
+			}
+		});
+	}
+	
+	/**
+	 * Recupera una entity basandosi sulle proprietà racchiuse in un filtro. Se il manager usa la cache di Get, il risultato viene letto dalla cache quando presente.
+	 * Se il manager raggruppa le chiamate identiche, le letture concorrenti con gli stessi parametri condividono un'unica esecuzione.
+	 * @param filter Filtro per recuperare la entity
+	 * @return DBResponse con il risultato dell'esecuzione della query
+	 * @throws SQLException In caso di errori nell'esecuzione delle procedure SQL
+	 * @throws IllegalAccessException Nel caso di errori nell'accesso ai campi della classe
+	 */
+	@SuppressWarnings("unchecked")
+	public DBResponse<TEntity, TEntityList> Get(BaseFilter<TEntity> filter) throws SQLException, IllegalAccessException 
+	{
+		//nella UnitOfWork si leggono dati non ancora confermati, che non devono finire in cache né essere condivisi
+		if ((_entityCache == null && _singleFlight == null) || UnitOfWork.Current() != null)
+			return _get(filter, false);
+		List<Object> key = _getCacheKey(filter);
+		if (_entityCache == null)
+			return _getCoalesced(filter, key, false);
+		ArrayList<BaseEntity> cached = _entityCache.Get(key);
+		Class<TEntityList> listType = GetEntityListType();
+		if (cached != null && listType != null)
+		{
+			DBResponse<TEntity, TEntityList> theResponse = new DBResponse<TEntity, TEntityList>();
+			try
+			{
+				theResponse.Data = listType.newInstance();
+				for (BaseEntity e : cached)
+					theResponse.Data.add((TEntity)e);
+				theResponse.Success = true;
+				return theResponse;
+			}
+			catch (InstantiationException exc)
+			{
+				//se non riesco a costruire la lista leggo dal database
+			}
+		}
+		return _singleFlight == null ? _getCached(filter, key) : _getCoalesced(filter, key, true);
+	}
+	
+	/**
+	 * Legge una entity dal database e ne mette il risultato nella cache di Get.
+	 * La generazione della cache viene letta subito prima dell'esecuzione, così che un salvataggio confermato nel frattempo impedisca di mettere in cache il risultato letto prima.
+	 * Con il raggruppamento delle chiamate viene eseguito soltanto da chi esegue la lettura, mai da chi ne attende il risultato.
+	 * @param filter Filtro per recuperare la entity
+	 * @param key Chiave della cache
+	 * @return DBResponse con il risultato dell'esecuzione della query
+	 * @throws SQLException In caso di errori nell'esecuzione delle procedure SQL
+	 * @throws IllegalAccessException Nel caso di errori nell'accesso ai campi della classe
+	 */
+	private DBResponse<TEntity, TEntityList> _getCached(BaseFilter<TEntity> filter, List<Object> key) throws SQLException, IllegalAccessException
+	{
+		long generation = _entityCache.GetGeneration();
+		DBResponse<TEntity, TEntityList> theResponse = _get(filter, true);
+		if (theResponse.Success && theResponse.Data != null)
+			_entityCache.Put(key, theResponse.Data, generation);
+		return theResponse;
+	}
+	
+	/**
+	 * Recupera più entity in una volta, ciascuna identificata da un filtro come in Get, senza aprire una connessione per ogni entity.
+	 * Se GetMultiGetProcedureName non è null i filtri vengono divisi in gruppi di GetMultiGetChunkSize e la procedura viene chiamata una volta per gruppo,
+	 * passando ad ogni parametro di ingresso dei filtri i valori del gruppo separati da virgole; le entity restituite vengono associate ai filtri confrontando i valori dei parametri
+	 * con quelli dei campi della entity con lo stesso nome, dopo averli riportati ad una forma comune con SQLValueBinder.NormalizeKey (così che ad esempio un filtro Long trovi una entity con chiave BigDecimal).
+	 * I filtri con un parametro null non vengono passati alla procedura e non trovano entity. Altrimenti GetProcedureName viene eseguita una volta per filtro sulla stessa connessione e con lo stesso statement.
+	 * I filtri con gli stessi valori vengono eseguiti una volta sola; se il manager usa la cache di Get le entity presenti in cache non vengono lette dal database.
+	 * @param filters Filtri delle entity da recuperare, tutti con gli stessi parametri
+	 * @return DBResponse con le entity trovate in Data, nell'ordine dei filtri, e in EntitiesByKey, indicizzate per SQLQuerableMetadata.GetInputKey del filtro
+	 * (per un filtro con il solo ID, Arrays.asList(id))
+	 * @throws SQLException In caso di errori nell'esecuzione delle procedure SQL
+	 * @throws IllegalAccessException Nel caso di errori nell'accesso ai campi della classe
+	 * @throws IllegalArgumentException Se i filtri hanno parametri diversi o un valore contiene una virgola, con la procedura di lettura multipla
+	 */
+	@SuppressWarnings("unchecked")
+	public DBResponse<TEntity, TEntityList> GetMany(Collection<? extends BaseFilter<TEntity>> filters) throws SQLException, IllegalAccessException
+	{
+		DBResponse<TEntity, TEntityList> theResponse = new DBResponse<TEntity, TEntityList>();
+		theResponse.EntitiesByKey = new LinkedHashMap<List<Object>, TEntity>();
+		boolean cached = _entityCache != null && UnitOfWork.Current() == null;
+		ArrayList<List<Object>> keys = new ArrayList<List<Object>>(filters.size());
+		HashMap<List<Object>, TEntity> found = new HashMap<List<Object>, TEntity>();
+		LinkedHashMap<List<Object>, BaseFilter<TEntity>> pending = new LinkedHashMap<List<Object>, BaseFilter<TEntity>>();
+		HashSet<List<Object>> seen = new HashSet<List<Object>>();
+		for (BaseFilter<TEntity> filter : filters)
+		{
+			List<Object> key = SQLQuerableMetadata.Get(filter.getClass()).GetInputKey(filter);
+			if (!seen.add(key))
+				continue;
+			keys.add(key);
+			if (cached)
+			{
+				ArrayList<BaseEntity> hit = _entityCache.Get(_getCacheKey(filter));
+				if (hit != null)
+				{
+					if (!hit.isEmpty())
+						found.put(key, (TEntity)hit.get(0));
+					continue;
+				}
+			}
+			pending.put(key, filter);
+		}
+		try
+		{
+			Class<TEntityList> listType = GetEntityListType();
+			if (listType == null)
+				throw new InstantiationException("Impossibile ricavare la classe della lista: ridefinire GetEntityListType");
+			if (!pending.isEmpty())
+			{
+				if (GetMultiGetProcedureName() == null)
+					_getEach(pending, found, listType, cached);
+				else
+					_getChunked(pending, found);
+			}
+			theResponse.Data = listType.newInstance();
+			for (List<Object> key : keys)
+			{
+				TEntity e = found.get(key);
+				if (e != null)
+				{
+					theResponse.Data.add(e);
+					theResponse.EntitiesByKey.put(key, e);
+				}
+			}
+			theResponse.Success = true;
+		}
+		catch (InstantiationException exc)
+		{
+			theResponse.Success = false;
+			theResponse.Message = exc.getLocalizedMessage();
+			exc.printStackTrace();
+		}
+		return theResponse;
+	}
+	
+	/**
+	 * Chiave della cache di Get per un filtro: procedura seguita dai valori dei parametri
+	 * @param filter Filtro della Get
+	 * @return Chiave della cache
+	 * @throws IllegalAccessException Se un campo del filtro non è accessibile
+	 */
+	private List<Object> _getCacheKey(BaseFilter<TEntity> filter) throws IllegalAccessException
+	{
+		List<Object> key = SQLQuerableMetadata.Get(filter.getClass()).GetInputValues(filter);
+		key.add(0, _getProcedureName(filter));
+		return key;
+	}
+	
+	/**
+	 * Esegue GetProcedureName per ogni filtro, riutilizzando la stessa connessione e lo stesso statement
+	 * @param pending Filtri da eseguire, indicizzati per chiave
+	 * @param found Mappa in cui aggiungere le entity trovate
+	 * @param listType Tipo di lista delle entity
+	 * @param cached True per aggiungere i risultati alla cache di Get
+	 * @throws SQLException In caso di errori nell'esecuzione delle procedure SQL
+	 * @throws IllegalAccessException Nel caso di errori nell'accesso ai campi della classe
+	 * @throws InstantiationException Se la entity o la lista non possono essere istanziate
+	 */
+	private void _getEach(Map<List<Object>, BaseFilter<TEntity>> pending, Map<List<Object>, TEntity> found, Class<TEntityList> listType, boolean cached) throws SQLException, IllegalAccessException, InstantiationException
+	{
+		String procedureName = null;
+		long generation = cached ? _entityCache.GetGeneration() : 0;
+		//i risultati che finiscono in cache vengono letti dal database principale (vedi _get)
+		Connection dbConnection = cached ? _getConnection(true) : _getReadConnection();
+		CallableStatement callableStatement = null;
+		try
+		{
+			EntityRowMapper<TEntity> mapper = _usesDefaultMapping() ? _getRowMapper() : null;
+			for (Map.Entry<List<Object>, BaseFilter<TEntity>> entry : pending.entrySet())
+			{
+				BaseFilter<TEntity> filter = entry.getValue();
+				//nella modalità SQL diretta l'istruzione dipende dai campi null del filtro: lo statement si riusa finché non cambia
+				String filterProcedureName = _getProcedureName(filter);
+				if (callableStatement != null && filterProcedureName.equals(procedureName))
+				{
+					callableStatement.clearParameters();
+					_bindStatement(filter, callableStatement, procedureName);
+				}
+				else
+				{
+					if (callableStatement != null)
+						callableStatement.close();
+					callableStatement = null;
+					procedureName = filterProcedureName;
+					callableStatement = _prepareStatement(dbConnection, filter, procedureName);
+				}
+				ResultSet rs = _executeQuery(callableStatement, procedureName, filter);
+				long start = _instrumented ? System.nanoTime() : 0;
+				TEntityList entities = listType.newInstance();
+				try
+				{
+					if (mapper != null)
+					{
+						if (rs.next())
+							entities.add(_loaded(mapper.MapRow(rs, mapper.ResolveColumns(rs))));
+					}
+					else
+						entities.add(_loaded(EntityFromResultSet(rs)));
+				}
+				finally
+				{
+					rs.close();
+				}
+				_resultsMapped(procedureName, entities.size(), start);
+				if (!entities.isEmpty() && entities.get(0) != null)
+					found.put(entry.getKey(), entities.get(0));
+				if (cached)
+					_entityCache.Put(_getCacheKey(filter), entities, generation);
+			}
+		}
+		finally
+		{
+			_release(dbConnection, callableStatement);
+		}
+	}
+	
+	/**
+	 * Esegue GetMultiGetProcedureName per gruppi di GetMultiGetChunkSize filtri, passando ad ogni parametro la lista dei valori dei filtri del gruppo
+	 * @param pending Filtri da eseguire, indicizzati per chiave
+	 * @param found Mappa in cui aggiungere le entity trovate
+	 * @throws SQLException In caso di errori nell'esecuzione delle procedure SQL
+	 * @throws IllegalAccessException Nel caso di errori nell'accesso ai campi della classe
+	 * @throws InstantiationException Se la entity non può essere istanziata
+	 */
+	private void _getChunked(Map<List<Object>, BaseFilter<TEntity>> pending, Map<List<Object>, TEntity> found) throws SQLException, IllegalAccessException, InstantiationException
+	{
+		Class<TEntity> entityType = GetEntityType();
+		if (entityType == null)
+			throw new InstantiationException("Impossibile ricavare la classe della entity: ridefinire GetEntityType");
+		//i nomi dei parametri sono quelli del primo filtro: tutti i filtri devono avere gli stessi
+		BaseFilter<TEntity> first = pending.values().iterator().next();
+		List<Object> inputs = SQLQuerableMetadata.Get(first.getClass()).GetInputValues(first);
+		SQLQuerableMetadata entityMetadata = SQLQuerableMetadata.Get(entityType);
+		String[] names = new String[inputs.size() / 2];
+		SQLFieldMetadata[] entityFields = new SQLFieldMetadata[names.length];
+		for (int i = 0; i < names.length; i++)
+		{
+			names[i] = (String)inputs.get(i * 2 + 1);
+			entityFields[i] = entityMetadata.GetField(names[i]);
+			if (entityFields[i] == null)
+				throw new IllegalArgumentException("La entity " + entityType.getName() + " non ha un campo per il parametro " + names[i] + " della lettura multipla");
+		}
+		String procedureName = GetMultiGetProcedureName();
+		int chunkSize = Math.max(1, GetMultiGetChunkSize());
+		ArrayList<List<Object>> keys = new ArrayList<List<Object>>(pending.keySet());
+		Connection dbConnection = _getReadConnection();
+		CallableStatement callableStatement = null;
+		try
+		{
+			callableStatement = dbConnection.prepareCall(procedureName);
+			EntityRowMapper<TEntity> mapper = _usesDefaultMapping() ? _getRowMapper() : null;
+			for (int from = 0; from < keys.size(); from += chunkSize)
+			{
+				//le chiavi del gruppo indicizzate per valori normalizzati, come verranno confrontate con quelli delle entity restituite
+				HashMap<List<Object>, ArrayList<List<Object>>> chunk = new HashMap<List<Object>, ArrayList<List<Object>>>();
+				StringBuilder[] values = new StringBuilder[names.length];
+				for (int i = 0; i < names.length; i++)
+					values[i] = new StringBuilder();
+				for (List<Object> key : keys.subList(from, Math.min(keys.size(), from + chunkSize)))
+				{
+					if (key.size() != names.length)
+						throw new IllegalArgumentException("I filtri della lettura multipla devono avere tutti gli stessi parametri");
+					List<Object> normalized = _normalizeKey(key);
+					//un valore null non è uguale a nessuna colonna: il filtro non può trovare entity
+					if (normalized.contains(null))
+						continue;
+					ArrayList<List<Object>> matching = chunk.get(normalized);
+					if (matching == null)
+					{
+						matching = new ArrayList<List<Object>>(1);
+						chunk.put(normalized, matching);
+						for (int i = 0; i < names.length; i++)
+						{
+							if (values[i].length() > 0)
+								values[i].append(',');
+							values[i].append(_multiGetValue(names[i], normalized.get(i)));
+						}
+					}
+					matching.add(key);
+				}
+				if (chunk.isEmpty())
+					continue;
+				final ArrayList<SQLParameter> params = new ArrayList<SQLParameter>(names.length);
+				for (int i = 0; i < names.length; i++)
+				{
+					params.add(new SQLParameter(names[i], values[i].toString()));
+					SQLValueBinder.SetParameter(callableStatement, _positionalBinding ? null : names[i], i + 1, SQLValueBinder.STRING, Types.VARCHAR, values[i].toString());
+				}
+				ResultSet rs = _executeQuery(callableStatement, procedureName, new SQLQuerable()
+				{
+					@Override
+					public ArrayList<SQLParameter> GetParameters()
+					{
+						return params;
+					}
+				});
+				long start = _instrumented ? System.nanoTime() : 0;
+				long rows = 0;
+				try
+				{
+					int[] columns = mapper != null ? mapper.ResolveColumns(rs) : null;
+					while (rs.next())
+					{
+						TEntity e = _loaded(mapper != null ? mapper.MapRow(rs, columns) : EntityFromResultSet(rs));
+						rows++;
+						ArrayList<Object> key = new ArrayList<Object>(entityFields.length);
+						for (SQLFieldMetadata field : entityFields)
+							key.add(SQLValueBinder.NormalizeKey(field.GetValue(e)));
+						ArrayList<List<Object>> matching = chunk.get(key);
+						if (matching != null)
+							for (List<Object> filterKey : matching)
+								if (!found.containsKey(filterKey))
+									found.put(filterKey, e);
+					}
+				}
+				finally
+				{
+					rs.close();
+				}
+				_resultsMapped(procedureName, rows, start);
+			}
+		}
+		finally
+		{
+			_release(dbConnection, callableStatement);
+		}
+	}
+	
+	/**
+	 * Normalizza i valori della chiave di un filtro della lettura multipla (vedi SQLValueBinder.NormalizeKey)
+	 * @param key Valori dei parametri del filtro
+	 * @return Valori normalizzati
+	 */
+	private static List<Object> _normalizeKey(List<Object> key)
+	{
+		ArrayList<Object> normalized = new ArrayList<Object>(key.size());
+		for (Object value : key)
+			normalized.add(SQLValueBinder.NormalizeKey(value));
+		return normalized;
+	}
+	
+	/**
+	 * Testo con cui un valore normalizzato viene passato nella lista della lettura multipla: i decimali senza notazione esponenziale, date e ore nel formato di escape JDBC
+	 * @param name Nome del parametro
+	 * @param value Valore normalizzato, non null
+	 * @return Testo del valore
+	 * @throws IllegalArgumentException Se il testo del valore contiene il separatore della lista
+	 */
+	private static String _multiGetValue(String name, Object value)
+	{
+		String text = value instanceof BigDecimal ? ((BigDecimal)value).toPlainString() : value.toString();
+		if (text.indexOf(',') >= 0)
+			throw new IllegalArgumentException("Il valore " + text + " del parametro " + name + " contiene una virgola e non può essere passato alla lettura multipla");
+		return text;
+	}
+	
+	/**
+	 * Esegue _get, o _getCached se il manager usa la cache, raggruppando le chiamate concorrenti con la stessa chiave
+	 * @param filter Filtro per recuperare la entity
+	 * @param key Chiave della chiamata, composta da procedura e valori dei parametri
+	 * @param cached True per mettere il risultato nella cache di Get
+	 * @return DBResponse con il risultato dell'esecuzione della query
+	 * @throws SQLException In caso di errori nell'esecuzione delle procedure SQL
+	 * @throws IllegalAccessException Nel caso di errori nell'accesso ai campi della classe
+	 */
+	private DBResponse<TEntity, TEntityList> _getCoalesced(final BaseFilter<TEntity> filter, final List<Object> key, final boolean cached) throws SQLException, IllegalAccessException
+	{
+		try
+		{
+			return _coalesce(key, new Callable<DBResponse<TEntity, TEntityList>>()
+			{
+				@Override
+				public DBResponse<TEntity, TEntityList> call() throws Exception
+				{
+					return cached ? _getCached(filter, key) : _get(filter, false);
+				}
+			}, GetEntityListType());
+		}
+		catch (InstantiationException exc)
+		{
+			throw new SQLException(exc.getLocalizedMessage(), exc);
+		}
+	}
+	
+	/**
+	 * Esegue una chiamata attraverso il SingleFlight del manager. Chi riceve il risultato di una chiamata eseguita da un altro thread ne riceve una copia con una lista distinta.
+	 * @param key Chiave della chiamata, composta da procedura e valori dei parametri
+	 * @param call Chiamata da eseguire
+	 * @param listType Tipo di lista con cui copiare il risultato, null per condividere lo stesso DBResponse
+	 * @return DBResponse della chiamata
+	 * @throws SQLException In caso di errori nell'esecuzione delle procedure SQL
+	 * @throws IllegalAccessException Nel caso di errori nell'accesso ai campi della classe
+	 * @throws InstantiationException Se la lista non può essere istanziata
+	 */
+	private DBResponse<TEntity, TEntityList> _coalesce(List<Object> key, final Callable<DBResponse<TEntity, TEntityList>> call, Class<TEntityList> listType) throws SQLException, IllegalAccessException, InstantiationException
+	{
+		final boolean[] executed = new boolean[1];
+		DBResponse<TEntity, TEntityList> shared;
+		try
+		{
+			shared = _singleFlight.Execute(key, new Callable<DBResponse<TEntity, TEntityList>>()
+			{
+				@Override
+				public DBResponse<TEntity, TEntityList> call() throws Exception
+				{
+					executed[0] = true;
+					return call.call();
+				}
+			});
+		}
+		catch (SQLException exc)
+		{
+			throw exc;
+		}
+		catch (IllegalAccessException exc)
+		{
+			throw exc;
+		}
+		catch (InstantiationException exc)
+		{
+			throw exc;
+		}
+		catch (RuntimeException exc)
+		{
+			throw exc;
+		}
+		catch (Exception exc)
+		{
+			throw new SQLException(exc.getLocalizedMessage(), exc);
+		}
+		if (executed[0] || shared.Data == null || listType == null)
+			return shared;
+		DBResponse<TEntity, TEntityList> theResponse = new DBResponse<TEntity, TEntityList>();
+		theResponse.Success = shared.Success;
+		theResponse.Message = shared.Message;
+		theResponse.Rows = shared.Rows;
+		theResponse.ContinuationToken = shared.ContinuationToken;
+		theResponse.Data = listType.newInstance();
+		theResponse.Data.addAll(shared.Data);
+		return theResponse;
+	}
+	
+	/**
+	 * Recupera dal database una entity basandosi sulle proprietà racchiuse in un filtro
+	 * @param filter Filtro per recuperare la entity
+	 * @param cached True se il risultato andrà nella cache di Get: in questo caso viene letto dal database principale, perché una replica in ritardo
+	 * potrebbe restituire una versione precedente ad un salvataggio appena confermato e la cache la conserverebbe fino alla scadenza
+	 * @return DBResponse con il risultato dell'esecuzione della query
+	 * @throws SQLException In caso di errori nell'esecuzione delle procedure SQL
+	 * @throws IllegalAccessException Nel caso di errori nell'accesso ai campi della classe
+	 */
+	private DBResponse<TEntity, TEntityList> _get(BaseFilter<TEntity> filter, boolean cached) throws SQLException, IllegalAccessException 
+	{
+		String procedureName = _getProcedureName(filter);
+		Connection dbConnection = cached ? _getConnection(true) : _getReadConnection();
+		DBResponse<TEntity, TEntityList> theResponse = new DBResponse<TEntity, TEntityList>();
+		CallableStatement callableStatement = null;
+		ResultSet rs = null;
+		try
+		{
+			callableStatement = _prepareStatement(dbConnection, filter, procedureName);
+			rs = _executeQuery(callableStatement, procedureName, filter);
+			long start = _instrumented ? System.nanoTime() : 0;
+			Class<TEntityList> listType = GetEntityListType();
+			if (listType == null)
+				throw new InstantiationException("Impossibile ricavare la classe della lista: ridefinire GetEntityListType");
+			theResponse.Data = listType.newInstance();
+			if (_usesDefaultMapping())
+			{
+				EntityRowMapper<TEntity> mapper = _getRowMapper();
+				if (rs.next())
+					theResponse.Data.add(_loaded(mapper.MapRow(rs, mapper.ResolveColumns(rs))));
+			}
+			else
+				theResponse.Data.add(_loaded(EntityFromResultSet(rs)));
+			_resultsMapped(procedureName, theResponse.Data.size(), start);
+			theResponse.Success = true;
+		}
+		catch (InstantiationException exc)
+		{
+			theResponse.Success = false;
+			theResponse.Message = exc.getLocalizedMessage();
+			exc.printStackTrace();
+		}
+		finally
+		{
+			_release(dbConnection, callableStatement, rs);
+		}
+		return theResponse;
+	}
+	
+	/**
+	 * Recupera una lista di entitò basandosi sulle proprietà racchiuse in un filtro. Se filter.PageSize è maggiore di zero restituisce una sola pagina (vedi ExecuteSelection)
+	 * @param filter Filtro per recuperare la entity list
+	 * @param listType Tipo di lista da costruire
+	 * @return DBResponse con il risultato dell'esecuzione della query
+	 * @throws SQLException In caso di errori nell'esecuzione delle procedure SQL
+	 * @throws IllegalAccessException Nel caso di errori nell'accesso ai campi della classe
+	 * @throws InstantiationException Se la classe che si sta tentando di costruire non può essere istanziata
+	 */
+	public DBResponse<TEntity, TEntityList> List(BaseFilter<TEntity> filter, Class<TEntityList> listType) throws SQLException, IllegalAccessException, InstantiationException 
+	{
+		return ExecuteSelection(filter, _getListProcedureName(filter), listType);
+	}
+	
+	/**
+	 * Esegue una query di selezione con determinati parametri.
+	 * Se filter.PageSize è maggiore di zero la selezione è paginata per chiave: alla procedura vengono passati anche il parametro GetPageSizeParameterName() e, per ogni campo chiave della entity,
+	 * il parametro GetKeysetParameterPrefix() + nome del campo con il valore dell'ultima entity della pagina precedente (null per la prima pagina).
+	 * La procedura deve ordinare per chiave, restituire soltanto le righe con chiave successiva a quella ricevuta e al massimo PAGE_SIZE righe, così che ogni pagina costi quanto la prima.
+	 * Se la pagina è piena, DBResponse.ContinuationToken contiene il token da impostare nel filtro per leggere la successiva.
+	 * Se il manager raggruppa le chiamate identiche, le selezioni concorrenti con la stessa procedura, gli stessi parametri e la stessa pagina condividono un'unica esecuzione.
+	 * @param filter Filtro di ricerca
+	 * @param procedureName Nome della procedura
+	 * @param listType Tipo di lista del ritorno
+	 * @return DBResponse con il risultato dell'esecuzione della query
+	 * @throws SQLException In caso di errori nell'esecuzione delle procedure SQL
+	 * @throws IllegalAccessException Nel caso di errori nell'accesso ai campi della classe
+	 * @throws InstantiationException Se la classe che si sta tentando di costruire non può essere istanziata
+	 */
+	public DBResponse<TEntity, TEntityList> ExecuteSelection(final BaseFilter<TEntity> filter, final String procedureName, final Class<TEntityList> listType) throws SQLException, IllegalAccessException, InstantiationException
+	{
+		if (_singleFlight == null || UnitOfWork.Current() != null)
+			return _executeSelection(filter, procedureName, listType);
+		List<Object> key = SQLQuerableMetadata.Get(filter.getClass()).GetInputValues(filter);
+		key.add(0, procedureName);
+		key.add(filter.PageSize);
+		key.add(filter.ContinuationToken);
+		key.add(listType);
+		return _coalesce(key, new Callable<DBResponse<TEntity, TEntityList>>()
+		{
+			@Override
+			public DBResponse<TEntity, TEntityList> call() throws Exception
+			{
+				return _executeSelection(filter, procedureName, listType);
+			}
+		}, listType);
+	}
+	
+	/**
+	 * Esegue sul database una query di selezione con determinati parametri (vedi ExecuteSelection)
+	 * @param filter Filtro di ricerca
+	 * @param procedureName Nome della procedura
+	 * @param listType Tipo di lista del ritorno
+	 * @return DBResponse con il risultato dell'esecuzione della query
+	 * @throws SQLException In caso di errori nell'esecuzione delle procedure SQL
+	 * @throws IllegalAccessException Nel caso di errori nell'accesso ai campi della classe
+	 * @throws InstantiationException Se la classe che si sta tentando di costruire non può essere istanziata
+	 */
+	private DBResponse<TEntity, TEntityList> _executeSelection(BaseFilter<TEntity> filter, String procedureName, Class<TEntityList> listType) throws SQLException, IllegalAccessException, InstantiationException
+	{
+		DBResponse<TEntity, TEntityList> theResponse = new DBResponse<TEntity, TEntityList>();
+		Connection dbConnection = _getReadConnection();
+		CallableStatement callableStatement = null;
+		ResultSet rs = null;
+		try
+		{
+			callableStatement = _prepareStatement(dbConnection, filter, procedureName);
+			//con un token non valido la selezione non parte e la connessione viene rilasciata nel finally
+			SQLFieldMetadata[] keyFields = filter.PageSize > 0 ? _bindPage(filter, callableStatement) : null;
+			rs = _executeQuery(callableStatement, procedureName, filter);
+			long start = _instrumented ? System.nanoTime() : 0;
+			TEntityList resultList = listType.newInstance();
+			_mapResults(rs, resultList);
+			_resultsMapped(procedureName, resultList.size(), start);
+			if (keyFields != null && resultList.size() >= filter.PageSize)
+				theResponse.ContinuationToken = KeysetCursor.Encode(keyFields, resultList.get(resultList.size() - 1));
+			theResponse.Success = true;
+			theResponse.Data = resultList;
+		}
+		catch (InstantiationException exc)
+		{
+			theResponse.Success = false;
+			theResponse.Message = exc.getLocalizedMessage();
+			exc.printStackTrace();
+		}
+		finally
+		{
+			_release(dbConnection, callableStatement, rs);
+		}
+		return theResponse;
+	}
+	
+	/**
+	 * Aggiunge ad una lista le entity di tutte le righe di un ResultSet, con l'EntityRowMapper della entity o con EntityFromResultSet se ridefinito.
+	 * Una ColumnarEntityList viene riempita direttamente dal ResultSet.
+	 * @param rs ResultSet da leggere fino alla fine
+	 * @param resultList Lista a cui aggiungere le entity
+	 * @throws SQLException In caso di errori nella lettura del ResultSet
+	 * @throws IllegalAccessException Nel caso di errori nell'accesso ai campi della classe
+	 * @throws InstantiationException Se la entity non può essere creata
+	 */
+	private void _mapResults(ResultSet rs, TEntityList resultList) throws SQLException, IllegalAccessException, InstantiationException
+	{
+		if (resultList instanceof ColumnarEntityList && _usesDefaultMapping())
+			//le righe vengono copiate nelle colonne della lista senza costruire le entity
+			((ColumnarEntityList<TEntity>)resultList).Load(rs);
+		else if (_usesDefaultMapping())
+		{
+			//le posizioni delle colonne vengono calcolate una sola volta per tutto il ResultSet
+			EntityRowMapper<TEntity> mapper = _getRowMapper();
+			int[] columns = mapper.ResolveColumns(rs);
+			while (rs.next())
+				resultList.add(_loaded(mapper.MapRow(rs, columns)));
+		}
+		else
+			while (rs.next())
+				resultList.add(_loaded(EntityFromResultSet(rs)));
+	}
+	
+	/**
+	 * Esegue la procedura di lista caricando in una sola chiamata le entity e le loro entity figlie, restituite dalla procedura come result set successivi (vedi ExecuteGraphSelection)
+	 * @param filter Filtro per recuperare la entity list
+	 * @param listType Tipo di lista da costruire
+	 * @param children Result set figli, nell'ordine in cui la procedura li restituisce
+	 * @return DBResponse con le entity principali, a cui sono agganciate le entity figlie
+	 * @throws SQLException In caso di errori nell'esecuzione delle procedure SQL o se la procedura restituisce meno result set di quelli attesi
 	 * @throws IllegalAccessException Nel caso di errori nell'accesso ai campi della classe
-	 * @throws SQLException In caso di errori nell'esecuzione delle procedure SQL
-	 * @throws IllegalArgumentException In caso di anomalie nell'accesso ai campi della classe
+	 * @throws InstantiationException Se la classe che si sta tentando di costruire non può essere istanziata
 	 */
-	public DBResponse<TEntity, TEntityList> Save(TEntity e, Class<TEntityList> listType) throws InstantiationException, IllegalAccessException, IllegalArgumentException, SQLException
+	public DBResponse<TEntity, TEntityList> ListGraph(BaseFilter<TEntity> filter, Class<TEntityList> listType, ChildResultSet<?>... children) throws SQLException, IllegalAccessException, InstantiationException
 	{
-		TEntityList theList = (TEntityList)listType.newInstance();
-		theList.add(e);
-		return Save(theList);
+		return ExecuteGraphSelection(filter, _getListProcedureName(filter), null, listType, children);
 	}
-
+	
 	/**
-	 * Salva una lista di oggetti TEntity sulla base di dati
-	 * @param list Lista da salvare
-	 * @return DBResponse con il risultato dell'esecuzione della query
-	 * @throws SQLException In caso di errori nell'esecuzione delle procedure SQL
-	 * @throws IllegalArgumentException In caso di anomalie nell'accesso ai campi della classe
-	 * @throws IllegalAccessException Se almeno un campo della classe non è accessibile
+	 * Esegue una query di selezione che restituisce in una sola chiamata le entity principali e le loro entity figlie, ad esempio testate e righe di un ordine,
+	 * invece di una chiamata per le entity principali e una per ogni entity o livello figlio.
+	 * Ogni ChildResultSet indica la classe delle entity di un result set e come agganciarle alle entity padre, confrontando in memoria la chiave del padre con le colonne indicate della entity figlia.
+	 * <p>
+	 * I result set restituiti dalla procedura vengono letti nell'ordine: prima quello delle entity principali, se masterCursor è null, poi quelli dei figli senza CursorParameter.
+	 * Seguono i parametri di OUT di tipo REF CURSOR, registrati con il tipo GetRefCursorSqlType(): per nome o, con il binding per posizione, dopo i parametri del filtro
+	 * e nell'ordine masterCursor e cursori dei figli. Al termine vengono letti i parametri di OUT del filtro.
+	 * La paginazione del filtro e il raggruppamento delle chiamate identiche non si applicano; le entity figlie senza padre vengono ignorate.
+	 * La lista dei risultati non può essere una ColumnarEntityList, che non conserva le entity a cui agganciare i figli.
+	 * @param filter Filtro di ricerca
+	 * @param procedureName Nome della procedura
+	 * @param masterCursor Nome del parametro REF CURSOR con le entity principali, null se sono nel primo result set restituito dalla procedura
+	 * @param listType Tipo di lista del ritorno
+	 * @param children Result set figli
+	 * @return DBResponse con le entity principali, a cui sono agganciate le entity figlie
+	 * @throws SQLException In caso di errori nell'esecuzione delle procedure SQL, se la procedura restituisce meno result set di quelli attesi o più entity figlie per un campo che ne contiene una sola
+	 * @throws IllegalAccessException Nel caso di errori nell'accesso ai campi della classe
+	 * @throws IllegalArgumentException Se listType è una ColumnarEntityList o un result set figlio non appartiene alla selezione
+	 * @throws InstantiationException Se la classe che si sta tentando di costruire non può essere istanziata
 	 */
-	public DBResponse<TEntity, TEntityList> Save(TEntityList list) throws SQLException, IllegalArgumentException, IllegalAccessException
+	public DBResponse<TEntity, TEntityList> ExecuteGraphSelection(BaseFilter<TEntity> filter, String procedureName, String masterCursor, Class<TEntityList> listType, ChildResultSet<?>... children) throws SQLException, IllegalAccessException, InstantiationException
 	{
 		DBResponse<TEntity, TEntityList> theResponse = new DBResponse<TEntity, TEntityList>();
-		Connection dbConnection = _getConnection();
+		//le entity di una ColumnarEntityList sono copie: le entity figlie verrebbero agganciate a oggetti non conservati nella lista
+		if (ColumnarEntityList.class.isAssignableFrom(listType))
+			throw new IllegalArgumentException("La selezione a grafo non può restituire una ColumnarEntityList: usare una lista ordinaria");
+		List<ChildResultSet<?>> descriptors = Arrays.asList(children);
+		Class<TEntity> entityType = GetEntityType();
+		for (ChildResultSet<?> child : children)
+		{
+			if (child.Parent != null && !descriptors.contains(child.Parent))
+				throw new IllegalArgumentException("Il result set padre di " + child + " non fa parte della selezione");
+			if (child.Parent == null && entityType != null && !child.ParentType.isAssignableFrom(entityType))
+				throw new IllegalArgumentException(child + " non è figlio di " + entityType.getName());
+		}
+		Connection dbConnection = _getReadConnection();
+		CallableStatement callableStatement = null;
+		ResultSet rs = null;
 		try
 		{
-			for (TEntity e : list)
+			callableStatement = _prepareStatement(dbConnection, filter, procedureName);
+			int index = _parameterCount(filter);
+			int masterIndex = masterCursor == null ? 0 : ++index;
+			if (masterCursor != null)
+				_registerCursor(callableStatement, masterCursor, masterIndex);
+			int[] cursorIndexes = new int[children.length];
+			for (int i = 0; i < children.length; i++)
+				if (children[i].CursorParameter != null)
+				{
+					cursorIndexes[i] = ++index;
+					_registerCursor(callableStatement, children[i].CursorParameter, cursorIndexes[i]);
+				}
+			boolean isResultSet = _execute(callableStatement, procedureName, filter);
+			long start = _instrumented ? System.nanoTime() : 0;
+			TEntityList resultList = listType.newInstance();
+			List<?>[] childLists = new List<?>[children.length];
+			long rows = 0;
+			//i result set restituiti dalla procedura vanno letti prima dei parametri di OUT
+			boolean first = true;
+			if (masterCursor == null)
 			{
-				CallableStatement callableStatement = _prepareStatement(dbConnection, e, GetSaveProcedureName());
-				callableStatement.executeUpdate();
+				rs = _nextResultSet(callableStatement, isResultSet, procedureName, "le entity principali");
+				_mapResults(rs, resultList);
+				first = false;
 			}
-			dbConnection.commit();
+			for (int i = 0; i < children.length; i++)
+				if (children[i].CursorParameter == null)
+				{
+					rs = _nextResultSet(callableStatement, first ? isResultSet : callableStatement.getMoreResults(), procedureName, children[i].toString());
+					childLists[i] = _mapChildren(children[i], rs);
+					rows += childLists[i].size();
+					first = false;
+				}
+			if (masterCursor != null)
+			{
+				ResultSet cursor = _getCursor(callableStatement, masterCursor, masterIndex);
+				try
+				{
+					_mapResults(cursor, resultList);
+				}
+				finally
+				{
+					cursor.close();
+				}
+			}
+			for (int i = 0; i < children.length; i++)
+				if (children[i].CursorParameter != null)
+				{
+					ResultSet cursor = _getCursor(callableStatement, children[i].CursorParameter, cursorIndexes[i]);
+					try
+					{
+						childLists[i] = _mapChildren(children[i], cursor);
+					}
+					finally
+					{
+						cursor.close();
+					}
+					rows += childLists[i].size();
+				}
+			_readOutputParameters(filter, callableStatement);
+			for (int i = 0; i < children.length; i++)
+				_attach(children[i], children[i].Parent == null ? resultList : childLists[descriptors.indexOf(children[i].Parent)], childLists[i]);
+			_resultsMapped(procedureName, resultList.size() + rows, start);
 			theResponse.Success = true;
+			theResponse.Data = resultList;
 		}
-		catch (SQLException exc)
+		catch (InstantiationException exc)
 		{
 			theResponse.Success = false;
 			theResponse.Message = exc.getLocalizedMessage();
 			exc.printStackTrace();
-			dbConnection.rollback();
 		}
 		finally
 		{
-			dbConnection.close();
+			_release(dbConnection, callableStatement, rs);
 		}
-		
 		return theResponse;
 	}
-
+	
 	/**
-	 * Cancella una TEntity dalla base di dati
-	 * @param e TEntity da cancellare 
-	 * @param listType Tipo della lista relativo alla entity da cancellare
-	 * @return DBResponse con il risultato dell'esecuzione della query
-	 * @throws InstantiationException Nel caso di errori nella creazione dell'istanza della classe
-	 * @throws IllegalAccessException Nel caso di errori nell'accesso ai campi della classe
-	 * @throws SQLException In caso di errori nell'esecuzione delle procedure SQL
-	 * @throws IllegalArgumentException In caso di anomalie nell'accesso ai campi della classe
+	 * Registra un parametro di OUT di tipo REF CURSOR, per nome o per posizione secondo il binding del manager
 	 */
-	public DBResponse<TEntity, TEntityList> Delete(TEntity e, Class<TEntityList> listType) throws InstantiationException, IllegalAccessException, IllegalArgumentException, SQLException
+	private void _registerCursor(CallableStatement stmt, String name, int index) throws SQLException
 	{
-		TEntityList theList = (TEntityList)listType.newInstance();
-		theList.add(e);
-		return Delete(theList);
+		if (_positionalBinding)
+			stmt.registerOutParameter(index, GetRefCursorSqlType());
+		else
+			stmt.registerOutParameter(name, GetRefCursorSqlType());
 	}
-
+	
 	/**
-	 * Cancella una TEntityList dalla base di dati
-	 * @param list TEntityList da cancellare 
-	 * @return DBResponse con il risultato dell'esecuzione della query
-	 * @throws InstantiationException Nel caso di errori nella creazione dell'istanza della classe
-	 * @throws SQLException In caso di errori nell'esecuzione delle procedure SQL
+	 * Legge il ResultSet di un parametro di OUT di tipo REF CURSOR
+	 * @throws SQLException Se il parametro è null, come avviene per un cursore non aperto dalla procedura
 	 */
-	public DBResponse<TEntity, TEntityList> Delete(TEntityList list) throws IllegalAccessException, SQLException
+	private ResultSet _getCursor(CallableStatement stmt, String name, int index) throws SQLException
+	{
+		ResultSet cursor = (ResultSet)(_positionalBinding ? stmt.getObject(index) : stmt.getObject(name));
+		if (cursor == null)
+			throw new SQLException("Il cursore " + name + " non è stato aperto dalla procedura");
+		return cursor;
+	}
+	
+	/**
+	 * Restituisce il ResultSet corrente di uno statement, saltando i numeri di righe aggiornate che lo precedono
+	 * @param stmt CallableStatement eseguito
+	 * @param isResultSet Valore restituito da execute o getMoreResults
+	 * @param procedureName Nome della procedura, per il messaggio di errore
+	 * @param content Descrizione del result set atteso, per il messaggio di errore
+	 * @return ResultSet corrente
+	 * @throws SQLException Se la procedura non ha altri result set
+	 */
+	private ResultSet _nextResultSet(CallableStatement stmt, boolean isResultSet, String procedureName, String content) throws SQLException
+	{
+		while (!isResultSet)
+		{
+			if (stmt.getUpdateCount() == -1)
+				throw new SQLException("La procedura " + procedureName + " non ha restituito il result set di " + content);
+			isResultSet = stmt.getMoreResults();
+		}
+		return stmt.getResultSet();
+	}
+	
+	/**
+	 * Legge le entity figlie di un result set con l'EntityRowMapper della loro classe
+	 */
+	private <TChild extends BaseEntity> ArrayList<TChild> _mapChildren(ChildResultSet<TChild> child, ResultSet rs) throws SQLException, IllegalAccessException, InstantiationException
+	{
+		EntityRowMapper<TChild> mapper = EntityRowMapper.Get(child.Type);
+		int[] columns = mapper.ResolveColumns(rs);
+		ArrayList<TChild> entities = new ArrayList<TChild>();
+		while (rs.next())
+		{
+			TChild entity = mapper.MapRow(rs, columns);
+			if (_dirtyTracking)
+				entity.MarkClean();
+			entities.add(entity);
+		}
+		return entities;
+	}
+	
+	@SuppressWarnings("unchecked")
+	private <TChild extends BaseEntity> void _attach(ChildResultSet<TChild> child, List<?> parents, List<?> children) throws SQLException, IllegalAccessException, InstantiationException
+	{
+		child.Attach((List<? extends BaseEntity>)parents, (List<TChild>)children);
+	}
+	
+	/**
+	 * Esegue una query di selezione passando le entity ad un EntityHandler man mano che vengono lette, senza costruire la lista dei risultati.
+	 * La memoria occupata non dipende dal numero di righe restituite; ResultSet, statement e connessione vengono chiusi al termine della lettura, alla sua interruzione o in caso di errore.
+	 * @param filter Filtro di ricerca
+	 * @param procedureName Nome della procedura
+	 * @param handler EntityHandler che riceve le entity lette
+	 * @param fetchSize Numero di righe da leggere dal database ad ogni richiesta del driver, 0 per il default del driver
+	 * @return DBResponse con il risultato dell'esecuzione della query e il numero di righe lette
+	 * @throws SQLException In caso di errori nell'apertura o nella chiusura della connessione
+	 * @throws IllegalAccessException Nel caso di errori nell'accesso ai campi della classe
+	 */
+	public DBResponse<TEntity, TEntityList> ExecuteSelection(BaseFilter<TEntity> filter, String procedureName, EntityHandler<TEntity> handler, int fetchSize) throws SQLException, IllegalAccessException
 	{
 		DBResponse<TEntity, TEntityList> theResponse = new DBResponse<TEntity, TEntityList>();
-		Connection dbConnection = _getConnection();
+		Connection dbConnection = _getReadConnection();
+		CallableStatement callableStatement = null;
+		ResultSet rs = null;
 		try
 		{
-			for (TEntity e : list)
+			callableStatement = _prepareStatement(dbConnection, filter, procedureName);
+			if (fetchSize > 0)
+				callableStatement.setFetchSize(fetchSize);
+			rs = _executeQuery(callableStatement, procedureName, filter);
+			long start = _instrumented ? System.nanoTime() : 0;
+			boolean proceed = true;
+			if (_usesDefaultMapping())
 			{
-				//Controllo che la classe sia annotata, se lo è procedo alla cancellazione
-				CallableStatement callableStatement = _prepareStatement(dbConnection, e, GetDeleteProcedureName());
-				callableStatement.executeUpdate();
+				EntityRowMapper<TEntity> mapper = _getRowMapper();
+				int[] columns = mapper.ResolveColumns(rs);
+				while (proceed && rs.next())
+				{
+					theResponse.Rows++;
+					proceed = handler.Handle(_loaded(mapper.MapRow(rs, columns)));
+				}
 			}
-			dbConnection.commit();
+			else
+				while (proceed && rs.next())
+				{
+					theResponse.Rows++;
+					proceed = handler.Handle(_loaded(EntityFromResultSet(rs)));
+				}
+			//il tempo comprende anche quello speso dall'handler
+			_resultsMapped(procedureName, theResponse.Rows, start);
 			theResponse.Success = true;
 		}
-		catch (SQLException exc)
+		catch (Exception exc)
 		{
 			theResponse.Success = false;
 			theResponse.Message = exc.getLocalizedMessage();
 			exc.printStackTrace();
-			dbConnection.rollback();
 		}
 		finally
 		{
-			dbConnection.close();
+			_release(dbConnection, callableStatement, rs);
 		}
 		return theResponse;
 	}
-		
+	
 	/**
-	 * Esegue la procedura di cancellazione dalla base di dati con dei filtri
-	 * @param filter Filtri da eseguire in cancellazione
+	 * Recupera in streaming le entity della procedura di lista, passandole ad un EntityHandler man mano che vengono lette
+	 * @param filter Filtro per recuperare le entity
+	 * @param handler EntityHandler che riceve le entity lette
+	 * @param fetchSize Numero di righe da leggere dal database ad ogni richiesta del driver, 0 per il default del driver
+	 * @return DBResponse con il risultato dell'esecuzione della query e il numero di righe lette
+	 * @throws SQLException In caso di errori nell'apertura o nella chiusura della connessione
+	 * @throws IllegalAccessException Nel caso di errori nell'accesso ai campi della classe
+	 */
+	public DBResponse<TEntity, TEntityList> List(BaseFilter<TEntity> filter, EntityHandler<TEntity> handler, int fetchSize) throws SQLException, IllegalAccessException
+	{
+		return ExecuteSelection(filter, _getListProcedureName(filter), handler, fetchSize);
+	}
+	
+	/**
+	 * Esegue una query di selezione suddividendo il filtro in partizioni lette in parallelo, ciascuna con la propria connessione, sull'esecutore delle partizioni.
+	 * Le entity vengono unite nell'ordine delle partizioni. Se una partizione fallisce le altre vengono comunque lette: DBResponse.Success è false,
+	 * Data contiene le entity delle partizioni riuscite e PartitionErrors l'errore di ogni partizione fallita.
+	 * Le partizioni vengono eseguite su altri thread, quindi fuori dall'eventuale UnitOfWork del chiamante; quelle non completate entro GetPartitionTimeout() vengono annullate e risultano fallite.
+	 * Se la selezione viene avviata da una partizione di un'altra selezione parallela, le sue partizioni vengono lette in sequenza sul thread del chiamante.
+	 * @param filter Filtro di ricerca
+	 * @param procedureName Nome della procedura
+	 * @param partitioner Regola di suddivisione del filtro
+	 * @param listType Tipo di lista del ritorno
 	 * @return DBResponse con il risultato dell'esecuzione della query
-	 * @throws SQLException
-	 * @throws IllegalAccessException
+	 * @throws InstantiationException Se la lista o le copie del filtro non possono essere istanziate
+	 * @throws IllegalAccessException Nel caso di errori nell'accesso ai campi del filtro
+	 * @throws InterruptedException Se il thread viene interrotto in attesa delle partizioni
 	 */
-	public DBResponse<TEntity, TEntityList> Delete(BaseFilter<TEntity> filter) throws SQLException, IllegalAccessException
+	public DBResponse<TEntity, TEntityList> ExecuteSelectionParallel(BaseFilter<TEntity> filter, final String procedureName, FilterPartitioner partitioner, final Class<TEntityList> listType) throws InstantiationException, IllegalAccessException, InterruptedException
 	{
+		ArrayList<Callable<DBResponse<TEntity, TEntityList>>> tasks = new ArrayList<Callable<DBResponse<TEntity, TEntityList>>>();
+		for (final BaseFilter<TEntity> partition : partitioner.Partition(filter))
+			tasks.add(new Callable<DBResponse<TEntity, TEntityList>>()
+			{
+				@Override
+				public DBResponse<TEntity, TEntityList> call() throws Exception
+				{
+					return ExecuteSelection(partition, procedureName, listType);
+				}
+			});
 		DBResponse<TEntity, TEntityList> theResponse = new DBResponse<TEntity, TEntityList>();
-		Connection dbConnection = _getConnection();
-		CallableStatement callableStatement = _prepareStatement(dbConnection, filter, GetDeleteProcedureName());
-		try
+		theResponse.Data = listType.newInstance();
+		theResponse.PartitionErrors = new TreeMap<Integer, String>();
+		ArrayList<Future<DBResponse<TEntity, TEntityList>>> results = _runPartitions(tasks);
+		for (int i = 0; i < results.size(); i++)
 		{
-			callableStatement.executeUpdate();
-			dbConnection.commit();
-			theResponse.Success = true;
+			DBResponse<TEntity, TEntityList> partitionResponse = _getPartitionResponse(results.get(i), i, theResponse.PartitionErrors);
+			if (partitionResponse != null)
+				theResponse.Data.addAll(partitionResponse.Data);
 		}
-		catch (SQLException exc)
+		_completePartitionedResponse(theResponse);
+		return theResponse;
+	}
+	
+	/**
+	 * Esegue in parallelo la procedura di lista suddividendo il filtro in partizioni (vedi ExecuteSelectionParallel)
+	 * @param filter Filtro per recuperare le entity
+	 * @param partitioner Regola di suddivisione del filtro
+	 * @param listType Tipo di lista da costruire
+	 * @return DBResponse con il risultato dell'esecuzione della query
+	 * @throws InstantiationException Se la lista o le copie del filtro non possono essere istanziate
+	 * @throws IllegalAccessException Nel caso di errori nell'accesso ai campi del filtro
+	 * @throws InterruptedException Se il thread viene interrotto in attesa delle partizioni
+	 */
+	public DBResponse<TEntity, TEntityList> ListParallel(BaseFilter<TEntity> filter, FilterPartitioner partitioner, Class<TEntityList> listType) throws InstantiationException, IllegalAccessException, InterruptedException
+	{
+		return ExecuteSelectionParallel(filter, _getListProcedureName(filter), partitioner, listType);
+	}
+	
+	/**
+	 * Esegue una query di selezione suddividendo il filtro in partizioni lette in parallelo, passando le entity ad un EntityHandler man mano che vengono lette.
+	 * Le chiamate all'handler sono serializzate, quindi non deve essere thread-safe, ma le entity di partizioni diverse arrivano mescolate.
+	 * Se l'handler restituisce false la lettura di tutte le partizioni viene interrotta.
+	 * @param filter Filtro di ricerca
+	 * @param procedureName Nome della procedura
+	 * @param partitioner Regola di suddivisione del filtro
+	 * @param handler EntityHandler che riceve le entity lette
+	 * @param fetchSize Numero di righe da leggere dal database ad ogni richiesta del driver, 0 per il default del driver
+	 * @return DBResponse con il risultato dell'esecuzione della query, il numero di righe lette e l'errore di ogni partizione fallita
+	 * @throws InstantiationException Se le copie del filtro non possono essere istanziate
+	 * @throws IllegalAccessException Nel caso di errori nell'accesso ai campi del filtro
+	 * @throws InterruptedException Se il thread viene interrotto in attesa delle partizioni
+	 */
+	public DBResponse<TEntity, TEntityList> ExecuteSelectionParallel(BaseFilter<TEntity> filter, final String procedureName, FilterPartitioner partitioner, final EntityHandler<TEntity> handler, final int fetchSize) throws InstantiationException, IllegalAccessException, InterruptedException
+	{
+		final EntityHandler<TEntity> serializedHandler = new EntityHandler<TEntity>()
 		{
-			theResponse.Success = false;
-			theResponse.Message = exc.getLocalizedMessage();
-			exc.printStackTrace();
-			dbConnection.rollback();
-		}
-		finally
+			private boolean _stopped;
+			
+			@Override
+			public synchronized boolean Handle(TEntity entity) throws Exception
+			{
+				if (_stopped)
+					return false;
+				_stopped = !handler.Handle(entity);
+				return !_stopped;
+			}
+		};
+		ArrayList<Callable<DBResponse<TEntity, TEntityList>>> tasks = new ArrayList<Callable<DBResponse<TEntity, TEntityList>>>();
+		for (final BaseFilter<TEntity> partition : partitioner.Partition(filter))
+			tasks.add(new Callable<DBResponse<TEntity, TEntityList>>()
+			{
+				@Override
+				public DBResponse<TEntity, TEntityList> call() throws Exception
+				{
+					return ExecuteSelection(partition, procedureName, serializedHandler, fetchSize);
+				}
+			});
+		DBResponse<TEntity, TEntityList> theResponse = new DBResponse<TEntity, TEntityList>();
+		theResponse.PartitionErrors = new TreeMap<Integer, String>();
+		ArrayList<Future<DBResponse<TEntity, TEntityList>>> results = _runPartitions(tasks);
+		for (int i = 0; i < results.size(); i++)
 		{
-			dbConnection.close();
+			DBResponse<TEntity, TEntityList> partitionResponse = _getPartitionResponse(results.get(i), i, theResponse.PartitionErrors);
+			if (partitionResponse != null)
+				theResponse.Rows += partitionResponse.Rows;
 		}
+		_completePartitionedResponse(theResponse);
 		return theResponse;
-		
 	}
 	
 	/**
-	 * Recupera una entity basandosi sulle proprietà racchiuse in un filtro
-	 * @param filter Filtro per recuperare la entity
-	 * @return DBResponse con il risultato dell'esecuzione della query
-	 * @throws SQLException In caso di errori nell'esecuzione delle procedure SQL
-	 * @throws IllegalAccessException Nel caso di errori nell'accesso ai campi della classe
+	 * Esegue le operazioni delle partizioni sull'esecutore delle partizioni, tenendone in esecuzione al massimo GetPartitionParallelism() alla volta
+	 * e attendendole al massimo GetPartitionTimeout() millisecondi in tutto: le partizioni non completate entro questo tempo vengono annullate.
+	 * Se il chiamante è già un thread dell'esecutore delle partizioni le operazioni vengono eseguite in sequenza sul suo thread, perché attendere partizioni accodate dietro di sé potrebbe bloccare l'esecutore.
+	 * @param tasks Operazioni delle partizioni
+	 * @return Future con il risultato di ogni partizione, nello stesso ordine delle operazioni. Tutti i Future sono completati o annullati
+	 * @throws InterruptedException Se il thread viene interrotto in attesa delle partizioni
 	 */
-	public DBResponse<TEntity, TEntityList> Get(BaseFilter<TEntity> filter) throws SQLException, IllegalAccessException 
+	private <T> ArrayList<Future<T>> _runPartitions(List<Callable<T>> tasks) throws InterruptedException
 	{
-		Connection dbConnection = _getConnection();
-		DBResponse<TEntity, TEntityList> theResponse = new DBResponse<TEntity, TEntityList>();
-		dbConnection.setAutoCommit(true);
-		CallableStatement callableStatement = _prepareStatement(dbConnection, filter, GetProcedureName());
-		ResultSet rs = callableStatement.executeQuery();
+		AsyncExecutor executor = _getPartitionExecutor();
+		ArrayList<Future<T>> futures = new ArrayList<Future<T>>(tasks.size());
+		if (executor.IsCurrentThread())
+		{
+			for (Callable<T> task : tasks)
+			{
+				FutureTask<T> future = new FutureTask<T>(task);
+				future.run();
+				futures.add(future);
+			}
+			return futures;
+		}
+		int parallelism = Math.max(1, GetPartitionParallelism());
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(GetPartitionTimeout());
+		int awaited = 0;
 		try
 		{
-			TEntity resultEntity = EntityFromResultSet(rs);
-			theResponse.Success = true;
-			theResponse.Data.add(resultEntity);
+			for (Callable<T> task : tasks)
+			{
+				if (futures.size() - awaited >= parallelism)
+					_awaitPartition(futures.get(awaited++), deadline);
+				futures.add(_submitPartition(executor, task));
+			}
+			while (awaited < futures.size())
+				_awaitPartition(futures.get(awaited++), deadline);
 		}
-		catch (InstantiationException exc)
+		catch (InterruptedException exc)
 		{
-			theResponse.Success = false;
-			theResponse.Message = exc.getLocalizedMessage();
-			exc.printStackTrace();
+			for (Future<T> future : futures)
+				future.cancel(true);
+			throw exc;
 		}
-		finally
+		return futures;
+	}
+	
+	/**
+	 * Accoda l'operazione di una partizione. Se l'esecutore la rifiuta, la partizione risulta fallita con l'errore del rifiuto.
+	 * @param executor Esecutore delle partizioni
+	 * @param task Operazione della partizione
+	 * @return Future della partizione
+	 */
+	private static <T> Future<T> _submitPartition(AsyncExecutor executor, Callable<T> task)
+	{
+		try
 		{
-			dbConnection.close();
+			return executor.Submit(task);
+		}
+		catch (final RejectedExecutionException exc)
+		{
+			FutureTask<T> failed = new FutureTask<T>(new Callable<T>()
+			{
+				@Override
+				public T call() throws Exception
+				{
+					throw exc;
+				}
+			});
+			failed.run();
+			return failed;
 		}
-		return theResponse;
 	}
 	
 	/**
-	 * Recupera una lista di entitò basandosi sulle proprietà racchiuse in un filtro
-	 * @param filter Filtro per recuperare la entity list
-	 * @param listType Tipo di lista da costruire
-	 * @return DBResponse con il risultato dell'esecuzione della query
-	 * @throws SQLException In caso di errori nell'esecuzione delle procedure SQL
-	 * @throws IllegalAccessException Nel caso di errori nell'accesso ai campi della classe
-	 * @throws InstantiationException Se la classe che si sta tentando di costruire non può essere istanziata
+	 * Attende la fine di una partizione fino ad un istante limite, annullandola se non termina in tempo. L'esito viene letto da _getPartitionResponse.
+	 * @param future Future della partizione
+	 * @param deadline Istante limite, come valore di System.nanoTime()
+	 * @throws InterruptedException Se il thread viene interrotto in attesa della partizione
 	 */
-	public DBResponse<TEntity, TEntityList> List(BaseFilter<TEntity> filter, Class<TEntityList> listType) throws SQLException, IllegalAccessException, InstantiationException 
+	private static void _awaitPartition(Future<?> future, long deadline) throws InterruptedException
 	{
-		return ExecuteSelection(filter, GetListProcedureName(), listType);
+		try
+		{
+			future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+		}
+		catch (ExecutionException exc)
+		{
+			//l'errore della partizione viene registrato da _getPartitionResponse
+		}
+		catch (TimeoutException exc)
+		{
+			future.cancel(true);
+		}
 	}
 	
 	/**
-	 * Esegue una query di selezione con determinati parametri
-	 * @param filter Filtro di ricerca
-	 * @param procedureName Nome della procedura
-	 * @param listType Tipo di lista del ritorno
-	 * @return DBResponse con il risultato dell'esecuzione della query
-	 * @throws SQLException In caso di errori nell'esecuzione delle procedure SQL
-	 * @throws IllegalAccessException Nel caso di errori nell'accesso ai campi della classe
-	 * @throws InstantiationException Se la classe che si sta tentando di costruire non può essere istanziata
+	 * Legge il risultato di una partizione già completata, registrandone l'errore se fallita
+	 * @param future Future della partizione
+	 * @param index Posizione della partizione
+	 * @param errors Errori delle partizioni fallite
+	 * @return DBResponse della partizione, null se è fallita
+	 * @throws InterruptedException Se il thread viene interrotto
 	 */
-	public DBResponse<TEntity, TEntityList> ExecuteSelection(BaseFilter<TEntity> filter, String procedureName, Class<TEntityList> listType) throws SQLException, IllegalAccessException, InstantiationException
+	private DBResponse<TEntity, TEntityList> _getPartitionResponse(Future<DBResponse<TEntity, TEntityList>> future, int index, TreeMap<Integer, String> errors) throws InterruptedException
 	{
-		DBResponse<TEntity, TEntityList> theResponse = new DBResponse<TEntity, TEntityList>();
-		Connection dbConnection = _getConnection();
-		dbConnection.setAutoCommit(true);
-		CallableStatement callableStatement = _prepareStatement(dbConnection, filter, procedureName);
-		ResultSet rs = callableStatement.executeQuery();
-		TEntityList resultList = (TEntityList)listType.newInstance();
 		try
 		{
-			while (rs.next())
-				resultList.add(EntityFromResultSet(rs));
-			theResponse.Success = true;
-			theResponse.Data = resultList;
+			DBResponse<TEntity, TEntityList> partitionResponse = future.get();
+			if (partitionResponse.Success)
+				return partitionResponse;
+			errors.put(index, partitionResponse.Message);
 		}
-		catch (InstantiationException exc)
+		catch (ExecutionException exc)
 		{
-			theResponse.Success = false;
-			theResponse.Message = exc.getLocalizedMessage();
-			exc.printStackTrace();
+			exc.getCause().printStackTrace();
+			errors.put(index, exc.getCause().getLocalizedMessage());
 		}
-		finally
+		catch (CancellationException exc)
 		{
-			dbConnection.close();
+			errors.put(index, "Partizione non completata entro " + GetPartitionTimeout() + "ms");
 		}
-		return theResponse;
+		return null;
+	}
+	
+	/**
+	 * Imposta esito e messaggio di una selezione parallela a partire dagli errori delle partizioni
+	 * @param theResponse DBResponse della selezione parallela
+	 */
+	private void _completePartitionedResponse(DBResponse<TEntity, TEntityList> theResponse)
+	{
+		theResponse.Success = theResponse.PartitionErrors.isEmpty();
+		if (!theResponse.Success)
+			theResponse.Message = "Partizioni fallite " + theResponse.PartitionErrors;
 	}
 	
 	/**
-	 * Esegue una query di aggiornamento con determinati parametri
+	 * Esegue una query di aggiornamento con determinati parametri. I valori dei parametri di OUT e INOUT vengono copiati nei campi del filtro.
 	 * @param filter Filtro contenente i parametri per l'aggiornamento
 	 * @param procedureName Nome della procedura
 	 * @return DBResponse con il risultato dell'esecuzione della query
@@ -406,12 +2950,14 @@ public abstract class BaseJDBCManager<TEntity extends BaseEntity, TEntityList ex
 	public DBResponse<TEntity, TEntityList> ExecuteUpdate(BaseFilter<TEntity> filter, String procedureName) throws SQLException, IllegalAccessException
 	{
 		DBResponse<TEntity, TEntityList> theResponse = new DBResponse<TEntity, TEntityList>();
-		Connection dbConnection = _getConnection();
-		CallableStatement callableStatement = _prepareStatement(dbConnection, filter, procedureName);
+		Connection dbConnection = _getConnection(false);
+		CallableStatement callableStatement = null;
 		try
 		{
-			callableStatement.executeUpdate();
-			dbConnection.commit();
+			callableStatement = _prepareStatement(dbConnection, filter, procedureName);
+			_executeUpdate(callableStatement, procedureName, filter);
+			_readOutputParameters(filter, callableStatement);
+			_commit(dbConnection, procedureName);
 			theResponse.Success = true;
 		}
 		catch (SQLException exc)
@@ -419,12 +2965,137 @@ public abstract class BaseJDBCManager<TEntity extends BaseEntity, TEntityList ex
 			theResponse.Success = false;
 			theResponse.Message = exc.getLocalizedMessage();
 			exc.printStackTrace();
-			dbConnection.rollback();
+			_rollback(dbConnection, procedureName);
 		}
 		finally
 		{
-			dbConnection.close();
+			_release(dbConnection, callableStatement);
+			//non conoscendo le entity modificate svuoto la cache
+			_clearCache();
 		}
 		return theResponse;
 	}
+	
+	/**
+	 * Versione asincrona di Save(TEntityList), eseguita sull'esecutore del manager
+	 * @param list Lista da salvare
+	 * @return Future con il DBResponse del salvataggio
+	 */
+	public Future<DBResponse<TEntity, TEntityList>> SaveAsync(final TEntityList list)
+	{
+		return _getAsyncExecutor().Submit(new Callable<DBResponse<TEntity, TEntityList>>()
+		{
+			@Override
+			public DBResponse<TEntity, TEntityList> call() throws Exception
+			{
+				return Save(list);
+			}
+		});
+	}
+	
+	/**
+	 * Versione asincrona di Delete(TEntityList), eseguita sull'esecutore del manager
+	 * @param list Lista da cancellare
+	 * @return Future con il DBResponse della cancellazione
+	 */
+	public Future<DBResponse<TEntity, TEntityList>> DeleteAsync(final TEntityList list)
+	{
+		return _getAsyncExecutor().Submit(new Callable<DBResponse<TEntity, TEntityList>>()
+		{
+			@Override
+			public DBResponse<TEntity, TEntityList> call() throws Exception
+			{
+				return Delete(list);
+			}
+		});
+	}
+	
+	/**
+	 * Versione asincrona di Delete(BaseFilter), eseguita sull'esecutore del manager
+	 * @param filter Filtri da eseguire in cancellazione
+	 * @return Future con il DBResponse della cancellazione
+	 */
+	public Future<DBResponse<TEntity, TEntityList>> DeleteAsync(final BaseFilter<TEntity> filter)
+	{
+		return _getAsyncExecutor().Submit(new Callable<DBResponse<TEntity, TEntityList>>()
+		{
+			@Override
+			public DBResponse<TEntity, TEntityList> call() throws Exception
+			{
+				return Delete(filter);
+			}
+		});
+	}
+	
+	/**
+	 * Versione asincrona di Get, eseguita sull'esecutore del manager
+	 * @param filter Filtro per recuperare la entity
+	 * @return Future con il DBResponse della lettura
+	 */
+	public Future<DBResponse<TEntity, TEntityList>> GetAsync(final BaseFilter<TEntity> filter)
+	{
+		return _getAsyncExecutor().Submit(new Callable<DBResponse<TEntity, TEntityList>>()
+		{
+			@Override
+			public DBResponse<TEntity, TEntityList> call() throws Exception
+			{
+				return Get(filter);
+			}
+		});
+	}
+	
+	/**
+	 * Versione asincrona di List, eseguita sull'esecutore del manager
+	 * @param filter Filtro per recuperare la entity list
+	 * @param listType Tipo di lista da costruire
+	 * @return Future con il DBResponse della lettura
+	 */
+	public Future<DBResponse<TEntity, TEntityList>> ListAsync(final BaseFilter<TEntity> filter, final Class<TEntityList> listType)
+	{
+		return _getAsyncExecutor().Submit(new Callable<DBResponse<TEntity, TEntityList>>()
+		{
+			@Override
+			public DBResponse<TEntity, TEntityList> call() throws Exception
+			{
+				return List(filter, listType);
+			}
+		});
+	}
+	
+	/**
+	 * Versione asincrona di ExecuteSelection, eseguita sull'esecutore del manager
+	 * @param filter Filtro di ricerca
+	 * @param procedureName Nome della procedura
+	 * @param listType Tipo di lista del ritorno
+	 * @return Future con il DBResponse della selezione
+	 */
+	public Future<DBResponse<TEntity, TEntityList>> ExecuteSelectionAsync(final BaseFilter<TEntity> filter, final String procedureName, final Class<TEntityList> listType)
+	{
+		return _getAsyncExecutor().Submit(new Callable<DBResponse<TEntity, TEntityList>>()
+		{
+			@Override
+			public DBResponse<TEntity, TEntityList> call() throws Exception
+			{
+				return ExecuteSelection(filter, procedureName, listType);
+			}
+		});
+	}
+	
+	/**
+	 * Versione asincrona di ExecuteUpdate, eseguita sull'esecutore del manager
+	 * @param filter Filtro contenente i parametri per l'aggiornamento
+	 * @param procedureName Nome della procedura
+	 * @return Future con il DBResponse dell'aggiornamento
+	 */
+	public Future<DBResponse<TEntity, TEntityList>> ExecuteUpdateAsync(final BaseFilter<TEntity> filter, final String procedureName)
+	{
+		return _getAsyncExecutor().Submit(new Callable<DBResponse<TEntity, TEntityList>>()
+		{
+			@Override
+			public DBResponse<TEntity, TEntityList> call() throws Exception
+			{
+				return ExecuteUpdate(filter, procedureName);
+			}
+		});
+	}
 }
\ No newline at end of file
@@ -34,6 +34,18 @@ public abstract class BaseOracleManager <TEntity extends BaseEntity, TEntityList
 		return "jdbc:oracle:thin:@" + GetServerName() + ":" + GetSID();
 	}
 	
+	@Override
+	public boolean UsingMergeStatements()
+	{
+		return true;
+	}
+	
+	@Override
+	public int GetRefCursorSqlType()
+	{
+		return oracle.jdbc.OracleTypes.CURSOR;
+	}
+	
 	public BaseOracleManager() throws SQLException, NamingException
 	{
 		super();
@@ -0,0 +1,191 @@
+package dal;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import entities.BaseEntity;
+import sql.SQLFieldMetadata;
+import sql.SQLQuerableMetadata;
+import sql.SQLValueBinder;
+
+/**
+ * Descrive uno dei result set figli di una selezione a grafo (vedi BaseJDBCManager.ExecuteGraphSelection): la classe delle entity che contiene,
+ * il campo della entity padre in cui agganciarle e le colonne della entity figlia che riportano la chiave del padre.
+ * Il result set può essere il successivo restituito dalla procedura oppure un parametro di OUT di tipo REF CURSOR.
+ * <p>
+ * Il campo del padre può essere una Collection, creata alla prima entity figlia se null (ArrayList per le interfacce), oppure un riferimento singolo ad una entity figlia:
+ * in questo caso ogni padre deve avere al massimo una entity figlia nel result set.
+ * Il descrittore non ha stato e può essere riusato da più chiamate e più thread.
+ * @author amelani
+ *
+ * @param <TChild> Tipo delle entity figlie
+ */
+public class ChildResultSet<TChild extends BaseEntity>
+{
+	/** Classe delle entity padre */
+	public final Class<? extends BaseEntity> ParentType;
+
+	/** Classe delle entity del result set */
+	public final Class<TChild> Type;
+
+	/** Result set padre, null se le entity vanno agganciate alle entity principali della selezione */
+	public final ChildResultSet<?> Parent;
+
+	/** Nome del parametro di OUT di tipo REF CURSOR che contiene il result set, null se il result set è il successivo restituito dalla procedura */
+	public final String CursorParameter;
+
+	private final Field _parentField;
+	private final boolean _collection;
+	private final SQLFieldMetadata[] _parentKey;
+	private final SQLFieldMetadata[] _foreignKey;
+
+	/**
+	 * Descrive un result set figlio delle entity principali, letto dai result set restituiti dalla procedura nell'ordine di dichiarazione
+	 * @param parentType Classe delle entity principali
+	 * @param parentField Nome del campo della entity padre in cui agganciare le entity figlie
+	 * @param type Classe delle entity figlie
+	 * @param foreignKey Nomi delle colonne della entity figlia, come nelle annotazioni EntityFieldAttribute, che contengono i valori dei campi chiave del padre, nello stesso ordine
+	 * @throws IllegalArgumentException Se il campo del padre o le colonne della chiave non sono validi
+	 */
+	public ChildResultSet(Class<? extends BaseEntity> parentType, String parentField, Class<TChild> type, String... foreignKey)
+	{
+		this(parentType, parentField, type, foreignKey, null, null);
+	}
+
+	/**
+	 * Descrive un result set figlio
+	 * @param parentType Classe delle entity padre
+	 * @param parentField Nome del campo della entity padre in cui agganciare le entity figlie
+	 * @param type Classe delle entity figlie
+	 * @param foreignKey Nomi delle colonne della entity figlia, come nelle annotazioni EntityFieldAttribute, che contengono i valori dei campi chiave del padre, nello stesso ordine
+	 * @param cursorParameter Nome del parametro di OUT di tipo REF CURSOR, null per leggere il successivo result set restituito dalla procedura
+	 * @param parent Result set delle entity padre, null se sono le entity principali della selezione
+	 * @throws IllegalArgumentException Se il campo del padre o le colonne della chiave non sono validi
+	 */
+	public ChildResultSet(Class<? extends BaseEntity> parentType, String parentField, Class<TChild> type, String[] foreignKey, String cursorParameter, ChildResultSet<?> parent)
+	{
+		if (parent != null && !parentType.isAssignableFrom(parent.Type))
+			throw new IllegalArgumentException("Il result set padre contiene " + parent.Type.getName() + " e non " + parentType.getName());
+		ParentType = parentType;
+		Type = type;
+		Parent = parent;
+		CursorParameter = cursorParameter;
+
+		_parentField = _findField(parentType, parentField);
+		if (_parentField == null)
+			throw new IllegalArgumentException("La classe " + parentType.getName() + " non ha il campo " + parentField);
+		_collection = Collection.class.isAssignableFrom(_parentField.getType());
+		if (!_collection && !_parentField.getType().isAssignableFrom(type))
+			throw new IllegalArgumentException("Il campo " + parentField + " deve essere una Collection o di tipo " + type.getName());
+		_parentField.setAccessible(true);
+
+		_parentKey = SQLQuerableMetadata.Get(parentType).KeyFields;
+		if (_parentKey.length == 0)
+			throw new IllegalArgumentException("La entity " + parentType.getName() + " non ha campi chiave");
+		if (foreignKey.length != _parentKey.length)
+			throw new IllegalArgumentException("La entity " + parentType.getName() + " ha " + _parentKey.length + " campi chiave, le colonne indicate sono " + foreignKey.length);
+		SQLQuerableMetadata childMetadata = SQLQuerableMetadata.Get(type);
+		_foreignKey = new SQLFieldMetadata[foreignKey.length];
+		for (int i = 0; i < foreignKey.length; i++)
+		{
+			_foreignKey[i] = childMetadata.GetField(foreignKey[i]);
+			if (_foreignKey[i] == null)
+				throw new IllegalArgumentException("La entity " + type.getName() + " non ha la colonna " + foreignKey[i]);
+		}
+	}
+
+	/**
+	 * Aggancia le entity figlie alle entity padre con la stessa chiave. Le entity figlie senza padre vengono ignorate.
+	 * @param parents Entity padre
+	 * @param children Entity figlie, nell'ordine in cui sono state lette
+	 * @return Numero di entity figlie senza padre
+	 * @throws SQLException Se il campo del padre è un riferimento singolo e il result set contiene più entity figlie per lo stesso padre
+	 * @throws IllegalAccessException Se un campo delle classi non è accessibile
+	 * @throws InstantiationException Se non è possibile creare la Collection del campo del padre
+	 */
+	@SuppressWarnings("unchecked")
+	int Attach(List<? extends BaseEntity> parents, List<TChild> children) throws SQLException, IllegalAccessException, InstantiationException
+	{
+		HashMap<List<Object>, BaseEntity> parentsByKey = new HashMap<List<Object>, BaseEntity>(parents.size() * 2);
+		for (BaseEntity parent : parents)
+			parentsByKey.put(_key(_parentKey, parent), parent);
+		//padri a cui è già stato assegnato il riferimento singolo in questa chiamata
+		IdentityHashMap<BaseEntity, Boolean> assigned = _collection ? null : new IdentityHashMap<BaseEntity, Boolean>();
+		int orphans = 0;
+		for (TChild child : children)
+		{
+			BaseEntity parent = parentsByKey.get(_key(_foreignKey, child));
+			if (parent == null)
+			{
+				orphans++;
+				continue;
+			}
+			if (!_collection)
+			{
+				if (assigned.put(parent, Boolean.TRUE) != null)
+					throw new SQLException("Il result set di " + Type.getName() + " contiene più entity figlie per la chiave " + _key(_parentKey, parent)
+							+ ", ma il campo " + _parentField.getName() + " di " + ParentType.getName() + " ne contiene una sola");
+				_parentField.set(parent, child);
+				continue;
+			}
+			Collection<TChild> collection = (Collection<TChild>)_parentField.get(parent);
+			if (collection == null)
+			{
+				collection = _newCollection();
+				_parentField.set(parent, collection);
+			}
+			collection.add(child);
+		}
+		return orphans;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "ChildResultSet [ParentType=" + ParentType.getName() + ", ParentField=" + _parentField.getName() + ", Type=" + Type.getName()
+				+ ", CursorParameter=" + CursorParameter + "]";
+	}
+
+	@SuppressWarnings("unchecked")
+	private Collection<TChild> _newCollection() throws InstantiationException, IllegalAccessException
+	{
+		Class<?> fieldType = _parentField.getType();
+		if (fieldType.isInterface() || Modifier.isAbstract(fieldType.getModifiers()))
+			return new ArrayList<TChild>();
+		return (Collection<TChild>)fieldType.newInstance();
+	}
+
+	/**
+	 * Legge i valori di una chiave, riportandoli ad una forma comune (vedi SQLValueBinder.NormalizeKey) così che ad esempio un NUMBER letto come BigDecimal corrisponda ad una chiave Long
+	 */
+	private static List<Object> _key(SQLFieldMetadata[] fields, Object target) throws IllegalAccessException
+	{
+		Object[] values = new Object[fields.length];
+		for (int i = 0; i < fields.length; i++)
+			values[i] = SQLValueBinder.NormalizeKey(fields[i].GetValue(target));
+		return Arrays.asList(values);
+	}
+
+	private static Field _findField(Class<?> type, String name)
+	{
+		for (Class<?> current = type; current != null; current = current.getSuperclass())
+		{
+			try
+			{
+				return current.getDeclaredField(name);
+			}
+			catch (NoSuchFieldException exc)
+			{
+				//il campo può essere dichiarato in una superclasse
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,284 @@
+package dal;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Rilevatore delle connessioni trattenute troppo a lungo.
+ * Le connessioni passate a Track vengono avvolte in un proxy che registra l'istante e il punto del codice (stack trace) in cui sono state ottenute e gli statement creati.
+ * Un thread daemon controlla periodicamente le connessioni aperte e segnala una sola volta, con livello WARNING, quelle trattenute oltre la soglia, insieme al punto in cui sono state ottenute.
+ * Alla chiusura vengono contati gli statement lasciati aperti, che su Oracle portano a ORA-01000 se la connessione fisica resta in uso.
+ * La registrazione dello stack trace ha un costo ad ogni connessione: il rilevatore va abilitato per la diagnosi, non lasciato sempre attivo.
+ * @author amelani
+ *
+ */
+public class ConnectionLeakDetector
+{
+	private static final Logger _logger = Logger.getLogger(ConnectionLeakDetector.class.getName());
+	private static final Map<String, ConnectionLeakDetector> _detectors = new HashMap<String, ConnectionLeakDetector>();
+	private static Timer _timer;
+
+	private final String _name;
+	private final long _thresholdNanos;
+	private final Set<TrackedConnection> _open = Collections.newSetFromMap(new ConcurrentHashMap<TrackedConnection, Boolean>());
+	private final TimerTask _checkTask;
+
+	private final AtomicLong _borrowed = new AtomicLong();
+	private final AtomicLong _leaked = new AtomicLong();
+	private final AtomicLong _unclosedStatements = new AtomicLong();
+	private final AtomicLong _maxHeldNanos = new AtomicLong();
+
+	/**
+	 * Restituisce il rilevatore con il nome indicato, creandolo se non esiste ancora
+	 * @param name Nome del rilevatore, normalmente la connection string e l'utente del manager
+	 * @param threshold Millisecondi oltre i quali una connessione è considerata trattenuta, usati soltanto alla creazione del rilevatore
+	 * @return ConnectionLeakDetector condiviso per il nome indicato
+	 */
+	public static ConnectionLeakDetector GetDetector(String name, long threshold)
+	{
+		synchronized (_detectors)
+		{
+			ConnectionLeakDetector detector = _detectors.get(name);
+			if (detector == null)
+			{
+				detector = new ConnectionLeakDetector(name, threshold);
+				_detectors.put(name, detector);
+			}
+			return detector;
+		}
+	}
+
+	/**
+	 * Arresta tutti i rilevatori creati. Le connessioni già tracciate continuano a funzionare normalmente.
+	 */
+	public static void CloseAll()
+	{
+		ArrayList<ConnectionLeakDetector> detectors;
+		synchronized (_detectors)
+		{
+			detectors = new ArrayList<ConnectionLeakDetector>(_detectors.values());
+			_detectors.clear();
+		}
+		for (ConnectionLeakDetector detector : detectors)
+			detector.Close();
+	}
+
+	private static synchronized Timer _getTimer()
+	{
+		if (_timer == null)
+			_timer = new Timer("mel8fw-leak-detector", true);
+		return _timer;
+	}
+
+	/**
+	 * Costruisce un rilevatore e avvia il suo controllo periodico
+	 * @param name Nome del rilevatore, riportato nelle segnalazioni
+	 * @param threshold Millisecondi oltre i quali una connessione è considerata trattenuta
+	 */
+	public ConnectionLeakDetector(String name, long threshold)
+	{
+		if (threshold < 1)
+			throw new IllegalArgumentException("Soglia del rilevatore di connessioni trattenute non valida: " + threshold + "ms");
+		_name = name;
+		_thresholdNanos = TimeUnit.MILLISECONDS.toNanos(threshold);
+		_checkTask = new TimerTask()
+		{
+			@Override
+			public void run()
+			{
+				_check();
+			}
+		};
+		//controllando ogni mezza soglia una connessione viene segnalata al massimo dopo una volta e mezza la soglia
+		long period = Math.max(threshold / 2, 1);
+		_getTimer().schedule(_checkTask, period, period);
+	}
+
+	/**
+	 * Inizia a tracciare una connessione appena ottenuta
+	 * @param connection Connessione da tracciare
+	 * @return Proxy della connessione, da usare e chiudere al posto dell'originale
+	 */
+	public Connection Track(Connection connection)
+	{
+		TrackedConnection tracked = new TrackedConnection(connection);
+		_open.add(tracked);
+		_borrowed.incrementAndGet();
+		return (Connection)Proxy.newProxyInstance(ConnectionLeakDetector.class.getClassLoader(), new Class<?>[] { Connection.class }, tracked);
+	}
+
+	/**
+	 * Restituisce lo stato attuale del rilevatore
+	 * @return ConnectionLeakStatistics con i contatori del rilevatore
+	 */
+	public ConnectionLeakStatistics GetStatistics()
+	{
+		ConnectionLeakStatistics stats = new ConnectionLeakStatistics();
+		stats.Open = _open.size();
+		stats.Borrowed = _borrowed.get();
+		stats.Leaked = _leaked.get();
+		stats.UnclosedStatements = _unclosedStatements.get();
+		long maxHeld = _maxHeldNanos.get();
+		long now = System.nanoTime();
+		for (TrackedConnection tracked : _open)
+			maxHeld = Math.max(maxHeld, now - tracked.BorrowedAt);
+		stats.MaxHeldTime = TimeUnit.NANOSECONDS.toMillis(maxHeld);
+		return stats;
+	}
+
+	/**
+	 * Arresta il controllo periodico del rilevatore
+	 */
+	public void Close()
+	{
+		_checkTask.cancel();
+	}
+
+	/**
+	 * Segnala le connessioni aperte da più della soglia e non ancora segnalate
+	 */
+	private void _check()
+	{
+		long now = System.nanoTime();
+		for (TrackedConnection tracked : _open)
+		{
+			if (tracked.Reported || now - tracked.BorrowedAt < _thresholdNanos)
+				continue;
+			tracked.Reported = true;
+			_leaked.incrementAndGet();
+			_logger.log(Level.WARNING, "[" + _name + "] Connessione trattenuta da " + TimeUnit.NANOSECONDS.toMillis(now - tracked.BorrowedAt)
+					+ "ms dal thread " + tracked.ThreadName + ", ottenuta in:", tracked.BorrowSite);
+		}
+	}
+
+	/**
+	 * Registra la chiusura di una connessione tracciata
+	 * @param tracked Connessione chiusa
+	 */
+	private void _closed(TrackedConnection tracked)
+	{
+		if (!_open.remove(tracked))
+			return;
+		long held = System.nanoTime() - tracked.BorrowedAt;
+		long max = _maxHeldNanos.get();
+		while (held > max && !_maxHeldNanos.compareAndSet(max, held))
+			max = _maxHeldNanos.get();
+		int unclosed = tracked.CountUnclosedStatements();
+		if (unclosed > 0)
+		{
+			_unclosedStatements.addAndGet(unclosed);
+			_logger.log(Level.WARNING, "[" + _name + "] Connessione chiusa con " + unclosed + " statement aperti, ottenuta in:", tracked.BorrowSite);
+		}
+		if (tracked.Reported)
+			_logger.log(Level.INFO, "[" + _name + "] Connessione segnalata come trattenuta chiusa dopo " + TimeUnit.NANOSECONDS.toMillis(held) + "ms");
+	}
+
+	/**
+	 * Proxy di una connessione tracciata: registra gli statement creati e alla chiusura aggiorna i contatori del rilevatore
+	 */
+	private class TrackedConnection implements InvocationHandler
+	{
+		public final long BorrowedAt = System.nanoTime();
+		public final String ThreadName = Thread.currentThread().getName();
+		public final Throwable BorrowSite = new Throwable("Punto in cui è stata ottenuta la connessione");
+		public volatile boolean Reported;
+
+		private final Connection _connection;
+		private final ArrayList<Statement> _statements = new ArrayList<Statement>();
+
+		public TrackedConnection(Connection connection)
+		{
+			_connection = connection;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+		{
+			String name = method.getName();
+			int parameters = method.getParameterTypes().length;
+			if (name.equals("close") && parameters == 0)
+				_closed(this);
+			else if (name.equals("equals") && parameters == 1)
+				return proxy == args[0];
+			else if (name.equals("hashCode") && parameters == 0)
+				return System.identityHashCode(proxy);
+			else if (name.equals("toString") && parameters == 0)
+				return "Tracked[" + _connection + "]";
+			Object result;
+			try
+			{
+				result = method.invoke(_connection, args);
+			}
+			catch (InvocationTargetException exc)
+			{
+				throw exc.getCause();
+			}
+			if (result instanceof Statement)
+			{
+				//in una UnitOfWork la connessione crea molti statement: tengo solo quelli ancora aperti
+				if (_statements.size() >= 64)
+					_removeClosedStatements();
+				_statements.add((Statement)result);
+			}
+			return result;
+		}
+
+		private void _removeClosedStatements()
+		{
+			Iterator<Statement> statements = _statements.iterator();
+			while (statements.hasNext())
+			{
+				try
+				{
+					if (statements.next().isClosed())
+						statements.remove();
+				}
+				catch (SQLException exc)
+				{
+					statements.remove();
+				}
+			}
+		}
+
+		/**
+		 * Conta gli statement creati dalla connessione e non ancora chiusi
+		 * @return Numero di statement aperti
+		 */
+		public int CountUnclosedStatements()
+		{
+			int unclosed = 0;
+			for (Statement statement : _statements)
+			{
+				try
+				{
+					if (!statement.isClosed())
+						unclosed++;
+				}
+				catch (SQLException exc)
+				{
+					//uno statement che non risponde non viene conteggiato
+				}
+			}
+			_statements.clear();
+			return unclosed;
+		}
+	}
+}
@@ -0,0 +1,30 @@
+package dal;
+
+/**
+ * Fotografia dello stato di un ConnectionLeakDetector in un dato istante
+ * @author amelani
+ *
+ */
+public class ConnectionLeakStatistics
+{
+	/** Connessioni tracciate attualmente aperte */
+	public int Open;
+
+	/** Numero totale di connessioni tracciate */
+	public long Borrowed;
+
+	/** Numero di connessioni segnalate perché trattenute oltre la soglia */
+	public long Leaked;
+
+	/** Numero di statement trovati ancora aperti alla chiusura della connessione */
+	public long UnclosedStatements;
+
+	/** Tempo massimo (in millisecondi) per cui una connessione è stata trattenuta, comprese quelle ancora aperte */
+	public long MaxHeldTime;
+
+	@Override
+	public String toString()
+	{
+		return "Open:" + Open + " Borrowed:" + Borrowed + " Leaked:" + Leaked + " UnclosedStatements:" + UnclosedStatements + " MaxHeldTime:" + MaxHeldTime;
+	}
+}
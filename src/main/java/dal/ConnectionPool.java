@@ -0,0 +1,653 @@
+package dal;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Connection pool limitato per l'accesso tramite DriverManager, usato da BaseJDBCManager quando non è disponibile un DataSource JNDI.
+ * Le connessioni restituite sono dei proxy: la chiamata a close() rimette la connessione fisica nel pool invece di chiuderla.
+ * @author amelani
+ *
+ */
+public class ConnectionPool
+{
+	private static final Map<String, ConnectionPool> _pools = new HashMap<String, ConnectionPool>();
+	private static Timer _evictionTimer;
+
+	private final String _connectionString;
+	private final String _username;
+	private final String _password;
+	private final ConnectionPoolConfiguration _configuration;
+
+	private final ReentrantLock _lock = new ReentrantLock();
+	private final Condition _available = _lock.newCondition();
+	private final LinkedList<PooledConnection> _idle = new LinkedList<PooledConnection>();
+	private int _total;
+	private int _waiters;
+	private boolean _closed;
+	private TimerTask _evictionTask;
+
+	private long _borrows;
+	private long _timeouts;
+	private long _created;
+	private long _destroyed;
+	private long _totalWaitNanos;
+	private long _maxWaitNanos;
+	private final AtomicLong _statementCacheHits = new AtomicLong();
+	private final AtomicLong _statementCacheMisses = new AtomicLong();
+	private final AtomicLong _statementCacheEvictions = new AtomicLong();
+
+	/**
+	 * Restituisce il pool associato ad una connection string e ad un utente, creandolo se non esiste ancora
+	 * @param connectionString Connection string del database
+	 * @param username Nome utente con cui collegarsi al DB
+	 * @param password Password per collegarsi al DB
+	 * @param configuration Configurazione del pool, usata soltanto alla sua creazione
+	 * @return ConnectionPool condiviso per la coppia connection string / utente
+	 */
+	public static ConnectionPool GetPool(String connectionString, String username, String password, ConnectionPoolConfiguration configuration)
+	{
+		String key = connectionString + "|" + username;
+		synchronized (_pools)
+		{
+			ConnectionPool pool = _pools.get(key);
+			if (pool == null)
+			{
+				pool = new ConnectionPool(connectionString, username, password, configuration == null ? new ConnectionPoolConfiguration() : configuration);
+				_pools.put(key, pool);
+			}
+			return pool;
+		}
+	}
+
+	/**
+	 * Chiude tutti i pool creati, chiudendo le connessioni inutilizzate
+	 */
+	public static void CloseAll()
+	{
+		ArrayList<ConnectionPool> pools;
+		synchronized (_pools)
+		{
+			pools = new ArrayList<ConnectionPool>(_pools.values());
+			_pools.clear();
+		}
+		for (ConnectionPool pool : pools)
+			pool.Close();
+	}
+
+	/**
+	 * Costruisce un pool, apre subito MinSize connessioni e pianifica il controllo periodico delle connessioni inutilizzate.
+	 * Gli errori nell'apertura delle connessioni iniziali non impediscono la creazione del pool: le connessioni vengono aperte alla prima richiesta.
+	 * @param connectionString Connection string del database
+	 * @param username Nome utente con cui collegarsi al DB
+	 * @param password Password per collegarsi al DB
+	 * @param configuration Configurazione del pool
+	 */
+	public ConnectionPool(String connectionString, String username, String password, ConnectionPoolConfiguration configuration)
+	{
+		if (configuration.MaxSize < 1 || configuration.MinSize < 0 || configuration.MinSize > configuration.MaxSize)
+			throw new IllegalArgumentException("Dimensioni del connection pool non valide: min " + configuration.MinSize + ", max " + configuration.MaxSize);
+		_connectionString = connectionString;
+		_username = username;
+		_password = password;
+		_configuration = configuration;
+		_openMinimum();
+		if (configuration.EvictionInterval > 0)
+		{
+			_evictionTask = new TimerTask()
+			{
+				@Override
+				public void run()
+				{
+					_evict();
+				}
+			};
+			_getEvictionTimer().schedule(_evictionTask, configuration.EvictionInterval, configuration.EvictionInterval);
+		}
+	}
+
+	private static synchronized Timer _getEvictionTimer()
+	{
+		if (_evictionTimer == null)
+			_evictionTimer = new Timer("mel8fw-connection-pool-evictor", true);
+		return _evictionTimer;
+	}
+
+	/**
+	 * Restituisce una connessione del pool, aprendone una nuova se non ce ne sono di libere e non si è raggiunta la dimensione massima.
+	 * Se il pool è esaurito attende al massimo BorrowTimeout millisecondi.
+	 * @return Connessione al database, da chiudere con close() per restituirla al pool
+	 * @throws SQLException Se il pool è chiuso, se l'attesa scade o in caso di errori nell'apertura della connessione
+	 */
+	public Connection GetConnection() throws SQLException
+	{
+		long start = System.nanoTime();
+		long remaining = TimeUnit.MILLISECONDS.toNanos(_configuration.BorrowTimeout);
+		while (true)
+		{
+			PooledConnection candidate = null;
+			_lock.lock();
+			try
+			{
+				if (_closed)
+					throw new SQLException("Il connection pool è chiuso");
+				_waiters++;
+				try
+				{
+					while (_idle.isEmpty() && _total >= _configuration.MaxSize)
+					{
+						if (remaining <= 0)
+						{
+							_timeouts++;
+							throw new SQLException("Timeout di " + _configuration.BorrowTimeout + "ms scaduto in attesa di una connessione dal pool");
+						}
+						remaining = _available.awaitNanos(remaining);
+						if (_closed)
+							throw new SQLException("Il connection pool è chiuso");
+					}
+				}
+				catch (InterruptedException exc)
+				{
+					Thread.currentThread().interrupt();
+					throw new SQLException("Interrotto in attesa di una connessione dal pool", exc);
+				}
+				finally
+				{
+					_waiters--;
+				}
+				if (!_idle.isEmpty())
+					candidate = _idle.removeLast();
+				else
+					_total++;
+			}
+			finally
+			{
+				_lock.unlock();
+			}
+
+			if (candidate == null)
+				candidate = _create();
+			else if (!_validate(candidate))
+			{
+				_destroy(candidate);
+				continue;
+			}
+			_recordBorrow(System.nanoTime() - start);
+			return candidate.Open();
+		}
+	}
+
+	/**
+	 * Restituisce lo stato attuale del pool
+	 * @return ConnectionPoolStatistics con i contatori del pool
+	 */
+	public ConnectionPoolStatistics GetStatistics()
+	{
+		ConnectionPoolStatistics stats = new ConnectionPoolStatistics();
+		_lock.lock();
+		try
+		{
+			stats.Idle = _idle.size();
+			stats.Active = _total - stats.Idle;
+			stats.Waiters = _waiters;
+			stats.Borrows = _borrows;
+			stats.Timeouts = _timeouts;
+			stats.Created = _created;
+			stats.Destroyed = _destroyed;
+			stats.TotalWaitTime = TimeUnit.NANOSECONDS.toMillis(_totalWaitNanos);
+			stats.MaxWaitTime = TimeUnit.NANOSECONDS.toMillis(_maxWaitNanos);
+			stats.StatementCacheHits = _statementCacheHits.get();
+			stats.StatementCacheMisses = _statementCacheMisses.get();
+			stats.StatementCacheEvictions = _statementCacheEvictions.get();
+		}
+		finally
+		{
+			_lock.unlock();
+		}
+		return stats;
+	}
+
+	/**
+	 * Chiude il pool: le connessioni inutilizzate vengono chiuse subito, quelle in uso alla loro restituzione
+	 */
+	public void Close()
+	{
+		ArrayList<PooledConnection> toClose;
+		_lock.lock();
+		try
+		{
+			_closed = true;
+			toClose = new ArrayList<PooledConnection>(_idle);
+			_idle.clear();
+			_available.signalAll();
+		}
+		finally
+		{
+			_lock.unlock();
+		}
+		if (_evictionTask != null)
+			_evictionTask.cancel();
+		for (PooledConnection connection : toClose)
+			_destroy(connection);
+	}
+
+	/**
+	 * Apre una nuova connessione fisica. Il posto nel pool deve essere già stato riservato incrementando il totale.
+	 * @return PooledConnection appena creata
+	 * @throws SQLException In caso di errori nell'apertura della connessione
+	 */
+	private PooledConnection _create() throws SQLException
+	{
+		try
+		{
+			Connection physical = DriverManager.getConnection(_connectionString, _username, _password);
+			PooledConnection connection;
+			try
+			{
+				connection = new PooledConnection(physical);
+			}
+			catch (SQLException exc)
+			{
+				physical.close();
+				throw exc;
+			}
+			_lock.lock();
+			try
+			{
+				_created++;
+			}
+			finally
+			{
+				_lock.unlock();
+			}
+			return connection;
+		}
+		catch (SQLException exc)
+		{
+			_freeSlot(false);
+			throw exc;
+		}
+		catch (RuntimeException exc)
+		{
+			_freeSlot(false);
+			throw exc;
+		}
+	}
+
+	/**
+	 * Verifica che una connessione inutilizzata sia ancora valida
+	 * @param connection Connessione da verificare
+	 * @return True se la connessione si può restituire, false altrimenti
+	 */
+	private boolean _validate(PooledConnection connection)
+	{
+		if (_configuration.ValidationTimeout < 0)
+			return true;
+		try
+		{
+			return connection.Physical.isValid(_configuration.ValidationTimeout);
+		}
+		catch (SQLException exc)
+		{
+			return false;
+		}
+	}
+
+	/**
+	 * Chiude la connessione fisica e libera il suo posto nel pool
+	 * @param connection Connessione da chiudere
+	 */
+	private void _destroy(PooledConnection connection)
+	{
+		try
+		{
+			if (connection.Statements != null)
+				connection.Statements.CloseAll();
+			connection.Physical.close();
+		}
+		catch (SQLException exc)
+		{
+			exc.printStackTrace();
+		}
+		_freeSlot(true);
+	}
+
+	/**
+	 * Libera il posto nel pool di una connessione chiusa o mai aperta, risvegliando un eventuale thread in attesa
+	 * @param destroyed True se la connessione fisica era stata aperta ed è stata chiusa
+	 */
+	private void _freeSlot(boolean destroyed)
+	{
+		_lock.lock();
+		try
+		{
+			_total--;
+			if (destroyed)
+				_destroyed++;
+			_available.signal();
+		}
+		finally
+		{
+			_lock.unlock();
+		}
+	}
+
+	/**
+	 * Riporta una connessione fra quelle libere, risvegliando un eventuale thread in attesa
+	 * @param connection Connessione da rimettere fra quelle libere
+	 */
+	private void _release(PooledConnection connection)
+	{
+		boolean destroy = false;
+		_lock.lock();
+		try
+		{
+			if (_closed)
+				destroy = true;
+			else
+			{
+				connection.LastUsed = System.currentTimeMillis();
+				_idle.addLast(connection);
+			}
+			_available.signal();
+		}
+		finally
+		{
+			_lock.unlock();
+		}
+		if (destroy)
+			_destroy(connection);
+	}
+
+	/**
+	 * Restituisce al pool una connessione chiusa dall'utilizzatore, annullando l'eventuale transazione lasciata aperta
+	 * e ripristinando sola lettura, livello di isolamento e catalogo se l'utilizzatore li ha cambiati
+	 * @param connection Connessione restituita
+	 * @param settingsChanged True se l'utilizzatore ha cambiato sola lettura, livello di isolamento o catalogo
+	 */
+	private void _giveBack(PooledConnection connection, boolean settingsChanged)
+	{
+		boolean reusable;
+		try
+		{
+			reusable = !connection.Physical.isClosed();
+			if (reusable && !connection.Physical.getAutoCommit())
+				connection.Physical.rollback();
+			if (reusable && settingsChanged)
+				connection.RestoreSettings();
+		}
+		catch (SQLException exc)
+		{
+			reusable = false;
+		}
+		if (reusable)
+			_release(connection);
+		else
+			_destroy(connection);
+	}
+
+	private void _recordBorrow(long waitNanos)
+	{
+		_lock.lock();
+		try
+		{
+			_borrows++;
+			_totalWaitNanos += waitNanos;
+			if (waitNanos > _maxWaitNanos)
+				_maxWaitNanos = waitNanos;
+		}
+		finally
+		{
+			_lock.unlock();
+		}
+	}
+
+	/**
+	 * Chiude le connessioni inutilizzate da più di IdleTimeout millisecondi senza scendere sotto MinSize, poi riapre quelle mancanti per arrivare a MinSize
+	 */
+	private void _evict()
+	{
+		ArrayList<PooledConnection> expired = new ArrayList<PooledConnection>();
+		_lock.lock();
+		try
+		{
+			if (_closed)
+				return;
+			long limit = System.currentTimeMillis() - _configuration.IdleTimeout;
+			int removable = _total - _configuration.MinSize;
+			//le connessioni più vecchie sono in testa alla lista
+			Iterator<PooledConnection> it = _idle.iterator();
+			while (it.hasNext() && removable > 0)
+			{
+				PooledConnection connection = it.next();
+				if (connection.LastUsed > limit)
+					break;
+				it.remove();
+				expired.add(connection);
+				removable--;
+			}
+		}
+		finally
+		{
+			_lock.unlock();
+		}
+		for (PooledConnection connection : expired)
+			_destroy(connection);
+		_openMinimum();
+	}
+
+	/**
+	 * Apre le connessioni mancanti per arrivare a MinSize, mettendole fra quelle libere
+	 */
+	private void _openMinimum()
+	{
+		int missing;
+		_lock.lock();
+		try
+		{
+			if (_closed)
+				return;
+			missing = _configuration.MinSize - _total;
+			if (missing > 0)
+				_total += missing;
+		}
+		finally
+		{
+			_lock.unlock();
+		}
+		for (int i = 0; i < missing; i++)
+		{
+			try
+			{
+				_release(_create());
+			}
+			catch (SQLException exc)
+			{
+				exc.printStackTrace();
+				//_create ha già liberato il posto riservato, rinuncio anche ai successivi
+				_lock.lock();
+				try
+				{
+					_total -= missing - i - 1;
+					_available.signalAll();
+				}
+				finally
+				{
+					_lock.unlock();
+				}
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Connessione fisica gestita dal pool, con la sua cache di CallableStatement
+	 */
+	private class PooledConnection
+	{
+		public final Connection Physical;
+		public final StatementCache Statements;
+		public long LastUsed;
+		private final boolean _readOnly;
+		private final int _transactionIsolation;
+		private final String _catalog;
+
+		public PooledConnection(Connection physical) throws SQLException
+		{
+			Physical = physical;
+			Statements = _configuration.StatementCacheSize > 0 ? new StatementCache(physical, _configuration.StatementCacheSize, _statementCacheHits, _statementCacheMisses, _statementCacheEvictions) : null;
+			LastUsed = System.currentTimeMillis();
+			_readOnly = physical.isReadOnly();
+			_transactionIsolation = physical.getTransactionIsolation();
+			_catalog = physical.getCatalog();
+		}
+
+		/**
+		 * Riporta sola lettura, livello di isolamento e catalogo ai valori che la connessione aveva all'apertura
+		 * @throws SQLException In caso di errori nel ripristino
+		 */
+		public void RestoreSettings() throws SQLException
+		{
+			if (Physical.isReadOnly() != _readOnly)
+				Physical.setReadOnly(_readOnly);
+			if (Physical.getTransactionIsolation() != _transactionIsolation)
+				Physical.setTransactionIsolation(_transactionIsolation);
+			if (_catalog != null && !_catalog.equals(Physical.getCatalog()))
+				Physical.setCatalog(_catalog);
+		}
+
+		/**
+		 * Crea un nuovo proxy della connessione per un utilizzatore
+		 * @return Connessione da restituire all'utilizzatore
+		 */
+		public Connection Open()
+		{
+			return (Connection)Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(), new Class<?>[] { Connection.class }, new ConnectionHandle(this));
+		}
+	}
+
+	/**
+	 * Proxy di una connessione prestata: close() chiude gli statement lasciati aperti e restituisce la connessione al pool, dopo la restituzione non è più utilizzabile.
+	 * Le prepareCall senza opzioni passano dalla cache degli statement della connessione.
+	 */
+	private class ConnectionHandle implements InvocationHandler
+	{
+		private final PooledConnection _connection;
+		private final ArrayList<Statement> _statements = new ArrayList<Statement>();
+		/** Numero di statement oltre il quale quelli già chiusi vengono rimossi dalla lista */
+		private int _pruneAt = 64;
+		private boolean _settingsChanged;
+		private boolean _returned;
+
+		public ConnectionHandle(PooledConnection connection)
+		{
+			_connection = connection;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+		{
+			String name = method.getName();
+			int parameters = method.getParameterTypes().length;
+			if (name.equals("close") && parameters == 0)
+			{
+				if (!_returned)
+				{
+					_returned = true;
+					_closeStatements();
+					_giveBack(_connection, _settingsChanged);
+				}
+				return null;
+			}
+			if (name.equals("isClosed") && parameters == 0)
+				return _returned || _connection.Physical.isClosed();
+			if (name.equals("equals") && parameters == 1)
+				return proxy == args[0];
+			if (name.equals("hashCode") && parameters == 0)
+				return System.identityHashCode(proxy);
+			if (name.equals("toString") && parameters == 0)
+				return "Pooled[" + _connection.Physical + "]";
+			if (_returned)
+				throw new SQLException("La connessione è già stata restituita al pool");
+			if (name.equals("setReadOnly") || name.equals("setTransactionIsolation") || name.equals("setCatalog"))
+				_settingsChanged = true;
+			Object result;
+			if (name.equals("prepareCall") && parameters == 1 && _connection.Statements != null)
+				result = _connection.Statements.PrepareCall((String)args[0], (Connection)proxy);
+			else
+			{
+				try
+				{
+					result = method.invoke(_connection.Physical, args);
+				}
+				catch (InvocationTargetException exc)
+				{
+					throw exc.getCause();
+				}
+			}
+			//la connessione fisica non viene chiusa, quindi gli statement lasciati aperti vanno chiusi alla restituzione
+			if (result instanceof Statement)
+			{
+				//in una UnitOfWork o in una lettura in streaming la connessione crea molti statement: tengo solo quelli ancora aperti
+				if (_statements.size() >= _pruneAt)
+				{
+					_removeClosedStatements();
+					_pruneAt = Math.max(64, _statements.size() * 2);
+				}
+				_statements.add((Statement)result);
+			}
+			return result;
+		}
+
+		private void _removeClosedStatements()
+		{
+			Iterator<Statement> statements = _statements.iterator();
+			while (statements.hasNext())
+			{
+				try
+				{
+					if (statements.next().isClosed())
+						statements.remove();
+				}
+				catch (SQLException exc)
+				{
+					statements.remove();
+				}
+			}
+		}
+
+		private void _closeStatements()
+		{
+			for (Statement statement : _statements)
+			{
+				try
+				{
+					if (!statement.isClosed())
+						statement.close();
+				}
+				catch (SQLException exc)
+				{
+					exc.printStackTrace();
+				}
+			}
+			_statements.clear();
+		}
+	}
+}
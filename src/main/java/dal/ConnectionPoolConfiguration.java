@@ -0,0 +1,30 @@
+package dal;
+
+/**
+ * Parametri di configurazione del connection pool interno usato da BaseJDBCManager quando non si usa un DataSource JNDI
+ * @author amelani
+ *
+ */
+public class ConnectionPoolConfiguration
+{
+	/** Numero minimo di connessioni che il pool cerca di mantenere aperte: vengono aperte alla creazione del pool e, dopo le chiusure per inattività, ad ogni controllo delle connessioni inutilizzate */
+	public int MinSize = 1;
+
+	/** Numero massimo di connessioni aperte contemporaneamente */
+	public int MaxSize = 10;
+
+	/** Tempo massimo (in millisecondi) che una connessione può restare inutilizzata prima di essere chiusa */
+	public long IdleTimeout = 300000;
+
+	/** Tempo massimo (in millisecondi) di attesa per ottenere una connessione quando il pool è esaurito */
+	public long BorrowTimeout = 30000;
+
+	/** Intervallo (in millisecondi) tra due controlli delle connessioni inutilizzate */
+	public long EvictionInterval = 60000;
+
+	/** Timeout (in secondi) della validazione di una connessione prima di restituirla. Se minore di zero la validazione è disabilitata */
+	public int ValidationTimeout = 5;
+
+	/** Numero massimo di CallableStatement tenuti in cache per ogni connessione. Se zero la cache è disabilitata */
+	public int StatementCacheSize = 20;
+}
@@ -0,0 +1,62 @@
+package dal;
+
+/**
+ * Fotografia dello stato di un ConnectionPool in un dato istante
+ * @author amelani
+ *
+ */
+public class ConnectionPoolStatistics
+{
+	/** Connessioni attualmente in uso */
+	public int Active;
+
+	/** Connessioni aperte e disponibili */
+	public int Idle;
+
+	/** Thread in attesa di una connessione */
+	public int Waiters;
+
+	/** Numero totale di connessioni restituite dal pool */
+	public long Borrows;
+
+	/** Numero di richieste scadute senza ottenere una connessione */
+	public long Timeouts;
+
+	/** Numero di connessioni fisiche aperte dal pool */
+	public long Created;
+
+	/** Numero di connessioni fisiche chiuse dal pool (scadute o non più valide) */
+	public long Destroyed;
+
+	/** Tempo totale (in millisecondi) speso in attesa di una connessione */
+	public long TotalWaitTime;
+
+	/** Tempo massimo (in millisecondi) speso in attesa di una connessione */
+	public long MaxWaitTime;
+
+	/** Numero di CallableStatement trovati nella cache delle connessioni */
+	public long StatementCacheHits;
+
+	/** Numero di CallableStatement preparati perché assenti dalla cache delle connessioni */
+	public long StatementCacheMisses;
+
+	/** Numero di CallableStatement chiusi perché scartati dalla cache delle connessioni */
+	public long StatementCacheEvictions;
+
+	/**
+	 * Tempo medio di attesa per ottenere una connessione
+	 * @return Tempo medio di attesa in millisecondi
+	 */
+	public double GetAverageWaitTime()
+	{
+		return Borrows == 0 ? 0 : (double)TotalWaitTime / Borrows;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "Active:" + Active + " Idle:" + Idle + " Waiters:" + Waiters + " Borrows:" + Borrows + " Timeouts:" + Timeouts
+				+ " Created:" + Created + " Destroyed:" + Destroyed + " TotalWaitTime:" + TotalWaitTime + " MaxWaitTime:" + MaxWaitTime
+				+ " StatementCacheHits:" + StatementCacheHits + " StatementCacheMisses:" + StatementCacheMisses + " StatementCacheEvictions:" + StatementCacheEvictions;
+	}
+}
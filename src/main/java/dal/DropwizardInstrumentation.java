@@ -0,0 +1,90 @@
+package dal;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import sql.SQLQuerable;
+
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * Strumentazione che registra le misure di BaseJDBCManager su un MetricRegistry di Dropwizard Metrics.
+ * Per ogni procedura registra i timer di preparazione, esecuzione e lettura dei risultati, l'istogramma della dimensione dei batch e i contatori di righe, errori, commit e rollback.
+ * @author amelani
+ *
+ */
+public class DropwizardInstrumentation extends JDBCInstrumentation
+{
+	private final MetricRegistry _registry;
+	private final String _prefix;
+	private final ConcurrentHashMap<String, String> _keys = new ConcurrentHashMap<String, String>();
+
+	/**
+	 * Costruttore
+	 * @param registry MetricRegistry su cui registrare le misure
+	 * @param prefix Prefisso dei nomi delle metriche
+	 */
+	public DropwizardInstrumentation(MetricRegistry registry, String prefix)
+	{
+		_registry = registry;
+		_prefix = prefix;
+	}
+
+	/**
+	 * Restituisce il prefisso delle metriche di una procedura, calcolandolo una sola volta per testo della chiamata
+	 * @param procedureName Testo della chiamata
+	 * @return Prefisso delle metriche della procedura
+	 */
+	private String _key(String procedureName)
+	{
+		String key = _keys.get(procedureName);
+		if (key == null)
+		{
+			key = MetricRegistry.name(_prefix, GetProcedureKey(procedureName));
+			_keys.putIfAbsent(procedureName, key);
+		}
+		return key;
+	}
+
+	@Override
+	public void ConnectionAcquired(long nanos)
+	{
+		_registry.timer(MetricRegistry.name(_prefix, "connection", "acquire")).update(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public void StatementPrepared(String procedureName, long nanos)
+	{
+		_registry.timer(MetricRegistry.name(_key(procedureName), "prepare")).update(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public void StatementExecuted(String procedureName, SQLQuerable parameters, int batchSize, long nanos, boolean success)
+	{
+		String key = _key(procedureName);
+		_registry.timer(MetricRegistry.name(key, "execute")).update(nanos, TimeUnit.NANOSECONDS);
+		_registry.histogram(MetricRegistry.name(key, "batch-size")).update(batchSize);
+		if (!success)
+			_registry.counter(MetricRegistry.name(key, "errors")).inc();
+	}
+
+	@Override
+	public void ResultsMapped(String procedureName, long rows, long nanos)
+	{
+		String key = _key(procedureName);
+		_registry.timer(MetricRegistry.name(key, "mapping")).update(nanos, TimeUnit.NANOSECONDS);
+		_registry.meter(MetricRegistry.name(key, "rows")).mark(rows);
+	}
+
+	@Override
+	public void Committed(String procedureName)
+	{
+		_registry.counter(MetricRegistry.name(_key(procedureName), "commits")).inc();
+	}
+
+	@Override
+	public void RolledBack(String procedureName)
+	{
+		_registry.counter(MetricRegistry.name(_key(procedureName), "rollbacks")).inc();
+	}
+}
@@ -0,0 +1,240 @@
+package dal;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import sql.SQLQuerableMetadata;
+import entities.BaseEntity;
+
+/**
+ * Cache LRU con scadenza dei risultati di BaseJDBCManager.Get, indicizzata per valori dei parametri del filtro.
+ * Per ogni risultato tiene traccia delle chiavi delle entity contenute, così che un salvataggio o una cancellazione rimuovano soltanto i risultati che contengono le entity modificate.
+ * @author amelani
+ *
+ */
+public class EntityCache
+{
+	private static final Map<String, EntityCache> _caches = new HashMap<String, EntityCache>();
+
+	private final EntityCacheConfiguration _configuration;
+	private final LinkedHashMap<List<Object>, CacheEntry> _entries;
+	private final HashMap<List<Object>, HashSet<List<Object>>> _entriesByEntityKey = new HashMap<List<Object>, HashSet<List<Object>>>();
+	private long _generation;
+
+	private long _hits;
+	private long _misses;
+	private long _evictions;
+	private long _invalidations;
+
+	/**
+	 * Restituisce la cache con il nome indicato, creandola se non esiste ancora
+	 * @param name Nome della cache, normalmente la classe del manager
+	 * @param configuration Configurazione della cache, usata soltanto alla sua creazione
+	 * @return EntityCache condivisa per il nome indicato
+	 */
+	public static EntityCache GetCache(String name, EntityCacheConfiguration configuration)
+	{
+		synchronized (_caches)
+		{
+			EntityCache cache = _caches.get(name);
+			if (cache == null)
+			{
+				cache = new EntityCache(configuration == null ? new EntityCacheConfiguration() : configuration);
+				_caches.put(name, cache);
+			}
+			return cache;
+		}
+	}
+
+	/**
+	 * Costruisce una cache vuota
+	 * @param configuration Configurazione della cache
+	 */
+	public EntityCache(EntityCacheConfiguration configuration)
+	{
+		_configuration = configuration;
+		_entries = new LinkedHashMap<List<Object>, CacheEntry>(16, 0.75f, true)
+		{
+			private static final long serialVersionUID = 4384620127364578106L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<List<Object>, CacheEntry> eldest)
+			{
+				if (size() <= _configuration.MaxSize)
+					return false;
+				_evictions++;
+				_unindex(eldest.getKey(), eldest.getValue());
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * Restituisce il risultato in cache per una chiave, se presente e non scaduto
+	 * @param key Chiave calcolata dai parametri del filtro
+	 * @return Copia della lista di entity in cache, null se non presente
+	 */
+	public synchronized ArrayList<BaseEntity> Get(List<Object> key)
+	{
+		CacheEntry entry = _entries.get(key);
+		if (entry != null && entry.Expiration > 0 && entry.Expiration < System.currentTimeMillis())
+		{
+			_entries.remove(key);
+			_unindex(key, entry);
+			entry = null;
+		}
+		if (entry == null)
+		{
+			_misses++;
+			return null;
+		}
+		_hits++;
+		return new ArrayList<BaseEntity>(entry.Entities);
+	}
+
+	/**
+	 * Restituisce il contatore delle modifiche alla cache, da leggere prima di interrogare il database e passare a Put
+	 * @return Valore attuale del contatore
+	 */
+	public synchronized long GetGeneration()
+	{
+		return _generation;
+	}
+
+	/**
+	 * Mette in cache il risultato di una lettura, a meno che nel frattempo un salvataggio o una cancellazione non l'abbiano reso potenzialmente obsoleto.
+	 * I risultati vuoti non vengono messi in cache, perché non ci sarebbero entity per riconoscerli al salvataggio di quella cercata.
+	 * @param key Chiave calcolata dai parametri del filtro
+	 * @param entities Entity lette dal database
+	 * @param generation Valore di GetGeneration letto prima di interrogare il database
+	 * @throws IllegalAccessException Se un campo chiave delle entity non è accessibile
+	 */
+	public synchronized void Put(List<Object> key, List<? extends BaseEntity> entities, long generation) throws IllegalAccessException
+	{
+		if (generation != _generation || _configuration.MaxSize <= 0 || entities.isEmpty())
+			return;
+		CacheEntry entry = new CacheEntry();
+		entry.Entities = new ArrayList<BaseEntity>(entities);
+		entry.Expiration = _configuration.TimeToLive > 0 ? System.currentTimeMillis() + _configuration.TimeToLive : 0;
+		for (BaseEntity entity : entities)
+		{
+			ArrayList<Object> entityKey = _getEntityKey(entity);
+			if (entityKey == null)
+				continue;
+			entry.EntityKeys.add(entityKey);
+			HashSet<List<Object>> keys = _entriesByEntityKey.get(entityKey);
+			if (keys == null)
+			{
+				keys = new HashSet<List<Object>>();
+				_entriesByEntityKey.put(entityKey, keys);
+			}
+			keys.add(key);
+		}
+		CacheEntry previous = _entries.put(key, entry);
+		if (previous != null)
+			_unindex(key, previous);
+	}
+
+	/**
+	 * Rimuove i risultati che contengono le entity indicate. Se la classe di una entity non ha campi chiave svuota tutta la cache.
+	 * @param entities Entity salvate o cancellate
+	 * @throws IllegalAccessException Se un campo chiave delle entity non è accessibile
+	 */
+	public synchronized void Invalidate(List<? extends BaseEntity> entities) throws IllegalAccessException
+	{
+		_generation++;
+		for (BaseEntity entity : entities)
+		{
+			ArrayList<Object> entityKey = _getEntityKey(entity);
+			if (entityKey == null)
+			{
+				Clear();
+				return;
+			}
+			HashSet<List<Object>> keys = _entriesByEntityKey.remove(entityKey);
+			if (keys == null)
+				continue;
+			for (List<Object> key : keys)
+			{
+				CacheEntry entry = _entries.remove(key);
+				if (entry != null)
+				{
+					_invalidations++;
+					_unindex(key, entry);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Svuota la cache
+	 */
+	public synchronized void Clear()
+	{
+		_generation++;
+		_invalidations += _entries.size();
+		_entries.clear();
+		_entriesByEntityKey.clear();
+	}
+
+	/**
+	 * Restituisce lo stato attuale della cache
+	 * @return EntityCacheStatistics con i contatori della cache
+	 */
+	public synchronized EntityCacheStatistics GetStatistics()
+	{
+		EntityCacheStatistics stats = new EntityCacheStatistics();
+		stats.Size = _entries.size();
+		stats.Hits = _hits;
+		stats.Misses = _misses;
+		stats.Evictions = _evictions;
+		stats.Invalidations = _invalidations;
+		return stats;
+	}
+
+	/**
+	 * Calcola la chiave di una entity, preceduta dalla sua classe
+	 * @param entity Entity di cui calcolare la chiave
+	 * @return Lista con classe e valori dei campi chiave, null se la classe non ha campi chiave
+	 * @throws IllegalAccessException Se un campo chiave non è accessibile
+	 */
+	private static ArrayList<Object> _getEntityKey(BaseEntity entity) throws IllegalAccessException
+	{
+		ArrayList<Object> values = SQLQuerableMetadata.Get(entity.getClass()).GetKeyValues(entity);
+		if (values != null)
+			values.add(0, entity.getClass());
+		return values;
+	}
+
+	/**
+	 * Rimuove un risultato dall'indice delle chiavi delle entity
+	 * @param key Chiave del risultato
+	 * @param entry Risultato rimosso
+	 */
+	private void _unindex(List<Object> key, CacheEntry entry)
+	{
+		for (List<Object> entityKey : entry.EntityKeys)
+		{
+			HashSet<List<Object>> keys = _entriesByEntityKey.get(entityKey);
+			if (keys == null)
+				continue;
+			keys.remove(key);
+			if (keys.isEmpty())
+				_entriesByEntityKey.remove(entityKey);
+		}
+	}
+
+	/**
+	 * Risultato in cache
+	 */
+	private static class CacheEntry
+	{
+		public ArrayList<BaseEntity> Entities;
+		public final ArrayList<List<Object>> EntityKeys = new ArrayList<List<Object>>();
+		public long Expiration;
+	}
+}
@@ -0,0 +1,15 @@
+package dal;
+
+/**
+ * Parametri di configurazione della cache delle entity lette con BaseJDBCManager.Get
+ * @author amelani
+ *
+ */
+public class EntityCacheConfiguration
+{
+	/** Numero massimo di risultati in cache. Oltre questo limite vengono scartati quelli usati meno di recente */
+	public int MaxSize = 1000;
+
+	/** Tempo (in millisecondi) dopo il quale un risultato in cache scade. Se zero o minore i risultati non scadono */
+	public long TimeToLive = 60000;
+}
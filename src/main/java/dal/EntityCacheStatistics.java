@@ -0,0 +1,40 @@
+package dal;
+
+/**
+ * Fotografia dello stato di una EntityCache in un dato istante
+ * @author amelani
+ *
+ */
+public class EntityCacheStatistics
+{
+	/** Numero di risultati attualmente in cache */
+	public int Size;
+
+	/** Numero di letture servite dalla cache */
+	public long Hits;
+
+	/** Numero di letture non trovate in cache (o scadute) e quindi eseguite sul database */
+	public long Misses;
+
+	/** Numero di risultati scartati per il superamento della dimensione massima */
+	public long Evictions;
+
+	/** Numero di risultati rimossi perché resi non più validi da un salvataggio o da una cancellazione */
+	public long Invalidations;
+
+	/**
+	 * Percentuale di letture servite dalla cache
+	 * @return Rapporto fra letture servite dalla cache e letture totali, fra 0 e 1
+	 */
+	public double GetHitRatio()
+	{
+		long total = Hits + Misses;
+		return total == 0 ? 0 : (double)Hits / total;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "Size:" + Size + " Hits:" + Hits + " Misses:" + Misses + " Evictions:" + Evictions + " Invalidations:" + Invalidations;
+	}
+}
@@ -0,0 +1,20 @@
+package dal;
+
+import entities.BaseEntity;
+
+/**
+ * Interfaccia per l'elaborazione delle entity lette in streaming da una selezione, senza caricarle tutte in memoria
+ * @author amelani
+ *
+ * @param <TEntity> Tipo di entità derivata da BaseEntity
+ */
+public interface EntityHandler<TEntity extends BaseEntity>
+{
+	/**
+	 * Elabora una entity appena letta dal ResultSet
+	 * @param entity Entity letta
+	 * @return True per continuare la lettura, false per interromperla chiudendo il ResultSet
+	 * @throws Exception In caso di errori nell'elaborazione, che interrompono la lettura
+	 */
+	public boolean Handle(TEntity entity) throws Exception;
+}
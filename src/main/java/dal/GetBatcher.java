@@ -0,0 +1,188 @@
+package dal;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import sql.DBResponse;
+import sql.SQLQuerableMetadata;
+import entities.BaseEntity;
+import entities.BaseEntityList;
+import filters.BaseFilter;
+
+/**
+ * Raccoglie le Get richieste da thread diversi in un breve intervallo di tempo e le esegue insieme con BaseJDBCManager.GetMany.
+ * La prima richiesta apre una finestra di window millisecondi: allo scadere della finestra tutte le richieste raccolte vengono lette con un'unica GetMany su un thread daemon del batcher.
+ * Se le richieste raggiungono maxBatchSize la lettura parte subito, sul thread che ha aggiunto l'ultima richiesta. L'utilizzo tipico è
+ * <pre>
+ * Future&lt;Order&gt; order = batcher.Get(filter);
+ * ...
+ * Order loaded = order.get();
+ * </pre>
+ * I Future restituiscono null se la entity non esiste e lanciano ExecutionException se la lettura è fallita.
+ * @author amelani
+ *
+ */
+public class GetBatcher<TEntity extends BaseEntity, TEntityList extends BaseEntityList<TEntity>>
+{
+	private final BaseJDBCManager<TEntity, TEntityList> _manager;
+	private final long _window;
+	private final int _maxBatchSize;
+	private final ScheduledThreadPoolExecutor _timer;
+	private ArrayList<PendingGet<TEntity>> _pending = new ArrayList<PendingGet<TEntity>>();
+
+	/**
+	 * Costruisce un batcher per un manager
+	 * @param manager Manager con cui eseguire le letture
+	 * @param window Millisecondi di attesa dalla prima richiesta prima di eseguire la lettura
+	 * @param maxBatchSize Numero di richieste oltre il quale la lettura viene eseguita senza attendere la fine della finestra
+	 */
+	public GetBatcher(final BaseJDBCManager<TEntity, TEntityList> manager, long window, int maxBatchSize)
+	{
+		if (window < 0 || maxBatchSize < 1)
+			throw new IllegalArgumentException("Parametri del batcher non validi: finestra " + window + "ms, dimensione massima " + maxBatchSize);
+		_manager = manager;
+		_window = window;
+		_maxBatchSize = maxBatchSize;
+		_timer = new ScheduledThreadPoolExecutor(1, new ThreadFactory()
+		{
+			@Override
+			public Thread newThread(Runnable r)
+			{
+				Thread thread = new Thread(r, "mel8fw-batcher [" + manager.getClass().getName() + "]");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Aggiunge una Get alla lettura in corso di raccolta
+	 * @param filter Filtro della entity da recuperare
+	 * @return Future con la entity letta, null se non esiste
+	 * @throws RejectedExecutionException Se il batcher è stato arrestato
+	 */
+	public Future<TEntity> Get(BaseFilter<TEntity> filter)
+	{
+		PendingGet<TEntity> get = new PendingGet<TEntity>(filter);
+		ArrayList<PendingGet<TEntity>> full = null;
+		synchronized (this)
+		{
+			if (_timer.isShutdown())
+				throw new RejectedExecutionException("Il batcher è stato arrestato");
+			_pending.add(get);
+			if (_pending.size() >= _maxBatchSize)
+			{
+				full = _pending;
+				_pending = new ArrayList<PendingGet<TEntity>>();
+			}
+			else if (_pending.size() == 1)
+			{
+				final ArrayList<PendingGet<TEntity>> batch = _pending;
+				_timer.schedule(new Runnable()
+				{
+					@Override
+					public void run()
+					{
+						_flush(batch);
+					}
+				}, _window, TimeUnit.MILLISECONDS);
+			}
+		}
+		if (full != null)
+			_execute(full);
+		return get;
+	}
+
+	/**
+	 * Arresta il batcher. Le richieste già raccolte vengono comunque lette allo scadere della loro finestra.
+	 */
+	public void Shutdown()
+	{
+		synchronized (this)
+		{
+			_timer.shutdown();
+		}
+	}
+
+	/**
+	 * Esegue le richieste raccolte allo scadere della finestra, se non sono già state eseguite perché hanno raggiunto la dimensione massima
+	 * @param batch Richieste della finestra scaduta
+	 */
+	private void _flush(ArrayList<PendingGet<TEntity>> batch)
+	{
+		synchronized (this)
+		{
+			if (_pending != batch)
+				return;
+			_pending = new ArrayList<PendingGet<TEntity>>();
+		}
+		_execute(batch);
+	}
+
+	/**
+	 * Legge le entity di un gruppo di richieste con un'unica GetMany e completa i loro Future
+	 * @param batch Richieste da eseguire
+	 */
+	private void _execute(ArrayList<PendingGet<TEntity>> batch)
+	{
+		try
+		{
+			ArrayList<BaseFilter<TEntity>> filters = new ArrayList<BaseFilter<TEntity>>(batch.size());
+			for (PendingGet<TEntity> get : batch)
+				filters.add(get.Filter);
+			DBResponse<TEntity, TEntityList> theResponse = _manager.GetMany(filters);
+			if (!theResponse.Success)
+			{
+				SQLException error = new SQLException(theResponse.Message);
+				for (PendingGet<TEntity> get : batch)
+					get.Fail(error);
+				return;
+			}
+			for (PendingGet<TEntity> get : batch)
+				get.Set(theResponse.EntitiesByKey.get(SQLQuerableMetadata.Get(get.Filter.getClass()).GetInputKey(get.Filter)));
+		}
+		catch (Exception exc)
+		{
+			for (PendingGet<TEntity> get : batch)
+				get.Fail(exc);
+		}
+	}
+
+	/**
+	 * Richiesta in attesa della lettura, completata dal batcher
+	 */
+	private static class PendingGet<TEntity extends BaseEntity> extends FutureTask<TEntity>
+	{
+		public final BaseFilter<TEntity> Filter;
+
+		public PendingGet(BaseFilter<TEntity> filter)
+		{
+			super(new Callable<TEntity>()
+			{
+				@Override
+				public TEntity call() throws Exception
+				{
+					return null;
+				}
+			});
+			Filter = filter;
+		}
+
+		public void Set(TEntity e)
+		{
+			set(e);
+		}
+
+		public void Fail(Throwable exc)
+		{
+			setException(exc);
+		}
+	}
+}
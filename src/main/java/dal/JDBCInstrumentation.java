@@ -0,0 +1,92 @@
+package dal;
+
+import sql.SQLQuerable;
+
+/**
+ * Punto di estensione per misurare le operazioni di BaseJDBCManager. I metodi di default non fanno nulla: le implementazioni ridefiniscono soltanto quelli che interessano.
+ * I tempi sono espressi in nanosecondi. Con l'istanza NONE il manager non misura nemmeno i tempi.
+ * @author amelani
+ *
+ */
+public abstract class JDBCInstrumentation
+{
+	/** Strumentazione che non registra nulla, usata di default dai manager */
+	public static final JDBCInstrumentation NONE = new JDBCInstrumentation()
+	{
+	};
+
+	/**
+	 * Ricava il nome della procedura dal testo della chiamata, ad esempio SAVE_ORDER da {call SAVE_ORDER(?, ?)}
+	 * @param procedureName Testo della chiamata
+	 * @return Nome della procedura, utilizzabile come nome di una metrica
+	 */
+	public static String GetProcedureKey(String procedureName)
+	{
+		String key = procedureName.trim();
+		if (key.startsWith("{"))
+			key = key.substring(1);
+		if (key.regionMatches(true, 0, "call ", 0, 5))
+			key = key.substring(5);
+		int parenthesis = key.indexOf('(');
+		if (parenthesis >= 0)
+			key = key.substring(0, parenthesis);
+		if (key.endsWith("}"))
+			key = key.substring(0, key.length() - 1);
+		return key.trim();
+	}
+
+	/**
+	 * Una connessione è stata ottenuta dal DataSource, dal connection pool o dal DriverManager
+	 * @param nanos Tempo impiegato per ottenerla
+	 */
+	public void ConnectionAcquired(long nanos)
+	{
+	}
+
+	/**
+	 * Un CallableStatement è stato preparato e i suoi parametri sono stati agganciati
+	 * @param procedureName Testo della chiamata
+	 * @param nanos Tempo impiegato
+	 */
+	public void StatementPrepared(String procedureName, long nanos)
+	{
+	}
+
+	/**
+	 * Una chiamata (o un batch di chiamate) è stata eseguita sul database
+	 * @param procedureName Testo della chiamata
+	 * @param parameters Oggetto da cui sono stati presi i parametri (per un batch, il primo), può essere null
+	 * @param batchSize Numero di chiamate eseguite insieme, 1 se non si tratta di un batch
+	 * @param nanos Tempo di esecuzione
+	 * @param success True se l'esecuzione è terminata senza errori
+	 */
+	public void StatementExecuted(String procedureName, SQLQuerable parameters, int batchSize, long nanos, boolean success)
+	{
+	}
+
+	/**
+	 * Le righe di un ResultSet sono state trasformate in entity
+	 * @param procedureName Testo della chiamata
+	 * @param rows Numero di righe lette
+	 * @param nanos Tempo impiegato per leggere le righe e costruire le entity
+	 */
+	public void ResultsMapped(String procedureName, long rows, long nanos)
+	{
+	}
+
+	/**
+	 * È stato eseguito il commit della transazione
+	 * @param procedureName Testo della chiamata che ha originato la transazione
+	 */
+	public void Committed(String procedureName)
+	{
+	}
+
+	/**
+	 * È stato eseguito il rollback della transazione
+	 * @param procedureName Testo della chiamata che ha originato la transazione
+	 */
+	public void RolledBack(String procedureName)
+	{
+	}
+}
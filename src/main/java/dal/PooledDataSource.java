@@ -0,0 +1,98 @@
+package dal;
+
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+/**
+ * DataSource che ottiene le connessioni dal ConnectionPool interno, utile per configurare le repliche di sola lettura di un manager che non usa JNDI.
+ * Il driver JDBC del database deve essere già registrato presso il DriverManager.
+ * @author amelani
+ *
+ */
+public class PooledDataSource implements DataSource
+{
+	private final ConnectionPool _pool;
+	private PrintWriter _logWriter;
+	private int _loginTimeout;
+
+	/**
+	 * Costruttore
+	 * @param connectionString Connection string del database
+	 * @param username Nome utente con cui collegarsi al DB
+	 * @param password Password per collegarsi al DB
+	 * @param configuration Configurazione del pool, usata soltanto se il pool per la connection string e l'utente non esiste ancora
+	 */
+	public PooledDataSource(String connectionString, String username, String password, ConnectionPoolConfiguration configuration)
+	{
+		_pool = ConnectionPool.GetPool(connectionString, username, password, configuration);
+	}
+
+	/**
+	 * Restituisce lo stato del connection pool sottostante
+	 * @return ConnectionPoolStatistics con i contatori del pool
+	 */
+	public ConnectionPoolStatistics GetStatistics()
+	{
+		return _pool.GetStatistics();
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException
+	{
+		return _pool.GetConnection();
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException
+	{
+		throw new SQLFeatureNotSupportedException("Le credenziali sono fissate alla creazione del PooledDataSource");
+	}
+
+	@Override
+	public PrintWriter getLogWriter() throws SQLException
+	{
+		return _logWriter;
+	}
+
+	@Override
+	public void setLogWriter(PrintWriter out) throws SQLException
+	{
+		_logWriter = out;
+	}
+
+	@Override
+	public void setLoginTimeout(int seconds) throws SQLException
+	{
+		_loginTimeout = seconds;
+	}
+
+	@Override
+	public int getLoginTimeout() throws SQLException
+	{
+		return _loginTimeout;
+	}
+
+	public Logger getParentLogger() throws SQLFeatureNotSupportedException
+	{
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public <T> T unwrap(Class<T> iface) throws SQLException
+	{
+		if (iface.isInstance(this))
+			return iface.cast(this);
+		throw new SQLException("PooledDataSource non implementa " + iface.getName());
+	}
+
+	@Override
+	public boolean isWrapperFor(Class<?> iface) throws SQLException
+	{
+		return iface.isInstance(this);
+	}
+}
@@ -0,0 +1,220 @@
+package dal;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import enumerations.ReplicaSelection;
+
+/**
+ * Sceglie la replica di sola lettura da cui BaseJDBCManager ottiene le connessioni per le selezioni.
+ * Una replica che non concede la connessione, o la cui connessione segnala un errore di comunicazione (SQLState 08), viene esclusa per FailureRetryInterval millisecondi;
+ * se nessuna replica è disponibile GetConnection restituisce null e il manager usa il database principale.
+ * @author amelani
+ *
+ */
+public class ReplicaRouter
+{
+	private static final Map<String, ReplicaRouter> _routers = new HashMap<String, ReplicaRouter>();
+
+	private final Replica[] _replicas;
+	private final ReplicaRoutingConfiguration _configuration;
+	private final AtomicInteger _next = new AtomicInteger();
+	private final AtomicLong _reads = new AtomicLong();
+	private final AtomicLong _failures = new AtomicLong();
+	private final AtomicLong _primaryFallbacks = new AtomicLong();
+
+	/**
+	 * Restituisce il router con il nome indicato, creandolo se non esiste ancora
+	 * @param name Nome del router, normalmente la classe del manager
+	 * @param replicas DataSource delle repliche, usati soltanto alla creazione del router
+	 * @param configuration Configurazione del router, usata soltanto alla sua creazione
+	 * @return ReplicaRouter condiviso per il nome indicato
+	 */
+	public static ReplicaRouter GetRouter(String name, List<DataSource> replicas, ReplicaRoutingConfiguration configuration)
+	{
+		synchronized (_routers)
+		{
+			ReplicaRouter router = _routers.get(name);
+			if (router == null)
+			{
+				router = new ReplicaRouter(replicas, configuration == null ? new ReplicaRoutingConfiguration() : configuration);
+				_routers.put(name, router);
+			}
+			return router;
+		}
+	}
+
+	/**
+	 * Costruisce un router
+	 * @param replicas DataSource delle repliche
+	 * @param configuration Configurazione del router
+	 */
+	public ReplicaRouter(List<DataSource> replicas, ReplicaRoutingConfiguration configuration)
+	{
+		if (replicas.isEmpty())
+			throw new IllegalArgumentException("Nessuna replica configurata");
+		_configuration = configuration;
+		_replicas = new Replica[replicas.size()];
+		for (int i = 0; i < _replicas.length; i++)
+			_replicas[i] = new Replica(replicas.get(i));
+	}
+
+	/**
+	 * Restituisce una connessione ad una replica disponibile, provando le altre se quella scelta non risponde
+	 * @return Connessione alla replica, da chiudere con close(); null se nessuna replica è disponibile
+	 */
+	public Connection GetConnection()
+	{
+		boolean[] tried = new boolean[_replicas.length];
+		int start = (_next.getAndIncrement() & Integer.MAX_VALUE) % _replicas.length;
+		int index;
+		while ((index = _choose(start, tried)) >= 0)
+		{
+			tried[index] = true;
+			Replica replica = _replicas[index];
+			replica.Active.incrementAndGet();
+			try
+			{
+				Connection physical = replica.Source.getConnection();
+				_reads.incrementAndGet();
+				return (Connection)Proxy.newProxyInstance(ReplicaRouter.class.getClassLoader(), new Class<?>[] { Connection.class }, new ReplicaConnectionHandle(replica, physical));
+			}
+			catch (SQLException exc)
+			{
+				replica.Active.decrementAndGet();
+				_markDown(replica);
+				exc.printStackTrace();
+			}
+		}
+		_primaryFallbacks.incrementAndGet();
+		return null;
+	}
+
+	/**
+	 * Restituisce lo stato attuale del router
+	 * @return ReplicaRoutingStatistics con i contatori del router
+	 */
+	public ReplicaRoutingStatistics GetStatistics()
+	{
+		ReplicaRoutingStatistics stats = new ReplicaRoutingStatistics();
+		long now = System.currentTimeMillis();
+		stats.Replicas = _replicas.length;
+		stats.Active = new int[_replicas.length];
+		for (int i = 0; i < _replicas.length; i++)
+		{
+			stats.Active[i] = _replicas[i].Active.get();
+			if (_replicas[i].DownUntil > now)
+				stats.Unavailable++;
+		}
+		stats.Reads = _reads.get();
+		stats.Failures = _failures.get();
+		stats.PrimaryFallbacks = _primaryFallbacks.get();
+		return stats;
+	}
+
+	/**
+	 * Sceglie la prossima replica da provare fra quelle disponibili e non ancora provate
+	 * @param start Posizione da cui iniziare la ricerca, che ruota ad ogni richiesta
+	 * @param tried Repliche già provate
+	 * @return Posizione della replica scelta, -1 se non ce ne sono
+	 */
+	private int _choose(int start, boolean[] tried)
+	{
+		long now = System.currentTimeMillis();
+		int chosen = -1;
+		int chosenActive = Integer.MAX_VALUE;
+		for (int i = 0; i < _replicas.length; i++)
+		{
+			int index = (start + i) % _replicas.length;
+			Replica replica = _replicas[index];
+			if (tried[index] || replica.DownUntil > now)
+				continue;
+			if (_configuration.Selection == ReplicaSelection.ROUND_ROBIN)
+				return index;
+			int active = replica.Active.get();
+			if (active < chosenActive)
+			{
+				chosen = index;
+				chosenActive = active;
+			}
+		}
+		return chosen;
+	}
+
+	private void _markDown(Replica replica)
+	{
+		_failures.incrementAndGet();
+		replica.DownUntil = System.currentTimeMillis() + _configuration.FailureRetryInterval;
+	}
+
+	/**
+	 * Replica di sola lettura con il numero di connessioni in uso e l'eventuale esclusione
+	 */
+	private static class Replica
+	{
+		public final DataSource Source;
+		public final AtomicInteger Active = new AtomicInteger();
+		public volatile long DownUntil;
+
+		public Replica(DataSource source)
+		{
+			Source = source;
+		}
+	}
+
+	/**
+	 * Proxy di una connessione ad una replica: close() aggiorna il numero di connessioni in uso e gli errori di comunicazione escludono la replica
+	 */
+	private class ReplicaConnectionHandle implements InvocationHandler
+	{
+		private final Replica _replica;
+		private final Connection _physical;
+		private boolean _closed;
+
+		public ReplicaConnectionHandle(Replica replica, Connection physical)
+		{
+			_replica = replica;
+			_physical = physical;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+		{
+			String name = method.getName();
+			int parameters = method.getParameterTypes().length;
+			if (name.equals("close") && parameters == 0)
+			{
+				if (_closed)
+					return null;
+				_closed = true;
+				_replica.Active.decrementAndGet();
+			}
+			else if (name.equals("equals") && parameters == 1)
+				return proxy == args[0];
+			else if (name.equals("hashCode") && parameters == 0)
+				return System.identityHashCode(proxy);
+			try
+			{
+				return method.invoke(_physical, args);
+			}
+			catch (InvocationTargetException exc)
+			{
+				Throwable cause = exc.getCause();
+				if (cause instanceof SQLException && ((SQLException)cause).getSQLState() != null && ((SQLException)cause).getSQLState().startsWith("08"))
+					_markDown(_replica);
+				throw cause;
+			}
+		}
+	}
+}
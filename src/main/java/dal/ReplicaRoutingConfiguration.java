@@ -0,0 +1,17 @@
+package dal;
+
+import enumerations.ReplicaSelection;
+
+/**
+ * Parametri di configurazione dell'instradamento delle letture verso le repliche di sola lettura
+ * @author amelani
+ *
+ */
+public class ReplicaRoutingConfiguration
+{
+	/** Criterio di scelta della replica */
+	public ReplicaSelection Selection = ReplicaSelection.ROUND_ROBIN;
+
+	/** Tempo (in millisecondi) per cui una replica che non risponde viene esclusa prima di essere riprovata */
+	public long FailureRetryInterval = 30000;
+}
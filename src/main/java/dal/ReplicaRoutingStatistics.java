@@ -0,0 +1,34 @@
+package dal;
+
+/**
+ * Fotografia dello stato di un ReplicaRouter in un dato istante
+ * @author amelani
+ *
+ */
+public class ReplicaRoutingStatistics
+{
+	/** Numero di repliche configurate */
+	public int Replicas;
+
+	/** Numero di repliche attualmente escluse perché non rispondono */
+	public int Unavailable;
+
+	/** Connessioni attualmente in uso su ciascuna replica, nell'ordine di configurazione */
+	public int[] Active;
+
+	/** Numero di connessioni ottenute dalle repliche */
+	public long Reads;
+
+	/** Numero di errori di connessione che hanno escluso una replica */
+	public long Failures;
+
+	/** Numero di letture inviate al database principale perché nessuna replica era disponibile */
+	public long PrimaryFallbacks;
+
+	@Override
+	public String toString()
+	{
+		return "Replicas:" + Replicas + " Unavailable:" + Unavailable + " Active:" + java.util.Arrays.toString(Active)
+				+ " Reads:" + Reads + " Failures:" + Failures + " PrimaryFallbacks:" + PrimaryFallbacks;
+	}
+}
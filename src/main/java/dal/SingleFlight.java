@@ -0,0 +1,140 @@
+package dal;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Raggruppa le richieste identiche e concorrenti di BaseJDBCManager: la prima richiesta esegue la chiamata,
+ * quelle che arrivano con la stessa chiave mentre è in corso ne attendono la fine e ne ricevono il risultato (o l'eccezione).
+ * A differenza della EntityCache non conserva nulla: terminata la chiamata, la richiesta successiva viene eseguita di nuovo.
+ * @author amelani
+ *
+ */
+public class SingleFlight
+{
+	private static final Map<String, SingleFlight> _groups = new HashMap<String, SingleFlight>();
+
+	private final HashMap<List<Object>, Flight> _inFlight = new HashMap<List<Object>, Flight>();
+	private final AtomicLong _executions = new AtomicLong();
+	private final AtomicLong _coalesced = new AtomicLong();
+
+	/**
+	 * Restituisce il gruppo con il nome indicato, creandolo se non esiste ancora
+	 * @param name Nome del gruppo, normalmente la classe del manager
+	 * @return SingleFlight condiviso per il nome indicato
+	 */
+	public static SingleFlight GetGroup(String name)
+	{
+		synchronized (_groups)
+		{
+			SingleFlight group = _groups.get(name);
+			if (group == null)
+			{
+				group = new SingleFlight();
+				_groups.put(name, group);
+			}
+			return group;
+		}
+	}
+
+	/**
+	 * Esegue una chiamata, o attende quella già in corso con la stessa chiave e ne restituisce il risultato
+	 * @param key Chiave della chiamata, normalmente procedura e valori dei parametri
+	 * @param call Chiamata da eseguire se non ce n'è una in corso
+	 * @return Risultato della chiamata, condiviso fra tutte le richieste raggruppate
+	 * @throws Exception L'eccezione lanciata dalla chiamata. Gli Error (ad esempio OutOfMemoryError) vengono rilanciati a tutte le richieste raggruppate così come sono
+	 */
+	public <T> T Execute(List<Object> key, Callable<T> call) throws Exception
+	{
+		Flight flight;
+		boolean leader = false;
+		synchronized (_inFlight)
+		{
+			flight = _inFlight.get(key);
+			if (flight == null)
+			{
+				flight = new Flight();
+				_inFlight.put(key, flight);
+				leader = true;
+			}
+		}
+		if (!leader)
+		{
+			try
+			{
+				flight.Done.await();
+				_coalesced.incrementAndGet();
+				return flight.<T>GetResult();
+			}
+			catch (InterruptedException exc)
+			{
+				//se interrotto in attesa eseguo la chiamata per conto mio
+				Thread.currentThread().interrupt();
+				_executions.incrementAndGet();
+				return call.call();
+			}
+		}
+		_executions.incrementAndGet();
+		try
+		{
+			flight.Result = call.call();
+		}
+		catch (Throwable exc)
+		{
+			//anche gli Error vanno consegnati alle richieste in attesa, che altrimenti riceverebbero un risultato null
+			flight.Error = exc;
+		}
+		finally
+		{
+			synchronized (_inFlight)
+			{
+				_inFlight.remove(key);
+			}
+			flight.Done.countDown();
+		}
+		return flight.<T>GetResult();
+	}
+
+	/**
+	 * Restituisce lo stato attuale del gruppo
+	 * @return SingleFlightStatistics con i contatori del gruppo
+	 */
+	public SingleFlightStatistics GetStatistics()
+	{
+		SingleFlightStatistics stats = new SingleFlightStatistics();
+		synchronized (_inFlight)
+		{
+			stats.InFlight = _inFlight.size();
+		}
+		stats.Executions = _executions.get();
+		stats.Coalesced = _coalesced.get();
+		return stats;
+	}
+
+	/**
+	 * Chiamata in corso, con il suo risultato una volta terminata
+	 */
+	private static class Flight
+	{
+		public final CountDownLatch Done = new CountDownLatch(1);
+		public volatile Object Result;
+		public volatile Throwable Error;
+
+		@SuppressWarnings("unchecked")
+		public <T> T GetResult() throws Exception
+		{
+			if (Error instanceof Exception)
+				throw (Exception)Error;
+			if (Error instanceof java.lang.Error)
+				throw (java.lang.Error)Error;
+			if (Error != null)
+				throw new ExecutionException(Error);
+			return (T)Result;
+		}
+	}
+}
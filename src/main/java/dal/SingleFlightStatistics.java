@@ -0,0 +1,34 @@
+package dal;
+
+/**
+ * Fotografia dello stato di un SingleFlight in un dato istante
+ * @author amelani
+ *
+ */
+public class SingleFlightStatistics
+{
+	/** Chiamate attualmente in corso */
+	public int InFlight;
+
+	/** Numero di chiamate eseguite sul database */
+	public long Executions;
+
+	/** Numero di richieste servite dal risultato di una chiamata già in corso, senza eseguirne un'altra */
+	public long Coalesced;
+
+	/**
+	 * Percentuale di richieste raggruppate
+	 * @return Rapporto fra richieste raggruppate e richieste totali, fra 0 e 1
+	 */
+	public double GetCoalescedRatio()
+	{
+		long total = Executions + Coalesced;
+		return total == 0 ? 0 : (double)Coalesced / total;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "InFlight:" + InFlight + " Executions:" + Executions + " Coalesced:" + Coalesced;
+	}
+}
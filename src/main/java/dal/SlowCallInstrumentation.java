@@ -0,0 +1,100 @@
+package dal;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import sql.SQLParameter;
+import sql.SQLQuerable;
+
+/**
+ * Strumentazione che registra nel log le chiamate più lente di una soglia, con i nomi dei parametri agganciati, e inoltra tutti gli eventi ad un'altra strumentazione
+ * @author amelani
+ *
+ */
+public class SlowCallInstrumentation extends JDBCInstrumentation
+{
+	private static final Logger _logger = Logger.getLogger(SlowCallInstrumentation.class.getName());
+
+	private final JDBCInstrumentation _inner;
+	private final long _thresholdNanos;
+
+	/**
+	 * Costruttore
+	 * @param inner Strumentazione a cui inoltrare gli eventi, JDBCInstrumentation.NONE se non serve
+	 * @param thresholdMillis Soglia (in millisecondi) oltre la quale una chiamata viene registrata nel log
+	 */
+	public SlowCallInstrumentation(JDBCInstrumentation inner, long thresholdMillis)
+	{
+		_inner = inner;
+		_thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+	}
+
+	@Override
+	public void ConnectionAcquired(long nanos)
+	{
+		_inner.ConnectionAcquired(nanos);
+		if (nanos > _thresholdNanos)
+			_logger.log(Level.WARNING, "Connessione ottenuta in " + TimeUnit.NANOSECONDS.toMillis(nanos) + "ms");
+	}
+
+	@Override
+	public void StatementPrepared(String procedureName, long nanos)
+	{
+		_inner.StatementPrepared(procedureName, nanos);
+	}
+
+	@Override
+	public void StatementExecuted(String procedureName, SQLQuerable parameters, int batchSize, long nanos, boolean success)
+	{
+		_inner.StatementExecuted(procedureName, parameters, batchSize, nanos, success);
+		if (nanos > _thresholdNanos && _logger.isLoggable(Level.WARNING))
+			_logger.log(Level.WARNING, "Chiamata lenta " + procedureName + ": " + TimeUnit.NANOSECONDS.toMillis(nanos) + "ms, batch " + batchSize
+					+ (success ? "" : ", fallita") + ", parametri " + _getParameterNames(parameters));
+	}
+
+	@Override
+	public void ResultsMapped(String procedureName, long rows, long nanos)
+	{
+		_inner.ResultsMapped(procedureName, rows, nanos);
+		if (nanos > _thresholdNanos)
+			_logger.log(Level.WARNING, "Lettura lenta dei risultati di " + procedureName + ": " + rows + " righe in " + TimeUnit.NANOSECONDS.toMillis(nanos) + "ms");
+	}
+
+	@Override
+	public void Committed(String procedureName)
+	{
+		_inner.Committed(procedureName);
+	}
+
+	@Override
+	public void RolledBack(String procedureName)
+	{
+		_inner.RolledBack(procedureName);
+	}
+
+	/**
+	 * Elenca i nomi dei parametri di un oggetto, senza i valori che potrebbero contenere dati riservati
+	 * @param parameters Oggetto da cui sono stati presi i parametri
+	 * @return Nomi dei parametri
+	 */
+	private static String _getParameterNames(SQLQuerable parameters)
+	{
+		if (parameters == null)
+			return "[]";
+		ArrayList<String> names = new ArrayList<String>();
+		try
+		{
+			ArrayList<SQLParameter> params = parameters.GetParameters();
+			if (params != null)
+				for (SQLParameter param : params)
+					names.add(param.Name);
+		}
+		catch (IllegalAccessException exc)
+		{
+			return "[non disponibili]";
+		}
+		return names.toString();
+	}
+}
@@ -0,0 +1,244 @@
+package dal;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache LRU dei CallableStatement di una connessione fisica del ConnectionPool, indicizzata per testo della chiamata.
+ * Gli statement restituiti sono dei proxy: la chiamata a close() rimette lo statement in cache invece di chiuderlo; gli statement scartati dalla cache vengono chiusi.
+ * Prima di tornare in cache lo statement perde parametri e batch e riprende fetch size, numero massimo di righe e timeout che aveva prima dell'utilizzo.
+ * Gli statement su cui sono stati registrati parametri di uscita vengono invece chiusi: JDBC non consente di annullare la registrazione
+ * e chi chiama la stessa procedura solo con parametri di ingresso riceverebbe uno statement che si aspetta ancora dei valori di uscita.
+ * La cache non è thread-safe: la connessione che la possiede è usata da un solo utilizzatore alla volta.
+ * @author amelani
+ *
+ */
+public class StatementCache
+{
+	private final Connection _physical;
+	private final int _size;
+	private final AtomicLong _hits;
+	private final AtomicLong _misses;
+	private final AtomicLong _evictions;
+	private final LinkedHashMap<String, CallableStatement> _statements;
+
+	/**
+	 * Costruisce una cache vuota
+	 * @param physical Connessione fisica su cui preparare gli statement
+	 * @param size Numero massimo di statement in cache
+	 * @param hits Contatore degli statement trovati in cache
+	 * @param misses Contatore degli statement preparati perché assenti dalla cache
+	 * @param evictions Contatore degli statement chiusi perché scartati dalla cache
+	 */
+	public StatementCache(Connection physical, int size, AtomicLong hits, AtomicLong misses, AtomicLong evictions)
+	{
+		_physical = physical;
+		_size = size;
+		_hits = hits;
+		_misses = misses;
+		_evictions = evictions;
+		_statements = new LinkedHashMap<String, CallableStatement>(16, 0.75f, true)
+		{
+			private static final long serialVersionUID = -2920430264521567271L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CallableStatement> eldest)
+			{
+				if (size() <= _size)
+					return false;
+				_evict(eldest.getValue());
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * Restituisce un CallableStatement per la chiamata indicata, prendendolo dalla cache se presente o preparandolo sulla connessione fisica
+	 * @param sql Testo della chiamata
+	 * @param owner Connessione da restituire come proprietaria dello statement
+	 * @return Proxy del CallableStatement, da chiudere con close() per rimetterlo in cache
+	 * @throws SQLException In caso di errori nella preparazione dello statement
+	 */
+	public CallableStatement PrepareCall(String sql, Connection owner) throws SQLException
+	{
+		CallableStatement physical = _statements.remove(sql);
+		if (physical != null)
+			_hits.incrementAndGet();
+		else
+		{
+			_misses.incrementAndGet();
+			physical = _physical.prepareCall(sql);
+		}
+		return (CallableStatement)Proxy.newProxyInstance(StatementCache.class.getClassLoader(), new Class<?>[] { CallableStatement.class }, new CachedStatementHandle(sql, physical, owner));
+	}
+
+	/**
+	 * Chiude tutti gli statement in cache
+	 */
+	public void CloseAll()
+	{
+		Iterator<CallableStatement> it = _statements.values().iterator();
+		while (it.hasNext())
+		{
+			_close(it.next());
+			it.remove();
+		}
+	}
+
+	/**
+	 * Rimette in cache uno statement chiuso dall'utilizzatore, dopo averne azzerato parametri e batch e ripristinato le proprietà cambiate
+	 * @param sql Testo della chiamata
+	 * @param physical Statement fisico
+	 * @param handle Proxy restituito all'utilizzatore, con le proprietà cambiate e le eventuali registrazioni di parametri di uscita
+	 */
+	private void _return(String sql, CallableStatement physical, CachedStatementHandle handle)
+	{
+		if (handle.OutputRegistered)
+		{
+			_evict(physical);
+			return;
+		}
+		try
+		{
+			physical.clearParameters();
+			physical.clearBatch();
+			if (handle.FetchSize != null)
+				physical.setFetchSize(handle.FetchSize);
+			if (handle.MaxRows != null)
+				physical.setMaxRows(handle.MaxRows);
+			if (handle.QueryTimeout != null)
+				physical.setQueryTimeout(handle.QueryTimeout);
+		}
+		catch (SQLException exc)
+		{
+			_close(physical);
+			return;
+		}
+		//se nel frattempo è stato messo in cache un altro statement per la stessa chiamata tengo quello
+		if (_size <= 0 || _statements.containsKey(sql))
+			_evict(physical);
+		else
+			_statements.put(sql, physical);
+	}
+
+	private void _evict(CallableStatement physical)
+	{
+		_evictions.incrementAndGet();
+		_close(physical);
+	}
+
+	private static void _close(CallableStatement physical)
+	{
+		try
+		{
+			physical.close();
+		}
+		catch (SQLException exc)
+		{
+			exc.printStackTrace();
+		}
+	}
+
+	/**
+	 * Proxy di uno statement prestato dalla cache: close() chiude l'eventuale ResultSet aperto e rimette lo statement in cache
+	 */
+	private class CachedStatementHandle implements InvocationHandler
+	{
+		/** Valori di fetch size, numero massimo di righe e timeout prima della prima modifica, null se non sono stati cambiati */
+		public Integer FetchSize;
+		public Integer MaxRows;
+		public Integer QueryTimeout;
+		/** Indica se sono stati registrati parametri di uscita */
+		public boolean OutputRegistered;
+
+		private final String _sql;
+		private final CallableStatement _statement;
+		private final Connection _owner;
+		private ResultSet _resultSet;
+		private boolean _closed;
+
+		public CachedStatementHandle(String sql, CallableStatement statement, Connection owner)
+		{
+			_sql = sql;
+			_statement = statement;
+			_owner = owner;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+		{
+			String name = method.getName();
+			int parameters = method.getParameterTypes().length;
+			if (name.equals("close") && parameters == 0)
+			{
+				if (!_closed)
+				{
+					_closed = true;
+					_closeResultSet();
+					_return(_sql, _statement, this);
+				}
+				return null;
+			}
+			if (name.equals("isClosed") && parameters == 0)
+				return _closed;
+			if (name.equals("equals") && parameters == 1)
+				return proxy == args[0];
+			if (name.equals("hashCode") && parameters == 0)
+				return System.identityHashCode(proxy);
+			if (name.equals("toString") && parameters == 0)
+				return "Cached[" + _statement + "]";
+			if (_closed)
+				throw new SQLException("Lo statement è già stato chiuso");
+			if (name.equals("getConnection") && parameters == 0)
+				return _owner;
+			if (name.equals("registerOutParameter"))
+				OutputRegistered = true;
+			else if (name.equals("setFetchSize") && FetchSize == null)
+				FetchSize = _statement.getFetchSize();
+			else if (name.equals("setMaxRows") && MaxRows == null)
+				MaxRows = _statement.getMaxRows();
+			else if (name.equals("setQueryTimeout") && QueryTimeout == null)
+				QueryTimeout = _statement.getQueryTimeout();
+			Object result;
+			try
+			{
+				result = method.invoke(_statement, args);
+			}
+			catch (InvocationTargetException exc)
+			{
+				throw exc.getCause();
+			}
+			if (result instanceof ResultSet && result != _resultSet)
+			{
+				_closeResultSet();
+				_resultSet = (ResultSet)result;
+			}
+			return result;
+		}
+
+		private void _closeResultSet()
+		{
+			if (_resultSet == null)
+				return;
+			try
+			{
+				_resultSet.close();
+			}
+			catch (SQLException exc)
+			{
+				exc.printStackTrace();
+			}
+			_resultSet = null;
+		}
+	}
+}
@@ -0,0 +1,267 @@
+package dal;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Transazione che coinvolge più chiamate ai manager sullo stesso thread.
+ * Finché la UnitOfWork è aperta, i BaseJDBCManager con la stessa connection string e lo stesso utente usano un'unica connessione, senza eseguire commit e senza chiuderla:
+ * il commit o il rollback avvengono una sola volta, alla chiamata di Commit o di Rollback. L'utilizzo tipico è
+ * <pre>
+ * UnitOfWork unitOfWork = UnitOfWork.Begin();
+ * try
+ * {
+ * 	headerManager.Save(header, HeaderList.class);
+ * 	lineManager.Save(lines);
+ * 	unitOfWork.Commit();
+ * }
+ * finally
+ * {
+ * 	unitOfWork.Close();
+ * }
+ * </pre>
+ * Se una chiamata fallisce la transazione viene annullata e il successivo Commit esegue il rollback e lancia una SQLException.
+ * Le UnitOfWork possono essere annidate: quelle interne partecipano alla transazione di quella più esterna, che sola esegue commit e rollback.
+ * I metodi asincroni dei manager vengono eseguiti su altri thread e quindi fuori dalla UnitOfWork.
+ * Se i manager usano database diversi, le connessioni vengono confermate una dopo l'altra: la UnitOfWork non è una transazione distribuita.
+ * Le azioni che dipendono dall'esito della transazione, come l'invalidazione delle cache dei manager, vengono registrate con AfterCommit e AfterCompletion
+ * ed eseguite soltanto alla conclusione di quella più esterna.
+ * @author amelani
+ *
+ */
+public class UnitOfWork
+{
+	private static final ThreadLocal<UnitOfWork> _current = new ThreadLocal<UnitOfWork>();
+
+	private final LinkedHashMap<String, Connection> _connections = new LinkedHashMap<String, Connection>();
+	private final ArrayList<Runnable> _afterCommit = new ArrayList<Runnable>();
+	private final ArrayList<Runnable> _afterCompletion = new ArrayList<Runnable>();
+	private int _depth = 1;
+	private boolean _rollbackOnly;
+	private boolean _completed;
+
+	private UnitOfWork()
+	{
+	}
+
+	/**
+	 * Apre una UnitOfWork sul thread corrente, o partecipa a quella già aperta
+	 * @return UnitOfWork da chiudere con Close al termine delle operazioni
+	 */
+	public static UnitOfWork Begin()
+	{
+		UnitOfWork unitOfWork = _current.get();
+		if (unitOfWork != null)
+		{
+			unitOfWork._depth++;
+			return unitOfWork;
+		}
+		unitOfWork = new UnitOfWork();
+		_current.set(unitOfWork);
+		return unitOfWork;
+	}
+
+	/**
+	 * Restituisce la UnitOfWork aperta sul thread corrente
+	 * @return UnitOfWork corrente, null se non ce n'è una aperta
+	 */
+	public static UnitOfWork Current()
+	{
+		return _current.get();
+	}
+
+	/**
+	 * Restituisce la connessione già usata nella UnitOfWork per un database
+	 * @param key Chiave del database, composta da connection string e utente
+	 * @return Connessione del database, null se nessun manager l'ha ancora richiesta
+	 * @throws SQLException Se la UnitOfWork è già stata conclusa
+	 */
+	Connection GetConnection(String key) throws SQLException
+	{
+		if (_completed)
+			throw new SQLException("La UnitOfWork è già stata conclusa");
+		return _connections.get(key);
+	}
+
+	/**
+	 * Aggiunge alla UnitOfWork la connessione aperta da un manager per un database
+	 * @param key Chiave del database, composta da connection string e utente
+	 * @param connection Connessione senza autocommit
+	 * @throws SQLException Se la UnitOfWork è già stata conclusa
+	 */
+	void Enlist(String key, Connection connection) throws SQLException
+	{
+		if (_completed)
+			throw new SQLException("La UnitOfWork è già stata conclusa");
+		_connections.put(key, connection);
+	}
+
+	/**
+	 * Indica se una connessione appartiene alla UnitOfWork, e quindi non deve essere né confermata né chiusa dai manager
+	 * @param connection Connessione da controllare
+	 * @return True se la connessione appartiene alla UnitOfWork
+	 */
+	boolean Owns(Connection connection)
+	{
+		return _connections.containsValue(connection);
+	}
+
+	/**
+	 * Registra un'azione da eseguire dopo il commit della UnitOfWork più esterna. Se la transazione viene annullata l'azione non viene eseguita.
+	 * @param action Azione da eseguire, sul thread che esegue il commit
+	 * @throws SQLException Se la UnitOfWork è già stata conclusa
+	 */
+	public void AfterCommit(Runnable action) throws SQLException
+	{
+		if (_completed)
+			throw new SQLException("La UnitOfWork è già stata conclusa");
+		_afterCommit.add(action);
+	}
+
+	/**
+	 * Registra un'azione da eseguire alla conclusione della UnitOfWork più esterna, sia dopo il commit sia dopo il rollback
+	 * @param action Azione da eseguire, sul thread che conclude la transazione
+	 * @throws SQLException Se la UnitOfWork è già stata conclusa
+	 */
+	public void AfterCompletion(Runnable action) throws SQLException
+	{
+		if (_completed)
+			throw new SQLException("La UnitOfWork è già stata conclusa");
+		_afterCompletion.add(action);
+	}
+
+	/**
+	 * Annulla la transazione: il Commit successivo eseguirà il rollback
+	 */
+	public void SetRollbackOnly()
+	{
+		_rollbackOnly = true;
+	}
+
+	/**
+	 * Indica se la transazione è stata annullata
+	 * @return True se la transazione verrà annullata alla sua conclusione
+	 */
+	public boolean IsRollbackOnly()
+	{
+		return _rollbackOnly;
+	}
+
+	/**
+	 * Conferma la transazione. Nelle UnitOfWork annidate non fa nulla: il commit avviene alla conclusione di quella più esterna.
+	 * @throws SQLException Se la transazione era stata annullata (in questo caso viene eseguito il rollback) o in caso di errori nel commit
+	 */
+	public void Commit() throws SQLException
+	{
+		if (_depth > 1)
+			return;
+		if (_completed)
+			throw new SQLException("La UnitOfWork è già stata conclusa");
+		if (_rollbackOnly)
+		{
+			Rollback();
+			throw new SQLException("La UnitOfWork è stata annullata da un'operazione fallita: è stato eseguito il rollback");
+		}
+		try
+		{
+			for (Connection connection : _connections.values())
+				connection.commit();
+		}
+		catch (SQLException exc)
+		{
+			Rollback();
+			throw exc;
+		}
+		_completed = true;
+		_runActions(_afterCommit);
+		_runActions(_afterCompletion);
+	}
+
+	/**
+	 * Annulla la transazione. Nelle UnitOfWork annidate si limita a segnarla come da annullare.
+	 * @throws SQLException In caso di errori nel rollback
+	 */
+	public void Rollback() throws SQLException
+	{
+		_rollbackOnly = true;
+		if (_depth > 1 || _completed)
+			return;
+		_completed = true;
+		SQLException error = null;
+		for (Connection connection : _connections.values())
+		{
+			try
+			{
+				connection.rollback();
+			}
+			catch (SQLException exc)
+			{
+				if (error == null)
+					error = exc;
+			}
+		}
+		_afterCommit.clear();
+		_runActions(_afterCompletion);
+		if (error != null)
+			throw error;
+	}
+
+	/**
+	 * Esegue e rimuove le azioni registrate. Un'azione che fallisce non impedisce l'esecuzione delle successive, né cambia l'esito della transazione ormai conclusa.
+	 * @param actions Azioni da eseguire
+	 */
+	private static void _runActions(ArrayList<Runnable> actions)
+	{
+		for (Runnable action : actions)
+		{
+			try
+			{
+				action.run();
+			}
+			catch (RuntimeException exc)
+			{
+				exc.printStackTrace();
+			}
+		}
+		actions.clear();
+	}
+
+	/**
+	 * Chiude la UnitOfWork. Quella più esterna esegue il rollback se non è stato eseguito il commit, chiude le connessioni e si stacca dal thread.
+	 * @throws SQLException In caso di errori nel rollback o nella chiusura delle connessioni
+	 */
+	public void Close() throws SQLException
+	{
+		if (--_depth > 0)
+			return;
+		_current.remove();
+		SQLException error = null;
+		try
+		{
+			if (!_completed)
+				Rollback();
+		}
+		catch (SQLException exc)
+		{
+			error = exc;
+		}
+		for (Map.Entry<String, Connection> entry : _connections.entrySet())
+		{
+			try
+			{
+				entry.getValue().close();
+			}
+			catch (SQLException exc)
+			{
+				if (error == null)
+					error = exc;
+			}
+		}
+		_connections.clear();
+		if (error != null)
+			throw error;
+	}
+}
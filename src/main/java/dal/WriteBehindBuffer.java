@@ -0,0 +1,414 @@
+package dal;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import sql.DBResponse;
+import sql.SQLQuerableMetadata;
+import entities.BaseEntity;
+import entities.BaseEntityList;
+
+/**
+ * Buffer di scrittura differita di BaseJDBCManager.SaveBehind. Le entity vengono accodate in memoria e salvate da un thread daemon con Save su una lista,
+ * quando ne sono state raccolte BatchSize o quando la più vecchia ha atteso FlushInterval millisecondi.
+ * Le scritture ripetute di una entity con la stessa chiave, ancora in attesa, sostituiscono la precedente: viene salvata soltanto l'ultima versione.
+ * Il buffer è limitato: quando è pieno chi accoda resta bloccato fino a OfferTimeout millisecondi, così che un database lento rallenti i produttori invece di esaurire la memoria.
+ * Alla chiusura della JVM, o con Shutdown, le entity ancora in attesa vengono salvate prima di arrestare il thread.
+ * I salvataggi avvengono soltanto sul thread del buffer, anche quelli richiesti con Flush, e quindi fuori da qualsiasi UnitOfWork: una entity è contata come salvata soltanto dopo il commit della sua Save.
+ * Le entity non salvate vengono registrate nel log e contate nelle statistiche, senza altri tentativi.
+ * @author amelani
+ *
+ */
+public class WriteBehindBuffer<TEntity extends BaseEntity, TEntityList extends BaseEntityList<TEntity>>
+{
+	private static final Logger _logger = Logger.getLogger(WriteBehindBuffer.class.getName());
+	private static final Map<String, WriteBehindBuffer<?, ?>> _buffers = new HashMap<String, WriteBehindBuffer<?, ?>>();
+
+	private final BaseJDBCManager<TEntity, TEntityList> _manager;
+	private final WriteBehindConfiguration _configuration;
+	private final LinkedHashMap<List<Object>, Pending<TEntity>> _queue = new LinkedHashMap<List<Object>, Pending<TEntity>>();
+	private final Thread _worker;
+	private final Thread _shutdownHook;
+	private boolean _shutdown;
+	/** Numero progressivo dell'ultima scrittura accodata */
+	private long _sequence;
+	/** Numero dell'ultima scrittura che Flush ha chiesto di salvare */
+	private long _flushTarget;
+	/** Numero fino al quale tutte le scritture richieste da Flush sono state salvate (o sono fallite) */
+	private long _flushedThrough;
+
+	private long _enqueued;
+	private long _coalesced;
+	private long _rejected;
+	private long _throttled;
+	private long _flushes;
+	private long _saved;
+	private long _failed;
+	private long _totalFlushNanos;
+	private long _maxFlushNanos;
+
+	/**
+	 * Restituisce il buffer del manager, creandolo se non esiste ancora. Il buffer è condiviso fra le istanze della stessa classe di manager e salva con la prima che lo ha richiesto.
+	 * @param manager Manager con cui salvare le entity
+	 * @param configuration Configurazione del buffer, usata soltanto alla sua creazione
+	 * @return WriteBehindBuffer condiviso per la classe del manager
+	 */
+	@SuppressWarnings("unchecked")
+	public static <TEntity extends BaseEntity, TEntityList extends BaseEntityList<TEntity>> WriteBehindBuffer<TEntity, TEntityList> GetBuffer(BaseJDBCManager<TEntity, TEntityList> manager, WriteBehindConfiguration configuration)
+	{
+		synchronized (_buffers)
+		{
+			WriteBehindBuffer<TEntity, TEntityList> buffer = (WriteBehindBuffer<TEntity, TEntityList>)_buffers.get(manager.getClass().getName());
+			if (buffer == null)
+			{
+				buffer = new WriteBehindBuffer<TEntity, TEntityList>(manager, configuration == null ? new WriteBehindConfiguration() : configuration);
+				_buffers.put(manager.getClass().getName(), buffer);
+			}
+			return buffer;
+		}
+	}
+
+	/**
+	 * Arresta tutti i buffer creati, salvando le entity in attesa
+	 */
+	public static void ShutdownAll()
+	{
+		ArrayList<WriteBehindBuffer<?, ?>> buffers;
+		synchronized (_buffers)
+		{
+			buffers = new ArrayList<WriteBehindBuffer<?, ?>>(_buffers.values());
+			_buffers.clear();
+		}
+		for (WriteBehindBuffer<?, ?> buffer : buffers)
+			buffer.Shutdown();
+	}
+
+	/**
+	 * Costruisce un buffer vuoto e avvia il thread che salva le entity
+	 * @param manager Manager con cui salvare le entity
+	 * @param configuration Configurazione del buffer
+	 */
+	public WriteBehindBuffer(BaseJDBCManager<TEntity, TEntityList> manager, WriteBehindConfiguration configuration)
+	{
+		if (configuration.Capacity < 1 || configuration.BatchSize < 1 || configuration.FlushInterval < 1)
+			throw new IllegalArgumentException("Parametri del buffer di scrittura non validi: capacità " + configuration.Capacity + ", batch " + configuration.BatchSize
+					+ ", intervallo " + configuration.FlushInterval + "ms");
+		_manager = manager;
+		_configuration = configuration;
+		_worker = new Thread(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				_run();
+			}
+		}, "mel8fw-writebehind [" + manager.getClass().getName() + "]");
+		_worker.setDaemon(true);
+		_worker.start();
+		_shutdownHook = new Thread(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				_shutdown(false);
+			}
+		});
+		Runtime.getRuntime().addShutdownHook(_shutdownHook);
+	}
+
+	/**
+	 * Accoda una entity da salvare, sostituendo quella con la stessa chiave se ancora in attesa.
+	 * La entity non deve essere modificata finché non è stata salvata: il buffer ne conserva il riferimento, non una copia.
+	 * @param e Entity da salvare
+	 * @throws IllegalAccessException Se un campo chiave della entity non è accessibile
+	 * @throws RejectedExecutionException Se il buffer resta pieno oltre OfferTimeout, il thread viene interrotto o il buffer è stato arrestato
+	 */
+	public synchronized void Put(TEntity e) throws IllegalAccessException
+	{
+		List<Object> key = SQLQuerableMetadata.Get(e.getClass()).GetKeyValues(e);
+		//senza chiave non è possibile riconoscere le scritture della stessa entity
+		if (key == null)
+			key = Arrays.asList(new Object());
+		if (_shutdown)
+		{
+			_rejected++;
+			throw new RejectedExecutionException("Il buffer di scrittura è stato arrestato");
+		}
+		if (!_queue.containsKey(key) && _queue.size() >= _configuration.Capacity)
+		{
+			_throttled++;
+			long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(_configuration.OfferTimeout);
+			try
+			{
+				while (!_shutdown && !_queue.containsKey(key) && _queue.size() >= _configuration.Capacity)
+				{
+					long remaining = deadline - System.nanoTime();
+					if (remaining <= 0)
+					{
+						_rejected++;
+						throw new RejectedExecutionException("Buffer di scrittura pieno da più di " + _configuration.OfferTimeout + "ms");
+					}
+					TimeUnit.NANOSECONDS.timedWait(this, remaining);
+				}
+			}
+			catch (InterruptedException exc)
+			{
+				Thread.currentThread().interrupt();
+				_rejected++;
+				throw new RejectedExecutionException("Interrotto in attesa di un posto nel buffer di scrittura", exc);
+			}
+			if (_shutdown)
+			{
+				_rejected++;
+				throw new RejectedExecutionException("Il buffer di scrittura è stato arrestato");
+			}
+		}
+		boolean wasEmpty = _queue.isEmpty();
+		Pending<TEntity> pending = _queue.get(key);
+		if (pending == null)
+		{
+			//la sostituzione di una entity in attesa ne mantiene posizione e scadenza
+			pending = new Pending<TEntity>(System.nanoTime());
+			_queue.put(key, pending);
+		}
+		else
+			_coalesced++;
+		pending.Entity = e;
+		pending.Sequence = ++_sequence;
+		_enqueued++;
+		//il thread del buffer attende senza scadenza finché il buffer è vuoto: va svegliato perché inizi a contare FlushInterval
+		if (wasEmpty || _queue.size() >= _configuration.BatchSize)
+			notifyAll();
+	}
+
+	/**
+	 * Fa salvare subito al thread del buffer le entity accodate fino a questo momento e ne attende il salvataggio.
+	 * I salvataggi non partecipano alla UnitOfWork del chiamante; le entity accodate durante l'attesa possono essere salvate insieme alle altre o in seguito.
+	 */
+	public void Flush()
+	{
+		if (Thread.currentThread() == _worker)
+			return;
+		synchronized (this)
+		{
+			long target = _sequence;
+			if (target > _flushTarget)
+				_flushTarget = target;
+			notifyAll();
+			try
+			{
+				//se il thread del buffer è terminato le entity sono già state salvate dall'arresto
+				while (_flushedThrough < target && _worker.isAlive())
+					wait(100);
+			}
+			catch (InterruptedException exc)
+			{
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Arresta il buffer: le nuove entity vengono rifiutate, quelle in attesa vengono salvate dal thread del buffer prima del ritorno
+	 */
+	public void Shutdown()
+	{
+		_shutdown(true);
+	}
+
+	/**
+	 * Restituisce lo stato attuale del buffer
+	 * @return WriteBehindStatistics con i contatori del buffer
+	 */
+	public synchronized WriteBehindStatistics GetStatistics()
+	{
+		WriteBehindStatistics stats = new WriteBehindStatistics();
+		stats.QueueDepth = _queue.size();
+		stats.Enqueued = _enqueued;
+		stats.Coalesced = _coalesced;
+		stats.Rejected = _rejected;
+		stats.Throttled = _throttled;
+		stats.Flushes = _flushes;
+		stats.Saved = _saved;
+		stats.Failed = _failed;
+		stats.TotalFlushTime = TimeUnit.NANOSECONDS.toMillis(_totalFlushNanos);
+		stats.MaxFlushTime = TimeUnit.NANOSECONDS.toMillis(_maxFlushNanos);
+		return stats;
+	}
+
+	private void _shutdown(boolean removeHook)
+	{
+		synchronized (this)
+		{
+			if (_shutdown)
+				return;
+			_shutdown = true;
+			notifyAll();
+		}
+		if (removeHook)
+		{
+			try
+			{
+				Runtime.getRuntime().removeShutdownHook(_shutdownHook);
+			}
+			catch (IllegalStateException exc)
+			{
+				//la JVM è già in chiusura: l'hook è in esecuzione o lo sarà a breve
+			}
+		}
+		if (Thread.currentThread() == _worker)
+			return;
+		try
+		{
+			_worker.join();
+		}
+		catch (InterruptedException exc)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Ciclo del thread del buffer: attende che ci siano BatchSize entity, che la più vecchia abbia atteso FlushInterval, che Flush chieda il salvataggio
+	 * o che il buffer venga arrestato, poi le salva. All'arresto salva tutte le entity rimaste prima di terminare.
+	 */
+	private void _run()
+	{
+		long interval = TimeUnit.MILLISECONDS.toNanos(_configuration.FlushInterval);
+		while (true)
+		{
+			synchronized (this)
+			{
+				try
+				{
+					while (true)
+					{
+						_checkFlushed();
+						if (_queue.isEmpty())
+						{
+							if (_shutdown)
+								return;
+							wait();
+						}
+						else if (_shutdown || _flushTarget > _flushedThrough || _queue.size() >= _configuration.BatchSize)
+							break;
+						else
+						{
+							long remaining = _queue.values().iterator().next().Since + interval - System.nanoTime();
+							if (remaining <= 0)
+								break;
+							TimeUnit.NANOSECONDS.timedWait(this, remaining);
+						}
+					}
+				}
+				catch (InterruptedException exc)
+				{
+					return;
+				}
+			}
+			_flushBatch();
+		}
+	}
+
+	/**
+	 * Se nel buffer non restano scritture richieste da Flush, segna la richiesta come completata e sveglia chi la attende
+	 */
+	private void _checkFlushed()
+	{
+		if (_flushTarget <= _flushedThrough)
+			return;
+		for (Pending<TEntity> pending : _queue.values())
+			if (pending.Sequence <= _flushTarget)
+				return;
+		_flushedThrough = _flushTarget;
+		notifyAll();
+	}
+
+	/**
+	 * Salva al massimo BatchSize entity in attesa, nell'ordine in cui sono state accodate.
+	 * Viene eseguito soltanto dal thread del buffer, così che due versioni della stessa entity non vengano salvate in ordine inverso e che la Save non partecipi alla UnitOfWork di altri thread.
+	 */
+	private void _flushBatch()
+	{
+		ArrayList<TEntity> batch;
+		synchronized (this)
+		{
+			if (_queue.isEmpty())
+				return;
+			batch = new ArrayList<TEntity>(Math.min(_queue.size(), _configuration.BatchSize));
+			Iterator<Pending<TEntity>> iterator = _queue.values().iterator();
+			while (iterator.hasNext() && batch.size() < _configuration.BatchSize)
+			{
+				batch.add(iterator.next().Entity);
+				iterator.remove();
+			}
+			notifyAll();
+		}
+		long start = System.nanoTime();
+		int failed = batch.size();
+		try
+		{
+			Class<TEntityList> listType = _manager.GetEntityListType();
+			if (listType == null)
+				throw new InstantiationException("Impossibile ricavare la classe della lista: ridefinire GetEntityListType");
+			TEntityList list = listType.newInstance();
+			list.addAll(batch);
+			DBResponse<TEntity, TEntityList> theResponse = _manager.Save(list);
+			if (theResponse.Success)
+				failed = 0;
+			else if (theResponse.UpdateCounts != null)
+			{
+				//con CommitEachBatch i blocchi confermati prima dell'errore sono stati salvati
+				failed = 0;
+				for (int count : theResponse.UpdateCounts)
+					if (count == Statement.EXECUTE_FAILED)
+						failed++;
+			}
+			if (failed > 0)
+				_logger.log(Level.WARNING, "Salvataggio differito di " + failed + " entity su " + batch.size() + " fallito: " + theResponse.Message);
+		}
+		catch (Exception exc)
+		{
+			_logger.log(Level.WARNING, "Salvataggio differito di " + batch.size() + " entity fallito", exc);
+		}
+		long elapsed = System.nanoTime() - start;
+		synchronized (this)
+		{
+			//la Save non è in una UnitOfWork, quindi al suo ritorno le entity salvate sono confermate
+			_flushes++;
+			_saved += batch.size() - failed;
+			_failed += failed;
+			_totalFlushNanos += elapsed;
+			if (elapsed > _maxFlushNanos)
+				_maxFlushNanos = elapsed;
+		}
+	}
+
+	/**
+	 * Entity in attesa di essere salvata
+	 */
+	private static class Pending<TEntity>
+	{
+		/** Ultima versione accodata della entity */
+		public TEntity Entity;
+		/** Numero progressivo dell'ultima scrittura della entity */
+		public long Sequence;
+		/** Istante (System.nanoTime) della prima scrittura non ancora salvata, da cui si conta FlushInterval */
+		public final long Since;
+
+		public Pending(long since)
+		{
+			Since = since;
+		}
+	}
+}
@@ -0,0 +1,21 @@
+package dal;
+
+/**
+ * Parametri di configurazione del WriteBehindBuffer usato da BaseJDBCManager.SaveBehind
+ * @author amelani
+ *
+ */
+public class WriteBehindConfiguration
+{
+	/** Numero massimo di entity in attesa di essere salvate. Le scritture ripetute della stessa entity occupano un solo posto */
+	public int Capacity = 10000;
+
+	/** Numero di entity salvate in ogni Save: al raggiungimento di questo numero il salvataggio parte senza attendere FlushInterval */
+	public int BatchSize = 500;
+
+	/** Tempo massimo (in millisecondi) per cui una entity resta in attesa prima di essere salvata */
+	public long FlushInterval = 1000;
+
+	/** Tempo massimo (in millisecondi) per cui SaveBehind resta bloccato quando il buffer è pieno, prima che la entity venga rifiutata */
+	public long OfferTimeout = 30000;
+}
@@ -0,0 +1,55 @@
+package dal;
+
+/**
+ * Fotografia dello stato di un WriteBehindBuffer in un dato istante
+ * @author amelani
+ *
+ */
+public class WriteBehindStatistics
+{
+	/** Entity in attesa di essere salvate */
+	public int QueueDepth;
+
+	/** Numero di entity accettate dal buffer */
+	public long Enqueued;
+
+	/** Numero di scritture che hanno sostituito una entity con la stessa chiave ancora in attesa */
+	public long Coalesced;
+
+	/** Numero di entity rifiutate perché il buffer è rimasto pieno oltre OfferTimeout o era già stato arrestato */
+	public long Rejected;
+
+	/** Numero di scritture che hanno dovuto attendere perché il buffer era pieno */
+	public long Throttled;
+
+	/** Numero di Save eseguite dal buffer */
+	public long Flushes;
+
+	/** Numero di entity salvate con successo */
+	public long Saved;
+
+	/** Numero di entity il cui salvataggio è fallito */
+	public long Failed;
+
+	/** Tempo totale (in millisecondi) delle Save eseguite dal buffer */
+	public long TotalFlushTime;
+
+	/** Tempo massimo (in millisecondi) di una Save eseguita dal buffer */
+	public long MaxFlushTime;
+
+	/**
+	 * Tempo medio di una Save eseguita dal buffer
+	 * @return Tempo medio di salvataggio in millisecondi
+	 */
+	public double GetAverageFlushTime()
+	{
+		return Flushes == 0 ? 0 : (double)TotalFlushTime / Flushes;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "QueueDepth:" + QueueDepth + " Enqueued:" + Enqueued + " Coalesced:" + Coalesced + " Rejected:" + Rejected + " Throttled:" + Throttled
+				+ " Flushes:" + Flushes + " Saved:" + Saved + " Failed:" + Failed + " TotalFlushTime:" + TotalFlushTime + " MaxFlushTime:" + MaxFlushTime;
+	}
+}
@@ -2,13 +2,16 @@ package entities;
 
 import java.io.UnsupportedEncodingException;
 import java.lang.reflect.Field;
-import java.lang.reflect.Modifier;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
 
+import sql.SQLFieldMetadata;
 import sql.SQLParameter;
 import sql.SQLQuerable;
+import sql.SQLQuerableMetadata;
 
 /**
  * Classe base per la derivazione delle entità
@@ -17,32 +20,21 @@ import sql.SQLQuerable;
  */
 public abstract class BaseEntity implements SQLQuerable
 {
+	/** Valori dei campi annotati al momento del caricamento o dell'ultimo salvataggio, null se la entity non è tracciata */
+	private transient Object[] _snapshot;
+	
 	public BaseEntity() 
 	{
 		
 	}
 	
+	@SuppressWarnings("unchecked")
 	public BaseEntity(ResultSet rs) throws SQLException, IllegalArgumentException, IllegalAccessException, UnsupportedEncodingException
 	{
 		this();
-		Field[] classFields = this.getClass().getFields();
-		for (int i = 0; i < classFields.length; i++)
-		{
-			Field currentField = classFields[i];
-			EntityFieldAttribute attributes = currentField.getAnnotation(EntityFieldAttribute.class);
-			if (attributes != null)
-			{			
-				try
-				{
-					Object sqlValue = rs.getObject(attributes.Name());
-					currentField.set(this, sqlValue);	
-				}
-				catch (SQLException e)
-				{
-					currentField.set(this, null);
-				}
-			}
-		}
+		//le colonne mancanti nel ResultSet lasciano il campo a null
+		EntityRowMapper<BaseEntity> mapper = (EntityRowMapper<BaseEntity>)(EntityRowMapper<?>)EntityRowMapper.Get(this.getClass());
+		mapper.Fill(this, rs, mapper.ResolveColumns(rs));
 	}
 	
 	/**
@@ -54,28 +46,92 @@ public abstract class BaseEntity implements SQLQuerable
 	@Override
 	public ArrayList<SQLParameter> GetParameters() throws IllegalArgumentException, IllegalAccessException
 	{
-		ArrayList<SQLParameter> params = new ArrayList<SQLParameter>();
-		
-		//recupero tutti i campi della classe (anche se considererò soltanto quelli pubblici)
-		Field[] fields = this.getClass().getFields();
-		for (Field currentField : fields)
-		{
-			EntityFieldAttribute attributes = currentField.getAnnotation(EntityFieldAttribute.class);
-			if (Modifier.isPublic(currentField.getModifiers()) && attributes != null)
-			{
-				//il campo è pubblico ed è annotato, lo posso considerare come parametro SQL
-				String name = attributes.Name().trim().equals("") ? currentField.getName() : attributes.Name().trim();
-				int sqlType = attributes.SqlType();
-				SQLParameter theParam = null;
-				if (sqlType != -1)
-					theParam = new SQLParameter(name, currentField.get(this), sqlType, attributes.Direction());
-				else
-					theParam = new SQLParameter(name, currentField.get(this), attributes.Direction());
-				params.add(theParam);
-			}
-		}
-		
-		return params.size() == 0 ? null : params;
+		//i campi pubblici annotati vengono letti una sola volta per classe
+		return SQLQuerableMetadata.Get(this.getClass()).GetParameters(this);
+	}
+
+	/**
+	 * Memorizza i valori attuali dei campi annotati, così che IsDirty possa riconoscere le modifiche successive.
+	 * Viene chiamato dai manager che usano il tracciamento delle modifiche dopo il caricamento e dopo il salvataggio della entity.
+	 * @throws IllegalAccessException Se un campo della classe non è accessibile
+	 */
+	public void MarkClean() throws IllegalAccessException
+	{
+		_snapshot = (Object[])CaptureState();
+	}
+	
+	/**
+	 * Restituisce una copia dei valori attuali dei campi annotati, da passare in seguito a MarkClean(Object).
+	 * Serve quando la entity va considerata salvata soltanto più tardi, ad esempio al commit di una UnitOfWork, ma con i valori che aveva al momento del salvataggio.
+	 * @return Valori dei campi annotati
+	 * @throws IllegalAccessException Se un campo della classe non è accessibile
+	 */
+	public Object CaptureState() throws IllegalAccessException
+	{
+		SQLFieldMetadata[] fields = SQLQuerableMetadata.Get(this.getClass()).Fields;
+		Object[] snapshot = new Object[fields.length];
+		for (int i = 0; i < fields.length; i++)
+			snapshot[i] = _copyValue(fields[i].GetValue(this));
+		return snapshot;
+	}
+	
+	/**
+	 * Memorizza come valori salvati quelli restituiti in precedenza da CaptureState: le modifiche fatte dopo la cattura restano riconoscibili da IsDirty
+	 * @param state Valori restituiti da CaptureState per questa entity
+	 */
+	public void MarkClean(Object state)
+	{
+		_snapshot = (Object[])state;
+	}
+	
+	/**
+	 * Indica che la entity va salvata anche se i suoi campi non sono cambiati
+	 */
+	public void MarkDirty()
+	{
+		_snapshot = null;
+	}
+	
+	/**
+	 * Indica se la entity è stata modificata dall'ultima chiamata a MarkClean. I campi vengono confrontati uno ad uno fermandosi al primo diverso.
+	 * @return True se almeno un campo annotato è cambiato o se la entity non è tracciata, false altrimenti
+	 * @throws IllegalAccessException Se un campo della classe non è accessibile
+	 */
+	public boolean IsDirty() throws IllegalAccessException
+	{
+		Object[] snapshot = _snapshot;
+		if (snapshot == null)
+			return true;
+		SQLFieldMetadata[] fields = SQLQuerableMetadata.Get(this.getClass()).Fields;
+		for (int i = 0; i < fields.length; i++)
+			if (!_equalValues(snapshot[i], fields[i].GetValue(this)))
+				return true;
+		return false;
+	}
+	
+	/**
+	 * Copia i valori mutabili (date e array di byte), così che le modifiche fatte sull'oggetto originale vengano riconosciute
+	 * @param value Valore del campo
+	 * @return Valore da memorizzare
+	 */
+	private static Object _copyValue(Object value)
+	{
+		if (value instanceof Date)
+			return ((Date)value).clone();
+		if (value instanceof byte[])
+			return ((byte[])value).clone();
+		return value;
+	}
+	
+	private static boolean _equalValues(Object saved, Object current)
+	{
+		if (saved == current)
+			return true;
+		if (saved == null || current == null)
+			return false;
+		if (saved instanceof byte[] && current instanceof byte[])
+			return Arrays.equals((byte[])saved, (byte[])current);
+		return saved.equals(current);
 	}
 
 	@Override
@@ -0,0 +1,1297 @@
+package entities;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+
+import sql.BinaryLob;
+import sql.SQLFieldMetadata;
+import sql.SQLValueBinder;
+import sql.TextLob;
+
+/**
+ * Lista di entity memorizzata per colonne: ogni campo annotato con EntityFieldAttribute è conservato in un array di primitivi
+ * (int, long, double, float, boolean, date come millisecondi, BigDecimal come valore non scalato e scala) o, per le stringhe, in un dizionario con un array di codici,
+ * invece di un oggetto con campi boxed per ogni riga. Serve per selezioni di milioni di righe strette, che come entity occuperebbero molte volte lo spazio dei dati.
+ * <p>
+ * Rispetta il contratto di List: get restituisce una nuova entity costruita dalle colonne della riga (una copia: le modifiche vanno riportate con set),
+ * add e set scompongono la entity nelle colonne. Per lo stesso motivo contains, indexOf e remove(Object) trovano un elemento soltanto se la entity ridefinisce equals. I metodi GetLong, GetDouble, GetValue e IsNull leggono una colonna senza costruire le entity.
+ * Se la lista dei risultati di un manager deriva da questa classe, ExecuteSelection la riempie direttamente dal ResultSet; le entity lette non sono tracciate dal controllo delle modifiche.
+ * <p>
+ * La classe mantiene vuota la memoria di ArrayList e ridefinisce i metodi che la leggerebbero, compresi getFirst, getLast, removeFirst e removeLast introdotti da Java 21.
+ * Non ridefinisce invece quelli introdotti da Java 8 (forEach, spliterator e quindi stream, removeIf, replaceAll, sort), che userebbero tipi non disponibili in Java 6:
+ * con una JVM 8 o successiva questi metodi vedono una lista vuota, quindi la lista va letta con l'iteratore (anche nel ciclo for) o copiata in un ArrayList.
+ * Poiché le entity restituite sono copie, la lista serve soltanto per la lettura dei risultati: Save e Delete dei manager la rifiutano, perché i parametri di uscita e lo stato delle modifiche verrebbero scritti sulle copie.
+ * Il dizionario delle stringhe non viene mai ridotto: conviene per colonne con molti valori ripetuti.
+ * @author amelani
+ *
+ * @param <TEntity> Tipo di entità derivata da BaseEntity
+ */
+public abstract class ColumnarEntityList<TEntity extends BaseEntity> extends BaseEntityList<TEntity>
+{
+	private static final long serialVersionUID = -4518437612079531287L;
+
+	private final Class<TEntity> _type;
+	private transient EntityRowMapper<TEntity> _mapper;
+	private transient List<TEntity> _view;
+	private final HashMap<String, Integer> _columnsByName = new HashMap<String, Integer>();
+	private Column[] _columns;
+	private int _size;
+	private int _capacity;
+
+	/**
+	 * Costruisce una lista vuota
+	 * @param type Classe delle entity della lista
+	 */
+	protected ColumnarEntityList(Class<TEntity> type)
+	{
+		_type = type;
+		SQLFieldMetadata[] fields = _getMapper().GetFields();
+		_columns = new Column[fields.length];
+		for (int i = 0; i < fields.length; i++)
+		{
+			_columns[i] = _createColumn(fields[i].ClassField.getType());
+			_columnsByName.put(fields[i].Name.toUpperCase(Locale.ROOT), i);
+		}
+		_ensureCapacity(16);
+	}
+
+	/**
+	 * Costruisce una lista con le entity di una collezione
+	 * @param type Classe delle entity della lista
+	 * @param collection Entity da aggiungere
+	 */
+	protected ColumnarEntityList(Class<TEntity> type, Collection<TEntity> collection)
+	{
+		this(type);
+		addAll(collection);
+	}
+
+	/**
+	 * Aggiunge alla lista tutte le righe di un ResultSet, leggendo ogni colonna con il getter tipizzato direttamente nel suo array, senza costruire le entity.
+	 * Le colonne sono riconosciute per nome come in EntityRowMapper; i campi senza colonna corrispondente restano null (o al valore di default per i primitivi).
+	 * @param rs ResultSet da leggere fino alla fine
+	 * @return Numero di righe aggiunte
+	 * @throws SQLException In caso di errori nella lettura del ResultSet
+	 */
+	public int Load(ResultSet rs) throws SQLException
+	{
+		int[] positions = _getMapper().ResolveColumns(rs);
+		int first = _size;
+		while (rs.next())
+		{
+			_ensureCapacity(_size + 1);
+			for (int i = 0; i < _columns.length; i++)
+			{
+				if (positions[i] == 0)
+					_columns[i].Set(_size, null);
+				else
+					_columns[i].Read(rs, positions[i], _size);
+			}
+			_size++;
+		}
+		modCount++;
+		return _size - first;
+	}
+
+	/**
+	 * Restituisce la posizione di una colonna, da usare con i metodi di lettura per colonna
+	 * @param name Nome della colonna, come nell'annotazione EntityFieldAttribute, senza distinzione fra maiuscole e minuscole
+	 * @return Posizione della colonna
+	 * @throws IllegalArgumentException Se nessun campo è mappato sulla colonna
+	 */
+	public int GetColumn(String name)
+	{
+		Integer column = _columnsByName.get(name.toUpperCase(Locale.ROOT));
+		if (column == null)
+			throw new IllegalArgumentException("La entity " + _type.getName() + " non ha la colonna " + name);
+		return column;
+	}
+
+	/**
+	 * Indica se il valore di una colonna è null
+	 * @param row Riga
+	 * @param column Posizione della colonna (vedi GetColumn)
+	 * @return True se il valore è null
+	 */
+	public boolean IsNull(int row, int column)
+	{
+		_checkRow(row);
+		return _columns[column].IsNull(row);
+	}
+
+	/**
+	 * Legge il valore di una colonna intera senza costruire la entity
+	 * @param row Riga
+	 * @param column Posizione della colonna (vedi GetColumn)
+	 * @return Valore della colonna, 0 se null
+	 * @throws IllegalArgumentException Se la colonna non è di tipo int o long
+	 */
+	public long GetLong(int row, int column)
+	{
+		_checkRow(row);
+		return _columns[column].GetLong(row);
+	}
+
+	/**
+	 * Legge il valore di una colonna numerica senza costruire la entity
+	 * @param row Riga
+	 * @param column Posizione della colonna (vedi GetColumn)
+	 * @return Valore della colonna, 0 se null
+	 * @throws IllegalArgumentException Se la colonna non è numerica
+	 */
+	public double GetDouble(int row, int column)
+	{
+		_checkRow(row);
+		return _columns[column].GetDouble(row);
+	}
+
+	/**
+	 * Legge il valore di una colonna senza costruire la entity
+	 * @param row Riga
+	 * @param column Posizione della colonna (vedi GetColumn)
+	 * @return Valore della colonna, con il tipo del campo della entity
+	 */
+	public Object GetValue(int row, int column)
+	{
+		_checkRow(row);
+		return _columns[column].Get(row);
+	}
+
+	@Override
+	public TEntity get(int index)
+	{
+		_checkRow(index);
+		try
+		{
+			TEntity entity = _getMapper().NewInstance();
+			SQLFieldMetadata[] fields = _getMapper().GetFields();
+			for (int i = 0; i < _columns.length; i++)
+			{
+				Object value = _columns[i].Get(index);
+				//i campi primitivi non accettano null: restano al valore di default
+				if (value != null || !fields[i].ClassField.getType().isPrimitive())
+					fields[i].SetValue(entity, value);
+			}
+			return entity;
+		}
+		catch (InstantiationException exc)
+		{
+			throw new IllegalStateException("Impossibile costruire la entity " + _type.getName() + ": " + exc.getLocalizedMessage(), exc);
+		}
+		catch (IllegalAccessException exc)
+		{
+			throw new IllegalStateException(exc.getLocalizedMessage(), exc);
+		}
+	}
+
+	@Override
+	public TEntity set(int index, TEntity element)
+	{
+		TEntity previous = get(index);
+		_store(index, element);
+		return previous;
+	}
+
+	@Override
+	public boolean add(TEntity e)
+	{
+		_ensureCapacity(_size + 1);
+		_store(_size, e);
+		_size++;
+		modCount++;
+		return true;
+	}
+
+	@Override
+	public void add(int index, TEntity element)
+	{
+		if (index < 0 || index > _size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + _size);
+		_ensureCapacity(_size + 1);
+		for (Column column : _columns)
+			column.Move(index, index + 1, _size - index);
+		_store(index, element);
+		_size++;
+		modCount++;
+	}
+
+	@Override
+	public TEntity remove(int index)
+	{
+		TEntity removed = get(index);
+		removeRange(index, index + 1);
+		return removed;
+	}
+
+	@Override
+	public boolean remove(Object o)
+	{
+		int index = indexOf(o);
+		if (index < 0)
+			return false;
+		remove(index);
+		return true;
+	}
+
+	@Override
+	protected void removeRange(int fromIndex, int toIndex)
+	{
+		if (fromIndex < 0 || toIndex > _size || fromIndex > toIndex)
+			throw new IndexOutOfBoundsException("From: " + fromIndex + ", To: " + toIndex + ", Size: " + _size);
+		for (Column column : _columns)
+		{
+			column.Move(toIndex, fromIndex, _size - toIndex);
+			column.Release(_size - (toIndex - fromIndex), _size);
+		}
+		_size -= toIndex - fromIndex;
+		modCount++;
+	}
+
+	@Override
+	public void clear()
+	{
+		for (Column column : _columns)
+			column.Release(0, _size);
+		_size = 0;
+		modCount++;
+	}
+
+	@Override
+	public boolean addAll(Collection<? extends TEntity> c)
+	{
+		_ensureCapacity(_size + c.size());
+		for (TEntity e : c)
+			add(e);
+		return !c.isEmpty();
+	}
+
+	@Override
+	public boolean addAll(int index, Collection<? extends TEntity> c)
+	{
+		if (index < 0 || index > _size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + _size);
+		_ensureCapacity(_size + c.size());
+		for (TEntity e : c)
+			add(index++, e);
+		return !c.isEmpty();
+	}
+
+	@Override
+	public boolean removeAll(Collection<?> c)
+	{
+		return _getView().removeAll(c);
+	}
+
+	@Override
+	public boolean retainAll(Collection<?> c)
+	{
+		return _getView().retainAll(c);
+	}
+
+	@Override
+	public int size()
+	{
+		return _size;
+	}
+
+	@Override
+	public boolean isEmpty()
+	{
+		return _size == 0;
+	}
+
+	@Override
+	public boolean contains(Object o)
+	{
+		return indexOf(o) >= 0;
+	}
+
+	@Override
+	public int indexOf(Object o)
+	{
+		for (int i = 0; i < _size; i++)
+			if (o == null ? get(i) == null : o.equals(get(i)))
+				return i;
+		return -1;
+	}
+
+	@Override
+	public int lastIndexOf(Object o)
+	{
+		for (int i = _size - 1; i >= 0; i--)
+			if (o == null ? get(i) == null : o.equals(get(i)))
+				return i;
+		return -1;
+	}
+
+	@Override
+	public Iterator<TEntity> iterator()
+	{
+		return _getView().iterator();
+	}
+
+	@Override
+	public ListIterator<TEntity> listIterator()
+	{
+		return _getView().listIterator();
+	}
+
+	@Override
+	public ListIterator<TEntity> listIterator(int index)
+	{
+		return _getView().listIterator(index);
+	}
+
+	@Override
+	public List<TEntity> subList(int fromIndex, int toIndex)
+	{
+		return _getView().subList(fromIndex, toIndex);
+	}
+
+	@Override
+	public Object[] toArray()
+	{
+		return _getView().toArray();
+	}
+
+	@Override
+	public <T> T[] toArray(T[] a)
+	{
+		return _getView().toArray(a);
+	}
+
+	//i metodi seguenti ridefiniscono quelli che ArrayList implementa sulla propria memoria da Java 21: senza @Override, per compilare anche con le versioni precedenti
+
+	public TEntity getFirst()
+	{
+		if (_size == 0)
+			throw new NoSuchElementException();
+		return get(0);
+	}
+
+	public TEntity getLast()
+	{
+		if (_size == 0)
+			throw new NoSuchElementException();
+		return get(_size - 1);
+	}
+
+	public TEntity removeFirst()
+	{
+		if (_size == 0)
+			throw new NoSuchElementException();
+		return remove(0);
+	}
+
+	public TEntity removeLast()
+	{
+		if (_size == 0)
+			throw new NoSuchElementException();
+		return remove(_size - 1);
+	}
+
+	@Override
+	public boolean equals(Object o)
+	{
+		return _getView().equals(o);
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return _getView().hashCode();
+	}
+
+	@Override
+	public void ensureCapacity(int minCapacity)
+	{
+		_ensureCapacity(minCapacity);
+	}
+
+	@Override
+	public void trimToSize()
+	{
+		_capacity = _size;
+		for (Column column : _columns)
+			column.Resize(_size);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public Object clone()
+	{
+		ColumnarEntityList<TEntity> copy = (ColumnarEntityList<TEntity>)super.clone();
+		copy._view = null;
+		copy._columns = new Column[_columns.length];
+		for (int i = 0; i < _columns.length; i++)
+			copy._columns[i] = _columns[i].Copy();
+		return copy;
+	}
+
+	private EntityRowMapper<TEntity> _getMapper()
+	{
+		if (_mapper == null)
+			_mapper = EntityRowMapper.Get(_type);
+		return _mapper;
+	}
+
+	/**
+	 * Vista della lista usata per i metodi di List che ArrayList implementa sulla propria memoria, come iteratori e sottoliste
+	 */
+	private List<TEntity> _getView()
+	{
+		if (_view == null)
+			_view = new AbstractList<TEntity>()
+			{
+				@Override
+				public TEntity get(int index)
+				{
+					return ColumnarEntityList.this.get(index);
+				}
+
+				@Override
+				public int size()
+				{
+					return _size;
+				}
+
+				@Override
+				public TEntity set(int index, TEntity element)
+				{
+					return ColumnarEntityList.this.set(index, element);
+				}
+
+				@Override
+				public void add(int index, TEntity element)
+				{
+					ColumnarEntityList.this.add(index, element);
+					modCount++;
+				}
+
+				@Override
+				public TEntity remove(int index)
+				{
+					TEntity removed = ColumnarEntityList.this.remove(index);
+					modCount++;
+					return removed;
+				}
+
+				@Override
+				protected void removeRange(int fromIndex, int toIndex)
+				{
+					ColumnarEntityList.this.removeRange(fromIndex, toIndex);
+					modCount++;
+				}
+			};
+		return _view;
+	}
+
+	private void _checkRow(int row)
+	{
+		if (row < 0 || row >= _size)
+			throw new IndexOutOfBoundsException("Index: " + row + ", Size: " + _size);
+	}
+
+	private void _ensureCapacity(int minCapacity)
+	{
+		if (minCapacity <= _capacity)
+			return;
+		int capacity = Math.max(minCapacity, _capacity + (_capacity >> 1));
+		for (Column column : _columns)
+			column.Resize(capacity);
+		_capacity = capacity;
+	}
+
+	/**
+	 * Scompone una entity nelle colonne di una riga
+	 * @param row Riga da scrivere
+	 * @param e Entity da scomporre
+	 */
+	private void _store(int row, TEntity e)
+	{
+		if (e == null)
+			throw new NullPointerException("ColumnarEntityList non accetta elementi null");
+		SQLFieldMetadata[] fields = _getMapper().GetFields();
+		try
+		{
+			for (int i = 0; i < _columns.length; i++)
+				_columns[i].Set(row, fields[i].GetValue(e));
+		}
+		catch (IllegalAccessException exc)
+		{
+			throw new IllegalStateException(exc.getLocalizedMessage(), exc);
+		}
+	}
+
+	/**
+	 * Sceglie la memorizzazione della colonna di un campo in base al suo tipo
+	 * @param type Tipo del campo
+	 * @return Colonna vuota
+	 */
+	private static Column _createColumn(Class<?> type)
+	{
+		if (type == int.class || type == Integer.class)
+			return new IntColumn();
+		else if (type == long.class || type == Long.class)
+			return new LongColumn();
+		else if (type == double.class || type == Double.class)
+			return new DoubleColumn();
+		else if (type == float.class || type == Float.class)
+			return new FloatColumn();
+		else if (type == boolean.class || type == Boolean.class)
+			return new BooleanColumn();
+		else if (type == BigDecimal.class)
+			return new DecimalColumn();
+		else if (type == String.class)
+			return new StringColumn();
+		else if (type == Date.class || type == Time.class || type == Timestamp.class)
+			return new DateColumn(type);
+		return new ObjectColumn(type);
+	}
+
+	/**
+	 * Valori di un campo per tutte le righe della lista. I null sono segnati in un array allocato soltanto al primo null.
+	 */
+	private static abstract class Column implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+
+		private boolean[] _nulls;
+
+		/** Legge la colonna del ResultSet nella riga indicata */
+		public abstract void Read(ResultSet rs, int position, int row) throws SQLException;
+
+		/** Valore della riga, null se la riga è null */
+		public abstract Object Get(int row);
+
+		/** Scrive il valore non null di una riga */
+		protected abstract void _set(int row, Object value);
+
+		/** Ridimensiona gli array dei valori */
+		protected abstract void _resize(int capacity);
+
+		/** Sposta i valori di length righe */
+		protected abstract void _move(int from, int to, int length);
+
+		/** Rilascia i riferimenti ad oggetti delle righe indicate */
+		protected void _release(int from, int to)
+		{
+		}
+
+		/** Copia indipendente della colonna */
+		protected abstract Column _copy();
+
+		public void Set(int row, Object value)
+		{
+			_setNull(row, value == null);
+			if (value != null)
+				_set(row, value);
+		}
+
+		public boolean IsNull(int row)
+		{
+			return _nulls != null && _nulls[row];
+		}
+
+		public long GetLong(int row)
+		{
+			throw new IllegalArgumentException("La colonna non contiene valori interi");
+		}
+
+		public double GetDouble(int row)
+		{
+			throw new IllegalArgumentException("La colonna non contiene valori numerici");
+		}
+
+		public void Resize(int capacity)
+		{
+			_resize(capacity);
+			if (_nulls != null)
+				_nulls = Arrays.copyOf(_nulls, capacity);
+		}
+
+		public void Move(int from, int to, int length)
+		{
+			_move(from, to, length);
+			if (_nulls != null)
+				System.arraycopy(_nulls, from, _nulls, to, length);
+		}
+
+		public void Release(int from, int to)
+		{
+			_release(from, to);
+			if (_nulls != null)
+				Arrays.fill(_nulls, from, to, false);
+		}
+
+		public Column Copy()
+		{
+			Column copy = _copy();
+			copy._nulls = _nulls == null ? null : _nulls.clone();
+			return copy;
+		}
+
+		protected void _setNull(int row, boolean isNull)
+		{
+			if (_nulls == null)
+			{
+				if (!isNull)
+					return;
+				_nulls = new boolean[_capacity()];
+			}
+			_nulls[row] = isNull;
+		}
+
+		/** Capacità attuale degli array dei valori */
+		protected abstract int _capacity();
+	}
+
+	private static class IntColumn extends Column
+	{
+		private static final long serialVersionUID = 1L;
+		private int[] _values = new int[0];
+
+		@Override
+		public void Read(ResultSet rs, int position, int row) throws SQLException
+		{
+			_values[row] = rs.getInt(position);
+			_setNull(row, rs.wasNull());
+		}
+
+		@Override
+		public Object Get(int row)
+		{
+			return IsNull(row) ? null : Integer.valueOf(_values[row]);
+		}
+
+		@Override
+		protected void _set(int row, Object value)
+		{
+			_values[row] = ((Number)value).intValue();
+		}
+
+		@Override
+		public long GetLong(int row)
+		{
+			return IsNull(row) ? 0 : _values[row];
+		}
+
+		@Override
+		public double GetDouble(int row)
+		{
+			return GetLong(row);
+		}
+
+		@Override
+		protected void _resize(int capacity)
+		{
+			_values = Arrays.copyOf(_values, capacity);
+		}
+
+		@Override
+		protected void _move(int from, int to, int length)
+		{
+			System.arraycopy(_values, from, _values, to, length);
+		}
+
+		@Override
+		protected Column _copy()
+		{
+			IntColumn copy = new IntColumn();
+			copy._values = _values.clone();
+			return copy;
+		}
+
+		@Override
+		protected int _capacity()
+		{
+			return _values.length;
+		}
+	}
+
+	private static class LongColumn extends Column
+	{
+		private static final long serialVersionUID = 1L;
+		private long[] _values = new long[0];
+
+		@Override
+		public void Read(ResultSet rs, int position, int row) throws SQLException
+		{
+			_values[row] = rs.getLong(position);
+			_setNull(row, rs.wasNull());
+		}
+
+		@Override
+		public Object Get(int row)
+		{
+			return IsNull(row) ? null : Long.valueOf(_values[row]);
+		}
+
+		@Override
+		protected void _set(int row, Object value)
+		{
+			_values[row] = ((Number)value).longValue();
+		}
+
+		@Override
+		public long GetLong(int row)
+		{
+			return IsNull(row) ? 0 : _values[row];
+		}
+
+		@Override
+		public double GetDouble(int row)
+		{
+			return GetLong(row);
+		}
+
+		@Override
+		protected void _resize(int capacity)
+		{
+			_values = Arrays.copyOf(_values, capacity);
+		}
+
+		@Override
+		protected void _move(int from, int to, int length)
+		{
+			System.arraycopy(_values, from, _values, to, length);
+		}
+
+		@Override
+		protected Column _copy()
+		{
+			LongColumn copy = new LongColumn();
+			copy._values = _values.clone();
+			return copy;
+		}
+
+		@Override
+		protected int _capacity()
+		{
+			return _values.length;
+		}
+	}
+
+	private static class DoubleColumn extends Column
+	{
+		private static final long serialVersionUID = 1L;
+		private double[] _values = new double[0];
+
+		@Override
+		public void Read(ResultSet rs, int position, int row) throws SQLException
+		{
+			_values[row] = rs.getDouble(position);
+			_setNull(row, rs.wasNull());
+		}
+
+		@Override
+		public Object Get(int row)
+		{
+			return IsNull(row) ? null : Double.valueOf(_values[row]);
+		}
+
+		@Override
+		protected void _set(int row, Object value)
+		{
+			_values[row] = ((Number)value).doubleValue();
+		}
+
+		@Override
+		public double GetDouble(int row)
+		{
+			return IsNull(row) ? 0 : _values[row];
+		}
+
+		@Override
+		protected void _resize(int capacity)
+		{
+			_values = Arrays.copyOf(_values, capacity);
+		}
+
+		@Override
+		protected void _move(int from, int to, int length)
+		{
+			System.arraycopy(_values, from, _values, to, length);
+		}
+
+		@Override
+		protected Column _copy()
+		{
+			DoubleColumn copy = new DoubleColumn();
+			copy._values = _values.clone();
+			return copy;
+		}
+
+		@Override
+		protected int _capacity()
+		{
+			return _values.length;
+		}
+	}
+
+	private static class FloatColumn extends Column
+	{
+		private static final long serialVersionUID = 1L;
+		private float[] _values = new float[0];
+
+		@Override
+		public void Read(ResultSet rs, int position, int row) throws SQLException
+		{
+			_values[row] = rs.getFloat(position);
+			_setNull(row, rs.wasNull());
+		}
+
+		@Override
+		public Object Get(int row)
+		{
+			return IsNull(row) ? null : Float.valueOf(_values[row]);
+		}
+
+		@Override
+		protected void _set(int row, Object value)
+		{
+			_values[row] = ((Number)value).floatValue();
+		}
+
+		@Override
+		public double GetDouble(int row)
+		{
+			return IsNull(row) ? 0 : _values[row];
+		}
+
+		@Override
+		protected void _resize(int capacity)
+		{
+			_values = Arrays.copyOf(_values, capacity);
+		}
+
+		@Override
+		protected void _move(int from, int to, int length)
+		{
+			System.arraycopy(_values, from, _values, to, length);
+		}
+
+		@Override
+		protected Column _copy()
+		{
+			FloatColumn copy = new FloatColumn();
+			copy._values = _values.clone();
+			return copy;
+		}
+
+		@Override
+		protected int _capacity()
+		{
+			return _values.length;
+		}
+	}
+
+	private static class BooleanColumn extends Column
+	{
+		private static final long serialVersionUID = 1L;
+		private boolean[] _values = new boolean[0];
+
+		@Override
+		public void Read(ResultSet rs, int position, int row) throws SQLException
+		{
+			_values[row] = rs.getBoolean(position);
+			_setNull(row, rs.wasNull());
+		}
+
+		@Override
+		public Object Get(int row)
+		{
+			return IsNull(row) ? null : Boolean.valueOf(_values[row]);
+		}
+
+		@Override
+		protected void _set(int row, Object value)
+		{
+			_values[row] = ((Boolean)value).booleanValue();
+		}
+
+		@Override
+		protected void _resize(int capacity)
+		{
+			_values = Arrays.copyOf(_values, capacity);
+		}
+
+		@Override
+		protected void _move(int from, int to, int length)
+		{
+			System.arraycopy(_values, from, _values, to, length);
+		}
+
+		@Override
+		protected Column _copy()
+		{
+			BooleanColumn copy = new BooleanColumn();
+			copy._values = _values.clone();
+			return copy;
+		}
+
+		@Override
+		protected int _capacity()
+		{
+			return _values.length;
+		}
+	}
+
+	/**
+	 * BigDecimal memorizzati come valore non scalato e scala. I valori che non rientrano in un long o la cui scala non rientra in uno short
+	 * vengono conservati come oggetti in un array allocato soltanto al primo caso.
+	 */
+	private static class DecimalColumn extends Column
+	{
+		private static final long serialVersionUID = 1L;
+		private long[] _unscaled = new long[0];
+		private short[] _scales = new short[0];
+		private BigDecimal[] _overflow;
+
+		@Override
+		public void Read(ResultSet rs, int position, int row) throws SQLException
+		{
+			Set(row, rs.getBigDecimal(position));
+		}
+
+		@Override
+		public Object Get(int row)
+		{
+			if (IsNull(row))
+				return null;
+			if (_overflow != null && _overflow[row] != null)
+				return _overflow[row];
+			return BigDecimal.valueOf(_unscaled[row], _scales[row]);
+		}
+
+		@Override
+		protected void _set(int row, Object value)
+		{
+			BigDecimal decimal = (BigDecimal)value;
+			BigInteger unscaled = decimal.unscaledValue();
+			if (unscaled.bitLength() < 64 && decimal.scale() >= Short.MIN_VALUE && decimal.scale() <= Short.MAX_VALUE)
+			{
+				_unscaled[row] = unscaled.longValue();
+				_scales[row] = (short)decimal.scale();
+				if (_overflow != null)
+					_overflow[row] = null;
+			}
+			else
+			{
+				if (_overflow == null)
+					_overflow = new BigDecimal[_unscaled.length];
+				_overflow[row] = decimal;
+			}
+		}
+
+		@Override
+		public double GetDouble(int row)
+		{
+			if (IsNull(row))
+				return 0;
+			if (_overflow != null && _overflow[row] != null)
+				return _overflow[row].doubleValue();
+			//per le scale tipiche il calcolo evita di costruire il BigDecimal
+			int scale = _scales[row];
+			if (scale >= 0 && scale < 19)
+				return _unscaled[row] / Math.pow(10, scale);
+			return BigDecimal.valueOf(_unscaled[row], scale).doubleValue();
+		}
+
+		@Override
+		protected void _resize(int capacity)
+		{
+			_unscaled = Arrays.copyOf(_unscaled, capacity);
+			_scales = Arrays.copyOf(_scales, capacity);
+			if (_overflow != null)
+				_overflow = Arrays.copyOf(_overflow, capacity);
+		}
+
+		@Override
+		protected void _move(int from, int to, int length)
+		{
+			System.arraycopy(_unscaled, from, _unscaled, to, length);
+			System.arraycopy(_scales, from, _scales, to, length);
+			if (_overflow != null)
+				System.arraycopy(_overflow, from, _overflow, to, length);
+		}
+
+		@Override
+		protected void _release(int from, int to)
+		{
+			if (_overflow != null)
+				Arrays.fill(_overflow, from, to, null);
+		}
+
+		@Override
+		protected Column _copy()
+		{
+			DecimalColumn copy = new DecimalColumn();
+			copy._unscaled = _unscaled.clone();
+			copy._scales = _scales.clone();
+			copy._overflow = _overflow == null ? null : _overflow.clone();
+			return copy;
+		}
+
+		@Override
+		protected int _capacity()
+		{
+			return _unscaled.length;
+		}
+	}
+
+	/**
+	 * Stringhe codificate con un dizionario: ogni valore distinto è memorizzato una sola volta e le righe contengono il suo codice
+	 */
+	private static class StringColumn extends Column
+	{
+		private static final long serialVersionUID = 1L;
+		private int[] _codes = new int[0];
+		private ArrayList<String> _dictionary = new ArrayList<String>();
+		private HashMap<String, Integer> _index = new HashMap<String, Integer>();
+
+		@Override
+		public void Read(ResultSet rs, int position, int row) throws SQLException
+		{
+			Set(row, rs.getString(position));
+		}
+
+		@Override
+		public Object Get(int row)
+		{
+			return IsNull(row) ? null : _dictionary.get(_codes[row]);
+		}
+
+		@Override
+		protected void _set(int row, Object value)
+		{
+			String text = (String)value;
+			Integer code = _index.get(text);
+			if (code == null)
+			{
+				code = _dictionary.size();
+				_dictionary.add(text);
+				_index.put(text, code);
+			}
+			_codes[row] = code;
+		}
+
+		@Override
+		protected void _resize(int capacity)
+		{
+			_codes = Arrays.copyOf(_codes, capacity);
+		}
+
+		@Override
+		protected void _move(int from, int to, int length)
+		{
+			System.arraycopy(_codes, from, _codes, to, length);
+		}
+
+		@Override
+		protected Column _copy()
+		{
+			StringColumn copy = new StringColumn();
+			copy._codes = _codes.clone();
+			copy._dictionary = new ArrayList<String>(_dictionary);
+			copy._index = new HashMap<String, Integer>(_index);
+			return copy;
+		}
+
+		@Override
+		protected int _capacity()
+		{
+			return _codes.length;
+		}
+	}
+
+	/**
+	 * Date, Time e Timestamp memorizzati come millisecondi, più i nanosecondi per i Timestamp
+	 */
+	private static class DateColumn extends Column
+	{
+		private static final long serialVersionUID = 1L;
+		private final Class<?> _type;
+		private long[] _millis = new long[0];
+		private int[] _nanos;
+
+		public DateColumn(Class<?> type)
+		{
+			_type = type;
+			if (type == Timestamp.class)
+				_nanos = new int[0];
+		}
+
+		@Override
+		public void Read(ResultSet rs, int position, int row) throws SQLException
+		{
+			if (_type == Date.class)
+				Set(row, rs.getDate(position));
+			else if (_type == Time.class)
+				Set(row, rs.getTime(position));
+			else
+				Set(row, rs.getTimestamp(position));
+		}
+
+		@Override
+		public Object Get(int row)
+		{
+			if (IsNull(row))
+				return null;
+			if (_type == Date.class)
+				return new Date(_millis[row]);
+			if (_type == Time.class)
+				return new Time(_millis[row]);
+			Timestamp timestamp = new Timestamp(_millis[row]);
+			timestamp.setNanos(_nanos[row]);
+			return timestamp;
+		}
+
+		@Override
+		protected void _set(int row, Object value)
+		{
+			_millis[row] = ((java.util.Date)value).getTime();
+			if (_nanos != null)
+				_nanos[row] = ((Timestamp)value).getNanos();
+		}
+
+		@Override
+		public long GetLong(int row)
+		{
+			return IsNull(row) ? 0 : _millis[row];
+		}
+
+		@Override
+		protected void _resize(int capacity)
+		{
+			_millis = Arrays.copyOf(_millis, capacity);
+			if (_nanos != null)
+				_nanos = Arrays.copyOf(_nanos, capacity);
+		}
+
+		@Override
+		protected void _move(int from, int to, int length)
+		{
+			System.arraycopy(_millis, from, _millis, to, length);
+			if (_nanos != null)
+				System.arraycopy(_nanos, from, _nanos, to, length);
+		}
+
+		@Override
+		protected Column _copy()
+		{
+			DateColumn copy = new DateColumn(_type);
+			copy._millis = _millis.clone();
+			copy._nanos = _nanos == null ? null : _nanos.clone();
+			return copy;
+		}
+
+		@Override
+		protected int _capacity()
+		{
+			return _millis.length;
+		}
+	}
+
+	/**
+	 * Valori di tipi senza una rappresentazione primitiva (byte[], enum, java.time, BinaryLob, TextLob e altri oggetti), memorizzati come riferimenti
+	 */
+	private static class ObjectColumn extends Column
+	{
+		private static final long serialVersionUID = 1L;
+		private final Class<?> _type;
+		private Object[] _values = new Object[0];
+
+		public ObjectColumn(Class<?> type)
+		{
+			_type = type;
+		}
+
+		@Override
+		public void Read(ResultSet rs, int position, int row) throws SQLException
+		{
+			if (_type == byte[].class)
+				Set(row, rs.getBytes(position));
+			else if (_type == java.io.InputStream.class || _type == BinaryLob.class)
+				Set(row, BinaryLob.Spool(rs.getBinaryStream(position)));
+			else if (_type == java.io.Reader.class || _type == TextLob.class)
+				Set(row, TextLob.Spool(rs.getCharacterStream(position)));
+			else if (_type.isEnum() || SQLValueBinder.IsTemporal(_type))
+				Set(row, SQLValueBinder.FromSQLValue(_type, rs.getObject(position)));
+			else
+				Set(row, rs.getObject(position));
+		}
+
+		@Override
+		public Object Get(int row)
+		{
+			return _values[row];
+		}
+
+		@Override
+		public void Set(int row, Object value)
+		{
+			_values[row] = value;
+		}
+
+		@Override
+		public boolean IsNull(int row)
+		{
+			return _values[row] == null;
+		}
+
+		@Override
+		protected void _set(int row, Object value)
+		{
+			_values[row] = value;
+		}
+
+		@Override
+		protected void _resize(int capacity)
+		{
+			_values = Arrays.copyOf(_values, capacity);
+		}
+
+		@Override
+		protected void _move(int from, int to, int length)
+		{
+			System.arraycopy(_values, from, _values, to, length);
+		}
+
+		@Override
+		protected void _release(int from, int to)
+		{
+			Arrays.fill(_values, from, to, null);
+		}
+
+		@Override
+		protected Column _copy()
+		{
+			ObjectColumn copy = new ObjectColumn(_type);
+			copy._values = _values.clone();
+			return copy;
+		}
+
+		@Override
+		protected int _capacity()
+		{
+			return _values.length;
+		}
+	}
+}
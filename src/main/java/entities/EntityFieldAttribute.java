@@ -24,4 +24,10 @@ public @interface EntityFieldAttribute
 	
 	/** Tipo del parametro SQL. Viene preso in considerazione soltanto in caso di parametri di output */
 	public int SqlType() default -1;	
+	
+	/** Indica se il campo fa parte della chiave della entity. Di default non ne fa parte */
+	public boolean Key() default false;
+	
+	/** Indica se il campo contiene la versione della entity, usata dalla modalità SQL diretta per il controllo di concorrenza ottimistico. Di default non la contiene */
+	public boolean Version() default false;
 }
\ No newline at end of file
@@ -0,0 +1,343 @@
+package entities;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+import sql.BinaryLob;
+import sql.SQLFieldMetadata;
+import sql.SQLQuerableMetadata;
+import sql.SQLValueBinder;
+import sql.TextLob;
+
+/**
+ * Costruisce le entity a partire dalle righe di un ResultSet usando le annotazioni EntityFieldAttribute.
+ * Le informazioni sui campi sono calcolate una sola volta per classe, le posizioni delle colonne una sola volta per ResultSet,
+ * e i valori vengono letti con i getter tipizzati del ResultSet.
+ * @author amelani
+ *
+ * @param <TEntity> Tipo di entità derivata da BaseEntity
+ */
+public class EntityRowMapper<TEntity extends BaseEntity>
+{
+	private static final ConcurrentHashMap<Class<?>, EntityRowMapper<?>> _mappers = new ConcurrentHashMap<Class<?>, EntityRowMapper<?>>();
+
+	private static final int OBJECT = 0;
+	private static final int STRING = 1;
+	private static final int INT = 2;
+	private static final int INTEGER = 3;
+	private static final int LONG_PRIMITIVE = 4;
+	private static final int LONG = 5;
+	private static final int DOUBLE_PRIMITIVE = 6;
+	private static final int DOUBLE = 7;
+	private static final int FLOAT_PRIMITIVE = 8;
+	private static final int FLOAT = 9;
+	private static final int BOOLEAN_PRIMITIVE = 10;
+	private static final int BOOLEAN = 11;
+	private static final int BIGDECIMAL = 12;
+	private static final int DATE = 13;
+	private static final int TIME = 14;
+	private static final int TIMESTAMP = 15;
+	private static final int BYTES = 16;
+	private static final int CONVERTED = 17;
+	private static final int BINARY_LOB = 18;
+	private static final int TEXT_LOB = 19;
+
+	private final Constructor<TEntity> _constructor;
+	private final SQLFieldMetadata[] _fields;
+	private final String[] _columnNames;
+	private final int[] _readers;
+	private final boolean _hasLobFields;
+
+	/**
+	 * Restituisce il mapper di una classe di entity, creandolo alla prima richiesta
+	 * @param type Classe della entity
+	 * @return EntityRowMapper della classe
+	 */
+	@SuppressWarnings("unchecked")
+	public static <TEntity extends BaseEntity> EntityRowMapper<TEntity> Get(Class<TEntity> type)
+	{
+		EntityRowMapper<?> mapper = _mappers.get(type);
+		if (mapper == null)
+		{
+			mapper = new EntityRowMapper<TEntity>(type);
+			EntityRowMapper<?> existing = _mappers.putIfAbsent(type, mapper);
+			if (existing != null)
+				mapper = existing;
+		}
+		return (EntityRowMapper<TEntity>)mapper;
+	}
+
+	private EntityRowMapper(Class<TEntity> type)
+	{
+		Constructor<TEntity> constructor = null;
+		try
+		{
+			constructor = type.getDeclaredConstructor();
+			constructor.setAccessible(true);
+		}
+		catch (NoSuchMethodException exc)
+		{
+			//la classe non ha un costruttore senza parametri, si potrà soltanto valorizzare istanze già create
+		}
+		_constructor = constructor;
+
+		SQLQuerableMetadata metadata = SQLQuerableMetadata.Get(type);
+		int count = 0;
+		for (SQLFieldMetadata field : metadata.Fields)
+			if (field.ClassField.getAnnotation(EntityFieldAttribute.class) != null)
+				count++;
+		_fields = new SQLFieldMetadata[count];
+		_columnNames = new String[count];
+		_readers = new int[count];
+		int i = 0;
+		boolean hasLobFields = false;
+		for (SQLFieldMetadata field : metadata.Fields)
+			if (field.ClassField.getAnnotation(EntityFieldAttribute.class) != null)
+			{
+				_fields[i] = field;
+				_columnNames[i] = field.Name.toUpperCase(Locale.ROOT);
+				_readers[i] = _getReader(field.ClassField.getType());
+				hasLobFields |= _readers[i] == BINARY_LOB || _readers[i] == TEXT_LOB;
+				i++;
+			}
+		_hasLobFields = hasLobFields;
+	}
+
+	/**
+	 * Sceglie il getter del ResultSet da usare per un tipo di campo
+	 * @param fieldType Tipo del campo
+	 * @return Codice del getter
+	 */
+	private static int _getReader(Class<?> fieldType)
+	{
+		if (fieldType == String.class)
+			return STRING;
+		else if (fieldType == int.class)
+			return INT;
+		else if (fieldType == Integer.class)
+			return INTEGER;
+		else if (fieldType == long.class)
+			return LONG_PRIMITIVE;
+		else if (fieldType == Long.class)
+			return LONG;
+		else if (fieldType == double.class)
+			return DOUBLE_PRIMITIVE;
+		else if (fieldType == Double.class)
+			return DOUBLE;
+		else if (fieldType == float.class)
+			return FLOAT_PRIMITIVE;
+		else if (fieldType == Float.class)
+			return FLOAT;
+		else if (fieldType == boolean.class)
+			return BOOLEAN_PRIMITIVE;
+		else if (fieldType == Boolean.class)
+			return BOOLEAN;
+		else if (fieldType == BigDecimal.class)
+			return BIGDECIMAL;
+		else if (fieldType == Date.class)
+			return DATE;
+		else if (fieldType == Time.class)
+			return TIME;
+		else if (fieldType == Timestamp.class)
+			return TIMESTAMP;
+		else if (fieldType == byte[].class)
+			return BYTES;
+		else if (fieldType.isEnum() || SQLValueBinder.IsTemporal(fieldType))
+			return CONVERTED;
+		else if (fieldType == InputStream.class || fieldType == BinaryLob.class)
+			return BINARY_LOB;
+		else if (fieldType == Reader.class || fieldType == TextLob.class)
+			return TEXT_LOB;
+		return OBJECT;
+	}
+
+	/**
+	 * Calcola la posizione nel ResultSet della colonna di ogni campo annotato, leggendo i metadati del ResultSet
+	 * @param rs ResultSet da cui si leggeranno le entity
+	 * @return Array con la posizione della colonna di ogni campo, 0 per i campi senza colonna corrispondente
+	 * @throws SQLException In caso di errori nella lettura dei metadati del ResultSet
+	 */
+	public int[] ResolveColumns(ResultSet rs) throws SQLException
+	{
+		ResultSetMetaData rsMetadata = rs.getMetaData();
+		int columnCount = rsMetadata.getColumnCount();
+		HashMap<String, Integer> positions = new HashMap<String, Integer>(columnCount * 2);
+		for (int column = columnCount; column >= 1; column--)
+			positions.put(rsMetadata.getColumnLabel(column).toUpperCase(Locale.ROOT), column);
+		int[] columns = new int[_columnNames.length];
+		for (int i = 0; i < _columnNames.length; i++)
+		{
+			Integer position = positions.get(_columnNames[i]);
+			columns[i] = position == null ? 0 : position;
+		}
+		return columns;
+	}
+
+	/**
+	 * Campi annotati con EntityFieldAttribute, nell'ordine delle posizioni restituite da ResolveColumns. L'array non va modificato.
+	 * @return Campi mappati sulle colonne del ResultSet
+	 */
+	public SQLFieldMetadata[] GetFields()
+	{
+		return _fields;
+	}
+
+	/**
+	 * Indica se la entity ha campi LOB (InputStream, BinaryLob, Reader o TextLob), il cui contenuto può essere letto una sola volta
+	 * @return True se almeno un campo annotato è un LOB
+	 */
+	public boolean HasLobFields()
+	{
+		return _hasLobFields;
+	}
+
+	/**
+	 * Crea una nuova entity vuota con il costruttore senza parametri
+	 * @return TEntity con i campi non valorizzati
+	 * @throws InstantiationException Se la classe non ha un costruttore senza parametri o la sua esecuzione fallisce
+	 */
+	public TEntity NewInstance() throws InstantiationException
+	{
+		if (_constructor == null)
+			throw new InstantiationException("Costruttore senza parametri non disponibile");
+		try
+		{
+			return _constructor.newInstance();
+		}
+		catch (IllegalAccessException exc)
+		{
+			throw new InstantiationException(exc.getLocalizedMessage());
+		}
+		catch (InvocationTargetException exc)
+		{
+			throw new InstantiationException(exc.getCause().getLocalizedMessage());
+		}
+	}
+
+	/**
+	 * Crea una nuova entity con i valori della riga corrente del ResultSet
+	 * @param rs ResultSet posizionato sulla riga da leggere
+	 * @param columns Posizioni delle colonne calcolate con ResolveColumns sullo stesso ResultSet
+	 * @return TEntity popolata
+	 * @throws SQLException In caso di errori nella lettura del ResultSet
+	 * @throws InstantiationException Se la entity non può essere creata o valorizzata
+	 */
+	public TEntity MapRow(ResultSet rs, int[] columns) throws SQLException, InstantiationException
+	{
+		TEntity entity = NewInstance();
+		try
+		{
+			Fill(entity, rs, columns);
+		}
+		catch (IllegalAccessException exc)
+		{
+			throw new InstantiationException(exc.getLocalizedMessage());
+		}
+		return entity;
+	}
+
+	/**
+	 * Valorizza i campi annotati di una entity con i valori della riga corrente del ResultSet. I campi senza colonna corrispondente vengono impostati a null, tranne quelli di tipo primitivo che restano invariati.
+	 * @param entity Entity da valorizzare
+	 * @param rs ResultSet posizionato sulla riga da leggere
+	 * @param columns Posizioni delle colonne calcolate con ResolveColumns sullo stesso ResultSet
+	 * @throws SQLException In caso di errori nella lettura del ResultSet
+	 * @throws IllegalAccessException Se un campo della classe non è accessibile
+	 */
+	public void Fill(TEntity entity, ResultSet rs, int[] columns) throws SQLException, IllegalAccessException
+	{
+		for (int i = 0; i < _fields.length; i++)
+		{
+			Field field = _fields[i].ClassField;
+			int column = columns[i];
+			if (column == 0)
+			{
+				if (!field.getType().isPrimitive())
+					field.set(entity, null);
+				continue;
+			}
+			switch (_readers[i])
+			{
+				case STRING:
+					field.set(entity, rs.getString(column));
+					break;
+				case INT:
+					field.setInt(entity, rs.getInt(column));
+					break;
+				case INTEGER:
+					int intValue = rs.getInt(column);
+					field.set(entity, rs.wasNull() ? null : Integer.valueOf(intValue));
+					break;
+				case LONG_PRIMITIVE:
+					field.setLong(entity, rs.getLong(column));
+					break;
+				case LONG:
+					long longValue = rs.getLong(column);
+					field.set(entity, rs.wasNull() ? null : Long.valueOf(longValue));
+					break;
+				case DOUBLE_PRIMITIVE:
+					field.setDouble(entity, rs.getDouble(column));
+					break;
+				case DOUBLE:
+					double doubleValue = rs.getDouble(column);
+					field.set(entity, rs.wasNull() ? null : Double.valueOf(doubleValue));
+					break;
+				case FLOAT_PRIMITIVE:
+					field.setFloat(entity, rs.getFloat(column));
+					break;
+				case FLOAT:
+					float floatValue = rs.getFloat(column);
+					field.set(entity, rs.wasNull() ? null : Float.valueOf(floatValue));
+					break;
+				case BOOLEAN_PRIMITIVE:
+					field.setBoolean(entity, rs.getBoolean(column));
+					break;
+				case BOOLEAN:
+					boolean booleanValue = rs.getBoolean(column);
+					field.set(entity, rs.wasNull() ? null : Boolean.valueOf(booleanValue));
+					break;
+				case BIGDECIMAL:
+					field.set(entity, rs.getBigDecimal(column));
+					break;
+				case DATE:
+					field.set(entity, rs.getDate(column));
+					break;
+				case TIME:
+					field.set(entity, rs.getTime(column));
+					break;
+				case TIMESTAMP:
+					field.set(entity, rs.getTimestamp(column));
+					break;
+				case BYTES:
+					field.set(entity, rs.getBytes(column));
+					break;
+				case CONVERTED:
+					field.set(entity, SQLValueBinder.FromSQLValue(field.getType(), rs.getObject(column)));
+					break;
+				case BINARY_LOB:
+					//il contenuto viene letto a blocchi, senza materializzare il BLOB in un unico array
+					field.set(entity, BinaryLob.Spool(rs.getBinaryStream(column)));
+					break;
+				case TEXT_LOB:
+					field.set(entity, TextLob.Spool(rs.getCharacterStream(column)));
+					break;
+				default:
+					field.set(entity, rs.getObject(column));
+					break;
+			}
+		}
+	}
+}
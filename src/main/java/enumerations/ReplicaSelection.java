@@ -0,0 +1,10 @@
+package enumerations;
+
+/** Criterio con cui scegliere la replica a cui inviare una lettura */
+public enum ReplicaSelection 
+{
+	/** Le repliche vengono usate a turno */
+	ROUND_ROBIN,
+	/** Viene usata la replica con meno connessioni in uso */
+	LEAST_BUSY
+}
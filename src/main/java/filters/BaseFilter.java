@@ -1,11 +1,10 @@
 package filters;
 
-import java.lang.reflect.Field;
-import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 
 import sql.SQLParameter;
 import sql.SQLQuerable;
+import sql.SQLQuerableMetadata;
 import entities.BaseEntity;
 
 /**
@@ -16,6 +15,12 @@ import entities.BaseEntity;
  */
 public abstract class BaseFilter<TEntity extends BaseEntity> implements SQLQuerable
 {
+	/** Numero massimo di entity restituite da List ed ExecuteSelection: se maggiore di zero la selezione è paginata per chiave. Non viene passato alla procedura come campo del filtro */
+	public int PageSize;
+	
+	/** Token di continuazione restituito in DBResponse.ContinuationToken dalla pagina precedente, null per la prima pagina */
+	public String ContinuationToken;
+	
 	/**
 	 * Restituisce un ArrayList di parametri SQL recuperati dai valori delle proprietà della classe
 	 * @return ArrayList<SQLParameters> con i parametri SQL
@@ -25,27 +30,7 @@ public abstract class BaseFilter<TEntity extends BaseEntity> implements SQLQuera
 	@Override
 	public ArrayList<SQLParameter> GetParameters() throws IllegalArgumentException, IllegalAccessException
 	{
-		ArrayList<SQLParameter> params = new ArrayList<SQLParameter>();
-		
-		//recupero tutti i campi della classe (anche se considereremo soltanto quelli pubblici)
-		Field[] fields = this.getClass().getFields();
-		for (Field currentField : fields)
-		{
-			FilterFieldAttribute attributes = currentField.getAnnotation(FilterFieldAttribute.class);
-			if (Modifier.isPublic(currentField.getModifiers()) && attributes != null)
-			{
-				//il campo è pubblico ed è annotato, lo posso considerare come parametro SQL
-				String name = attributes.Name().trim().equals("") ? currentField.getName() : attributes.Name().trim();
-				int sqlType = attributes.SqlType();
-				SQLParameter theParam = null;
-				if (sqlType != -1)
-					theParam = new SQLParameter(name, currentField.get(this), sqlType, attributes.Direction());
-				else
-					theParam = new SQLParameter(name, currentField.get(this), attributes.Direction());
-				params.add(theParam);
-			}
-		}
-		
-		return params.size() == 0 ? null : params;
+		//i campi pubblici annotati vengono letti una sola volta per classe
+		return SQLQuerableMetadata.Get(this.getClass()).GetParameters(this);
 	}	
 }
\ No newline at end of file
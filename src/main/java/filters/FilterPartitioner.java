@@ -0,0 +1,78 @@
+package filters;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.util.List;
+
+import entities.BaseEntity;
+
+/**
+ * Regola di suddivisione di un filtro in più filtri, ciascuno dei quali seleziona una parte disgiunta delle righe, da eseguire in parallelo con BaseJDBCManager.ExecuteSelectionParallel.
+ * Le partizioni sono copie del filtro originale in cui la regola valorizza i campi che la procedura usa per restringere la selezione.
+ * @author amelani
+ *
+ */
+public abstract class FilterPartitioner
+{
+	/**
+	 * Suddivide un filtro in partizioni
+	 * @param filter Filtro da suddividere, che non viene modificato
+	 * @return Filtri delle partizioni, nell'ordine in cui vanno uniti i risultati
+	 * @throws InstantiationException Se non è possibile creare le copie del filtro
+	 * @throws IllegalAccessException Se un campo del filtro non è accessibile
+	 */
+	public abstract <TEntity extends BaseEntity> List<BaseFilter<TEntity>> Partition(BaseFilter<TEntity> filter) throws InstantiationException, IllegalAccessException;
+
+	/**
+	 * Crea una copia di un filtro con gli stessi valori dei campi pubblici. La copia non è paginata.
+	 * @param filter Filtro da copiare
+	 * @return Copia del filtro
+	 * @throws InstantiationException Se la classe del filtro non ha un costruttore senza parametri
+	 * @throws IllegalAccessException Se un campo del filtro non è accessibile
+	 */
+	@SuppressWarnings("unchecked")
+	protected static <TEntity extends BaseEntity> BaseFilter<TEntity> Copy(BaseFilter<TEntity> filter) throws InstantiationException, IllegalAccessException
+	{
+		BaseFilter<TEntity> copy = filter.getClass().newInstance();
+		for (Field field : filter.getClass().getFields())
+		{
+			int modifiers = field.getModifiers();
+			if (!Modifier.isStatic(modifiers) && !Modifier.isFinal(modifiers))
+				field.set(copy, field.get(filter));
+		}
+		copy.PageSize = 0;
+		copy.ContinuationToken = null;
+		return copy;
+	}
+
+	/**
+	 * Scrive un valore numerico in un campo pubblico di un filtro, convertendolo nel tipo del campo
+	 * @param filter Filtro da valorizzare
+	 * @param fieldName Nome del campo Java
+	 * @param value Valore da scrivere
+	 * @throws IllegalAccessException Se il campo non è accessibile
+	 * @throws IllegalArgumentException Se il campo non esiste o non è di un tipo numerico gestito
+	 */
+	protected static void SetNumber(Object filter, String fieldName, long value) throws IllegalAccessException
+	{
+		Field field;
+		try
+		{
+			field = filter.getClass().getField(fieldName);
+		}
+		catch (NoSuchFieldException exc)
+		{
+			throw new IllegalArgumentException("Il filtro " + filter.getClass().getName() + " non ha il campo pubblico " + fieldName);
+		}
+		Class<?> type = field.getType();
+		if (type == Long.class || type == long.class)
+			field.set(filter, Long.valueOf(value));
+		else if (type == Integer.class || type == int.class)
+			field.set(filter, Integer.valueOf((int)value));
+		else if (type == BigDecimal.class)
+			field.set(filter, BigDecimal.valueOf(value));
+		else
+			throw new IllegalArgumentException("Il campo " + fieldName + " del filtro " + filter.getClass().getName() + " non è di tipo numerico");
+	}
+}
@@ -0,0 +1,49 @@
+package filters;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import entities.BaseEntity;
+
+/**
+ * Suddivide un filtro in un numero fisso di bucket: la partizione i-esima ha il campo del bucket valorizzato con i e, se indicato, il campo del numero di bucket con il totale.
+ * La procedura deve selezionare soltanto le righe del bucket ricevuto, ad esempio con MOD(ORA_HASH(ID), :BUCKETS) = :BUCKET.
+ * @author amelani
+ *
+ */
+public class HashBucketPartitioner extends FilterPartitioner
+{
+	private final String _bucketField;
+	private final String _bucketCountField;
+	private final int _buckets;
+
+	/**
+	 * Costruttore
+	 * @param bucketField Nome del campo del filtro che riceve il numero del bucket, da 0 a buckets - 1
+	 * @param bucketCountField Nome del campo del filtro che riceve il numero di bucket, null se la procedura non lo richiede
+	 * @param buckets Numero di bucket
+	 */
+	public HashBucketPartitioner(String bucketField, String bucketCountField, int buckets)
+	{
+		if (buckets < 1)
+			throw new IllegalArgumentException("Numero di bucket non valido: " + buckets);
+		_bucketField = bucketField;
+		_bucketCountField = bucketCountField;
+		_buckets = buckets;
+	}
+
+	@Override
+	public <TEntity extends BaseEntity> List<BaseFilter<TEntity>> Partition(BaseFilter<TEntity> filter) throws InstantiationException, IllegalAccessException
+	{
+		ArrayList<BaseFilter<TEntity>> partitions = new ArrayList<BaseFilter<TEntity>>(_buckets);
+		for (int bucket = 0; bucket < _buckets; bucket++)
+		{
+			BaseFilter<TEntity> partition = Copy(filter);
+			SetNumber(partition, _bucketField, bucket);
+			if (_bucketCountField != null)
+				SetNumber(partition, _bucketCountField, _buckets);
+			partitions.add(partition);
+		}
+		return partitions;
+	}
+}
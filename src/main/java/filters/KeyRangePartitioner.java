@@ -0,0 +1,61 @@
+package filters;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import entities.BaseEntity;
+
+/**
+ * Suddivide un filtro in intervalli contigui di una chiave numerica: ogni partizione ha i campi del limite inferiore e superiore (entrambi inclusi) valorizzati con il proprio intervallo.
+ * La procedura deve selezionare soltanto le righe con chiave compresa fra i due limiti, ad esempio con ID BETWEEN :MIN_ID AND :MAX_ID.
+ * @author amelani
+ *
+ */
+public class KeyRangePartitioner extends FilterPartitioner
+{
+	private final String _lowerField;
+	private final String _upperField;
+	private final long _min;
+	private final long _max;
+	private final int _partitions;
+
+	/**
+	 * Costruttore
+	 * @param lowerField Nome del campo del filtro che riceve il limite inferiore dell'intervallo
+	 * @param upperField Nome del campo del filtro che riceve il limite superiore dell'intervallo
+	 * @param min Valore minimo della chiave
+	 * @param max Valore massimo della chiave
+	 * @param partitions Numero massimo di partizioni; se l'intervallo è più piccolo ne vengono create di meno
+	 */
+	public KeyRangePartitioner(String lowerField, String upperField, long min, long max, int partitions)
+	{
+		if (partitions < 1 || max < min)
+			throw new IllegalArgumentException("Intervallo di partizionamento non valido: " + min + "-" + max + " in " + partitions + " partizioni");
+		_lowerField = lowerField;
+		_upperField = upperField;
+		_min = min;
+		_max = max;
+		_partitions = partitions;
+	}
+
+	@Override
+	public <TEntity extends BaseEntity> List<BaseFilter<TEntity>> Partition(BaseFilter<TEntity> filter) throws InstantiationException, IllegalAccessException
+	{
+		//l'ampiezza è calcolata in double per non andare in overflow con intervalli vicini ai limiti di long
+		double width = ((double)_max - _min + 1) / _partitions;
+		ArrayList<BaseFilter<TEntity>> partitions = new ArrayList<BaseFilter<TEntity>>(_partitions);
+		long lower = _min;
+		for (int i = 0; i < _partitions && lower <= _max; i++)
+		{
+			long upper = i == _partitions - 1 ? _max : Math.min(_max, Math.max(lower, _min + (long)Math.ceil(width * (i + 1)) - 1));
+			BaseFilter<TEntity> partition = Copy(filter);
+			SetNumber(partition, _lowerField, lower);
+			SetNumber(partition, _upperField, upper);
+			partitions.add(partition);
+			if (upper == _max)
+				break;
+			lower = upper + 1;
+		}
+		return partitions;
+	}
+}
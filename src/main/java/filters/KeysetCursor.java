@@ -0,0 +1,138 @@
+package filters;
+
+import java.io.UnsupportedEncodingException;
+import java.math.BigDecimal;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+
+import sql.SQLFieldMetadata;
+
+/**
+ * Codifica e decodifica il token di continuazione della paginazione per chiave: il token contiene i valori dei campi chiave dell'ultima entity della pagina,
+ * separati da virgole e codificati come in un URL, così che possa essere restituito ai client e rimandato indietro come stringa.
+ * I valori vengono riconvertiti nel tipo dei campi chiave della entity, quindi il token non contiene informazioni sui tipi.
+ * @author amelani
+ *
+ */
+public class KeysetCursor
+{
+	private static final String ENCODING = "UTF-8";
+	private static final String NULL = "~";
+
+	private KeysetCursor()
+	{
+	}
+
+	/**
+	 * Costruisce il token di continuazione dai campi chiave di una entity
+	 * @param keyFields Campi chiave della entity
+	 * @param entity Ultima entity della pagina
+	 * @return Token di continuazione
+	 * @throws IllegalAccessException Se un campo chiave non è accessibile
+	 */
+	public static String Encode(SQLFieldMetadata[] keyFields, Object entity) throws IllegalAccessException
+	{
+		StringBuilder token = new StringBuilder();
+		for (int i = 0; i < keyFields.length; i++)
+		{
+			if (i > 0)
+				token.append(',');
+			token.append(_encodeValue(keyFields[i].GetValue(entity)));
+		}
+		return token.toString();
+	}
+
+	/**
+	 * Ricava dal token di continuazione i valori dei campi chiave, convertiti nel tipo dei campi
+	 * @param keyFields Campi chiave della entity
+	 * @param token Token di continuazione restituito dalla pagina precedente
+	 * @return Valori dei campi chiave, nello stesso ordine di keyFields
+	 * @throws IllegalArgumentException Se il token non corrisponde ai campi chiave della entity
+	 */
+	public static Object[] Decode(SQLFieldMetadata[] keyFields, String token)
+	{
+		String[] parts = token.split(",", -1);
+		if (parts.length != keyFields.length)
+			throw new IllegalArgumentException("Token di continuazione non valido: attesi " + keyFields.length + " valori, trovati " + parts.length);
+		Object[] values = new Object[keyFields.length];
+		for (int i = 0; i < keyFields.length; i++)
+			values[i] = _decodeValue(keyFields[i].ClassField.getType(), parts[i]);
+		return values;
+	}
+
+	private static String _encodeValue(Object value)
+	{
+		if (value == null)
+			return NULL;
+		String text;
+		if (value instanceof Timestamp)
+			text = ((Timestamp)value).getTime() + ":" + ((Timestamp)value).getNanos();
+		else if (value instanceof java.util.Date)
+			text = Long.toString(((java.util.Date)value).getTime());
+		else
+			text = value.toString();
+		try
+		{
+			return URLEncoder.encode(text, ENCODING);
+		}
+		catch (UnsupportedEncodingException exc)
+		{
+			throw new IllegalStateException(exc);
+		}
+	}
+
+	private static Object _decodeValue(Class<?> type, String part)
+	{
+		if (part.equals(NULL))
+			return null;
+		String text;
+		try
+		{
+			text = URLDecoder.decode(part, ENCODING);
+		}
+		catch (UnsupportedEncodingException exc)
+		{
+			throw new IllegalStateException(exc);
+		}
+		try
+		{
+			if (type == String.class)
+				return text;
+			else if (type == Long.class || type == long.class)
+				return Long.valueOf(text);
+			else if (type == Integer.class || type == int.class)
+				return Integer.valueOf(text);
+			else if (type == Short.class || type == short.class)
+				return Short.valueOf(text);
+			else if (type == BigDecimal.class)
+				return new BigDecimal(text);
+			else if (type == Double.class || type == double.class)
+				return Double.valueOf(text);
+			else if (type == Float.class || type == float.class)
+				return Float.valueOf(text);
+			else if (type == Boolean.class || type == boolean.class)
+				return Boolean.valueOf(text);
+			else if (type == Timestamp.class)
+			{
+				int separator = text.indexOf(':');
+				Timestamp timestamp = new Timestamp(Long.parseLong(text.substring(0, separator)));
+				timestamp.setNanos(Integer.parseInt(text.substring(separator + 1)));
+				return timestamp;
+			}
+			else if (type == Date.class)
+				return new Date(Long.parseLong(text));
+			else if (type == Time.class)
+				return new Time(Long.parseLong(text));
+			else if (type == java.util.Date.class)
+				return new java.util.Date(Long.parseLong(text));
+		}
+		catch (RuntimeException exc)
+		{
+			throw new IllegalArgumentException("Token di continuazione non valido: " + text, exc);
+		}
+		throw new IllegalArgumentException("Tipo di campo chiave non gestito dalla paginazione: " + type.getName());
+	}
+}
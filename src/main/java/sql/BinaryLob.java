@@ -0,0 +1,227 @@
+package sql;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.sql.SQLException;
+
+/**
+ * Contenuto binario di lunghezza nota, per i campi BLOB delle entity dichiarati come InputStream o BinaryLob.
+ * <p>
+ * In lettura il contenuto della colonna viene copiato in memoria fino a GetMemoryThreshold() byte e oltre in un file temporaneo,
+ * così che resti leggibile dopo la chiusura della connessione senza occupare memoria in proporzione alla sua dimensione.
+ * In scrittura viene passato al driver con setBinaryStream e la sua lunghezza, senza caricarlo in memoria.
+ * Lo stream può essere letto una sola volta. Il file temporaneo viene aperto alla prima lettura ed eliminato alla chiusura o, se lo stream non viene chiuso, dopo che il garbage collector lo ha raccolto.
+ * @author amelani
+ *
+ */
+public class BinaryLob extends InputStream
+{
+	private static volatile int _memoryThreshold = 1024 * 1024;
+
+	private InputStream _source;
+	private final long _length;
+	private final SpoolFile _file;
+	private boolean _closed;
+
+	/**
+	 * Costruisce un contenuto a partire da un array di byte
+	 * @param content Contenuto
+	 */
+	public BinaryLob(byte[] content)
+	{
+		this(new ByteArrayInputStream(content), content.length, null);
+	}
+
+	/**
+	 * Costruisce un contenuto da scrivere leggendolo da uno stream, ad esempio un file, senza caricarlo in memoria
+	 * @param source Stream da cui leggere il contenuto, viene chiuso con il BinaryLob
+	 * @param length Numero di byte che verranno letti dallo stream
+	 */
+	public BinaryLob(InputStream source, long length)
+	{
+		this(source, length, null);
+	}
+
+	private BinaryLob(InputStream source, long length, File file)
+	{
+		_source = source;
+		_length = length;
+		_file = file == null ? null : SpoolFile.Track(this, file);
+	}
+
+	/**
+	 * Soglia oltre la quale i contenuti letti dal database vengono copiati in un file temporaneo invece che in memoria
+	 * @return Numero di byte
+	 */
+	public static int GetMemoryThreshold()
+	{
+		return _memoryThreshold;
+	}
+
+	/**
+	 * Imposta la soglia oltre la quale i contenuti letti dal database vengono copiati in un file temporaneo. Vale per tutte le letture successive.
+	 * @param memoryThreshold Numero di byte, 0 per copiare sempre in un file
+	 */
+	public static void SetMemoryThreshold(int memoryThreshold)
+	{
+		_memoryThreshold = memoryThreshold;
+	}
+
+	/**
+	 * Copia uno stream letto dal database, come quello di ResultSet.getBinaryStream, in memoria o in un file temporaneo secondo la sua dimensione
+	 * @param source Stream da copiare, viene chiuso al termine
+	 * @return BinaryLob con il contenuto dello stream, null se source è null
+	 * @throws SQLException In caso di errori nella lettura dello stream o nella scrittura del file temporaneo
+	 */
+	public static BinaryLob Spool(InputStream source) throws SQLException
+	{
+		if (source == null)
+			return null;
+		try
+		{
+			byte[] buffer = new byte[8192];
+			ByteArrayOutputStream memory = new ByteArrayOutputStream();
+			int read;
+			while ((read = source.read(buffer)) != -1)
+			{
+				memory.write(buffer, 0, read);
+				if (memory.size() > _memoryThreshold)
+					return _spoolToFile(memory, source, buffer);
+			}
+			return new BinaryLob(memory.toByteArray());
+		}
+		catch (IOException exc)
+		{
+			throw new SQLException("Errore nella lettura del contenuto binario: " + exc.getLocalizedMessage(), exc);
+		}
+		finally
+		{
+			try
+			{
+				source.close();
+			}
+			catch (IOException exc)
+			{
+				//lo stream del driver è già stato letto per intero
+			}
+		}
+	}
+
+	private static BinaryLob _spoolToFile(ByteArrayOutputStream memory, InputStream source, byte[] buffer) throws IOException
+	{
+		File file = File.createTempFile("mel8fw-lob", ".bin");
+		boolean spooled = false;
+		try
+		{
+			long length = memory.size();
+			OutputStream out = new FileOutputStream(file);
+			try
+			{
+				memory.writeTo(out);
+				int read;
+				while ((read = source.read(buffer)) != -1)
+				{
+					out.write(buffer, 0, read);
+					length += read;
+				}
+			}
+			finally
+			{
+				out.close();
+			}
+			//il file viene aperto alla prima lettura: i contenuti non letti non occupano descrittori
+			BinaryLob lob = new BinaryLob(null, length, file);
+			spooled = true;
+			return lob;
+		}
+		finally
+		{
+			if (!spooled)
+				file.delete();
+		}
+	}
+
+	/**
+	 * Restituisce la lunghezza del contenuto
+	 * @return Numero di byte
+	 */
+	public long GetLength()
+	{
+		return _length;
+	}
+
+	/**
+	 * Indica se il contenuto è stato copiato in un file temporaneo
+	 * @return True se il contenuto non è in memoria
+	 */
+	public boolean IsSpooled()
+	{
+		return _file != null;
+	}
+
+	@Override
+	public int read() throws IOException
+	{
+		return _open().read();
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException
+	{
+		return _open().read(b, off, len);
+	}
+
+	@Override
+	public long skip(long n) throws IOException
+	{
+		return _open().skip(n);
+	}
+
+	@Override
+	public int available() throws IOException
+	{
+		return _open().available();
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		_closed = true;
+		try
+		{
+			if (_source != null)
+				_source.close();
+		}
+		finally
+		{
+			if (_file != null)
+				_file.Delete();
+		}
+	}
+
+	/**
+	 * Restituisce la sorgente del contenuto, aprendo il file temporaneo alla prima lettura
+	 */
+	private InputStream _open() throws IOException
+	{
+		if (_source == null)
+		{
+			if (_closed)
+				throw new IOException("Il contenuto è già stato chiuso");
+			_source = new FileInputStream(_file.File);
+		}
+		return _source;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "BinaryLob [Length=" + _length + ", Spooled=" + IsSpooled() + "]";
+	}
+}
@@ -1,5 +1,10 @@
 package sql;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.TreeMap;
+
 import entities.BaseEntity;
 import entities.BaseEntityList;
 
@@ -8,4 +13,25 @@ public class DBResponse<TEntity extends BaseEntity, TEntityList extends BaseEnti
 	public boolean Success;
 	public String Message;
 	public TEntityList Data;
+	
+	/** Numero di righe lette nelle selezioni in streaming */
+	public long Rows;
+	
+	/** Numero di righe aggiornate per ogni entity della lista nelle operazioni a batch. Statement.EXECUTE_FAILED per le entity non salvate */
+	public int[] UpdateCounts;
+	
+	/** Posizioni nella lista delle entity la cui esecuzione è fallita nelle operazioni a batch */
+	public ArrayList<Integer> FailedRows;
+	
+	/** Numero di entity non inviate al database da Save perché non modificate dal caricamento */
+	public int Skipped;
+	
+	/** Token da impostare in BaseFilter.ContinuationToken per leggere la pagina successiva di una selezione paginata. Null se la pagina è l'ultima */
+	public String ContinuationToken;
+	
+	/** Errori delle partizioni fallite nelle selezioni parallele, indicizzati per posizione della partizione. Vuoto se tutte le partizioni sono state lette */
+	public TreeMap<Integer, String> PartitionErrors;
+	
+	/** Entity trovate dalle letture multiple, indicizzate per valori dei parametri di ingresso del filtro che le ha richieste. Le chiavi non trovate non sono presenti */
+	public LinkedHashMap<List<Object>, TEntity> EntitiesByKey;
 }
@@ -0,0 +1,334 @@
+package sql;
+
+import java.sql.CallableStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import entities.EntityAttribute;
+
+/**
+ * Istruzioni SQL parametrizzate generate dalle annotazioni di una classe entity, per la modalità SQL diretta di BaseJDBCManager.
+ * La tabella è EntityAttribute.Name (o il nome della classe) e le colonne sono i nomi dei campi annotati con EntityFieldAttribute, chiave e versione comprese; la direzione dei campi viene ignorata.
+ * Le istruzioni vengono generate una sola volta per classe, quelle di selezione e cancellazione per filtro una sola volta per classe del filtro e combinazione di campi null.
+ * Ogni istruzione è accompagnata dai campi da cui leggere i valori dei suoi parametri, nell'ordine in cui vanno scritti; quelle per filtro si valorizzano con BindFilter.
+ * @author amelani
+ *
+ */
+public class EntitySQL
+{
+	private static final ConcurrentHashMap<Class<?>, EntitySQL> _registry = new ConcurrentHashMap<Class<?>, EntitySQL>();
+
+	/** Classe entity a cui si riferiscono le istruzioni */
+	public final Class<?> Type;
+
+	/** Nome della tabella */
+	public final String Table;
+
+	/** Campo che contiene la versione della entity, null se la classe non ne ha */
+	public final SQLFieldMetadata VersionField;
+
+	/** INSERT di tutte le colonne. La colonna di versione, se presente, viene inserita con valore 1 */
+	public final String Insert;
+
+	/** Campi dei parametri di Insert */
+	public final SQLFieldMetadata[] InsertFields;
+
+	/** UPDATE per chiave delle colonne non chiave. Se la entity ha un campo di versione la incrementa e aggiorna la riga soltanto se la versione è quella letta */
+	public final String Update;
+
+	/** Campi dei parametri di Update: le colonne aggiornate, la chiave e l'eventuale versione */
+	public final SQLFieldMetadata[] UpdateFields;
+
+	/** DELETE per chiave, ristretta alla versione letta se la entity ha un campo di versione */
+	public final String Delete;
+
+	/** Campi dei parametri di Delete: la chiave e l'eventuale versione */
+	public final SQLFieldMetadata[] DeleteFields;
+
+	/** MERGE per chiave di tutte le colonne, con sorgente da DUAL nella sintassi Oracle. Null se la entity ha un campo di versione, che richiede di distinguere inserimenti e conflitti */
+	public final String Merge;
+
+	/** Campi dei parametri di Merge */
+	public final SQLFieldMetadata[] MergeFields;
+
+	private final SQLFieldMetadata[] _columns;
+	private final String _columnList;
+	/** SELECT e DELETE per filtro, per classe del filtro e insieme dei campi null */
+	private final ConcurrentHashMap<List<Object>, String> _selects = new ConcurrentHashMap<List<Object>, String>();
+	private final ConcurrentHashMap<List<Object>, String> _deletes = new ConcurrentHashMap<List<Object>, String>();
+	/** Testi delle istruzioni per filtro generate, da valorizzare con BindFilter */
+	private final Set<String> _filterStatements = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+	/**
+	 * Restituisce le istruzioni di una classe entity, generandole alla prima richiesta
+	 * @param type Classe entity
+	 * @return EntitySQL della classe
+	 * @throws IllegalArgumentException Se la classe non è annotata con EntityAttribute, non ha campi chiave o ha un campo di versione non intero
+	 */
+	public static EntitySQL Get(Class<?> type)
+	{
+		EntitySQL entitySQL = _registry.get(type);
+		if (entitySQL == null)
+		{
+			entitySQL = new EntitySQL(type);
+			EntitySQL existing = _registry.putIfAbsent(type, entitySQL);
+			if (existing != null)
+				entitySQL = existing;
+		}
+		return entitySQL;
+	}
+
+	private EntitySQL(Class<?> type)
+	{
+		EntityAttribute entityAttribute = type.getAnnotation(EntityAttribute.class);
+		if (entityAttribute == null)
+			throw new IllegalArgumentException("La classe " + type.getName() + " non è annotata con EntityAttribute");
+		SQLQuerableMetadata metadata = SQLQuerableMetadata.Get(type);
+		if (metadata.KeyFields.length == 0)
+			throw new IllegalArgumentException("La modalità SQL diretta richiede almeno un campo chiave nella entity " + type.getName());
+		SQLFieldMetadata versionField = metadata.VersionField;
+		if (versionField != null && !_isVersionType(versionField.ClassField.getType()))
+			throw new IllegalArgumentException("Il campo di versione " + versionField.ClassField.getName() + " della entity " + type.getName() + " deve essere int, Integer, long o Long");
+		this.Type = type;
+		this.Table = entityAttribute.Name().trim().equals("") ? type.getSimpleName() : entityAttribute.Name().trim();
+		this.VersionField = versionField;
+		this._columns = metadata.Fields;
+
+		ArrayList<SQLFieldMetadata> values = new ArrayList<SQLFieldMetadata>();
+		ArrayList<SQLFieldMetadata> keys = new ArrayList<SQLFieldMetadata>();
+		StringBuilder columnList = new StringBuilder();
+		for (SQLFieldMetadata column : _columns)
+		{
+			if (columnList.length() > 0)
+				columnList.append(", ");
+			columnList.append(column.Name);
+			if (column.Key)
+				keys.add(column);
+			else if (!column.Version)
+				values.add(column);
+		}
+		this._columnList = columnList.toString();
+
+		//INSERT
+		StringBuilder insert = new StringBuilder("INSERT INTO ").append(Table).append(" (").append(_columnList).append(") VALUES (");
+		ArrayList<SQLFieldMetadata> insertFields = new ArrayList<SQLFieldMetadata>();
+		for (int i = 0; i < _columns.length; i++)
+		{
+			if (i > 0)
+				insert.append(", ");
+			if (_columns[i].Version)
+				insert.append("1");
+			else
+			{
+				insert.append("?");
+				insertFields.add(_columns[i]);
+			}
+		}
+		this.Insert = insert.append(")").toString();
+		this.InsertFields = insertFields.toArray(new SQLFieldMetadata[insertFields.size()]);
+
+		//UPDATE: senza colonne da aggiornare assegno la prima colonna chiave a se stessa, così il numero di righe aggiornate indica comunque se la riga esiste
+		StringBuilder update = new StringBuilder("UPDATE ").append(Table).append(" SET ");
+		ArrayList<SQLFieldMetadata> updateFields = new ArrayList<SQLFieldMetadata>(values);
+		for (int i = 0; i < values.size(); i++)
+			update.append(i > 0 ? ", " : "").append(values.get(i).Name).append(" = ?");
+		if (versionField != null)
+			update.append(values.isEmpty() ? "" : ", ").append(versionField.Name).append(" = ").append(versionField.Name).append(" + 1");
+		else if (values.isEmpty())
+			update.append(keys.get(0).Name).append(" = ").append(keys.get(0).Name);
+		ArrayList<SQLFieldMetadata> conditionFields = new ArrayList<SQLFieldMetadata>(keys);
+		if (versionField != null)
+			conditionFields.add(versionField);
+		String condition = _condition(conditionFields);
+		updateFields.addAll(conditionFields);
+		this.Update = update.append(" WHERE ").append(condition).toString();
+		this.UpdateFields = updateFields.toArray(new SQLFieldMetadata[updateFields.size()]);
+
+		//DELETE
+		this.Delete = "DELETE FROM " + Table + " WHERE " + condition;
+		this.DeleteFields = conditionFields.toArray(new SQLFieldMetadata[conditionFields.size()]);
+
+		//MERGE
+		if (versionField != null)
+		{
+			this.Merge = null;
+			this.MergeFields = null;
+		}
+		else
+		{
+			StringBuilder merge = new StringBuilder("MERGE INTO ").append(Table).append(" D USING (SELECT ");
+			StringBuilder insertValues = new StringBuilder();
+			for (int i = 0; i < _columns.length; i++)
+			{
+				merge.append(i > 0 ? ", " : "").append("? AS ").append(_columns[i].Name);
+				insertValues.append(i > 0 ? ", " : "").append("S.").append(_columns[i].Name);
+			}
+			merge.append(" FROM DUAL) S ON (");
+			for (int i = 0; i < keys.size(); i++)
+				merge.append(i > 0 ? " AND " : "").append("D.").append(keys.get(i).Name).append(" = S.").append(keys.get(i).Name);
+			merge.append(")");
+			if (!values.isEmpty())
+			{
+				merge.append(" WHEN MATCHED THEN UPDATE SET ");
+				for (int i = 0; i < values.size(); i++)
+					merge.append(i > 0 ? ", " : "").append("D.").append(values.get(i).Name).append(" = S.").append(values.get(i).Name);
+			}
+			merge.append(" WHEN NOT MATCHED THEN INSERT (").append(_columnList).append(") VALUES (").append(insertValues).append(")");
+			this.Merge = merge.toString();
+			this.MergeFields = _columns;
+		}
+	}
+
+	/**
+	 * Restituisce la SELECT delle entity che corrispondono ad un filtro.
+	 * Ogni campo di ingresso del filtro valorizzato viene confrontato con la colonna con lo stesso nome; i campi null non restringono la selezione.
+	 * L'istruzione viene generata una sola volta per ogni combinazione di campi null e ha un parametro per ogni campo valorizzato, da scrivere con BindFilter.
+	 * @param filter Filtro della selezione
+	 * @return Testo della SELECT
+	 * @throws IllegalArgumentException Se il filtro ridefinisce GetParameters o ha campi di uscita
+	 * @throws IllegalAccessException Se un campo del filtro non è accessibile
+	 */
+	public String Select(Object filter) throws IllegalAccessException
+	{
+		List<Object> key = _filterKey(filter);
+		String select = _selects.get(key);
+		if (select == null)
+		{
+			select = "SELECT " + _columnList + " FROM " + Table + _filterCondition(filter.getClass(), (BitSet)key.get(1));
+			_filterStatements.add(select);
+			_selects.putIfAbsent(key, select);
+		}
+		return select;
+	}
+
+	/**
+	 * Restituisce la DELETE delle righe che corrispondono ad un filtro, con le stesse condizioni di Select. Un filtro senza campi valorizzati viene rifiutato, invece di cancellare tutte le righe.
+	 * @param filter Filtro della cancellazione
+	 * @return Testo della DELETE
+	 * @throws IllegalArgumentException Se il filtro ridefinisce GetParameters, ha campi di uscita o non ha nessun campo valorizzato
+	 * @throws IllegalAccessException Se un campo del filtro non è accessibile
+	 */
+	public String DeleteWhere(Object filter) throws IllegalAccessException
+	{
+		List<Object> key = _filterKey(filter);
+		String delete = _deletes.get(key);
+		if (delete == null)
+		{
+			String condition = _filterCondition(filter.getClass(), (BitSet)key.get(1));
+			if (condition.length() == 0)
+				throw new IllegalArgumentException("Il filtro " + filter.getClass().getName() + " non ha campi valorizzati: la cancellazione di tutte le righe di " + Table + " non è consentita");
+			delete = "DELETE FROM " + Table + condition;
+			_filterStatements.add(delete);
+			_deletes.putIfAbsent(key, delete);
+		}
+		return delete;
+	}
+
+	/**
+	 * Indica se un'istruzione è una SELECT o una DELETE per filtro generata da questa classe, i cui parametri vanno scritti con BindFilter
+	 * @param sql Testo dell'istruzione
+	 * @return True per le istruzioni restituite da Select e DeleteWhere
+	 */
+	public boolean IsFilterStatement(String sql)
+	{
+		return _filterStatements.contains(sql);
+	}
+
+	/**
+	 * Scrive per posizione i parametri di un'istruzione restituita da Select o DeleteWhere: i valori dei campi del filtro non null, nell'ordine dei campi
+	 * @param stmt CallableStatement dell'istruzione
+	 * @param filter Filtro con cui è stata generata l'istruzione
+	 * @throws SQLException In caso di errori nella scrittura dei parametri
+	 * @throws IllegalAccessException Se un campo del filtro non è accessibile
+	 */
+	public void BindFilter(CallableStatement stmt, Object filter) throws SQLException, IllegalAccessException
+	{
+		int index = 0;
+		for (SQLFieldMetadata field : SQLQuerableMetadata.Get(filter.getClass()).Fields)
+			if (field.GetValue(filter) != null)
+				field.BindValue(stmt, ++index, filter);
+	}
+
+	/**
+	 * Indica se una entity non è mai stata salvata, cioè se il suo campo di versione è null o zero
+	 * @param target Entity da controllare
+	 * @return True se la entity non ha ancora una versione, false se ce l'ha o se la classe non ha un campo di versione
+	 * @throws IllegalAccessException Se il campo di versione non è accessibile
+	 */
+	public boolean IsNew(Object target) throws IllegalAccessException
+	{
+		if (VersionField == null)
+			return false;
+		Object version = VersionField.GetValue(target);
+		return version == null || ((Number)version).longValue() == 0;
+	}
+
+	/**
+	 * Scrive la versione salvata sul database nel campo di versione di una entity: 1 dopo l'inserimento, la versione precedente più uno dopo l'aggiornamento
+	 * @param target Entity salvata
+	 * @param inserted True se la entity è stata inserita, false se è stata aggiornata
+	 * @throws IllegalAccessException Se il campo di versione non è accessibile
+	 */
+	public void AdvanceVersion(Object target, boolean inserted) throws IllegalAccessException
+	{
+		if (VersionField == null)
+			return;
+		Object version = VersionField.GetValue(target);
+		long next = inserted || version == null ? 1 : ((Number)version).longValue() + 1;
+		Class<?> versionType = VersionField.ClassField.getType();
+		if (versionType == int.class || versionType == Integer.class)
+			VersionField.SetValue(target, Integer.valueOf((int)next));
+		else
+			VersionField.SetValue(target, Long.valueOf(next));
+	}
+
+	/**
+	 * Chiave delle istruzioni di un filtro: la sua classe e l'insieme delle posizioni dei campi null
+	 */
+	private static List<Object> _filterKey(Object filter) throws IllegalAccessException
+	{
+		SQLQuerableMetadata metadata = SQLQuerableMetadata.Get(filter.getClass());
+		if (metadata.CustomParameters || metadata.HasOutputFields)
+			throw new IllegalArgumentException("Il filtro " + filter.getClass().getName() + " ridefinisce GetParameters o ha campi di uscita: non è utilizzabile nella modalità SQL diretta");
+		BitSet nulls = new BitSet(metadata.Fields.length);
+		for (int i = 0; i < metadata.Fields.length; i++)
+			if (metadata.Fields[i].GetValue(filter) == null)
+				nulls.set(i);
+		return Arrays.<Object>asList(filter.getClass(), nulls);
+	}
+
+	/**
+	 * Costruisce la condizione WHERE di una classe di filtro, con un confronto per ogni campo non null
+	 * @param filterType Classe del filtro
+	 * @param nulls Posizioni dei campi null, che non restringono la selezione
+	 * @return Condizione preceduta da WHERE, stringa vuota se il filtro non ha campi valorizzati
+	 */
+	private static String _filterCondition(Class<?> filterType, BitSet nulls)
+	{
+		SQLFieldMetadata[] fields = SQLQuerableMetadata.Get(filterType).Fields;
+		StringBuilder condition = new StringBuilder();
+		for (int i = 0; i < fields.length; i++)
+			if (!nulls.get(i))
+				condition.append(condition.length() == 0 ? " WHERE " : " AND ").append(fields[i].Name).append(" = ?");
+		return condition.toString();
+	}
+
+	private static String _condition(ArrayList<SQLFieldMetadata> fields)
+	{
+		StringBuilder condition = new StringBuilder();
+		for (int i = 0; i < fields.size(); i++)
+			condition.append(i > 0 ? " AND " : "").append(fields.get(i).Name).append(" = ?");
+		return condition.toString();
+	}
+
+	private static boolean _isVersionType(Class<?> type)
+	{
+		return type == int.class || type == Integer.class || type == long.class || type == Long.class;
+	}
+}
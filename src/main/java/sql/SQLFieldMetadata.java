@@ -0,0 +1,215 @@
+package sql;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.sql.CallableStatement;
+import java.sql.SQLException;
+
+import enumerations.ParameterDirection;
+
+/**
+ * Informazioni, calcolate una sola volta, sulla mappatura di un campo di una classe su un parametro SQL
+ * @author amelani
+ *
+ */
+public class SQLFieldMetadata 
+{
+	/** Campo della classe */
+	public final Field ClassField;
+	
+	/** Nome del parametro SQL, già risolto dall'annotazione o dal nome del campo */
+	public final String Name;
+	
+	/** Tipo SQL indicato nell'annotazione o ricavato dal tipo del campo. -1 se va ricavato dal valore */
+	public final int SqlType;
+	
+	/** Direzione del parametro */
+	public final ParameterDirection Direction;
+	
+	/** Indica se il campo fa parte della chiave della entity */
+	public final boolean Key;
+	
+	/** Indica se il campo contiene la versione della entity */
+	public final boolean Version;
+	
+	/** Setter e getter del CallableStatement da usare per il parametro, scelti dal tipo del campo (vedi SQLValueBinder.GetWriter) */
+	private final int _writer;
+	
+	/** Valore da scrivere nel campo quando il parametro di uscita è NULL: il valore di default per i tipi primitivi, altrimenti null */
+	private final Object _nullValue;
+	
+	/**
+	 * Costruttore, che rende accessibile il campo per evitare i controlli di accesso ad ogni lettura
+	 * @param classField Campo della classe
+	 * @param name Nome del parametro SQL
+	 * @param sqlType Tipo SQL del parametro, -1 se va ricavato dal valore
+	 * @param direction Direzione del parametro
+	 * @param key Indica se il campo fa parte della chiave della entity
+	 */
+	public SQLFieldMetadata(Field classField, String name, int sqlType, ParameterDirection direction, boolean key)
+	{
+		this(classField, name, sqlType, direction, key, false);
+	}
+	
+	/**
+	 * Costruttore, che rende accessibile il campo per evitare i controlli di accesso ad ogni lettura
+	 * @param classField Campo della classe
+	 * @param name Nome del parametro SQL
+	 * @param sqlType Tipo SQL del parametro, -1 se va ricavato dal valore
+	 * @param direction Direzione del parametro
+	 * @param key Indica se il campo fa parte della chiave della entity
+	 * @param version Indica se il campo contiene la versione della entity
+	 */
+	public SQLFieldMetadata(Field classField, String name, int sqlType, ParameterDirection direction, boolean key, boolean version)
+	{
+		this.ClassField = classField;
+		this.ClassField.setAccessible(true);
+		this.Name = name;
+		this.SqlType = sqlType;
+		this.Direction = direction;
+		this.Key = key;
+		this.Version = version;
+		this._writer = SQLValueBinder.GetWriter(classField.getType());
+		this._nullValue = classField.getType().isPrimitive() ? Array.get(Array.newInstance(classField.getType(), 1), 0) : null;
+	}
+	
+	/**
+	 * Indica se il parametro va valorizzato prima dell'esecuzione
+	 * @return True per i parametri IN e INOUT
+	 */
+	public boolean IsInput()
+	{
+		return Direction == ParameterDirection.IN || Direction == ParameterDirection.INOUT;
+	}
+	
+	/**
+	 * Indica se il parametro va registrato come parametro di uscita
+	 * @return True per i parametri OUT e INOUT
+	 */
+	public boolean IsOutput()
+	{
+		return Direction == ParameterDirection.OUT || Direction == ParameterDirection.INOUT;
+	}
+	
+	/**
+	 * Legge il valore del campo da un oggetto
+	 * @param target Oggetto da cui leggere il valore
+	 * @return Valore del campo
+	 * @throws IllegalAccessException Se il campo della classe non è accessibile
+	 */
+	public Object GetValue(Object target) throws IllegalAccessException
+	{
+		return ClassField.get(target);
+	}
+	
+	/**
+	 * Scrive il valore del campo su un oggetto
+	 * @param target Oggetto su cui scrivere il valore
+	 * @param value Valore da scrivere
+	 * @throws IllegalAccessException Se il campo della classe non è accessibile
+	 */
+	public void SetValue(Object target, Object value) throws IllegalAccessException
+	{
+		ClassField.set(target, value);
+	}
+	
+	/**
+	 * Scrive il valore del campo di un oggetto nel parametro con lo stesso nome di un CallableStatement, con il setter tipizzato scelto dal tipo del campo,
+	 * e registra il parametro come parametro di uscita se il campo è OUT o INOUT
+	 * @param stmt CallableStatement su cui scrivere il parametro
+	 * @param target Oggetto da cui leggere il valore
+	 * @throws SQLException In caso di errori nella scrittura del parametro
+	 * @throws IllegalAccessException Se il campo della classe non è accessibile
+	 */
+	public void Bind(CallableStatement stmt, Object target) throws SQLException, IllegalAccessException
+	{
+		_bind(stmt, Name, 0, target);
+	}
+	
+	/**
+	 * Come Bind, ma scrive il parametro per posizione invece che per nome
+	 * @param stmt CallableStatement su cui scrivere il parametro
+	 * @param index Posizione del parametro, a partire da 1
+	 * @param target Oggetto da cui leggere il valore
+	 * @throws SQLException In caso di errori nella scrittura del parametro
+	 * @throws IllegalAccessException Se il campo della classe non è accessibile
+	 */
+	public void Bind(CallableStatement stmt, int index, Object target) throws SQLException, IllegalAccessException
+	{
+		_bind(stmt, null, index, target);
+	}
+	
+	/**
+	 * Scrive il valore del campo di un oggetto nel parametro di ingresso di un CallableStatement, per posizione e qualunque sia la direzione del campo
+	 * @param stmt CallableStatement su cui scrivere il parametro
+	 * @param index Posizione del parametro, a partire da 1
+	 * @param target Oggetto da cui leggere il valore
+	 * @throws SQLException In caso di errori nella scrittura del parametro
+	 * @throws IllegalAccessException Se il campo della classe non è accessibile
+	 */
+	public void BindValue(CallableStatement stmt, int index, Object target) throws SQLException, IllegalAccessException
+	{
+		SQLValueBinder.SetParameter(stmt, null, index, _writer, SqlType, GetValue(target));
+	}
+	
+	private void _bind(CallableStatement stmt, String name, int index, Object target) throws SQLException, IllegalAccessException
+	{
+		Object value = GetValue(target);
+		if (IsInput())
+			SQLValueBinder.SetParameter(stmt, name, index, _writer, SqlType, value);
+		if (IsOutput())
+		{
+			//se il tipo del campo non basta a ricavare il tipo SQL, lo ricavo dal valore come in SQLParameter
+			int outputType = SQLValueBinder.ResolveType(SqlType, value);
+			if (name != null)
+				stmt.registerOutParameter(name, outputType);
+			else
+				stmt.registerOutParameter(index, outputType);
+		}
+	}
+	
+	/**
+	 * Copia su un oggetto il valore del parametro di uscita di un CallableStatement già eseguito, letto con il getter adatto al tipo del campo (vedi SQLValueBinder.GetParameter)
+	 * @param stmt CallableStatement eseguito, su cui il parametro è stato registrato come OUT o INOUT
+	 * @param target Oggetto su cui scrivere il valore
+	 * @throws SQLException In caso di errori nella lettura del parametro
+	 * @throws IllegalAccessException Se il campo della classe non è accessibile
+	 */
+	public void ReadOutput(CallableStatement stmt, Object target) throws SQLException, IllegalAccessException
+	{
+		_readOutput(stmt, Name, 0, target);
+	}
+	
+	/**
+	 * Come ReadOutput, ma legge il parametro per posizione invece che per nome
+	 * @param stmt CallableStatement eseguito, su cui il parametro è stato registrato come OUT o INOUT
+	 * @param index Posizione del parametro, a partire da 1
+	 * @param target Oggetto su cui scrivere il valore
+	 * @throws SQLException In caso di errori nella lettura del parametro
+	 * @throws IllegalAccessException Se il campo della classe non è accessibile
+	 */
+	public void ReadOutput(CallableStatement stmt, int index, Object target) throws SQLException, IllegalAccessException
+	{
+		_readOutput(stmt, null, index, target);
+	}
+	
+	private void _readOutput(CallableStatement stmt, String name, int index, Object target) throws SQLException, IllegalAccessException
+	{
+		Object value = SQLValueBinder.GetParameter(stmt, name, index, _writer, ClassField.getType());
+		ClassField.set(target, value != null ? value : _nullValue);
+	}
+	
+	/**
+	 * Costruisce il parametro SQL con il valore del campo letto da un oggetto
+	 * @param target Oggetto da cui leggere il valore
+	 * @return SQLParameter valorizzato
+	 * @throws IllegalAccessException Se il campo della classe non è accessibile
+	 */
+	public SQLParameter ToParameter(Object target) throws IllegalAccessException
+	{
+		Object value = GetValue(target);
+		if (SqlType != -1)
+			return new SQLParameter(Name, value, SqlType, Direction);
+		return new SQLParameter(Name, value, Direction);
+	}
+}
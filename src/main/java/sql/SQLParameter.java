@@ -1,5 +1,7 @@
 package sql;
 
+import java.io.InputStream;
+import java.io.Reader;
 import java.sql.Date;
 import java.sql.Time;
 import java.sql.Timestamp;
@@ -28,14 +30,17 @@ public class SQLParameter
 	public ParameterDirection Direction;
 	
 	/**
-	 * Restituisce il tipo SQL a seconda del tipo assunto dall'oggetto. I tipi SQL presi in considerazione sono: VARCHAR, DECIMAL, BIT, INTEGER, BIGINT, REAL, FLOAT, VARBINARY, DATE, TIME, TIMESTAMP.
-	 * @param fieldType Tipo dell'oggetto
-	 * @return Tipo SQL su cui si rimappa l'oggetto.
+	 * Restituisce il tipo SQL a seconda del tipo assunto dall'oggetto. I tipi SQL presi in considerazione sono: VARCHAR, DECIMAL, BIT, INTEGER, SMALLINT, BIGINT, REAL, FLOAT, VARBINARY, DATE, TIME, TIMESTAMP, BLOB, CLOB.
+	 * Le enum si rimappano su VARCHAR, java.util.Date su TIMESTAMP, i tipi di java.time sul tipo di data corrispondente, gli InputStream su BLOB e i Reader su CLOB.
+	 * @param fieldType Tipo dell'oggetto, null se il valore è null
+	 * @return Tipo SQL su cui si rimappa l'oggetto, -1 se non è ricavabile
 	 */
 	private static int _getSQLTypeFromValue(Class<?> fieldType)
 	{
 		int sqlType = -1;
-		if (fieldType == String.class)
+		if (fieldType == null)
+			return sqlType;
+		if (fieldType == String.class || fieldType.isEnum())
 			sqlType = Types.VARCHAR;
 		else if (fieldType == BigDecimal.class )
 			sqlType = Types.DECIMAL;
@@ -45,40 +50,65 @@ public class SQLParameter
 			sqlType = Types.INTEGER;
 		else if (fieldType == Long.class || fieldType == long.class)
 			sqlType = Types.BIGINT;
+		else if (fieldType == Short.class || fieldType == short.class)
+			sqlType = Types.SMALLINT;
 		else if (fieldType == Float.class || fieldType == float.class)
 			sqlType = Types.REAL;
 		else if (fieldType == Double.class || fieldType == double.class)
 			sqlType = Types.FLOAT;
-		else if (fieldType == byte.class)
+		else if (fieldType == byte[].class)
 			sqlType = Types.VARBINARY;
 		else if (fieldType == Date.class)
 			sqlType = Types.DATE;
 		else if (fieldType == Time.class)
 			sqlType = Types.TIME;
-		else if (fieldType == Timestamp.class)
+		else if (fieldType == Timestamp.class || fieldType == java.util.Date.class)
 			sqlType = Types.TIMESTAMP;
+		else if (SQLValueBinder.IsTemporal(fieldType))
+		{
+			if (fieldType.getName().equals("java.time.LocalDate"))
+				sqlType = Types.DATE;
+			else if (fieldType.getName().equals("java.time.LocalTime"))
+				sqlType = Types.TIME;
+			else
+				sqlType = Types.TIMESTAMP;
+		}
+		else if (InputStream.class.isAssignableFrom(fieldType))
+			sqlType = Types.BLOB;
+		else if (Reader.class.isAssignableFrom(fieldType))
+			sqlType = Types.CLOB;
 		return sqlType;
 	}
 	
+	/**
+	 * Restituisce il tipo SQL su cui si rimappa un tipo Java, secondo le stesse regole usate per ricavare il tipo dal valore
+	 * @param fieldType Tipo Java
+	 * @return Tipo SQL su cui si rimappa il tipo, -1 se non è fra quelli gestiti
+	 */
+	public static int GetSQLType(Class<?> fieldType)
+	{
+		return _getSQLTypeFromValue(fieldType);
+	}
+	
 	/**
 	 * Costruttore, che costuisce un SQLParameter con direzione IN specificandone nome e valore. Il tipo SQL verrà scelto automaticamente.
 	 * @param name Nome del parametro
-	 * @param value Valore del parametro
+	 * @param value Valore del parametro, può essere null (il tipo SQL resta sconosciuto e il parametro viene scritto come VARCHAR nullo)
 	 */
 	public SQLParameter(String name, Object value)
 	{
-		this(name, value, _getSQLTypeFromValue(value.getClass()));
+		this(name, value, _getSQLTypeFromValue(value == null ? null : value.getClass()));
 	}
 	
 	/**
 	 * Costruttore, che costruisce un SQLParameter specificandone nome, valore e direzione. Il tipo SQL verrà scelto automaticamente.
 	 * @param name Nome del parametro
-	 * @param value Valore del parametro
+	 * @param value Valore del parametro, può essere null
 	 * @param direction Direzione del parametro
 	 */
 	public SQLParameter(String name, Object value, ParameterDirection direction)
 	{
-		this(name, value, _getSQLTypeFromValue(value.getClass()), direction);
+		this(name, value, _getSQLTypeFromValue(value == null ? null : value.getClass()), direction);
 	}
 	
 	/**
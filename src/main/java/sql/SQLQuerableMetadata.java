@@ -0,0 +1,256 @@
+package sql;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import entities.BaseEntity;
+import entities.EntityAttribute;
+import entities.EntityFieldAttribute;
+import enumerations.ParameterDirection;
+import filters.BaseFilter;
+import filters.FilterFieldAttribute;
+
+/**
+ * Registro delle informazioni di mappatura delle classi SQLQuerable. Le annotazioni di ogni classe vengono lette una sola volta, alla prima richiesta.
+ * @author amelani
+ *
+ */
+public class SQLQuerableMetadata 
+{
+	private static final ConcurrentHashMap<Class<?>, SQLQuerableMetadata> _registry = new ConcurrentHashMap<Class<?>, SQLQuerableMetadata>();
+	
+	/** Classe a cui si riferiscono le informazioni */
+	public final Class<?> Type;
+	
+	/** Indica se la classe è mappata sulla base di dati (entity con EntityAttribute o filtro) e quindi ha parametri da passare alle procedure */
+	public final boolean Mapped;
+	
+	/** Indica se la classe ridefinisce GetParameters e quindi i parametri vanno sempre chiesti all'oggetto */
+	public final boolean CustomParameters;
+	
+	/** Indica se almeno un campo è un parametro di OUT o INOUT */
+	public final boolean HasOutputFields;
+	
+	/** Campi pubblici annotati, nell'ordine di dichiarazione a partire da quelli della superclasse più lontana */
+	public final SQLFieldMetadata[] Fields;
+	
+	/** Campi che fanno parte della chiave della entity, nello stesso ordine di Fields */
+	public final SQLFieldMetadata[] KeyFields;
+	
+	/** Campi che sono parametri di OUT o INOUT, nello stesso ordine di Fields */
+	public final SQLFieldMetadata[] OutputFields;
+	
+	/** Campo che contiene la versione della entity, null se la classe non ne ha */
+	public final SQLFieldMetadata VersionField;
+	
+	private final HashMap<String, SQLFieldMetadata> _fieldsByName = new HashMap<String, SQLFieldMetadata>();
+	
+	/**
+	 * Restituisce le informazioni di mappatura di una classe, calcolandole alla prima richiesta
+	 * @param type Classe di cui si vogliono le informazioni
+	 * @return SQLQuerableMetadata della classe
+	 */
+	public static SQLQuerableMetadata Get(Class<?> type)
+	{
+		SQLQuerableMetadata metadata = _registry.get(type);
+		if (metadata == null)
+		{
+			metadata = new SQLQuerableMetadata(type);
+			SQLQuerableMetadata existing = _registry.putIfAbsent(type, metadata);
+			if (existing != null)
+				metadata = existing;
+		}
+		return metadata;
+	}
+	
+	private SQLQuerableMetadata(Class<?> type)
+	{
+		this.Type = type;
+		this.Mapped = type.getAnnotation(EntityAttribute.class) != null || BaseFilter.class.isAssignableFrom(type);
+		this.CustomParameters = _overridesGetParameters(type);
+		
+		ArrayList<SQLFieldMetadata> fields = new ArrayList<SQLFieldMetadata>();
+		ArrayList<SQLFieldMetadata> keyFields = new ArrayList<SQLFieldMetadata>();
+		ArrayList<SQLFieldMetadata> outputFields = new ArrayList<SQLFieldMetadata>();
+		SQLFieldMetadata versionField = null;
+		for (Field currentField : _publicFields(type))
+		{
+			SQLFieldMetadata fieldMetadata = null;
+			EntityFieldAttribute entityAttributes = currentField.getAnnotation(EntityFieldAttribute.class);
+			if (entityAttributes != null)
+				fieldMetadata = _createField(currentField, entityAttributes.Name(), entityAttributes.SqlType(), entityAttributes.Direction(), entityAttributes.Key(), entityAttributes.Version());
+			else
+			{
+				FilterFieldAttribute filterAttributes = currentField.getAnnotation(FilterFieldAttribute.class);
+				if (filterAttributes != null)
+					fieldMetadata = _createField(currentField, filterAttributes.Name(), filterAttributes.SqlType(), filterAttributes.Direction(), false, false);
+			}
+			if (fieldMetadata != null)
+			{
+				fields.add(fieldMetadata);
+				if (fieldMetadata.Key)
+					keyFields.add(fieldMetadata);
+				if (fieldMetadata.IsOutput())
+					outputFields.add(fieldMetadata);
+				if (fieldMetadata.Version)
+				{
+					if (versionField != null)
+						throw new IllegalArgumentException("La classe " + type.getName() + " ha più di un campo di versione");
+					versionField = fieldMetadata;
+				}
+				_fieldsByName.put(fieldMetadata.Name, fieldMetadata);
+			}
+		}
+		this.Fields = fields.toArray(new SQLFieldMetadata[fields.size()]);
+		this.KeyFields = keyFields.toArray(new SQLFieldMetadata[keyFields.size()]);
+		this.OutputFields = outputFields.toArray(new SQLFieldMetadata[outputFields.size()]);
+		this.HasOutputFields = !outputFields.isEmpty();
+		this.VersionField = versionField;
+	}
+	
+	/**
+	 * Restituisce i campi pubblici di una classe nell'ordine di dichiarazione, a partire da quelli della superclasse più lontana.
+	 * L'ordine di getFields() non è definito (in pratica i campi della sottoclasse precedono quelli ereditati), mentre le posizioni dei parametri devono seguire la dichiarazione.
+	 * @param type Classe di cui si vogliono i campi
+	 * @return Campi pubblici della classe e delle sue superclassi
+	 */
+	private static ArrayList<Field> _publicFields(Class<?> type)
+	{
+		ArrayList<Class<?>> hierarchy = new ArrayList<Class<?>>();
+		for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass())
+			hierarchy.add(0, current);
+		ArrayList<Field> fields = new ArrayList<Field>();
+		for (Class<?> current : hierarchy)
+			for (Field currentField : current.getDeclaredFields())
+				if (Modifier.isPublic(currentField.getModifiers()))
+					fields.add(currentField);
+		return fields;
+	}
+	
+	/**
+	 * Crea le informazioni di un campo risolvendo nome e tipo SQL
+	 * @param classField Campo della classe
+	 * @param annotatedName Nome indicato nell'annotazione
+	 * @param sqlType Tipo SQL indicato nell'annotazione
+	 * @param direction Direzione del parametro
+	 * @param key Indica se il campo fa parte della chiave della entity
+	 * @param version Indica se il campo contiene la versione della entity
+	 * @return SQLFieldMetadata del campo
+	 */
+	private static SQLFieldMetadata _createField(Field classField, String annotatedName, int sqlType, ParameterDirection direction, boolean key, boolean version)
+	{
+		String name = annotatedName.trim().equals("") ? classField.getName() : annotatedName.trim();
+		if (sqlType == -1)
+			sqlType = SQLParameter.GetSQLType(classField.getType());
+		return new SQLFieldMetadata(classField, name, sqlType, direction, key, version);
+	}
+	
+	/**
+	 * Verifica se una classe ridefinisce GetParameters rispetto all'implementazione di BaseEntity o BaseFilter
+	 * @param type Classe da verificare
+	 * @return True se GetParameters è ridefinito, false altrimenti
+	 */
+	private static boolean _overridesGetParameters(Class<?> type)
+	{
+		try
+		{
+			Class<?> declaringClass = type.getMethod("GetParameters").getDeclaringClass();
+			return declaringClass != BaseEntity.class && declaringClass != BaseFilter.class;
+		}
+		catch (NoSuchMethodException exc)
+		{
+			return false;
+		}
+	}
+	
+	/**
+	 * Restituisce le informazioni del campo mappato su un parametro SQL
+	 * @param name Nome del parametro SQL
+	 * @return SQLFieldMetadata del campo, null se nessun campo è mappato sul parametro
+	 */
+	public SQLFieldMetadata GetField(String name)
+	{
+		return _fieldsByName.get(name);
+	}
+	
+	/**
+	 * Restituisce i valori dei parametri di ingresso di un oggetto, utilizzabili come chiave per riconoscere chiamate con gli stessi parametri
+	 * @param target Oggetto da cui leggere i valori
+	 * @return Lista con la classe dell'oggetto seguita da nome e valore dei parametri IN e INOUT
+	 * @throws IllegalAccessException Se un campo della classe non è accessibile
+	 */
+	public ArrayList<Object> GetInputValues(SQLQuerable target) throws IllegalAccessException
+	{
+		ArrayList<Object> values = new ArrayList<Object>(Fields.length * 2 + 1);
+		values.add(Type);
+		if (CustomParameters)
+		{
+			ArrayList<SQLParameter> params = target.GetParameters();
+			if (params != null)
+				for (SQLParameter param : params)
+					if (param.Direction != ParameterDirection.OUT)
+					{
+						values.add(param.Name);
+						values.add(param.Value);
+					}
+		}
+		else
+			for (SQLFieldMetadata field : Fields)
+				if (field.IsInput())
+				{
+					values.add(field.Name);
+					values.add(field.GetValue(target));
+				}
+		return values;
+	}
+	
+	/**
+	 * Restituisce i soli valori dei parametri di ingresso di un oggetto, nell'ordine dei parametri: per un filtro sulla chiave coincidono con i valori della chiave della entity
+	 * @param target Oggetto da cui leggere i valori
+	 * @return Lista con i valori dei parametri IN e INOUT
+	 * @throws IllegalAccessException Se un campo della classe non è accessibile
+	 */
+	public ArrayList<Object> GetInputKey(SQLQuerable target) throws IllegalAccessException
+	{
+		ArrayList<Object> inputs = GetInputValues(target);
+		ArrayList<Object> key = new ArrayList<Object>(inputs.size() / 2);
+		for (int i = 2; i < inputs.size(); i += 2)
+			key.add(inputs.get(i));
+		return key;
+	}
+	
+	/**
+	 * Restituisce i valori dei campi chiave di un oggetto
+	 * @param target Oggetto da cui leggere i valori
+	 * @return Lista con i valori dei campi chiave, null se la classe non ha campi chiave
+	 * @throws IllegalAccessException Se un campo della classe non è accessibile
+	 */
+	public ArrayList<Object> GetKeyValues(Object target) throws IllegalAccessException
+	{
+		if (KeyFields.length == 0)
+			return null;
+		ArrayList<Object> values = new ArrayList<Object>(KeyFields.length);
+		for (SQLFieldMetadata field : KeyFields)
+			values.add(field.GetValue(target));
+		return values;
+	}
+	
+	/**
+	 * Costruisce la lista dei parametri SQL con i valori dei campi di un oggetto
+	 * @param target Oggetto da cui leggere i valori
+	 * @return ArrayList di SQLParameter, null se la classe non ha campi annotati
+	 * @throws IllegalAccessException Se un campo della classe non è accessibile
+	 */
+	public ArrayList<SQLParameter> GetParameters(Object target) throws IllegalAccessException
+	{
+		if (Fields.length == 0)
+			return null;
+		ArrayList<SQLParameter> params = new ArrayList<SQLParameter>(Fields.length);
+		for (SQLFieldMetadata field : Fields)
+			params.add(field.ToParameter(target));
+		return params;
+	}
+}
@@ -0,0 +1,510 @@
+package sql;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Blob;
+import java.sql.CallableStatement;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.HashMap;
+
+/**
+ * Scrittura e lettura dei parametri di un CallableStatement con il setter e il getter tipizzati adatti al tipo del valore, per nome o per posizione.
+ * Il setter viene scelto una sola volta per tipo (vedi GetWriter), così che il driver non debba ricavare il tipo ad ogni chiamata come con setObject,
+ * e i valori null vengono scritti con setNull e il tipo SQL del parametro.
+ * Oltre ai tipi JDBC gestisce byte[], java.util.Date, le enum (scritte come il nome della costante) e i tipi di java.time,
+ * convertiti nei corrispondenti tipi di java.sql. Gli InputStream e i Reader vengono passati al driver come stream, con la lunghezza se sono BinaryLob o TextLob. Le classi di java.time vengono cercate per nome, così che la libreria funzioni anche su JVM che non le hanno.
+ * @author amelani
+ *
+ */
+public class SQLValueBinder
+{
+	public static final int OBJECT = 0;
+	public static final int STRING = 1;
+	public static final int INTEGER = 2;
+	public static final int LONG = 3;
+	public static final int SHORT = 4;
+	public static final int DOUBLE = 5;
+	public static final int FLOAT = 6;
+	public static final int BOOLEAN = 7;
+	public static final int BIGDECIMAL = 8;
+	public static final int DATE = 9;
+	public static final int TIME = 10;
+	public static final int TIMESTAMP = 11;
+	public static final int UTIL_DATE = 12;
+	public static final int BYTES = 13;
+	public static final int ENUM = 14;
+	public static final int TEMPORAL = 15;
+	public static final int BINARY_STREAM = 16;
+	public static final int CHARACTER_STREAM = 17;
+
+	/** Conversioni da java.time a java.sql, indicizzate per nome della classe di java.time */
+	private static final HashMap<String, Method> _toSQL = new HashMap<String, Method>();
+	/** Conversioni da Timestamp a java.time, indicizzate per nome della classe di java.time */
+	private static final HashMap<String, Method> _fromSQL = new HashMap<String, Method>();
+	private static final Method _timestampFromInstant = _method("java.sql.Timestamp", "from", "java.time.Instant");
+	private static final Method _systemZone = _method("java.time.ZoneId", "systemDefault");
+
+	static
+	{
+		_register(_toSQL, "java.time.LocalDate", _method("java.sql.Date", "valueOf", "java.time.LocalDate"));
+		_register(_toSQL, "java.time.LocalTime", _method("java.sql.Time", "valueOf", "java.time.LocalTime"));
+		_register(_toSQL, "java.time.LocalDateTime", _method("java.sql.Timestamp", "valueOf", "java.time.LocalDateTime"));
+		_register(_toSQL, "java.time.Instant", _timestampFromInstant);
+		_register(_toSQL, "java.time.OffsetDateTime", _method("java.time.OffsetDateTime", "toInstant"));
+		_register(_toSQL, "java.time.ZonedDateTime", _method("java.time.ZonedDateTime", "toInstant"));
+		_register(_fromSQL, "java.time.LocalDate", _method("java.sql.Date", "toLocalDate"));
+		_register(_fromSQL, "java.time.LocalTime", _method("java.sql.Time", "toLocalTime"));
+		_register(_fromSQL, "java.time.LocalDateTime", _method("java.sql.Timestamp", "toLocalDateTime"));
+		_register(_fromSQL, "java.time.Instant", _method("java.sql.Timestamp", "toInstant"));
+		_register(_fromSQL, "java.time.OffsetDateTime", _method("java.time.OffsetDateTime", "ofInstant", "java.time.Instant", "java.time.ZoneId"));
+		_register(_fromSQL, "java.time.ZonedDateTime", _method("java.time.ZonedDateTime", "ofInstant", "java.time.Instant", "java.time.ZoneId"));
+	}
+
+	private SQLValueBinder()
+	{
+	}
+
+	private static Method _method(String className, String methodName, String... parameterClassNames)
+	{
+		try
+		{
+			Class<?>[] parameterTypes = new Class<?>[parameterClassNames.length];
+			for (int i = 0; i < parameterClassNames.length; i++)
+				parameterTypes[i] = Class.forName(parameterClassNames[i]);
+			return Class.forName(className).getMethod(methodName, parameterTypes);
+		}
+		catch (ClassNotFoundException exc)
+		{
+			return null;
+		}
+		catch (NoSuchMethodException exc)
+		{
+			return null;
+		}
+	}
+
+	private static void _register(HashMap<String, Method> conversions, String className, Method method)
+	{
+		if (method != null)
+			conversions.put(className, method);
+	}
+
+	/**
+	 * Sceglie il setter da usare per un tipo Java
+	 * @param type Tipo del campo o del valore
+	 * @return Codice del setter, OBJECT se il tipo non è fra quelli gestiti
+	 */
+	public static int GetWriter(Class<?> type)
+	{
+		if (type == String.class)
+			return STRING;
+		else if (type == Integer.class || type == int.class)
+			return INTEGER;
+		else if (type == Long.class || type == long.class)
+			return LONG;
+		else if (type == Short.class || type == short.class)
+			return SHORT;
+		else if (type == Double.class || type == double.class)
+			return DOUBLE;
+		else if (type == Float.class || type == float.class)
+			return FLOAT;
+		else if (type == Boolean.class || type == boolean.class)
+			return BOOLEAN;
+		else if (type == BigDecimal.class)
+			return BIGDECIMAL;
+		else if (type == Date.class)
+			return DATE;
+		else if (type == Time.class)
+			return TIME;
+		else if (type == Timestamp.class)
+			return TIMESTAMP;
+		else if (type == java.util.Date.class)
+			return UTIL_DATE;
+		else if (type == byte[].class)
+			return BYTES;
+		else if (type.isEnum())
+			return ENUM;
+		else if (IsTemporal(type))
+			return TEMPORAL;
+		else if (InputStream.class.isAssignableFrom(type))
+			return BINARY_STREAM;
+		else if (Reader.class.isAssignableFrom(type))
+			return CHARACTER_STREAM;
+		return OBJECT;
+	}
+
+	/**
+	 * Indica se un tipo è uno dei tipi di java.time gestiti
+	 * @param type Tipo Java
+	 * @return True per LocalDate, LocalTime, LocalDateTime, Instant, OffsetDateTime e ZonedDateTime
+	 */
+	public static boolean IsTemporal(Class<?> type)
+	{
+		return _fromSQL.containsKey(type.getName());
+	}
+
+	/**
+	 * Restituisce il tipo SQL di un parametro di uscita: quello indicato o, se sconosciuto, quello ricavato dal valore
+	 * @param sqlType Tipo SQL indicato per il parametro, -1 se sconosciuto
+	 * @param value Valore del parametro, può essere null
+	 * @return Tipo SQL da registrare, VARCHAR se non ricavabile
+	 */
+	public static int ResolveType(int sqlType, Object value)
+	{
+		if (sqlType == -1 && value != null)
+			sqlType = SQLParameter.GetSQLType(value.getClass());
+		return sqlType == -1 ? Types.VARCHAR : sqlType;
+	}
+
+	/**
+	 * Scrive un parametro scegliendo il setter dal tipo del valore
+	 * @param stmt CallableStatement su cui scrivere il parametro
+	 * @param name Nome del parametro, null per scriverlo per posizione
+	 * @param index Posizione del parametro, a partire da 1, usata se name è null
+	 * @param sqlType Tipo SQL del parametro, usato per i valori null. -1 se sconosciuto
+	 * @param value Valore da scrivere
+	 * @throws SQLException In caso di errori nella scrittura del parametro
+	 */
+	public static void SetParameter(CallableStatement stmt, String name, int index, int sqlType, Object value) throws SQLException
+	{
+		SetParameter(stmt, name, index, value == null ? OBJECT : GetWriter(value.getClass()), sqlType, value);
+	}
+
+	/**
+	 * Scrive un parametro con il setter indicato
+	 * @param stmt CallableStatement su cui scrivere il parametro
+	 * @param name Nome del parametro, null per scriverlo per posizione
+	 * @param index Posizione del parametro, a partire da 1, usata se name è null
+	 * @param writer Codice del setter, ricavato con GetWriter
+	 * @param sqlType Tipo SQL del parametro, usato per i valori null. -1 se sconosciuto
+	 * @param value Valore da scrivere
+	 * @throws SQLException In caso di errori nella scrittura del parametro
+	 */
+	public static void SetParameter(CallableStatement stmt, String name, int index, int writer, int sqlType, Object value) throws SQLException
+	{
+		if (value == null)
+		{
+			//senza un tipo noto uso VARCHAR, che i driver accettano per qualsiasi colonna
+			int nullType = sqlType == -1 ? Types.VARCHAR : sqlType;
+			if (name != null)
+				stmt.setNull(name, nullType);
+			else
+				stmt.setNull(index, nullType);
+			return;
+		}
+		switch (writer)
+		{
+			case STRING:
+				if (name != null)
+					stmt.setString(name, (String)value);
+				else
+					stmt.setString(index, (String)value);
+				break;
+			case INTEGER:
+				if (name != null)
+					stmt.setInt(name, ((Integer)value).intValue());
+				else
+					stmt.setInt(index, ((Integer)value).intValue());
+				break;
+			case LONG:
+				if (name != null)
+					stmt.setLong(name, ((Long)value).longValue());
+				else
+					stmt.setLong(index, ((Long)value).longValue());
+				break;
+			case SHORT:
+				if (name != null)
+					stmt.setShort(name, ((Short)value).shortValue());
+				else
+					stmt.setShort(index, ((Short)value).shortValue());
+				break;
+			case DOUBLE:
+				if (name != null)
+					stmt.setDouble(name, ((Double)value).doubleValue());
+				else
+					stmt.setDouble(index, ((Double)value).doubleValue());
+				break;
+			case FLOAT:
+				if (name != null)
+					stmt.setFloat(name, ((Float)value).floatValue());
+				else
+					stmt.setFloat(index, ((Float)value).floatValue());
+				break;
+			case BOOLEAN:
+				if (name != null)
+					stmt.setBoolean(name, ((Boolean)value).booleanValue());
+				else
+					stmt.setBoolean(index, ((Boolean)value).booleanValue());
+				break;
+			case BIGDECIMAL:
+				if (name != null)
+					stmt.setBigDecimal(name, (BigDecimal)value);
+				else
+					stmt.setBigDecimal(index, (BigDecimal)value);
+				break;
+			case DATE:
+				if (name != null)
+					stmt.setDate(name, (Date)value);
+				else
+					stmt.setDate(index, (Date)value);
+				break;
+			case TIME:
+				if (name != null)
+					stmt.setTime(name, (Time)value);
+				else
+					stmt.setTime(index, (Time)value);
+				break;
+			case TIMESTAMP:
+				if (name != null)
+					stmt.setTimestamp(name, (Timestamp)value);
+				else
+					stmt.setTimestamp(index, (Timestamp)value);
+				break;
+			case UTIL_DATE:
+				Timestamp timestamp = new Timestamp(((java.util.Date)value).getTime());
+				if (name != null)
+					stmt.setTimestamp(name, timestamp);
+				else
+					stmt.setTimestamp(index, timestamp);
+				break;
+			case BYTES:
+				if (name != null)
+					stmt.setBytes(name, (byte[])value);
+				else
+					stmt.setBytes(index, (byte[])value);
+				break;
+			case ENUM:
+				if (name != null)
+					stmt.setString(name, ((Enum<?>)value).name());
+				else
+					stmt.setString(index, ((Enum<?>)value).name());
+				break;
+			case BINARY_STREAM:
+				//con la lunghezza nota il driver può inviare il contenuto a blocchi senza leggerlo tutto
+				if (value instanceof BinaryLob)
+				{
+					long length = ((BinaryLob)value).GetLength();
+					if (name != null)
+						stmt.setBinaryStream(name, (InputStream)value, length);
+					else
+						stmt.setBinaryStream(index, (InputStream)value, length);
+				}
+				else if (name != null)
+					stmt.setBinaryStream(name, (InputStream)value);
+				else
+					stmt.setBinaryStream(index, (InputStream)value);
+				break;
+			case CHARACTER_STREAM:
+				if (value instanceof TextLob)
+				{
+					long length = ((TextLob)value).GetLength();
+					if (name != null)
+						stmt.setCharacterStream(name, (Reader)value, length);
+					else
+						stmt.setCharacterStream(index, (Reader)value, length);
+				}
+				else if (name != null)
+					stmt.setCharacterStream(name, (Reader)value);
+				else
+					stmt.setCharacterStream(index, (Reader)value);
+				break;
+			case TEMPORAL:
+				Object converted = ToSQLValue(value);
+				SetParameter(stmt, name, index, GetWriter(converted.getClass()), sqlType, converted);
+				break;
+			default:
+				//campi di tipo generico: provo con il tipo effettivo del valore
+				int valueWriter = GetWriter(value.getClass());
+				if (valueWriter != OBJECT)
+					SetParameter(stmt, name, index, valueWriter, sqlType, value);
+				else if (name != null)
+					stmt.setObject(name, value);
+				else
+					stmt.setObject(index, value);
+				break;
+		}
+	}
+
+	/**
+	 * Legge un parametro di uscita di un CallableStatement già eseguito con il getter corrispondente al setter indicato, così che lettura e scrittura di un tipo Java siano decise dalla stessa tabella (vedi GetWriter)
+	 * @param stmt CallableStatement eseguito, su cui il parametro è stato registrato come OUT o INOUT
+	 * @param name Nome del parametro, null per leggerlo per posizione
+	 * @param index Posizione del parametro, a partire da 1, usata se name è null
+	 * @param writer Codice del setter del tipo di destinazione, ricavato con GetWriter
+	 * @param type Tipo di destinazione, usato per le enum, i tipi di java.time e gli stream
+	 * @return Valore del parametro, null se il parametro è NULL
+	 * @throws SQLException In caso di errori nella lettura del parametro
+	 */
+	public static Object GetParameter(CallableStatement stmt, String name, int index, int writer, Class<?> type) throws SQLException
+	{
+		Object value;
+		switch (writer)
+		{
+			case STRING:
+				return name != null ? stmt.getString(name) : stmt.getString(index);
+			case INTEGER:
+				value = Integer.valueOf(name != null ? stmt.getInt(name) : stmt.getInt(index));
+				break;
+			case LONG:
+				value = Long.valueOf(name != null ? stmt.getLong(name) : stmt.getLong(index));
+				break;
+			case SHORT:
+				value = Short.valueOf(name != null ? stmt.getShort(name) : stmt.getShort(index));
+				break;
+			case DOUBLE:
+				value = Double.valueOf(name != null ? stmt.getDouble(name) : stmt.getDouble(index));
+				break;
+			case FLOAT:
+				value = Float.valueOf(name != null ? stmt.getFloat(name) : stmt.getFloat(index));
+				break;
+			case BOOLEAN:
+				value = Boolean.valueOf(name != null ? stmt.getBoolean(name) : stmt.getBoolean(index));
+				break;
+			case BIGDECIMAL:
+				return name != null ? stmt.getBigDecimal(name) : stmt.getBigDecimal(index);
+			case DATE:
+				return name != null ? stmt.getDate(name) : stmt.getDate(index);
+			case TIME:
+				return name != null ? stmt.getTime(name) : stmt.getTime(index);
+			case TIMESTAMP:
+			case UTIL_DATE:
+				return name != null ? stmt.getTimestamp(name) : stmt.getTimestamp(index);
+			case BYTES:
+				return name != null ? stmt.getBytes(name) : stmt.getBytes(index);
+			case ENUM:
+			case TEMPORAL:
+				return FromSQLValue(type, name != null ? stmt.getObject(name) : stmt.getObject(index));
+			case BINARY_STREAM:
+				if (!type.isAssignableFrom(BinaryLob.class))
+					return name != null ? stmt.getObject(name) : stmt.getObject(index);
+				//CallableStatement non ha getBinaryStream: lo stream si legge dal locator del BLOB
+				Blob blob = name != null ? stmt.getBlob(name) : stmt.getBlob(index);
+				if (blob == null)
+					return null;
+				try
+				{
+					return BinaryLob.Spool(blob.getBinaryStream());
+				}
+				finally
+				{
+					blob.free();
+				}
+			case CHARACTER_STREAM:
+				if (!type.isAssignableFrom(TextLob.class))
+					return name != null ? stmt.getObject(name) : stmt.getObject(index);
+				return TextLob.Spool(name != null ? stmt.getCharacterStream(name) : stmt.getCharacterStream(index));
+			default:
+				return name != null ? stmt.getObject(name) : stmt.getObject(index);
+		}
+		//i getter dei tipi primitivi restituiscono 0 o false per i NULL
+		return stmt.wasNull() ? null : value;
+	}
+
+	/**
+	 * Converte un valore di java.time nel corrispondente tipo di java.sql: LocalDate in Date, LocalTime in Time, gli altri in Timestamp
+	 * @param value Valore di java.time
+	 * @return Valore di java.sql
+	 * @throws SQLException Se la conversione fallisce
+	 */
+	public static Object ToSQLValue(Object value) throws SQLException
+	{
+		Method conversion = _toSQL.get(value.getClass().getName());
+		if (conversion == null)
+			throw new SQLException("Tipo di parametro non gestito: " + value.getClass().getName());
+		Object converted = _convert(conversion, value);
+		//OffsetDateTime e ZonedDateTime passano da Instant
+		if (!(converted instanceof java.util.Date))
+			converted = _convert(_timestampFromInstant, converted);
+		return converted;
+	}
+
+	/**
+	 * Converte un valore letto dal database nel tipo di un campo enum o di java.time. Gli altri valori vengono restituiti invariati.
+	 * @param type Tipo del campo
+	 * @param value Valore letto con getObject, può essere null
+	 * @return Valore convertito
+	 * @throws SQLException Se la conversione fallisce
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public static Object FromSQLValue(Class<?> type, Object value) throws SQLException
+	{
+		if (value == null || type.isInstance(value))
+			return value;
+		if (type.isEnum())
+			return Enum.valueOf((Class<Enum>)type, value.toString());
+		Method conversion = _fromSQL.get(type.getName());
+		if (conversion == null || !(value instanceof java.util.Date))
+			return value;
+		String typeName = type.getName();
+		if (typeName.equals("java.time.LocalDate"))
+			return _convert(conversion, new Date(((java.util.Date)value).getTime()));
+		if (typeName.equals("java.time.LocalTime"))
+			return _convert(conversion, new Time(((java.util.Date)value).getTime()));
+		Timestamp timestamp = value instanceof Timestamp ? (Timestamp)value : new Timestamp(((java.util.Date)value).getTime());
+		if (typeName.equals("java.time.LocalDateTime") || typeName.equals("java.time.Instant"))
+			return _convert(conversion, timestamp);
+		//OffsetDateTime e ZonedDateTime vengono costruiti dall'Instant nel fuso orario della JVM
+		return _invoke(conversion, null, _convert(_fromSQL.get("java.time.Instant"), timestamp), _invoke(_systemZone, null));
+	}
+
+	/**
+	 * Riporta ad una forma comune il valore di una chiave, così che lo stesso valore letto o scritto con tipi diversi risulti uguale anche per equals e hashCode:
+	 * gli interi diventano Long, compresi BigInteger e BigDecimal senza decimali che vi rientrano (ad esempio un NUMBER letto come BigDecimal e una chiave Long),
+	 * gli altri BigDecimal perdono gli zeri finali (lo zero con qualsiasi scala diventa 0), le enum diventano il nome della costante e le java.util.Date che non sono di java.sql diventano Timestamp.
+	 * @param value Valore della chiave, può essere null
+	 * @return Valore normalizzato
+	 */
+	public static Object NormalizeKey(Object value)
+	{
+		if (value instanceof Integer || value instanceof Short || value instanceof Byte)
+			return ((Number)value).longValue();
+		if (value instanceof BigInteger && ((BigInteger)value).bitLength() < 64)
+			return ((BigInteger)value).longValue();
+		if (value instanceof BigDecimal)
+		{
+			//fino a Java 7 stripTrailingZeros lascia lo zero con la sua scala (0.00 diventa 0E-2, JDK-6480539)
+			BigDecimal decimal = ((BigDecimal)value).signum() == 0 ? BigDecimal.ZERO : ((BigDecimal)value).stripTrailingZeros();
+			if (decimal.scale() <= 0 && decimal.precision() - decimal.scale() <= 18)
+				return decimal.longValue();
+			return decimal;
+		}
+		if (value instanceof Enum)
+			return ((Enum<?>)value).name();
+		if (value instanceof java.util.Date && value.getClass() == java.util.Date.class)
+			return new Timestamp(((java.util.Date)value).getTime());
+		return value;
+	}
+
+	/**
+	 * Applica una conversione ad un valore: i metodi statici ricevono il valore come parametro, gli altri vengono invocati sul valore
+	 */
+	private static Object _convert(Method conversion, Object value) throws SQLException
+	{
+		return Modifier.isStatic(conversion.getModifiers()) ? _invoke(conversion, null, value) : _invoke(conversion, value);
+	}
+
+	private static Object _invoke(Method method, Object target, Object... args) throws SQLException
+	{
+		try
+		{
+			return method.invoke(target, args);
+		}
+		catch (IllegalAccessException exc)
+		{
+			throw new SQLException(exc.getLocalizedMessage(), exc);
+		}
+		catch (InvocationTargetException exc)
+		{
+			throw new SQLException(exc.getCause().getLocalizedMessage(), exc.getCause());
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package sql;
+
+import java.io.File;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * File temporaneo in cui BinaryLob e TextLob copiano i contenuti oltre la soglia di memoria.
+ * Il file viene eliminato alla chiusura del contenuto; se il contenuto non viene chiuso, dopo che il garbage collector lo ha raccolto
+ * (alla copia successiva di un altro contenuto) o, al più tardi, alla chiusura della JVM.
+ * @author amelani
+ *
+ */
+final class SpoolFile extends PhantomReference<Object>
+{
+	private static final ReferenceQueue<Object> _queue = new ReferenceQueue<Object>();
+	/** File non ancora eliminati: mantiene raggiungibili i riferimenti finché il loro contenuto non viene raccolto */
+	private static final Set<SpoolFile> _pending = Collections.synchronizedSet(new HashSet<SpoolFile>());
+
+	static
+	{
+		Runtime.getRuntime().addShutdownHook(new Thread(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				ArrayList<SpoolFile> remaining;
+				synchronized (_pending)
+				{
+					remaining = new ArrayList<SpoolFile>(_pending);
+				}
+				for (SpoolFile spoolFile : remaining)
+					spoolFile.Delete();
+			}
+		}, "mel8fw-lob-cleanup"));
+	}
+
+	/** File temporaneo */
+	public final File File;
+
+	private SpoolFile(Object owner, File file)
+	{
+		super(owner, _queue);
+		File = file;
+	}
+
+	/**
+	 * Registra il file temporaneo di un contenuto, eliminando prima i file dei contenuti già raccolti dal garbage collector
+	 * @param owner Contenuto a cui appartiene il file
+	 * @param file File temporaneo
+	 * @return SpoolFile da eliminare con Delete alla chiusura del contenuto
+	 */
+	static SpoolFile Track(Object owner, File file)
+	{
+		SpoolFile collected;
+		while ((collected = (SpoolFile)_queue.poll()) != null)
+			collected.Delete();
+		SpoolFile spoolFile = new SpoolFile(owner, file);
+		_pending.add(spoolFile);
+		return spoolFile;
+	}
+
+	/**
+	 * Elimina il file temporaneo e smette di tracciarlo
+	 */
+	void Delete()
+	{
+		_pending.remove(this);
+		clear();
+		File.delete();
+	}
+}
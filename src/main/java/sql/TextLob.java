@@ -0,0 +1,226 @@
+package sql;
+
+import java.io.CharArrayReader;
+import java.io.CharArrayWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.sql.SQLException;
+
+/**
+ * Contenuto testuale di lunghezza nota, per i campi CLOB delle entity dichiarati come Reader o TextLob.
+ * <p>
+ * In lettura il contenuto della colonna viene copiato in memoria fino a GetMemoryThreshold() caratteri e oltre in un file temporaneo in UTF-8,
+ * così che resti leggibile dopo la chiusura della connessione senza occupare memoria in proporzione alla sua dimensione.
+ * In scrittura viene passato al driver con setCharacterStream e la sua lunghezza, senza caricarlo in memoria.
+ * Il Reader può essere letto una sola volta. Il file temporaneo viene aperto alla prima lettura ed eliminato alla chiusura o, se il Reader non viene chiuso, dopo che il garbage collector lo ha raccolto.
+ * @author amelani
+ *
+ */
+public class TextLob extends Reader
+{
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static volatile int _memoryThreshold = 512 * 1024;
+
+	private Reader _source;
+	private final long _length;
+	private final SpoolFile _file;
+	private boolean _closed;
+
+	/**
+	 * Costruisce un contenuto a partire da una stringa
+	 * @param content Contenuto
+	 */
+	public TextLob(String content)
+	{
+		this(new StringReader(content), content.length(), null);
+	}
+
+	/**
+	 * Costruisce un contenuto da scrivere leggendolo da un Reader, ad esempio un file, senza caricarlo in memoria
+	 * @param source Reader da cui leggere il contenuto, viene chiuso con il TextLob
+	 * @param length Numero di caratteri che verranno letti dal Reader
+	 */
+	public TextLob(Reader source, long length)
+	{
+		this(source, length, null);
+	}
+
+	private TextLob(Reader source, long length, File file)
+	{
+		_source = source;
+		_length = length;
+		_file = file == null ? null : SpoolFile.Track(this, file);
+	}
+
+	/**
+	 * Soglia oltre la quale i contenuti letti dal database vengono copiati in un file temporaneo invece che in memoria
+	 * @return Numero di caratteri
+	 */
+	public static int GetMemoryThreshold()
+	{
+		return _memoryThreshold;
+	}
+
+	/**
+	 * Imposta la soglia oltre la quale i contenuti letti dal database vengono copiati in un file temporaneo. Vale per tutte le letture successive.
+	 * @param memoryThreshold Numero di caratteri, 0 per copiare sempre in un file
+	 */
+	public static void SetMemoryThreshold(int memoryThreshold)
+	{
+		_memoryThreshold = memoryThreshold;
+	}
+
+	/**
+	 * Copia un Reader letto dal database, come quello di ResultSet.getCharacterStream, in memoria o in un file temporaneo secondo la sua dimensione
+	 * @param source Reader da copiare, viene chiuso al termine
+	 * @return TextLob con il contenuto del Reader, null se source è null
+	 * @throws SQLException In caso di errori nella lettura del Reader o nella scrittura del file temporaneo
+	 */
+	public static TextLob Spool(Reader source) throws SQLException
+	{
+		if (source == null)
+			return null;
+		try
+		{
+			char[] buffer = new char[8192];
+			CharArrayWriter memory = new CharArrayWriter();
+			int read;
+			while ((read = source.read(buffer)) != -1)
+			{
+				memory.write(buffer, 0, read);
+				if (memory.size() > _memoryThreshold)
+					return _spoolToFile(memory, source, buffer);
+			}
+			return new TextLob(new CharArrayReader(memory.toCharArray()), memory.size(), null);
+		}
+		catch (IOException exc)
+		{
+			throw new SQLException("Errore nella lettura del contenuto testuale: " + exc.getLocalizedMessage(), exc);
+		}
+		finally
+		{
+			try
+			{
+				source.close();
+			}
+			catch (IOException exc)
+			{
+				//il Reader del driver è già stato letto per intero
+			}
+		}
+	}
+
+	private static TextLob _spoolToFile(CharArrayWriter memory, Reader source, char[] buffer) throws IOException
+	{
+		File file = File.createTempFile("mel8fw-lob", ".txt");
+		boolean spooled = false;
+		try
+		{
+			long length = memory.size();
+			Writer out = new OutputStreamWriter(new FileOutputStream(file), UTF8);
+			try
+			{
+				memory.writeTo(out);
+				int read;
+				while ((read = source.read(buffer)) != -1)
+				{
+					out.write(buffer, 0, read);
+					length += read;
+				}
+			}
+			finally
+			{
+				out.close();
+			}
+			//il file viene aperto alla prima lettura: i contenuti non letti non occupano descrittori
+			TextLob lob = new TextLob(null, length, file);
+			spooled = true;
+			return lob;
+		}
+		finally
+		{
+			if (!spooled)
+				file.delete();
+		}
+	}
+
+	/**
+	 * Restituisce la lunghezza del contenuto
+	 * @return Numero di caratteri
+	 */
+	public long GetLength()
+	{
+		return _length;
+	}
+
+	/**
+	 * Indica se il contenuto è stato copiato in un file temporaneo
+	 * @return True se il contenuto non è in memoria
+	 */
+	public boolean IsSpooled()
+	{
+		return _file != null;
+	}
+
+	@Override
+	public int read(char[] cbuf, int off, int len) throws IOException
+	{
+		return _open().read(cbuf, off, len);
+	}
+
+	@Override
+	public long skip(long n) throws IOException
+	{
+		return _open().skip(n);
+	}
+
+	@Override
+	public boolean ready() throws IOException
+	{
+		return _open().ready();
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		_closed = true;
+		try
+		{
+			if (_source != null)
+				_source.close();
+		}
+		finally
+		{
+			if (_file != null)
+				_file.Delete();
+		}
+	}
+
+	/**
+	 * Restituisce la sorgente del contenuto, aprendo il file temporaneo alla prima lettura
+	 */
+	private Reader _open() throws IOException
+	{
+		if (_source == null)
+		{
+			if (_closed)
+				throw new IOException("Il contenuto è già stato chiuso");
+			_source = new InputStreamReader(new FileInputStream(_file.File), UTF8);
+		}
+		return _source;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "TextLob [Length=" + _length + ", Spooled=" + IsSpooled() + "]";
+	}
+}
@@ -0,0 +1,216 @@
+package dal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.naming.NamingException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import entities.EntityAttribute;
+import enumerations.ParameterDirection;
+import sql.DBResponse;
+import sql.SQLParameter;
+import sql.SQLQuerable;
+
+public class BatchSaveTest
+{
+	private static final TestDatabase DATABASE = new TestDatabase("batchsavetest");
+
+	/** Esecuzioni registrate dalla strumentazione, come nome della prima entity e numero di chiamate */
+	private static final List<String> EXECUTIONS = new ArrayList<String>();
+
+	/** Numero di commit registrati dalla strumentazione */
+	private static int _commits;
+
+	private static final JDBCInstrumentation RECORDER = new JDBCInstrumentation()
+	{
+		@Override
+		public void StatementExecuted(String procedureName, SQLQuerable parameters, int batchSize, long nanos, boolean success)
+		{
+			EXECUTIONS.add(((TestItem)parameters).Name + "x" + batchSize);
+		}
+
+		@Override
+		public void Committed(String procedureName)
+		{
+			_commits++;
+		}
+	};
+
+	public static class Manager extends TestItemManager
+	{
+		public Manager() throws SQLException, NamingException
+		{
+			super();
+		}
+
+		@Override
+		public TestDatabase GetDatabase()
+		{
+			return DATABASE;
+		}
+
+		@Override
+		public int GetBatchSize()
+		{
+			return 3;
+		}
+
+		@Override
+		public JDBCInstrumentation GetInstrumentation()
+		{
+			return RECORDER;
+		}
+
+		@Override
+		public String GetSaveProcedureName()
+		{
+			return "{call SAVE_NEW_ITEM(?, ?, ?)}";
+		}
+	}
+
+	public static class CommitEachBatchManager extends Manager
+	{
+		public CommitEachBatchManager() throws SQLException, NamingException
+		{
+			super();
+		}
+
+		@Override
+		public boolean CommitEachBatch()
+		{
+			return true;
+		}
+	}
+
+	/**
+	 * Entity ancora da inserire: la chiave viene generata dalla procedura e restituita come parametro INOUT
+	 */
+	@EntityAttribute(Name = "TEST_ITEM")
+	public static class NewItem extends TestItem
+	{
+		public NewItem(String name)
+		{
+			Name = name;
+		}
+
+		@Override
+		public ArrayList<SQLParameter> GetParameters() throws IllegalArgumentException, IllegalAccessException
+		{
+			ArrayList<SQLParameter> params = super.GetParameters();
+			params.set(0, new SQLParameter("ID", Id, java.sql.Types.BIGINT, ParameterDirection.INOUT));
+			return params;
+		}
+	}
+
+	/** Indica se lo schema è già stato creato: ricreandolo, gli statement in cache nel pool farebbero riferimento a procedure non più esistenti */
+	private static boolean _created;
+
+	@Before
+	public void setUp() throws Exception
+	{
+		if (!_created)
+		{
+			DATABASE.Reset();
+			DATABASE.Execute("CREATE PROCEDURE SAVE_NEW_ITEM(INOUT ID BIGINT, IN NAME VARCHAR(100), IN AMOUNT DECIMAL(18,2)) MODIFIES SQL DATA BEGIN ATOMIC "
+				+ "IF ID IS NULL THEN SET ID = (SELECT COALESCE(MAX(T.ID), 0) + 100 FROM TEST_ITEM T); END IF; "
+				+ "MERGE INTO TEST_ITEM T USING (VALUES(ID, NAME, AMOUNT)) AS S(ID, NAME, AMOUNT) ON T.ID = S.ID "
+				+ "WHEN MATCHED THEN UPDATE SET T.NAME = S.NAME, T.AMOUNT = S.AMOUNT "
+				+ "WHEN NOT MATCHED THEN INSERT VALUES S.ID, S.NAME, S.AMOUNT; END");
+			_created = true;
+		}
+		DATABASE.Execute("DELETE FROM TEST_ITEM");
+		EXECUTIONS.clear();
+		_commits = 0;
+	}
+
+	private static TestItemList _samples(int count)
+	{
+		TestItemList list = new TestItemList();
+		for (int i = 1; i <= count; i++)
+			list.add(TestItem.Sample(i, "item" + i));
+		return list;
+	}
+
+	private static String _tooLong()
+	{
+		char[] name = new char[101];
+		Arrays.fill(name, 'x');
+		return new String(name);
+	}
+
+	@Test
+	public void callsAreSentInChunksOfBatchSize() throws Exception
+	{
+		DBResponse<TestItem, TestItemList> response = new Manager().Save(_samples(7));
+		assertTrue(response.Message, response.Success);
+		assertEquals(Arrays.asList("item1x3", "item4x3", "item7x1"), EXECUTIONS);
+		assertEquals(7, response.UpdateCounts.length);
+		for (int count : response.UpdateCounts)
+			assertTrue(count != Statement.EXECUTE_FAILED);
+		assertTrue(response.FailedRows.isEmpty());
+		assertEquals(7, DATABASE.Count());
+		//senza CommitEachBatch il commit è uno solo, alla fine
+		assertEquals(1, _commits);
+	}
+
+	@Test
+	public void failedBatchIsRolledBackEntirely() throws Exception
+	{
+		TestItemList list = _samples(7);
+		list.get(4).Name = _tooLong();
+		DBResponse<TestItem, TestItemList> response = new Manager().Save(list);
+		assertFalse(response.Success);
+		assertNotNull(response.Message);
+		assertEquals(Arrays.asList(4), response.FailedRows);
+		for (int count : response.UpdateCounts)
+			assertEquals(Statement.EXECUTE_FAILED, count);
+		assertEquals(0, DATABASE.Count());
+	}
+
+	@Test
+	public void commitEachBatchKeepsTheChunksBeforeTheFailure() throws Exception
+	{
+		TestItemList list = _samples(7);
+		list.get(4).Name = _tooLong();
+		DBResponse<TestItem, TestItemList> response = new CommitEachBatchManager().Save(list);
+		assertFalse(response.Success);
+		//il primo blocco è confermato, il secondo fallisce alla riga 4 e il terzo non viene inviato
+		assertEquals(1, _commits);
+		assertEquals(3, DATABASE.Count());
+		assertEquals("item3", DATABASE.ReadName(3));
+		for (int i = 0; i < 3; i++)
+			assertTrue(response.UpdateCounts[i] != Statement.EXECUTE_FAILED);
+		for (int i = 3; i < 7; i++)
+			assertEquals(Statement.EXECUTE_FAILED, response.UpdateCounts[i]);
+		assertEquals(Arrays.asList(4), response.FailedRows);
+	}
+
+	@Test
+	public void rowsWithOutputParametersFlushThePendingBatch() throws Exception
+	{
+		TestItemList list = _samples(5);
+		NewItem inserted = new NewItem("nuovo");
+		list.add(1, inserted);
+		DBResponse<TestItem, TestItemList> response = new Manager().Save(list);
+		assertTrue(response.Message, response.Success);
+		//la riga con parametri di uscita viene eseguita da sola, dopo l'invio di quelle accodate prima di lei
+		assertEquals(Arrays.asList("item1x1", "nuovox1", "item2x1", "item3x3"), EXECUTIONS);
+		//al momento della chiamata era stata salvata soltanto la prima riga
+		assertEquals(Long.valueOf(101), inserted.Id);
+		assertEquals("nuovo", DATABASE.ReadName(101));
+		assertEquals(6, DATABASE.Count());
+		for (int count : response.UpdateCounts)
+			assertTrue(count != Statement.EXECUTE_FAILED);
+	}
+}
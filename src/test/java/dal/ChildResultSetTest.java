@@ -0,0 +1,129 @@
+package dal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.naming.NamingException;
+
+import org.junit.Test;
+
+import entities.BaseEntity;
+import entities.EntityAttribute;
+import entities.EntityFieldAttribute;
+
+public class ChildResultSetTest
+{
+	private static final TestDatabase DATABASE = new TestDatabase("childresultsettest");
+
+	public static class Manager extends TestItemManager
+	{
+		public Manager() throws SQLException, NamingException
+		{
+			super();
+		}
+
+		@Override
+		public TestDatabase GetDatabase()
+		{
+			return DATABASE;
+		}
+	}
+
+	@EntityAttribute(Name = "TEST_ORDER")
+	public static class Order extends BaseEntity
+	{
+		@EntityFieldAttribute(Name = "ID", Key = true)
+		public Long Id;
+
+		/** Riferimento singolo alla nota dell'ordine */
+		public Note Note;
+
+		/** Righe dell'ordine */
+		public List<Note> Lines;
+	}
+
+	@EntityAttribute(Name = "TEST_NOTE")
+	public static class Note extends BaseEntity
+	{
+		@EntityFieldAttribute(Name = "ORDER_ID")
+		public Long OrderId;
+
+		@EntityFieldAttribute(Name = "TEXT")
+		public String Text;
+	}
+
+	@Test
+	public void collectionCollectsAllChildren() throws Exception
+	{
+		Order order = _order(1);
+		ChildResultSet<Note> lines = new ChildResultSet<Note>(Order.class, "Lines", Note.class, "ORDER_ID");
+		assertEquals(1, lines.Attach(Arrays.asList(order), Arrays.asList(_note(1, "a"), _note(1, "b"), _note(2, "orfana"))));
+		assertEquals(2, order.Lines.size());
+	}
+
+	@Test
+	public void singleReferenceAcceptsOneChildPerParent() throws Exception
+	{
+		Order first = _order(1);
+		Order second = _order(2);
+		Note note = _note(2, "unica");
+		ChildResultSet<Note> notes = new ChildResultSet<Note>(Order.class, "Note", Note.class, "ORDER_ID");
+		assertEquals(0, notes.Attach(Arrays.asList(first, second), Arrays.asList(note)));
+		assertSame(note, second.Note);
+	}
+
+	@Test
+	public void singleReferenceRejectsSeveralChildren() throws Exception
+	{
+		Order order = _order(1);
+		ChildResultSet<Note> notes = new ChildResultSet<Note>(Order.class, "Note", Note.class, "ORDER_ID");
+		try
+		{
+			notes.Attach(Arrays.asList(order), Arrays.asList(_note(1, "prima"), _note(1, "seconda")));
+			fail("Più entity figlie per un riferimento singolo devono essere rifiutate");
+		}
+		catch (SQLException exc)
+		{
+			//atteso
+		}
+	}
+
+	@Test
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public void graphSelectionRejectsColumnarLists() throws Exception
+	{
+		//senza tipi generici il manager riceve la classe della lista per colonne come se fosse la sua lista di entity
+		BaseJDBCManager manager = new Manager();
+		try
+		{
+			manager.ExecuteGraphSelection(new TestItemFilter(1), "{call LIST_ITEM(?)}", null, ColumnarEntityListTest.ColumnarTestItemList.class, new ChildResultSet[0]);
+			fail("La selezione a grafo deve rifiutare una ColumnarEntityList");
+		}
+		catch (IllegalArgumentException exc)
+		{
+			//atteso
+		}
+	}
+
+	private static Order _order(long id)
+	{
+		Order order = new Order();
+		order.Id = id;
+		order.Lines = new ArrayList<Note>();
+		return order;
+	}
+
+	private static Note _note(long orderId, String text)
+	{
+		Note note = new Note();
+		note.OrderId = orderId;
+		note.Text = text;
+		return note;
+	}
+}
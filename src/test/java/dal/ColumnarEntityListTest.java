@@ -0,0 +1,101 @@
+package dal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+
+import javax.naming.NamingException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import entities.ColumnarEntityList;
+
+public class ColumnarEntityListTest
+{
+	private static final TestDatabase DATABASE = new TestDatabase("columnarentitylisttest");
+
+	public static class Manager extends TestItemManager
+	{
+		public Manager() throws SQLException, NamingException
+		{
+			super();
+		}
+
+		@Override
+		public TestDatabase GetDatabase()
+		{
+			return DATABASE;
+		}
+	}
+
+	/**
+	 * Lista per colonne di TestItem. Le liste dei manager derivano da TestItemList, quindi questa si usa soltanto come lista
+	 */
+	public static class ColumnarTestItemList extends ColumnarEntityList<TestItem>
+	{
+		private static final long serialVersionUID = 1L;
+
+		public ColumnarTestItemList()
+		{
+			super(TestItem.class);
+		}
+	}
+
+	private ColumnarTestItemList _list;
+
+	@Before
+	public void setUp() throws Exception
+	{
+		DATABASE.Reset();
+		_list = new ColumnarTestItemList();
+		_list.add(TestItem.Sample(3, "tre"));
+		_list.add(TestItem.Sample(1, "uno"));
+		_list.add(TestItem.Sample(2, "due"));
+	}
+
+	@Test
+	public void iterationAndEndAccessSeeColumnarRows() throws Exception
+	{
+		ArrayList<String> names = new ArrayList<String>();
+		for (TestItem e : _list)
+			names.add(e.Name);
+		assertEquals(3, names.size());
+		assertEquals("tre", names.get(0));
+		assertEquals(3, new ArrayList<TestItem>(_list).size());
+
+		assertEquals("tre", _list.getFirst().Name);
+		assertEquals("due", _list.removeLast().Name);
+		assertEquals(2, _list.size());
+		assertEquals("uno", _list.getLast().Name);
+	}
+
+	@Test
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public void managerRejectsColumnarLists() throws Exception
+	{
+		//senza tipi generici il manager riceve la lista per colonne come se fosse la sua lista di entity
+		BaseJDBCManager manager = new Manager();
+		try
+		{
+			manager.Save(_list);
+			fail("Save deve rifiutare una ColumnarEntityList");
+		}
+		catch (IllegalArgumentException exc)
+		{
+			//atteso
+		}
+		try
+		{
+			manager.Delete(_list);
+			fail("Delete deve rifiutare una ColumnarEntityList");
+		}
+		catch (IllegalArgumentException exc)
+		{
+			//atteso
+		}
+		assertEquals(0, DATABASE.Count());
+	}
+}
@@ -0,0 +1,248 @@
+package dal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.naming.NamingException;
+import javax.sql.DataSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import sql.DBResponse;
+
+public class ConnectionLeakTest
+{
+	private static final TestDatabase DATABASE = new TestDatabase("connectionleaktest");
+
+	/** Chiusure di ResultSet, statement e connessioni, nell'ordine in cui sono avvenute */
+	private static final List<String> CLOSED = new ArrayList<String>();
+
+	/** Metodo che gli oggetti JDBC registrati devono far fallire, null per nessuno */
+	private static String _failing;
+
+	/**
+	 * Proxy di un oggetto JDBC che registra le chiusure, avvolge gli statement e i ResultSet restituiti e fa fallire il metodo _failing
+	 */
+	private static class Recorder implements InvocationHandler
+	{
+		private final Object _target;
+		private final String _name;
+
+		private Recorder(Object target, String name)
+		{
+			_target = target;
+			_name = name;
+		}
+
+		@SuppressWarnings("unchecked")
+		public static <T> T Wrap(T target, Class<T> type, String name)
+		{
+			return (T)Proxy.newProxyInstance(ConnectionLeakTest.class.getClassLoader(), new Class<?>[] { type }, new Recorder(target, name));
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+		{
+			if (method.getName().equals("close"))
+				CLOSED.add(_name);
+			if (method.getName().equals(_failing))
+				throw new SQLException(_name + "." + _failing + " fallito");
+			Object result;
+			try
+			{
+				result = method.invoke(_target, args);
+			}
+			catch (InvocationTargetException exc)
+			{
+				throw exc.getCause();
+			}
+			if (result instanceof CallableStatement)
+				return Wrap((CallableStatement)result, CallableStatement.class, "statement");
+			if (result instanceof ResultSet)
+				return Wrap((ResultSet)result, ResultSet.class, "resultset");
+			return result;
+		}
+	}
+
+	private static final DataSource RECORDING_DATA_SOURCE = (DataSource)Proxy.newProxyInstance(ConnectionLeakTest.class.getClassLoader(), new Class<?>[] { DataSource.class }, new InvocationHandler()
+	{
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+		{
+			if (method.getName().equals("getConnection"))
+				return Recorder.Wrap(DATABASE.Open(), Connection.class, "connection");
+			if (method.getName().equals("getLogWriter"))
+				return new PrintWriter(System.out);
+			return null;
+		}
+	});
+
+	public static class Manager extends TestItemManager
+	{
+		public Manager() throws SQLException, NamingException
+		{
+			super();
+		}
+
+		@Override
+		public TestDatabase GetDatabase()
+		{
+			return DATABASE;
+		}
+
+		@Override
+		public DataSource GetDataSource()
+		{
+			return RECORDING_DATA_SOURCE;
+		}
+
+		@Override
+		public long GetLeakDetectionThreshold()
+		{
+			return 60000;
+		}
+	}
+
+	private Level _level;
+
+	@Before
+	public void setUp() throws Exception
+	{
+		DATABASE.Reset();
+		DATABASE.Insert(1, "uno");
+		CLOSED.clear();
+		_failing = null;
+		//le segnalazioni del rilevatore sono attese
+		Logger logger = Logger.getLogger(ConnectionLeakDetector.class.getName());
+		_level = logger.getLevel();
+		logger.setLevel(Level.OFF);
+	}
+
+	@After
+	public void tearDown()
+	{
+		Logger.getLogger(ConnectionLeakDetector.class.getName()).setLevel(_level);
+	}
+
+	@Test
+	public void heldConnectionIsReportedOnce() throws Exception
+	{
+		ConnectionLeakDetector detector = new ConnectionLeakDetector("held", 40);
+		try
+		{
+			Connection connection = detector.Track(DATABASE.Open());
+			assertEquals(1, detector.GetStatistics().Open);
+			//la connessione resta aperta per diversi controlli del rilevatore
+			Thread.sleep(300);
+			ConnectionLeakStatistics stats = detector.GetStatistics();
+			assertEquals(1, stats.Leaked);
+			assertTrue(stats.MaxHeldTime >= 300);
+			connection.close();
+			stats = detector.GetStatistics();
+			assertEquals(0, stats.Open);
+			assertEquals(1, stats.Borrowed);
+			assertEquals(1, stats.Leaked);
+			//una connessione rilasciata in tempo non viene segnalata
+			detector.Track(DATABASE.Open()).close();
+			Thread.sleep(100);
+			assertEquals(2, detector.GetStatistics().Borrowed);
+			assertEquals(1, detector.GetStatistics().Leaked);
+		}
+		finally
+		{
+			detector.Close();
+		}
+	}
+
+	@Test
+	public void unclosedStatementsAreCounted() throws Exception
+	{
+		ConnectionLeakDetector detector = new ConnectionLeakDetector("statements", 60000);
+		try
+		{
+			Connection connection = detector.Track(DATABASE.Open());
+			connection.createStatement();
+			connection.prepareStatement("SELECT COUNT(*) FROM TEST_ITEM");
+			connection.prepareCall("{call GET_ITEM(?)}").close();
+			connection.close();
+			assertEquals(2, detector.GetStatistics().UnclosedStatements);
+			//il conteggio riguarda soltanto la connessione chiusa
+			connection = detector.Track(DATABASE.Open());
+			connection.createStatement().close();
+			connection.close();
+			assertEquals(2, detector.GetStatistics().UnclosedStatements);
+		}
+		finally
+		{
+			detector.Close();
+		}
+	}
+
+	@Test
+	public void selectionReleasesResultSetStatementAndConnectionInOrder() throws Exception
+	{
+		Manager manager = new Manager();
+		//il rilevatore è condiviso dai manager sullo stesso database, quindi confronto i contatori prima e dopo la lettura
+		ConnectionLeakStatistics before = manager.GetLeakDetectionStatistics();
+		DBResponse<TestItem, TestItemList> response = manager.Get(new TestItemFilter(1));
+		assertTrue(response.Message, response.Success);
+		assertEquals(Arrays.asList("resultset", "statement", "connection"), CLOSED);
+		ConnectionLeakStatistics stats = manager.GetLeakDetectionStatistics();
+		assertEquals(0, stats.Open);
+		assertEquals(before.Borrowed + 1, stats.Borrowed);
+		assertEquals(before.UnclosedStatements, stats.UnclosedStatements);
+	}
+
+	@Test
+	public void failedQueryReleasesStatementAndConnection() throws Exception
+	{
+		Manager manager = new Manager();
+		_failing = "executeQuery";
+		try
+		{
+			manager.Get(new TestItemFilter(1));
+			fail();
+		}
+		catch (SQLException exc)
+		{
+			assertEquals("statement.executeQuery fallito", exc.getMessage());
+		}
+		assertEquals(Arrays.asList("statement", "connection"), CLOSED);
+		assertEquals(0, manager.GetLeakDetectionStatistics().Open);
+	}
+
+	@Test
+	public void failedCloseStillReleasesTheOthers() throws Exception
+	{
+		Manager manager = new Manager();
+		_failing = "close";
+		try
+		{
+			manager.Get(new TestItemFilter(1));
+			fail();
+		}
+		catch (SQLException exc)
+		{
+		}
+		assertEquals(Arrays.asList("resultset", "statement", "connection"), CLOSED);
+	}
+}
@@ -0,0 +1,238 @@
+package dal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ConnectionPoolTest
+{
+	private static final TestDatabase DATABASE = new TestDatabase("pooltest");
+
+	private ConnectionPool _pool;
+
+	@Before
+	public void setUp() throws SQLException
+	{
+		DATABASE.Reset();
+	}
+
+	@After
+	public void tearDown()
+	{
+		if (_pool != null)
+			_pool.Close();
+	}
+
+	private ConnectionPool _newPool(int maxSize, long borrowTimeout)
+	{
+		ConnectionPoolConfiguration configuration = new ConnectionPoolConfiguration();
+		configuration.MinSize = 0;
+		configuration.MaxSize = maxSize;
+		configuration.BorrowTimeout = borrowTimeout;
+		configuration.EvictionInterval = 0;
+		_pool = new ConnectionPool(DATABASE.Url, TestDatabase.USERNAME, TestDatabase.PASSWORD, configuration);
+		return _pool;
+	}
+
+	@Test
+	public void returnedConnectionIsReused() throws SQLException
+	{
+		ConnectionPool pool = _newPool(2, 1000);
+		Connection first = pool.GetConnection();
+		ConnectionPoolStatistics stats = pool.GetStatistics();
+		assertEquals(1, stats.Active);
+		assertEquals(0, stats.Idle);
+		first.close();
+		stats = pool.GetStatistics();
+		assertEquals(0, stats.Active);
+		assertEquals(1, stats.Idle);
+
+		Connection second = pool.GetConnection();
+		second.createStatement().close();
+		second.close();
+		stats = pool.GetStatistics();
+		assertEquals(2, stats.Borrows);
+		assertEquals(1, stats.Created);
+		assertEquals(1, stats.Idle);
+	}
+
+	@Test
+	public void returnedHandleCannotBeUsed() throws SQLException
+	{
+		Connection connection = _newPool(1, 1000).GetConnection();
+		connection.close();
+		assertTrue(connection.isClosed());
+		try
+		{
+			connection.createStatement();
+			fail("La connessione restituita al pool non deve essere utilizzabile");
+		}
+		catch (SQLException exc)
+		{
+			//atteso
+		}
+	}
+
+	@Test
+	public void exhaustedPoolTimesOut() throws SQLException
+	{
+		ConnectionPool pool = _newPool(1, 100);
+		Connection held = pool.GetConnection();
+		try
+		{
+			pool.GetConnection();
+			fail("Il pool esaurito deve scadere dopo BorrowTimeout");
+		}
+		catch (SQLException exc)
+		{
+			assertEquals(1, pool.GetStatistics().Timeouts);
+		}
+		finally
+		{
+			held.close();
+		}
+	}
+
+	@Test
+	public void waiterReceivesReturnedConnection() throws Exception
+	{
+		final ConnectionPool pool = _newPool(1, 5000);
+		Connection held = pool.GetConnection();
+		final CountDownLatch borrowed = new CountDownLatch(1);
+		final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+		Thread waiter = new Thread()
+		{
+			@Override
+			public void run()
+			{
+				try
+				{
+					Connection connection = pool.GetConnection();
+					borrowed.countDown();
+					connection.close();
+				}
+				catch (Throwable exc)
+				{
+					error.set(exc);
+				}
+			}
+		};
+		waiter.start();
+		assertTrue(!borrowed.await(100, TimeUnit.MILLISECONDS));
+		held.close();
+		assertTrue(borrowed.await(5, TimeUnit.SECONDS));
+		waiter.join();
+		assertEquals(null, error.get());
+		assertEquals(1, pool.GetStatistics().Created);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void closedStatementsAreNotRetained() throws Exception
+	{
+		Connection connection = _newPool(1, 1000).GetConnection();
+		Statement open = connection.createStatement();
+		for (int i = 0; i < 1000; i++)
+		{
+			connection.prepareCall("{call LIST_ITEM(?)}").close();
+			connection.createStatement().close();
+		}
+		//la connessione tiene traccia soltanto degli statement ancora aperti, più quelli chiusi dall'ultima pulizia
+		Field statements = Proxy.getInvocationHandler(connection).getClass().getDeclaredField("_statements");
+		statements.setAccessible(true);
+		assertTrue(((List<Statement>)statements.get(Proxy.getInvocationHandler(connection))).size() <= 64);
+
+		connection.close();
+		assertTrue(open.isClosed());
+	}
+
+	@Test
+	public void minimumConnectionsAreOpenedWithoutTheEvictor() throws SQLException
+	{
+		ConnectionPoolConfiguration configuration = new ConnectionPoolConfiguration();
+		configuration.MinSize = 2;
+		configuration.EvictionInterval = 0;
+		_pool = new ConnectionPool(DATABASE.Url, TestDatabase.USERNAME, TestDatabase.PASSWORD, configuration);
+		ConnectionPoolStatistics stats = _pool.GetStatistics();
+		assertEquals(2, stats.Created);
+		assertEquals(2, stats.Idle);
+	}
+
+	@Test
+	public void connectionSettingsAreRestoredOnReturn() throws SQLException
+	{
+		ConnectionPool pool = _newPool(1, 1000);
+		Connection first = pool.GetConnection();
+		boolean readOnly = first.isReadOnly();
+		int isolation = first.getTransactionIsolation();
+		first.setReadOnly(!readOnly);
+		first.setTransactionIsolation(isolation == Connection.TRANSACTION_SERIALIZABLE ? Connection.TRANSACTION_READ_COMMITTED : Connection.TRANSACTION_SERIALIZABLE);
+		first.close();
+
+		//il pool ha una sola connessione fisica: il secondo utilizzatore riceve la stessa
+		Connection second = pool.GetConnection();
+		try
+		{
+			assertEquals(readOnly, second.isReadOnly());
+			assertEquals(isolation, second.getTransactionIsolation());
+		}
+		finally
+		{
+			second.close();
+		}
+		assertEquals(1, pool.GetStatistics().Created);
+	}
+
+	@Test
+	public void cachedStatementsAreResetBeforeReuse() throws SQLException
+	{
+		DATABASE.Execute("CREATE PROCEDURE NEXT_ID(OUT ID BIGINT) SET ID = 42");
+		ConnectionPool pool = _newPool(1, 1000);
+		Connection connection = pool.GetConnection();
+		CallableStatement statement = connection.prepareCall("{call LIST_ITEM(?)}");
+		int fetchSize = statement.getFetchSize();
+		statement.setFetchSize(fetchSize + 7);
+		statement.setMaxRows(1);
+		statement.setQueryTimeout(3);
+		statement.close();
+		CallableStatement output = connection.prepareCall("{call NEXT_ID(?)}");
+		output.registerOutParameter(1, Types.BIGINT);
+		output.execute();
+		assertEquals(42, output.getLong(1));
+		output.close();
+		connection.close();
+
+		connection = pool.GetConnection();
+		try
+		{
+			statement = connection.prepareCall("{call LIST_ITEM(?)}");
+			assertEquals(1, pool.GetStatistics().StatementCacheHits);
+			assertEquals(fetchSize, statement.getFetchSize());
+			assertEquals(0, statement.getMaxRows());
+			assertEquals(0, statement.getQueryTimeout());
+			//lo statement con un parametro di uscita registrato non è tornato in cache
+			connection.prepareCall("{call NEXT_ID(?)}");
+			assertEquals(1, pool.GetStatistics().StatementCacheHits);
+		}
+		finally
+		{
+			connection.close();
+		}
+	}
+}
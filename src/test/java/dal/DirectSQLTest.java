@@ -0,0 +1,376 @@
+package dal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.sql.Driver;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+
+import javax.naming.NamingException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import entities.BaseEntity;
+import entities.BaseEntityList;
+import entities.EntityAttribute;
+import entities.EntityFieldAttribute;
+import filters.BaseFilter;
+import filters.FilterFieldAttribute;
+import sql.DBResponse;
+
+public class DirectSQLTest
+{
+	private static final TestDatabase DATABASE = new TestDatabase("directsqltest");
+
+	public static class Manager extends TestItemManager
+	{
+		public Manager() throws SQLException, NamingException
+		{
+			super();
+		}
+
+		@Override
+		public TestDatabase GetDatabase()
+		{
+			return DATABASE;
+		}
+
+		@Override
+		public boolean UsingDirectSQL()
+		{
+			return true;
+		}
+	}
+
+	/**
+	 * Filtro con due campi facoltativi, per le istruzioni generate per ogni combinazione di campi null
+	 */
+	public static class NameFilter extends BaseFilter<TestItem>
+	{
+		@FilterFieldAttribute(Name = "NAME")
+		public String Name;
+
+		@FilterFieldAttribute(Name = "AMOUNT")
+		public BigDecimal Amount;
+	}
+
+	@EntityAttribute(Name = "VERSIONED_ITEM")
+	public static class VersionedItem extends BaseEntity
+	{
+		@EntityFieldAttribute(Name = "ID", Key = true)
+		public Long Id;
+
+		@EntityFieldAttribute(Name = "NAME")
+		public String Name;
+
+		@EntityFieldAttribute(Name = "VERSION", Version = true)
+		public Long Version;
+	}
+
+	public static class VersionedItemList extends BaseEntityList<VersionedItem>
+	{
+		private static final long serialVersionUID = 1L;
+	}
+
+	public static class VersionedManager extends BaseJDBCManager<VersionedItem, VersionedItemList>
+	{
+		public VersionedManager() throws SQLException, NamingException
+		{
+			super();
+		}
+
+		@Override
+		public boolean UsingDirectSQL()
+		{
+			return true;
+		}
+
+		@Override
+		public boolean UsingConnectionPool()
+		{
+			return false;
+		}
+
+		@Override
+		public boolean UsingEmbeddedConnectionPool()
+		{
+			return true;
+		}
+
+		@Override
+		public String GetConnectionPoolName()
+		{
+			return null;
+		}
+
+		@Override
+		public String GetConnectionString()
+		{
+			return DATABASE.Url;
+		}
+
+		@Override
+		public String GetUsername()
+		{
+			return TestDatabase.USERNAME;
+		}
+
+		@Override
+		public String GetPassword()
+		{
+			return TestDatabase.PASSWORD;
+		}
+
+		@Override
+		public Driver GetJDBCDriver()
+		{
+			return new org.hsqldb.jdbc.JDBCDriver();
+		}
+
+		@Override
+		public String GetSaveProcedureName()
+		{
+			return null;
+		}
+
+		@Override
+		public String GetDeleteProcedureName()
+		{
+			return null;
+		}
+
+		@Override
+		public String GetProcedureName()
+		{
+			return null;
+		}
+
+		@Override
+		public String GetListProcedureName()
+		{
+			return null;
+		}
+	}
+
+	/**
+	 * Manager con versione che conferma ogni blocco di due entity
+	 */
+	public static class ChunkedVersionedManager extends VersionedManager
+	{
+		public ChunkedVersionedManager() throws SQLException, NamingException
+		{
+			super();
+		}
+
+		@Override
+		public int GetBatchSize()
+		{
+			return 2;
+		}
+
+		@Override
+		public boolean CommitEachBatch()
+		{
+			return true;
+		}
+	}
+
+	private Manager _manager;
+
+	@Before
+	public void setUp() throws Exception
+	{
+		DATABASE.Reset();
+		DATABASE.Execute("CREATE TABLE VERSIONED_ITEM (ID BIGINT PRIMARY KEY, NAME VARCHAR(100), VERSION BIGINT NOT NULL)");
+		_manager = new Manager();
+	}
+
+	@Test
+	public void saveUpdatesAndInsertsMissingRows() throws Exception
+	{
+		DATABASE.Insert(1, "uno");
+		TestItemList list = new TestItemList();
+		list.add(TestItem.Sample(1, "modificato"));
+		list.add(TestItem.Sample(2, "due"));
+		assertTrue(_manager.Save(list).Success);
+		assertEquals(2, DATABASE.Count());
+		assertEquals("modificato", DATABASE.ReadName(1));
+		assertEquals("due", _manager.Get(new TestItemFilter(2)).Data.get(0).Name);
+	}
+
+	@Test
+	public void nullFilterFieldsDoNotRestrictSelection() throws Exception
+	{
+		assertTrue(_manager.Save(TestItem.Sample(1, "uno"), TestItemList.class).Success);
+		assertTrue(_manager.Save(TestItem.Sample(2, null), TestItemList.class).Success);
+
+		//le righe con la colonna null non vengono escluse dai campi null del filtro
+		NameFilter filter = new NameFilter();
+		assertEquals(2, _manager.List(filter, TestItemList.class).Data.size());
+
+		filter.Name = "uno";
+		TestItemList byName = _manager.List(filter, TestItemList.class).Data;
+		assertEquals(1, byName.size());
+		assertEquals(Long.valueOf(1), byName.get(0).Id);
+
+		filter.Name = null;
+		filter.Amount = new BigDecimal("0.02");
+		TestItemList byAmount = _manager.List(filter, TestItemList.class).Data;
+		assertEquals(1, byAmount.size());
+		assertNull(byAmount.get(0).Name);
+	}
+
+	@Test
+	public void getManyPreparesOneStatementPerNullMask() throws Exception
+	{
+		assertTrue(_manager.Save(TestItem.Sample(1, "uno"), TestItemList.class).Success);
+		assertTrue(_manager.Save(TestItem.Sample(2, "due"), TestItemList.class).Success);
+		NameFilter byName = new NameFilter();
+		byName.Name = "uno";
+		NameFilter byAmount = new NameFilter();
+		byAmount.Amount = new BigDecimal("0.02");
+		TestItemList found = _manager.GetMany(Arrays.asList(byName, byAmount)).Data;
+		assertEquals(2, found.size());
+		assertEquals("uno", found.get(0).Name);
+		assertEquals("due", found.get(1).Name);
+	}
+
+	@Test
+	public void deleteWithoutPredicatesIsRefused() throws Exception
+	{
+		DATABASE.Insert(1, "uno");
+		DATABASE.Insert(2, "due");
+		try
+		{
+			_manager.Delete(new NameFilter());
+			fail("La cancellazione senza campi valorizzati deve essere rifiutata");
+		}
+		catch (IllegalArgumentException exc)
+		{
+			//atteso
+		}
+		assertEquals(2, DATABASE.Count());
+
+		NameFilter filter = new NameFilter();
+		filter.Name = "uno";
+		assertTrue(_manager.Delete(filter).Success);
+		assertEquals(1, DATABASE.Count());
+		assertEquals("due", DATABASE.ReadName(2));
+	}
+
+	@Test
+	public void versionAdvancesOnlyAfterOutermostCommit() throws Exception
+	{
+		VersionedManager manager = new VersionedManager();
+		VersionedItem item = new VersionedItem();
+		item.Id = 1L;
+		item.Name = "uno";
+		VersionedItemList list = new VersionedItemList();
+		list.add(item);
+
+		UnitOfWork unitOfWork = UnitOfWork.Begin();
+		try
+		{
+			assertTrue(manager.Save(list).Success);
+			//la transazione non è ancora confermata: la versione non cambia
+			assertNull(item.Version);
+			unitOfWork.Rollback();
+		}
+		finally
+		{
+			unitOfWork.Close();
+		}
+		assertNull(item.Version);
+
+		//dopo la rollback la entity è ancora nuova e viene inserita
+		assertTrue(manager.Save(list).Success);
+		assertEquals(Long.valueOf(1), item.Version);
+
+		unitOfWork = UnitOfWork.Begin();
+		try
+		{
+			item.Name = "modificato";
+			assertTrue(manager.Save(list).Success);
+			assertEquals(Long.valueOf(1), item.Version);
+			unitOfWork.Commit();
+		}
+		finally
+		{
+			unitOfWork.Close();
+		}
+		assertEquals(Long.valueOf(2), item.Version);
+
+		//una copia con la versione superata non sovrascrive la riga
+		VersionedItem stale = new VersionedItem();
+		stale.Id = 1L;
+		stale.Name = "superato";
+		stale.Version = 1L;
+		VersionedItemList staleList = new VersionedItemList();
+		staleList.add(stale);
+		assertFalse(manager.Save(staleList).Success);
+		assertEquals(Long.valueOf(1), stale.Version);
+	}
+
+	@Test
+	public void staleVersionDeleteFailsAndRollsBack() throws Exception
+	{
+		VersionedManager manager = new VersionedManager();
+		VersionedItemList list = new VersionedItemList();
+		list.add(_versioned(1, "uno"));
+		list.add(_versioned(2, "due"));
+		assertTrue(manager.Save(list).Success);
+		assertEquals(Long.valueOf(1), list.get(1).Version);
+
+		//la seconda entity ha una versione superata: nessuna delle due viene cancellata
+		list.get(1).Version = 5L;
+		DBResponse<VersionedItem, VersionedItemList> response = manager.Delete(list);
+		assertFalse(response.Success);
+		assertEquals(Arrays.asList(1), response.FailedRows);
+		assertEquals(Statement.EXECUTE_FAILED, response.UpdateCounts[0]);
+		assertEquals(2, DATABASE.Count("VERSIONED_ITEM"));
+
+		list.get(1).Version = 1L;
+		assertTrue(manager.Delete(list).Success);
+		assertEquals(0, DATABASE.Count("VERSIONED_ITEM"));
+	}
+
+	@Test
+	public void commitEachBatchConfirmsDirectSavesPerChunk() throws Exception
+	{
+		ChunkedVersionedManager manager = new ChunkedVersionedManager();
+		VersionedItemList list = new VersionedItemList();
+		for (int i = 1; i <= 5; i++)
+			list.add(_versioned(i, "nuovo"));
+		assertTrue(manager.Save(list).Success);
+		assertEquals(5, DATABASE.Count("VERSIONED_ITEM"));
+
+		//il secondo blocco contiene una versione superata: il primo resta confermato, i successivi non vengono eseguiti
+		for (VersionedItem item : list)
+			item.Name = "modificato";
+		list.get(2).Version = 5L;
+		DBResponse<VersionedItem, VersionedItemList> response = manager.Save(list);
+		assertFalse(response.Success);
+		assertEquals(Arrays.asList(2), response.FailedRows);
+		assertEquals(1, response.UpdateCounts[1]);
+		assertEquals(Statement.EXECUTE_FAILED, response.UpdateCounts[3]);
+		assertEquals(Statement.EXECUTE_FAILED, response.UpdateCounts[4]);
+		assertEquals(Long.valueOf(2), list.get(1).Version);
+		assertEquals(Long.valueOf(1), list.get(3).Version);
+		assertEquals(2, DATABASE.Count("VERSIONED_ITEM WHERE NAME = 'modificato'"));
+	}
+
+	private static VersionedItem _versioned(long id, String name)
+	{
+		VersionedItem item = new VersionedItem();
+		item.Id = id;
+		item.Name = name;
+		return item;
+	}
+}
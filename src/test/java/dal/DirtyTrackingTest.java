@@ -0,0 +1,165 @@
+package dal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+
+import javax.naming.NamingException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import sql.DBResponse;
+
+public class DirtyTrackingTest
+{
+	private static final TestDatabase DATABASE = new TestDatabase("dirtytrackingtest");
+
+	public static class Manager extends TestItemManager
+	{
+		public Manager() throws SQLException, NamingException
+		{
+			super();
+		}
+
+		@Override
+		public TestDatabase GetDatabase()
+		{
+			return DATABASE;
+		}
+
+		@Override
+		public boolean UsingDirtyTracking()
+		{
+			return true;
+		}
+	}
+
+	private Manager _manager;
+
+	@Before
+	public void setUp() throws Exception
+	{
+		DATABASE.Reset();
+		for (long id = 1; id <= 4; id++)
+			DATABASE.Insert(id, "item" + id);
+		_manager = new Manager();
+	}
+
+	private TestItemList _load() throws Exception
+	{
+		TestItemList list = _manager.List(new TestItemFilter(1), TestItemList.class).Data;
+		assertEquals(4, list.size());
+		return list;
+	}
+
+	private static String _tooLong()
+	{
+		char[] name = new char[101];
+		Arrays.fill(name, 'x');
+		return new String(name);
+	}
+
+	@Test
+	public void unchangedEntitiesAreSkippedAndCountsRemapped() throws Exception
+	{
+		TestItemList list = _load();
+		for (TestItem item : list)
+			assertFalse(item.IsDirty());
+		list.get(1).Name = "due";
+		list.get(3).Name = "quattro";
+		DBResponse<TestItem, TestItemList> response = _manager.Save(list);
+		assertTrue(response.Message, response.Success);
+		assertEquals(2, response.Skipped);
+		assertEquals(4, response.UpdateCounts.length);
+		//le entity saltate restano a 0, quelle salvate tornano nelle posizioni della lista originale
+		assertEquals(0, response.UpdateCounts[0]);
+		assertTrue(response.UpdateCounts[1] != 0);
+		assertEquals(0, response.UpdateCounts[2]);
+		assertTrue(response.UpdateCounts[3] != 0);
+		assertTrue(response.FailedRows.isEmpty());
+		assertEquals("due", DATABASE.ReadName(2));
+		assertEquals("quattro", DATABASE.ReadName(4));
+		for (TestItem item : list)
+			assertFalse(item.IsDirty());
+		//un secondo salvataggio senza modifiche non invia nulla
+		response = _manager.Save(list);
+		assertTrue(response.Success);
+		assertEquals(4, response.Skipped);
+		assertArrayEquals(new int[4], response.UpdateCounts);
+	}
+
+	@Test
+	public void failedRowsAreRemappedAndStayDirty() throws Exception
+	{
+		TestItemList list = _load();
+		list.get(2).Name = _tooLong();
+		DBResponse<TestItem, TestItemList> response = _manager.Save(list);
+		assertFalse(response.Success);
+		assertEquals(3, response.Skipped);
+		assertEquals(Arrays.asList(2), response.FailedRows);
+		assertEquals(Statement.EXECUTE_FAILED, response.UpdateCounts[2]);
+		assertTrue(list.get(2).IsDirty());
+		assertEquals("item3", DATABASE.ReadName(3));
+	}
+
+	@Test
+	public void savedEntitiesBecomeCleanOnlyAfterCommit() throws Exception
+	{
+		TestItemList list = _load();
+		list.get(0).Name = "uno";
+		list.get(1).Name = "due";
+		UnitOfWork unitOfWork = UnitOfWork.Begin();
+		try
+		{
+			DBResponse<TestItem, TestItemList> response = _manager.Save(list);
+			assertTrue(response.Message, response.Success);
+			assertEquals(2, response.Skipped);
+			//il salvataggio può ancora essere annullato
+			assertTrue(list.get(0).IsDirty());
+			assertTrue(list.get(1).IsDirty());
+			//una modifica successiva al salvataggio non è stata inviata al database
+			list.get(1).Name = "ancora due";
+			unitOfWork.Commit();
+		}
+		finally
+		{
+			unitOfWork.Close();
+		}
+		assertFalse(list.get(0).IsDirty());
+		assertTrue(list.get(1).IsDirty());
+		assertEquals("due", DATABASE.ReadName(2));
+		DBResponse<TestItem, TestItemList> response = _manager.Save(list);
+		assertTrue(response.Success);
+		assertEquals(3, response.Skipped);
+		assertEquals("ancora due", DATABASE.ReadName(2));
+	}
+
+	@Test
+	public void rolledBackEntitiesStayDirty() throws Exception
+	{
+		TestItemList list = _load();
+		list.get(0).Name = "uno";
+		UnitOfWork unitOfWork = UnitOfWork.Begin();
+		try
+		{
+			assertTrue(_manager.Save(list).Success);
+			unitOfWork.Rollback();
+		}
+		finally
+		{
+			unitOfWork.Close();
+		}
+		assertTrue(list.get(0).IsDirty());
+		assertEquals("item1", DATABASE.ReadName(1));
+		DBResponse<TestItem, TestItemList> response = _manager.Save(list);
+		assertTrue(response.Success);
+		assertEquals(3, response.Skipped);
+		assertEquals("uno", DATABASE.ReadName(1));
+	}
+}
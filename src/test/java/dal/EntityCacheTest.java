@@ -0,0 +1,158 @@
+package dal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.SQLException;
+
+import javax.naming.NamingException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class EntityCacheTest
+{
+	private static final TestDatabase DATABASE = new TestDatabase("entitycachetest");
+
+	public static class Manager extends TestItemManager
+	{
+		public Manager() throws SQLException, NamingException
+		{
+			super();
+		}
+
+		@Override
+		public TestDatabase GetDatabase()
+		{
+			return DATABASE;
+		}
+
+		@Override
+		public boolean UsingEntityCache()
+		{
+			return true;
+		}
+	}
+
+	public static class CoalescingManager extends Manager
+	{
+		public CoalescingManager() throws SQLException, NamingException
+		{
+			super();
+		}
+
+		@Override
+		public boolean UsingRequestCoalescing()
+		{
+			return true;
+		}
+	}
+
+	private Manager _manager;
+
+	@Before
+	public void setUp() throws Exception
+	{
+		DATABASE.Reset();
+		_manager = new Manager();
+		EntityCache.GetCache(Manager.class.getName(), null).Clear();
+	}
+
+	private String _getName(long id) throws Exception
+	{
+		TestItemList data = _manager.Get(new TestItemFilter(id)).Data;
+		return data.isEmpty() ? null : data.get(0).Name;
+	}
+
+	@Test
+	public void getIsServedFromCache() throws Exception
+	{
+		DATABASE.Insert(1, "uno");
+		EntityCacheStatistics before = _manager.GetEntityCacheStatistics();
+		assertEquals("uno", _getName(1));
+		DATABASE.Execute("UPDATE TEST_ITEM SET NAME = 'esterno' WHERE ID = 1");
+		//la modifica fatta fuori dal manager non è vista finché il risultato resta in cache
+		assertEquals("uno", _getName(1));
+		EntityCacheStatistics stats = _manager.GetEntityCacheStatistics();
+		assertEquals(1, stats.Hits - before.Hits);
+		assertEquals(1, stats.Misses - before.Misses);
+		assertEquals(1, stats.Size);
+	}
+
+	@Test
+	public void saveInvalidatesCachedEntity() throws Exception
+	{
+		DATABASE.Insert(1, "uno");
+		DATABASE.Insert(2, "due");
+		assertEquals("uno", _getName(1));
+		assertEquals("due", _getName(2));
+		assertTrue(_manager.Save(TestItem.Sample(1, "modificato"), TestItemList.class).Success);
+		assertEquals(1, _manager.GetEntityCacheStatistics().Size);
+		assertEquals("modificato", _getName(1));
+	}
+
+	@Test
+	public void deleteInvalidatesCachedEntity() throws Exception
+	{
+		DATABASE.Insert(1, "uno");
+		assertEquals("uno", _getName(1));
+		assertTrue(_manager.Delete(TestItem.Sample(1, "uno"), TestItemList.class).Success);
+		assertEquals(null, _getName(1));
+	}
+
+	@Test
+	public void saveInUnitOfWorkInvalidatesAfterCommit() throws Exception
+	{
+		DATABASE.Insert(1, "uno");
+		assertEquals("uno", _getName(1));
+		UnitOfWork unitOfWork = UnitOfWork.Begin();
+		try
+		{
+			assertTrue(_manager.Save(TestItem.Sample(1, "modificato"), TestItemList.class).Success);
+			assertTrue(_manager.ExecuteUpdate(new TestItemFilter(2), "{call DELETE_ITEM(?, NULL, NULL)}").Success);
+			//fino al commit le letture fuori dalla UnitOfWork vedono ancora il dato in cache, che è quello confermato
+			assertEquals(1, _manager.GetEntityCacheStatistics().Size);
+			unitOfWork.Commit();
+			assertEquals(0, _manager.GetEntityCacheStatistics().Size);
+		}
+		finally
+		{
+			unitOfWork.Close();
+		}
+		assertEquals("modificato", _getName(1));
+	}
+
+	@Test
+	public void rolledBackSaveLeavesConfirmedData() throws Exception
+	{
+		DATABASE.Insert(1, "uno");
+		assertEquals("uno", _getName(1));
+		UnitOfWork unitOfWork = UnitOfWork.Begin();
+		try
+		{
+			_manager.Save(TestItem.Sample(1, "annullato"), TestItemList.class);
+		}
+		finally
+		{
+			unitOfWork.Close();
+		}
+		assertEquals("uno", _getName(1));
+		assertEquals("uno", DATABASE.ReadName(1));
+	}
+
+	@Test
+	public void coalescedGetPopulatesCacheOnce() throws Exception
+	{
+		DATABASE.Insert(1, "uno");
+		CoalescingManager manager = new CoalescingManager();
+		EntityCache.GetCache(CoalescingManager.class.getName(), null).Clear();
+		SingleFlightStatistics before = manager.GetRequestCoalescingStatistics();
+		assertEquals("uno", manager.Get(new TestItemFilter(1)).Data.get(0).Name);
+		assertEquals("uno", manager.Get(new TestItemFilter(1)).Data.get(0).Name);
+		assertEquals(1, manager.GetEntityCacheStatistics().Size);
+		//la seconda Get è servita dalla cache senza passare dal SingleFlight
+		assertEquals(1, manager.GetRequestCoalescingStatistics().Executions - before.Executions);
+		assertTrue(manager.Save(TestItem.Sample(1, "modificato"), TestItemList.class).Success);
+		assertEquals("modificato", manager.Get(new TestItemFilter(1)).Data.get(0).Name);
+	}
+}
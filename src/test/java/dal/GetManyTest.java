@@ -0,0 +1,102 @@
+package dal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.naming.NamingException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import filters.BaseFilter;
+import filters.FilterFieldAttribute;
+import sql.DBResponse;
+
+public class GetManyTest
+{
+	private static final TestDatabase DATABASE = new TestDatabase("getmanytest");
+
+	public static class Manager extends TestItemManager
+	{
+		public Manager() throws SQLException, NamingException
+		{
+			super();
+		}
+
+		@Override
+		public TestDatabase GetDatabase()
+		{
+			return DATABASE;
+		}
+
+		@Override
+		public String GetMultiGetProcedureName()
+		{
+			return "{call MULTI_GET_ITEM(?)}";
+		}
+
+		@Override
+		public int GetMultiGetChunkSize()
+		{
+			return 2;
+		}
+	}
+
+	/**
+	 * Filtro con la chiave di tipo diverso da quello del campo della entity
+	 */
+	public static class DecimalFilter extends BaseFilter<TestItem>
+	{
+		@FilterFieldAttribute(Name = "ID")
+		public BigDecimal Id;
+
+		public DecimalFilter(BigDecimal id)
+		{
+			Id = id;
+		}
+	}
+
+	private Manager _manager;
+
+	@Before
+	public void setUp() throws Exception
+	{
+		DATABASE.Reset();
+		for (int i = 1; i <= 5; i++)
+			DATABASE.Insert(i, "item " + i);
+		_manager = new Manager();
+	}
+
+	@Test
+	public void chunkedReadMatchesFiltersInOrder() throws Exception
+	{
+		ArrayList<TestItemFilter> filters = new ArrayList<TestItemFilter>();
+		for (long id : new long[] { 4, 1, 9, 3, 1 })
+			filters.add(new TestItemFilter(id));
+		DBResponse<TestItem, TestItemList> response = _manager.GetMany(filters);
+		assertTrue(response.Success);
+		assertEquals(3, response.Data.size());
+		assertEquals("item 4", response.Data.get(0).Name);
+		assertEquals("item 1", response.Data.get(1).Name);
+		assertEquals("item 3", response.Data.get(2).Name);
+		assertNull(response.EntitiesByKey.get(Arrays.<Object>asList(9L)));
+	}
+
+	@Test
+	public void keysAreComparedByValue() throws Exception
+	{
+		List<DecimalFilter> filters = Arrays.asList(new DecimalFilter(new BigDecimal("2.00")), new DecimalFilter(new BigDecimal("5")), new DecimalFilter(null));
+		DBResponse<TestItem, TestItemList> response = _manager.GetMany(filters);
+		assertTrue(response.Success);
+		assertEquals(2, response.Data.size());
+		assertEquals("item 2", response.EntitiesByKey.get(Arrays.<Object>asList(new BigDecimal("2.00"))).Name);
+		assertEquals("item 5", response.EntitiesByKey.get(Arrays.<Object>asList(new BigDecimal("5"))).Name);
+	}
+}
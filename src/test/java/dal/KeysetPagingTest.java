@@ -0,0 +1,125 @@
+package dal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.SQLException;
+
+import javax.naming.NamingException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import sql.DBResponse;
+
+public class KeysetPagingTest
+{
+	private static final TestDatabase DATABASE = new TestDatabase("keysetpagingtest");
+
+	public static class Manager extends TestItemManager
+	{
+		public Manager() throws SQLException, NamingException
+		{
+			super();
+		}
+
+		@Override
+		public TestDatabase GetDatabase()
+		{
+			return DATABASE;
+		}
+
+		@Override
+		public String GetListProcedureName()
+		{
+			return "{call LIST_ITEM_PAGE(?, ?, ?)}";
+		}
+	}
+
+	/** Indica se lo schema è già stato creato: ricreandolo, gli statement in cache nel pool farebbero riferimento a procedure non più esistenti */
+	private static boolean _created;
+
+	private Manager _manager;
+
+	@Before
+	public void setUp() throws Exception
+	{
+		if (!_created)
+		{
+			DATABASE.Reset();
+			//per posizione: prima i parametri del filtro, poi PAGE_SIZE e AFTER_ID
+			DATABASE.Execute("CREATE PROCEDURE LIST_ITEM_PAGE(IN ID BIGINT, IN PAGE_SIZE INT, IN AFTER_ID BIGINT) READS SQL DATA DYNAMIC RESULT SETS 1 BEGIN ATOMIC "
+				+ "DECLARE V BIGINT; DECLARE N INT; DECLARE A BIGINT; SET V = ID; SET N = PAGE_SIZE; SET A = AFTER_ID; "
+				+ "BEGIN ATOMIC DECLARE RESULT CURSOR WITH RETURN FOR SELECT ID, NAME, AMOUNT FROM TEST_ITEM "
+				+ "WHERE TEST_ITEM.ID >= V AND (A IS NULL OR TEST_ITEM.ID > A) ORDER BY ID LIMIT N; OPEN RESULT; END; END");
+			_created = true;
+		}
+		DATABASE.Execute("DELETE FROM TEST_ITEM");
+		for (long id = 1; id <= 7; id++)
+			DATABASE.Insert(id, "item" + id);
+		_manager = new Manager();
+	}
+
+	private DBResponse<TestItem, TestItemList> _page(long from, int pageSize, String token) throws Exception
+	{
+		TestItemFilter filter = new TestItemFilter(from);
+		filter.PageSize = pageSize;
+		filter.ContinuationToken = token;
+		DBResponse<TestItem, TestItemList> response = _manager.List(filter, TestItemList.class);
+		assertTrue(response.Message, response.Success);
+		return response;
+	}
+
+	@Test
+	public void pagesFollowTheKeyAfterTheFilterParameters() throws Exception
+	{
+		//il filtro parte da 2 e la pagina è di 3: parametri scambiati darebbero righe diverse
+		DBResponse<TestItem, TestItemList> first = _page(2, 3, null);
+		assertEquals(3, first.Data.size());
+		assertEquals(Long.valueOf(2), first.Data.get(0).Id);
+		assertEquals(Long.valueOf(4), first.Data.get(2).Id);
+		assertEquals("4", first.ContinuationToken);
+		DBResponse<TestItem, TestItemList> second = _page(2, 3, first.ContinuationToken);
+		assertEquals(3, second.Data.size());
+		assertEquals(Long.valueOf(5), second.Data.get(0).Id);
+		assertNotNull(second.ContinuationToken);
+		//una pagina piena restituisce sempre il token: la successiva è vuota e non ne restituisce
+		DBResponse<TestItem, TestItemList> last = _page(2, 3, second.ContinuationToken);
+		assertEquals(0, last.Data.size());
+		assertNull(last.ContinuationToken);
+	}
+
+	@Test
+	public void shortLastPageHasNoContinuationToken() throws Exception
+	{
+		DBResponse<TestItem, TestItemList> first = _page(1, 4, null);
+		assertEquals(4, first.Data.size());
+		DBResponse<TestItem, TestItemList> last = _page(1, 4, first.ContinuationToken);
+		assertEquals(3, last.Data.size());
+		assertEquals(Long.valueOf(7), last.Data.get(2).Id);
+		assertNull(last.ContinuationToken);
+	}
+
+	@Test
+	public void invalidTokenIsRejectedAndReleasesTheConnection() throws Exception
+	{
+		for (String token : new String[] { "abc", "1,2" })
+		{
+			TestItemFilter filter = new TestItemFilter(1);
+			filter.PageSize = 3;
+			filter.ContinuationToken = token;
+			try
+			{
+				_manager.List(filter, TestItemList.class);
+				fail(token);
+			}
+			catch (IllegalArgumentException exc)
+			{
+			}
+			assertEquals(0, _manager.GetConnectionPoolStatistics().Active);
+		}
+	}
+}
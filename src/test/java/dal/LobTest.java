@@ -0,0 +1,196 @@
+package dal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.sql.Driver;
+import java.sql.SQLException;
+
+import javax.naming.NamingException;
+
+import org.junit.After;
+import org.junit.Test;
+
+import entities.BaseEntity;
+import entities.BaseEntityList;
+import entities.EntityAttribute;
+import entities.EntityFieldAttribute;
+import sql.BinaryLob;
+
+public class LobTest
+{
+	private static final TestDatabase DATABASE = new TestDatabase("lobtest");
+
+	@EntityAttribute(Name = "LOB_ITEM")
+	public static class LobItem extends BaseEntity
+	{
+		@EntityFieldAttribute(Name = "ID", Key = true)
+		public Long Id;
+
+		@EntityFieldAttribute(Name = "CONTENT")
+		public BinaryLob Content;
+	}
+
+	public static class LobItemList extends BaseEntityList<LobItem>
+	{
+		private static final long serialVersionUID = 1L;
+	}
+
+	/**
+	 * Manager che chiede cache e raggruppamento delle chiamate per una entity con un campo LOB
+	 */
+	public static class LobManager extends BaseJDBCManager<LobItem, LobItemList>
+	{
+		public LobManager() throws SQLException, NamingException
+		{
+			super();
+		}
+
+		@Override
+		public boolean UsingEntityCache()
+		{
+			return true;
+		}
+
+		@Override
+		public boolean UsingRequestCoalescing()
+		{
+			return true;
+		}
+
+		@Override
+		public boolean UsingConnectionPool()
+		{
+			return false;
+		}
+
+		@Override
+		public boolean UsingEmbeddedConnectionPool()
+		{
+			return true;
+		}
+
+		@Override
+		public String GetConnectionPoolName()
+		{
+			return null;
+		}
+
+		@Override
+		public String GetConnectionString()
+		{
+			return DATABASE.Url;
+		}
+
+		@Override
+		public String GetUsername()
+		{
+			return TestDatabase.USERNAME;
+		}
+
+		@Override
+		public String GetPassword()
+		{
+			return TestDatabase.PASSWORD;
+		}
+
+		@Override
+		public Driver GetJDBCDriver()
+		{
+			return new org.hsqldb.jdbc.JDBCDriver();
+		}
+
+		@Override
+		public String GetSaveProcedureName()
+		{
+			return null;
+		}
+
+		@Override
+		public String GetDeleteProcedureName()
+		{
+			return null;
+		}
+
+		@Override
+		public String GetProcedureName()
+		{
+			return null;
+		}
+
+		@Override
+		public String GetListProcedureName()
+		{
+			return null;
+		}
+	}
+
+	private final int _threshold = BinaryLob.GetMemoryThreshold();
+
+	@After
+	public void tearDown()
+	{
+		BinaryLob.SetMemoryThreshold(_threshold);
+	}
+
+	@Test
+	public void spooledContentIsReadFromFileAndDeletedOnClose() throws Exception
+	{
+		BinaryLob.SetMemoryThreshold(4);
+		int before = _spoolFiles();
+		BinaryLob lob = BinaryLob.Spool(new ByteArrayInputStream(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 }));
+		assertTrue(lob.IsSpooled());
+		assertEquals(8, lob.GetLength());
+		assertEquals(before + 1, _spoolFiles());
+
+		byte[] content = new byte[8];
+		assertEquals(8, lob.read(content, 0, 8));
+		assertEquals(8, content[7]);
+		lob.close();
+		assertEquals(before, _spoolFiles());
+	}
+
+	@Test
+	public void closedUnreadContentCannotBeOpened() throws Exception
+	{
+		BinaryLob.SetMemoryThreshold(0);
+		BinaryLob lob = BinaryLob.Spool(new ByteArrayInputStream(new byte[] { 1, 2 }));
+		lob.close();
+		try
+		{
+			lob.read();
+			fail("Un contenuto chiuso non deve essere riaperto");
+		}
+		catch (IOException exc)
+		{
+			//atteso
+		}
+	}
+
+	@Test
+	public void lobEntitiesAreNotShared() throws Exception
+	{
+		LobManager manager = new LobManager();
+		assertNull(manager.GetEntityCacheStatistics());
+		assertNull(manager.GetRequestCoalescingStatistics());
+	}
+
+	private static int _spoolFiles()
+	{
+		String[] names = new File(System.getProperty("java.io.tmpdir")).list(new FilenameFilter()
+		{
+			@Override
+			public boolean accept(File dir, String name)
+			{
+				return name.startsWith("mel8fw-lob") && name.endsWith(".bin");
+			}
+		});
+		return names == null ? 0 : names.length;
+	}
+}
@@ -0,0 +1,231 @@
+package dal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.sql.Driver;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import javax.naming.NamingException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import entities.BaseEntity;
+import entities.BaseEntityList;
+import entities.EntityAttribute;
+import entities.EntityFieldAttribute;
+import enumerations.ParameterDirection;
+import filters.BaseFilter;
+import filters.FilterFieldAttribute;
+import sql.DBResponse;
+
+public class OutputParametersTest
+{
+	private static final TestDatabase DATABASE = new TestDatabase("outputparameterstest");
+
+	/**
+	 * Entity con chiave generata dalla procedura di salvataggio (INOUT) e importo calcolato (OUT)
+	 */
+	@EntityAttribute(Name = "TEST_ITEM")
+	public static class NumberedItem extends BaseEntity
+	{
+		@EntityFieldAttribute(Name = "ID", Key = true, Direction = ParameterDirection.INOUT)
+		public Long Id;
+
+		@EntityFieldAttribute(Name = "NAME")
+		public String Name;
+
+		@EntityFieldAttribute(Name = "AMOUNT", Direction = ParameterDirection.OUT)
+		public BigDecimal Amount;
+
+		public NumberedItem()
+		{
+		}
+
+		public NumberedItem(Long id, String name)
+		{
+			Id = id;
+			Name = name;
+		}
+	}
+
+	public static class NumberedItemList extends BaseEntityList<NumberedItem>
+	{
+		private static final long serialVersionUID = 1L;
+	}
+
+	public static class RenameFilter extends BaseFilter<NumberedItem>
+	{
+		@FilterFieldAttribute(Name = "PREFIX")
+		public String Prefix;
+
+		@FilterFieldAttribute(Name = "UPDATED", Direction = ParameterDirection.OUT)
+		public Long Updated;
+	}
+
+	public static class Manager extends BaseJDBCManager<NumberedItem, NumberedItemList>
+	{
+		public Manager() throws SQLException, NamingException
+		{
+			super();
+		}
+
+		@Override
+		public boolean UsingConnectionPool()
+		{
+			return false;
+		}
+
+		@Override
+		public boolean UsingEmbeddedConnectionPool()
+		{
+			return true;
+		}
+
+		@Override
+		public String GetConnectionPoolName()
+		{
+			return null;
+		}
+
+		@Override
+		public String GetConnectionString()
+		{
+			return DATABASE.Url;
+		}
+
+		@Override
+		public String GetUsername()
+		{
+			return TestDatabase.USERNAME;
+		}
+
+		@Override
+		public String GetPassword()
+		{
+			return TestDatabase.PASSWORD;
+		}
+
+		@Override
+		public Driver GetJDBCDriver()
+		{
+			return new org.hsqldb.jdbc.JDBCDriver();
+		}
+
+		@Override
+		public boolean UsingPositionalBinding()
+		{
+			return true;
+		}
+
+		@Override
+		public int GetBatchSize()
+		{
+			return 2;
+		}
+
+		@Override
+		public String GetSaveProcedureName()
+		{
+			return "{call SAVE_NUMBERED_ITEM(?, ?, ?)}";
+		}
+
+		@Override
+		public String GetDeleteProcedureName()
+		{
+			return null;
+		}
+
+		@Override
+		public String GetProcedureName()
+		{
+			return null;
+		}
+
+		@Override
+		public String GetListProcedureName()
+		{
+			return null;
+		}
+	}
+
+	/** Indica se lo schema è già stato creato: ricreandolo, gli statement in cache nel pool farebbero riferimento a procedure non più esistenti */
+	private static boolean _created;
+
+	private Manager _manager;
+
+	@Before
+	public void setUp() throws Exception
+	{
+		if (!_created)
+		{
+			DATABASE.Reset();
+			DATABASE.Execute("CREATE PROCEDURE SAVE_NUMBERED_ITEM(INOUT ID BIGINT, IN NAME VARCHAR(100), OUT AMOUNT DECIMAL(18,2)) MODIFIES SQL DATA BEGIN ATOMIC "
+					+ "IF ID IS NULL THEN SET ID = (SELECT GREATEST(COALESCE(MAX(T.ID), 0), 99) + 1 FROM TEST_ITEM T); END IF; "
+					+ "SET AMOUNT = CHAR_LENGTH(NAME); "
+					+ "MERGE INTO TEST_ITEM T USING (VALUES(ID, NAME, CHAR_LENGTH(NAME))) AS S(ID, NAME, AMOUNT) ON T.ID = S.ID "
+					+ "WHEN MATCHED THEN UPDATE SET T.NAME = S.NAME, T.AMOUNT = S.AMOUNT "
+					+ "WHEN NOT MATCHED THEN INSERT VALUES S.ID, S.NAME, S.AMOUNT; END",
+				"CREATE PROCEDURE RENAME_ITEMS(IN PREFIX VARCHAR(100), OUT UPDATED BIGINT) MODIFIES SQL DATA BEGIN ATOMIC "
+					+ "UPDATE TEST_ITEM SET NAME = PREFIX || NAME; SET UPDATED = (SELECT COUNT(*) FROM TEST_ITEM); END");
+			_created = true;
+		}
+		DATABASE.Execute("DELETE FROM TEST_ITEM");
+		_manager = new Manager();
+	}
+
+	@Test
+	public void saveOfOneEntityCopiesOutputValues() throws Exception
+	{
+		NumberedItem item = new NumberedItem(null, "uno");
+		DBResponse<NumberedItem, NumberedItemList> response = _manager.Save(item, NumberedItemList.class);
+		assertTrue(response.Message, response.Success);
+		assertEquals(Long.valueOf(100), item.Id);
+		assertEquals(0, new BigDecimal(3).compareTo(item.Amount));
+		assertEquals("uno", DATABASE.ReadName(100));
+	}
+
+	@Test
+	public void saveOfListCopiesOutputValuesIntoEveryEntity() throws Exception
+	{
+		DATABASE.Insert(7, "sette");
+		NumberedItemList list = new NumberedItemList();
+		list.add(new NumberedItem(null, "a"));
+		list.add(new NumberedItem(7L, "modificato"));
+		list.add(new NumberedItem(null, "bb"));
+		list.add(new NumberedItem(null, "ccc"));
+		list.add(new NumberedItem(null, "dddd"));
+		//la lista supera GetBatchSize(): ogni entity ha parametri di uscita e viene eseguita singolarmente
+		DBResponse<NumberedItem, NumberedItemList> response = _manager.Save(list);
+		assertTrue(response.Message, response.Success);
+		assertEquals(Long.valueOf(100), list.get(0).Id);
+		assertEquals(Long.valueOf(7), list.get(1).Id);
+		assertEquals(Long.valueOf(101), list.get(2).Id);
+		assertEquals(Long.valueOf(102), list.get(3).Id);
+		assertEquals(Long.valueOf(103), list.get(4).Id);
+		for (int i = 0; i < list.size(); i++)
+		{
+			assertEquals(0, new BigDecimal(list.get(i).Name.length()).compareTo(list.get(i).Amount));
+			assertTrue(response.UpdateCounts[i] != Statement.EXECUTE_FAILED);
+		}
+		assertEquals("modificato", DATABASE.ReadName(7));
+		assertEquals("dddd", DATABASE.ReadName(103));
+		assertEquals(5, DATABASE.Count());
+	}
+
+	@Test
+	public void executeUpdateCopiesOutputValuesIntoTheFilter() throws Exception
+	{
+		DATABASE.Insert(1, "uno");
+		DATABASE.Insert(2, "due");
+		RenameFilter filter = new RenameFilter();
+		filter.Prefix = "x";
+		DBResponse<NumberedItem, NumberedItemList> response = _manager.ExecuteUpdate(filter, "{call RENAME_ITEMS(?, ?)}");
+		assertTrue(response.Message, response.Success);
+		assertEquals(Long.valueOf(2), filter.Updated);
+		assertEquals("xdue", DATABASE.ReadName(2));
+	}
+}
@@ -0,0 +1,128 @@
+package dal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.naming.NamingException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import entities.BaseEntity;
+import filters.BaseFilter;
+import filters.FilterPartitioner;
+import sql.DBResponse;
+
+public class ParallelSelectionTest
+{
+	private static final TestDatabase DATABASE = new TestDatabase("parallelselectiontest");
+
+	/**
+	 * Manager con un solo thread per le partizioni, così che una selezione parallela annidata in attesa di un thread libero resterebbe bloccata
+	 */
+	public static class Manager extends TestItemManager
+	{
+		public Manager() throws SQLException, NamingException
+		{
+			super();
+		}
+
+		@Override
+		public TestDatabase GetDatabase()
+		{
+			return DATABASE;
+		}
+
+		@Override
+		public AsyncExecutorConfiguration GetAsyncExecutorConfiguration()
+		{
+			AsyncExecutorConfiguration configuration = super.GetAsyncExecutorConfiguration();
+			configuration.Threads = 1;
+			return configuration;
+		}
+	}
+
+	public static class ShortTimeoutManager extends Manager
+	{
+		public ShortTimeoutManager() throws SQLException, NamingException
+		{
+			super();
+		}
+
+		@Override
+		public long GetPartitionTimeout()
+		{
+			return 300;
+		}
+	}
+
+	/**
+	 * Suddivide il filtro in due copie identiche
+	 */
+	public static class TwoCopies extends FilterPartitioner
+	{
+		@Override
+		public <TEntity extends BaseEntity> List<BaseFilter<TEntity>> Partition(BaseFilter<TEntity> filter) throws InstantiationException, IllegalAccessException
+		{
+			ArrayList<BaseFilter<TEntity>> partitions = new ArrayList<BaseFilter<TEntity>>();
+			partitions.add(Copy(filter));
+			partitions.add(Copy(filter));
+			return partitions;
+		}
+	}
+
+	@Before
+	public void setUp() throws Exception
+	{
+		DATABASE.Reset();
+		DATABASE.Insert(1, "uno");
+		DATABASE.Insert(2, "due");
+	}
+
+	@Test
+	public void nestedParallelSelectionRunsInline() throws Exception
+	{
+		final Manager manager = new Manager();
+		final AtomicLong nestedRows = new AtomicLong();
+		DBResponse<TestItem, TestItemList> response = manager.ExecuteSelectionParallel(new TestItemFilter(2), "{call LIST_ITEM(?)}", new TwoCopies(), new EntityHandler<TestItem>()
+		{
+			@Override
+			public boolean Handle(TestItem entity) throws Exception
+			{
+				//avviata dal thread di una partizione: con un solo thread attenderebbe partizioni che non potrebbero mai partire
+				DBResponse<TestItem, TestItemList> nested = manager.ListParallel(new TestItemFilter(1), new TwoCopies(), TestItemList.class);
+				assertTrue(nested.Success);
+				nestedRows.addAndGet(nested.Data.size());
+				return true;
+			}
+		}, 0);
+		assertTrue(response.Success);
+		assertEquals(2, response.Rows);
+		assertEquals(8, nestedRows.get());
+	}
+
+	@Test
+	public void partitionsNotCompletedInTimeFail() throws Exception
+	{
+		ShortTimeoutManager manager = new ShortTimeoutManager();
+		long start = System.currentTimeMillis();
+		DBResponse<TestItem, TestItemList> response = manager.ExecuteSelectionParallel(new TestItemFilter(1), "{call LIST_ITEM(?)}", new TwoCopies(), new EntityHandler<TestItem>()
+		{
+			@Override
+			public boolean Handle(TestItem entity) throws Exception
+			{
+				Thread.sleep(5000);
+				return true;
+			}
+		}, 0);
+		assertFalse(response.Success);
+		assertEquals(2, response.PartitionErrors.size());
+		assertTrue(System.currentTimeMillis() - start < 5000);
+	}
+}
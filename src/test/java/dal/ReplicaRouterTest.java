@@ -0,0 +1,267 @@
+package dal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+
+import javax.naming.NamingException;
+import javax.sql.DataSource;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ReplicaRouterTest
+{
+	private static final TestDatabase PRIMARY = new TestDatabase("replicaprimary");
+	private static final TestDatabase REPLICA = new TestDatabase("replicareplica");
+	private static final PooledDataSource REPLICA_SOURCE = new PooledDataSource(REPLICA.Url, TestDatabase.USERNAME, TestDatabase.PASSWORD, new ConnectionPoolConfiguration());
+	private static final FailingDataSource FAILING_SOURCE = new FailingDataSource(REPLICA_SOURCE);
+
+	public static class RoutedManager extends TestItemManager
+	{
+		public RoutedManager() throws SQLException, NamingException
+		{
+			super();
+		}
+
+		@Override
+		public TestDatabase GetDatabase()
+		{
+			return PRIMARY;
+		}
+
+		@Override
+		public List<DataSource> GetReadReplicas()
+		{
+			return Arrays.<DataSource>asList(REPLICA_SOURCE);
+		}
+	}
+
+	public static class CachedManager extends RoutedManager
+	{
+		public CachedManager() throws SQLException, NamingException
+		{
+			super();
+		}
+
+		@Override
+		public boolean UsingEntityCache()
+		{
+			return true;
+		}
+	}
+
+	public static class FailingManager extends RoutedManager
+	{
+		public FailingManager() throws SQLException, NamingException
+		{
+			super();
+		}
+
+		@Override
+		public List<DataSource> GetReadReplicas()
+		{
+			return Arrays.<DataSource>asList(FAILING_SOURCE);
+		}
+
+		@Override
+		public ReplicaRoutingConfiguration GetReplicaRoutingConfiguration()
+		{
+			ReplicaRoutingConfiguration configuration = new ReplicaRoutingConfiguration();
+			configuration.FailureRetryInterval = 200;
+			return configuration;
+		}
+	}
+
+	@Before
+	public void setUp() throws SQLException
+	{
+		PRIMARY.Reset();
+		REPLICA.Reset();
+		//la replica è in ritardo: ha ancora la versione precedente della riga
+		PRIMARY.Insert(1, "primario");
+		REPLICA.Insert(1, "replica");
+		FAILING_SOURCE.Failing = false;
+	}
+
+	private static String _getName(TestItemManager manager, long id) throws Exception
+	{
+		TestItemList data = manager.Get(new TestItemFilter(id)).Data;
+		return data.isEmpty() ? null : data.get(0).Name;
+	}
+
+	@Test
+	public void readsGoToReplicaAndWritesToPrimary() throws Exception
+	{
+		RoutedManager manager = new RoutedManager();
+		long reads = manager.GetReplicaRoutingStatistics().Reads;
+		long borrows = REPLICA_SOURCE.GetStatistics().Borrows;
+		assertEquals("replica", _getName(manager, 1));
+		assertEquals("replica", manager.List(new TestItemFilter(0), TestItemList.class).Data.get(0).Name);
+		assertEquals(2, manager.GetReplicaRoutingStatistics().Reads - reads);
+		assertEquals(2, REPLICA_SOURCE.GetStatistics().Borrows - borrows);
+		assertEquals(0, REPLICA_SOURCE.GetStatistics().Active);
+
+		assertTrue(manager.Save(TestItem.Sample(2, "due"), TestItemList.class).Success);
+		assertEquals("due", PRIMARY.ReadName(2));
+		assertEquals(null, REPLICA.ReadName(2));
+	}
+
+	@Test
+	public void unitOfWorkReadsFromPrimary() throws Exception
+	{
+		RoutedManager manager = new RoutedManager();
+		long reads = manager.GetReplicaRoutingStatistics().Reads;
+		UnitOfWork unitOfWork = UnitOfWork.Begin();
+		try
+		{
+			assertEquals("primario", _getName(manager, 1));
+			unitOfWork.Commit();
+		}
+		finally
+		{
+			unitOfWork.Close();
+		}
+		assertEquals(reads, manager.GetReplicaRoutingStatistics().Reads);
+	}
+
+	@Test
+	public void cachedGetsReadFromPrimary() throws Exception
+	{
+		CachedManager manager = new CachedManager();
+		EntityCache.GetCache(CachedManager.class.getName(), null).Clear();
+		long reads = manager.GetReplicaRoutingStatistics().Reads;
+		assertEquals("primario", _getName(manager, 1));
+		assertTrue(manager.Save(TestItem.Sample(1, "salvato"), TestItemList.class).Success);
+		//la replica non ha ancora ricevuto il salvataggio, ma la cache non deve riportare la versione precedente
+		assertEquals("salvato", _getName(manager, 1));
+		assertEquals("salvato", _getName(manager, 1));
+		assertEquals(reads, manager.GetReplicaRoutingStatistics().Reads);
+	}
+
+	@Test
+	public void communicationErrorFallsBackToPrimary() throws Exception
+	{
+		FailingManager manager = new FailingManager();
+		assertEquals("replica", _getName(manager, 1));
+		ReplicaRoutingStatistics before = manager.GetReplicaRoutingStatistics();
+
+		FAILING_SOURCE.Failing = true;
+		try
+		{
+			manager.Get(new TestItemFilter(1));
+			fail("L'errore di comunicazione della replica deve arrivare al chiamante");
+		}
+		catch (SQLException exc)
+		{
+			assertEquals("08S01", exc.getSQLState());
+		}
+		ReplicaRoutingStatistics stats = manager.GetReplicaRoutingStatistics();
+		assertEquals(1, stats.Failures - before.Failures);
+		assertEquals(1, stats.Unavailable);
+		assertEquals(0, stats.Active[0]);
+
+		//la replica esclusa non viene più provata finché non scade FailureRetryInterval
+		assertEquals("primario", _getName(manager, 1));
+		assertEquals(1, manager.GetReplicaRoutingStatistics().PrimaryFallbacks - before.PrimaryFallbacks);
+
+		FAILING_SOURCE.Failing = false;
+		Thread.sleep(300);
+		assertEquals("replica", _getName(manager, 1));
+		assertEquals(0, manager.GetReplicaRoutingStatistics().Unavailable);
+	}
+
+	/**
+	 * DataSource le cui connessioni, quando Failing è true, falliscono con un errore di comunicazione come quelle di una replica irraggiungibile
+	 */
+	private static class FailingDataSource implements DataSource
+	{
+		private final DataSource _source;
+		public volatile boolean Failing;
+
+		public FailingDataSource(DataSource source)
+		{
+			_source = source;
+		}
+
+		@Override
+		public Connection getConnection() throws SQLException
+		{
+			final Connection connection = _source.getConnection();
+			return (Connection)Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class }, new InvocationHandler()
+			{
+				@Override
+				public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+				{
+					if (Failing && method.getName().equals("prepareCall"))
+						throw new SQLException("Connessione interrotta", "08S01");
+					try
+					{
+						return method.invoke(connection, args);
+					}
+					catch (InvocationTargetException exc)
+					{
+						throw exc.getCause();
+					}
+				}
+			});
+		}
+
+		@Override
+		public Connection getConnection(String username, String password) throws SQLException
+		{
+			return getConnection();
+		}
+
+		@Override
+		public PrintWriter getLogWriter() throws SQLException
+		{
+			return null;
+		}
+
+		@Override
+		public void setLogWriter(PrintWriter out) throws SQLException
+		{
+		}
+
+		@Override
+		public void setLoginTimeout(int seconds) throws SQLException
+		{
+		}
+
+		@Override
+		public int getLoginTimeout() throws SQLException
+		{
+			return 0;
+		}
+
+		public Logger getParentLogger() throws SQLFeatureNotSupportedException
+		{
+			throw new SQLFeatureNotSupportedException();
+		}
+
+		@Override
+		public <T> T unwrap(Class<T> iface) throws SQLException
+		{
+			throw new SQLException("Non supportato");
+		}
+
+		@Override
+		public boolean isWrapperFor(Class<?> iface) throws SQLException
+		{
+			return false;
+		}
+	}
+}
@@ -0,0 +1,90 @@
+package dal;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+public class SingleFlightTest
+{
+	@Test
+	public void waitersReceiveTheLeaderError() throws Exception
+	{
+		final SingleFlight group = new SingleFlight();
+		final List<Object> key = Arrays.<Object>asList("GET_ITEM", 1L);
+		final StackOverflowError error = new StackOverflowError();
+		final CountDownLatch entered = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicReference<Throwable> leaderError = new AtomicReference<Throwable>();
+		final AtomicReference<Throwable> waiterError = new AtomicReference<Throwable>();
+		final AtomicBoolean waiterExecuted = new AtomicBoolean();
+
+		Thread leader = new Thread(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				try
+				{
+					group.Execute(key, new Callable<Object>()
+					{
+						@Override
+						public Object call() throws Exception
+						{
+							entered.countDown();
+							release.await();
+							throw error;
+						}
+					});
+				}
+				catch (Throwable exc)
+				{
+					leaderError.set(exc);
+				}
+			}
+		});
+		leader.start();
+		entered.await();
+
+		Thread waiter = new Thread(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				try
+				{
+					group.Execute(key, new Callable<Object>()
+					{
+						@Override
+						public Object call() throws Exception
+						{
+							waiterExecuted.set(true);
+							return null;
+						}
+					});
+				}
+				catch (Throwable exc)
+				{
+					waiterError.set(exc);
+				}
+			}
+		});
+		waiter.start();
+		//lascio al secondo thread il tempo di accodarsi alla chiamata in corso
+		Thread.sleep(200);
+		release.countDown();
+		leader.join();
+		waiter.join();
+
+		assertSame(error, leaderError.get());
+		assertFalse(waiterExecuted.get());
+		assertSame(error, waiterError.get());
+	}
+}
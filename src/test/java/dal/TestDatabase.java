@@ -0,0 +1,187 @@
+package dal;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Database HSQLDB in memoria usato dai test, con la tabella e le procedure di TestItem
+ * @author amelani
+ *
+ */
+public class TestDatabase
+{
+	public static final String USERNAME = "SA";
+	public static final String PASSWORD = "";
+
+	private static final String[] SCHEMA = new String[]
+	{
+		"DROP SCHEMA PUBLIC CASCADE",
+		//con MVCC le letture delle connessioni dirette non attendono le transazioni aperte dai manager
+		"SET DATABASE TRANSACTION CONTROL MVCC",
+		"CREATE TABLE TEST_ITEM (ID BIGINT PRIMARY KEY, NAME VARCHAR(100), AMOUNT DECIMAL(18,2))",
+		"CREATE PROCEDURE SAVE_ITEM(IN ID BIGINT, IN NAME VARCHAR(100), IN AMOUNT DECIMAL(18,2)) MODIFIES SQL DATA "
+			+ "MERGE INTO TEST_ITEM T USING (VALUES(ID, NAME, AMOUNT)) AS S(ID, NAME, AMOUNT) ON T.ID = S.ID "
+			+ "WHEN MATCHED THEN UPDATE SET T.NAME = S.NAME, T.AMOUNT = S.AMOUNT "
+			+ "WHEN NOT MATCHED THEN INSERT VALUES S.ID, S.NAME, S.AMOUNT",
+		"CREATE PROCEDURE DELETE_ITEM(IN ID BIGINT, IN NAME VARCHAR(100), IN AMOUNT DECIMAL(18,2)) MODIFIES SQL DATA "
+			+ "BEGIN ATOMIC DECLARE V BIGINT; SET V = ID; DELETE FROM TEST_ITEM WHERE TEST_ITEM.ID = V; END",
+		"CREATE PROCEDURE GET_ITEM(IN ID BIGINT) READS SQL DATA DYNAMIC RESULT SETS 1 BEGIN ATOMIC DECLARE V BIGINT; SET V = ID; "
+			+ "BEGIN ATOMIC DECLARE RESULT CURSOR WITH RETURN FOR SELECT ID, NAME, AMOUNT FROM TEST_ITEM WHERE TEST_ITEM.ID = V; OPEN RESULT; END; END",
+		"CREATE PROCEDURE MULTI_GET_ITEM(IN ID VARCHAR(4000)) READS SQL DATA DYNAMIC RESULT SETS 1 BEGIN ATOMIC DECLARE V VARCHAR(4000); SET V = ',' || ID || ','; "
+			+ "BEGIN ATOMIC DECLARE RESULT CURSOR WITH RETURN FOR SELECT ID, NAME, AMOUNT FROM TEST_ITEM WHERE POSITION(',' || CAST(TEST_ITEM.ID AS VARCHAR(20)) || ',' IN V) > 0; "
+			+ "OPEN RESULT; END; END",
+		"CREATE PROCEDURE LIST_ITEM(IN ID BIGINT) READS SQL DATA DYNAMIC RESULT SETS 1 BEGIN ATOMIC DECLARE V BIGINT; SET V = ID; "
+			+ "BEGIN ATOMIC DECLARE RESULT CURSOR WITH RETURN FOR SELECT ID, NAME, AMOUNT FROM TEST_ITEM WHERE TEST_ITEM.ID >= V ORDER BY ID; OPEN RESULT; END; END"
+	};
+
+	static
+	{
+		try
+		{
+			DriverManager.registerDriver(new org.hsqldb.jdbc.JDBCDriver());
+		}
+		catch (SQLException exc)
+		{
+			throw new ExceptionInInitializerError(exc);
+		}
+	}
+
+	/** Connection string del database */
+	public final String Url;
+
+	/**
+	 * Costruisce il riferimento ad un database in memoria
+	 * @param name Nome del database, distinto per ogni classe di test
+	 */
+	public TestDatabase(String name)
+	{
+		Url = "jdbc:hsqldb:mem:" + name;
+	}
+
+	/**
+	 * Ricrea tabella e procedure, svuotando il database
+	 * @throws SQLException In caso di errori nella creazione dello schema
+	 */
+	public void Reset() throws SQLException
+	{
+		Execute(SCHEMA);
+	}
+
+	/**
+	 * Esegue delle istruzioni SQL in autocommit su una connessione diretta
+	 * @param statements Istruzioni da eseguire
+	 * @throws SQLException In caso di errori nell'esecuzione
+	 */
+	public void Execute(String... statements) throws SQLException
+	{
+		Connection connection = Open();
+		try
+		{
+			Statement statement = connection.createStatement();
+			for (String sql : statements)
+				statement.execute(sql);
+			statement.close();
+		}
+		finally
+		{
+			connection.close();
+		}
+	}
+
+	/**
+	 * Apre una connessione diretta al database, fuori dai pool e dalle UnitOfWork dei manager
+	 * @return Connessione al database
+	 * @throws SQLException In caso di errori nell'apertura della connessione
+	 */
+	public Connection Open() throws SQLException
+	{
+		return DriverManager.getConnection(Url, USERNAME, PASSWORD);
+	}
+
+	/**
+	 * Inserisce una riga nella tabella degli item
+	 * @param id Chiave
+	 * @param name Nome
+	 * @throws SQLException In caso di errori nell'inserimento
+	 */
+	public void Insert(long id, String name) throws SQLException
+	{
+		Connection connection = Open();
+		try
+		{
+			PreparedStatement statement = connection.prepareStatement("INSERT INTO TEST_ITEM VALUES (?, ?, ?)");
+			statement.setLong(1, id);
+			statement.setString(2, name);
+			statement.setBigDecimal(3, BigDecimal.valueOf(id, 2));
+			statement.executeUpdate();
+			statement.close();
+		}
+		finally
+		{
+			connection.close();
+		}
+	}
+
+	/**
+	 * Legge il nome di un item con una connessione diretta, vedendo soltanto i dati confermati
+	 * @param id Chiave
+	 * @return Nome dell'item, null se non esiste
+	 * @throws SQLException In caso di errori nella lettura
+	 */
+	public String ReadName(long id) throws SQLException
+	{
+		Connection connection = Open();
+		try
+		{
+			PreparedStatement statement = connection.prepareStatement("SELECT NAME FROM TEST_ITEM WHERE ID = ?");
+			statement.setLong(1, id);
+			ResultSet rs = statement.executeQuery();
+			String name = rs.next() ? rs.getString(1) : null;
+			statement.close();
+			return name;
+		}
+		finally
+		{
+			connection.close();
+		}
+	}
+
+	/**
+	 * Conta le righe della tabella degli item
+	 * @return Numero di righe
+	 * @throws SQLException In caso di errori nella lettura
+	 */
+	public int Count() throws SQLException
+	{
+		return Count("TEST_ITEM");
+	}
+
+	/**
+	 * Conta le righe confermate di una tabella
+	 * @param from Tabella, seguita dall'eventuale condizione WHERE
+	 * @return Numero di righe
+	 * @throws SQLException In caso di errori nella lettura
+	 */
+	public int Count(String from) throws SQLException
+	{
+		Connection connection = Open();
+		try
+		{
+			Statement statement = connection.createStatement();
+			ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM " + from);
+			rs.next();
+			int count = rs.getInt(1);
+			statement.close();
+			return count;
+		}
+		finally
+		{
+			connection.close();
+		}
+	}
+}
@@ -0,0 +1,40 @@
+package dal;
+
+import java.math.BigDecimal;
+
+import entities.BaseEntity;
+import entities.EntityAttribute;
+import entities.EntityFieldAttribute;
+
+/**
+ * Entity di prova della tabella TEST_ITEM
+ * @author amelani
+ *
+ */
+@EntityAttribute(Name = "TEST_ITEM")
+public class TestItem extends BaseEntity
+{
+	@EntityFieldAttribute(Name = "ID", Key = true)
+	public Long Id;
+
+	@EntityFieldAttribute(Name = "NAME")
+	public String Name;
+
+	@EntityFieldAttribute(Name = "AMOUNT")
+	public BigDecimal Amount;
+
+	/**
+	 * Crea una entity di prova
+	 * @param id Chiave della entity
+	 * @param name Nome della entity
+	 * @return TestItem valorizzato
+	 */
+	public static TestItem Sample(long id, String name)
+	{
+		TestItem e = new TestItem();
+		e.Id = id;
+		e.Name = name;
+		e.Amount = BigDecimal.valueOf(id, 2);
+		return e;
+	}
+}
@@ -0,0 +1,24 @@
+package dal;
+
+import filters.BaseFilter;
+import filters.FilterFieldAttribute;
+
+/**
+ * Filtro di prova per chiave di TestItem
+ * @author amelani
+ *
+ */
+public class TestItemFilter extends BaseFilter<TestItem>
+{
+	@FilterFieldAttribute(Name = "ID")
+	public Long Id;
+
+	public TestItemFilter()
+	{
+	}
+
+	public TestItemFilter(long id)
+	{
+		Id = id;
+	}
+}
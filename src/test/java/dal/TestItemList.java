@@ -0,0 +1,8 @@
+package dal;
+
+import entities.BaseEntityList;
+
+public class TestItemList extends BaseEntityList<TestItem>
+{
+	private static final long serialVersionUID = -3208719407364105721L;
+}
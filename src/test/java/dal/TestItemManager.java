@@ -0,0 +1,99 @@
+package dal;
+
+import java.sql.Driver;
+import java.sql.SQLException;
+
+import javax.naming.NamingException;
+
+/**
+ * Manager di prova di TestItem sul database in memoria, con connection pool interno. Le classi di test lo derivano per abilitare le funzionalità da verificare:
+ * cache, pool e buffer sono condivisi per classe di manager o per connection string, quindi ogni classe di test usa un proprio database e proprie classi derivate.
+ * @author amelani
+ *
+ */
+public abstract class TestItemManager extends BaseJDBCManager<TestItem, TestItemList>
+{
+	public TestItemManager() throws SQLException, NamingException
+	{
+		super();
+	}
+
+	/**
+	 * Database del manager. Viene letto dal costruttore della classe base, quindi deve essere un campo statico della classe derivata.
+	 * @return TestDatabase su cui lavora il manager
+	 */
+	public abstract TestDatabase GetDatabase();
+
+	@Override
+	public boolean UsingConnectionPool()
+	{
+		return false;
+	}
+
+	@Override
+	public boolean UsingEmbeddedConnectionPool()
+	{
+		return true;
+	}
+
+	@Override
+	public String GetConnectionPoolName()
+	{
+		return null;
+	}
+
+	@Override
+	public String GetConnectionString()
+	{
+		return GetDatabase().Url;
+	}
+
+	@Override
+	public String GetUsername()
+	{
+		return TestDatabase.USERNAME;
+	}
+
+	@Override
+	public String GetPassword()
+	{
+		return TestDatabase.PASSWORD;
+	}
+
+	@Override
+	public Driver GetJDBCDriver()
+	{
+		return new org.hsqldb.jdbc.JDBCDriver();
+	}
+
+	@Override
+	public boolean UsingPositionalBinding()
+	{
+		//HSQLDB non risolve per nome i parametri delle chiamate
+		return true;
+	}
+
+	@Override
+	public String GetSaveProcedureName()
+	{
+		return "{call SAVE_ITEM(?, ?, ?)}";
+	}
+
+	@Override
+	public String GetDeleteProcedureName()
+	{
+		return "{call DELETE_ITEM(?, ?, ?)}";
+	}
+
+	@Override
+	public String GetProcedureName()
+	{
+		return "{call GET_ITEM(?)}";
+	}
+
+	@Override
+	public String GetListProcedureName()
+	{
+		return "{call LIST_ITEM(?)}";
+	}
+}
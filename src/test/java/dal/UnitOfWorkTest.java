@@ -0,0 +1,235 @@
+package dal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+
+import javax.naming.NamingException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class UnitOfWorkTest
+{
+	private static final TestDatabase DATABASE = new TestDatabase("unitofworktest");
+
+	public static class Manager extends TestItemManager
+	{
+		public Manager() throws SQLException, NamingException
+		{
+			super();
+		}
+
+		@Override
+		public TestDatabase GetDatabase()
+		{
+			return DATABASE;
+		}
+	}
+
+	private Manager _manager;
+
+	@Before
+	public void setUp() throws Exception
+	{
+		DATABASE.Reset();
+		_manager = new Manager();
+	}
+
+	@Test
+	public void commitConfirmsAllCalls() throws Exception
+	{
+		UnitOfWork unitOfWork = UnitOfWork.Begin();
+		try
+		{
+			assertTrue(_manager.Save(TestItem.Sample(1, "uno"), TestItemList.class).Success);
+			assertTrue(_manager.Save(TestItem.Sample(2, "due"), TestItemList.class).Success);
+			//le modifiche non ancora confermate sono visibili soltanto nella UnitOfWork
+			assertEquals(0, DATABASE.Count());
+			assertEquals("uno", _manager.Get(new TestItemFilter(1)).Data.get(0).Name);
+			unitOfWork.Commit();
+		}
+		finally
+		{
+			unitOfWork.Close();
+		}
+		assertNull(UnitOfWork.Current());
+		assertEquals(2, DATABASE.Count());
+		assertEquals("due", DATABASE.ReadName(2));
+	}
+
+	@Test
+	public void closeWithoutCommitRollsBack() throws Exception
+	{
+		DATABASE.Insert(1, "originale");
+		UnitOfWork unitOfWork = UnitOfWork.Begin();
+		try
+		{
+			_manager.Save(TestItem.Sample(1, "modificato"), TestItemList.class);
+			_manager.Delete(TestItem.Sample(1, "modificato"), TestItemList.class);
+		}
+		finally
+		{
+			unitOfWork.Close();
+		}
+		assertEquals("originale", DATABASE.ReadName(1));
+	}
+
+	@Test
+	public void nestedUnitCommitsWithOutermost() throws Exception
+	{
+		UnitOfWork outer = UnitOfWork.Begin();
+		try
+		{
+			UnitOfWork inner = UnitOfWork.Begin();
+			try
+			{
+				assertSame(outer, inner);
+				_manager.Save(TestItem.Sample(1, "uno"), TestItemList.class);
+				inner.Commit();
+			}
+			finally
+			{
+				inner.Close();
+			}
+			assertEquals(0, DATABASE.Count());
+			outer.Commit();
+		}
+		finally
+		{
+			outer.Close();
+		}
+		assertEquals(1, DATABASE.Count());
+	}
+
+	@Test
+	public void nestedRollbackAbortsOutermost() throws Exception
+	{
+		UnitOfWork outer = UnitOfWork.Begin();
+		try
+		{
+			_manager.Save(TestItem.Sample(1, "uno"), TestItemList.class);
+			UnitOfWork inner = UnitOfWork.Begin();
+			try
+			{
+				inner.Rollback();
+			}
+			finally
+			{
+				inner.Close();
+			}
+			assertTrue(outer.IsRollbackOnly());
+			try
+			{
+				outer.Commit();
+				fail("Il commit di una UnitOfWork annullata deve fallire");
+			}
+			catch (SQLException exc)
+			{
+				//atteso: è stato eseguito il rollback
+			}
+		}
+		finally
+		{
+			outer.Close();
+		}
+		assertEquals(0, DATABASE.Count());
+	}
+
+	@Test
+	public void connectionIsNotAvailableAfterCompletion() throws Exception
+	{
+		UnitOfWork unitOfWork = UnitOfWork.Begin();
+		try
+		{
+			_manager.Save(TestItem.Sample(1, "uno"), TestItemList.class);
+			unitOfWork.Commit();
+			try
+			{
+				unitOfWork.GetConnection(DATABASE.Url + "|" + TestDatabase.USERNAME);
+				fail("La UnitOfWork conclusa non deve restituire connessioni");
+			}
+			catch (SQLException exc)
+			{
+				//atteso
+			}
+			try
+			{
+				_manager.Save(TestItem.Sample(2, "due"), TestItemList.class);
+				fail("I manager non devono usare una UnitOfWork conclusa");
+			}
+			catch (SQLException exc)
+			{
+				//atteso
+			}
+		}
+		finally
+		{
+			unitOfWork.Close();
+		}
+		assertEquals(1, DATABASE.Count());
+	}
+
+	@Test
+	public void actionsRunWhenOutermostCommits() throws Exception
+	{
+		final ArrayList<String> events = new ArrayList<String>();
+		UnitOfWork outer = UnitOfWork.Begin();
+		try
+		{
+			UnitOfWork inner = UnitOfWork.Begin();
+			try
+			{
+				inner.AfterCommit(_record(events, "commit"));
+				inner.AfterCompletion(_record(events, "completion"));
+				inner.Commit();
+			}
+			finally
+			{
+				inner.Close();
+			}
+			assertTrue(events.isEmpty());
+			outer.Commit();
+			assertEquals("[commit, completion]", events.toString());
+		}
+		finally
+		{
+			outer.Close();
+		}
+		assertEquals(2, events.size());
+	}
+
+	@Test
+	public void rollbackRunsOnlyCompletionActions() throws Exception
+	{
+		final ArrayList<String> events = new ArrayList<String>();
+		UnitOfWork unitOfWork = UnitOfWork.Begin();
+		try
+		{
+			unitOfWork.AfterCommit(_record(events, "commit"));
+			unitOfWork.AfterCompletion(_record(events, "completion"));
+		}
+		finally
+		{
+			unitOfWork.Close();
+		}
+		assertEquals("[completion]", events.toString());
+	}
+
+	private static Runnable _record(final ArrayList<String> events, final String event)
+	{
+		return new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				events.add(event);
+			}
+		};
+	}
+}
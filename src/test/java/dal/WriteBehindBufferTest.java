@@ -0,0 +1,163 @@
+package dal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.SQLException;
+
+import javax.naming.NamingException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class WriteBehindBufferTest
+{
+	private static final TestDatabase DATABASE = new TestDatabase("writebehindbuffertest");
+
+	/**
+	 * Manager con scrittura differita: il buffer è condiviso per classe di manager, quindi ogni test usa una propria classe derivata
+	 */
+	public static abstract class Manager extends TestItemManager
+	{
+		public Manager() throws SQLException, NamingException
+		{
+			super();
+		}
+
+		@Override
+		public TestDatabase GetDatabase()
+		{
+			return DATABASE;
+		}
+
+		@Override
+		public boolean UsingWriteBehind()
+		{
+			return true;
+		}
+
+		protected static WriteBehindConfiguration Configuration(int batchSize, long flushInterval)
+		{
+			WriteBehindConfiguration configuration = new WriteBehindConfiguration();
+			configuration.BatchSize = batchSize;
+			configuration.FlushInterval = flushInterval;
+			return configuration;
+		}
+	}
+
+	public static class SizeManager extends Manager
+	{
+		public SizeManager() throws SQLException, NamingException
+		{
+			super();
+		}
+
+		@Override
+		public WriteBehindConfiguration GetWriteBehindConfiguration()
+		{
+			return Configuration(3, 600000);
+		}
+	}
+
+	public static class IntervalManager extends Manager
+	{
+		public IntervalManager() throws SQLException, NamingException
+		{
+			super();
+		}
+
+		@Override
+		public WriteBehindConfiguration GetWriteBehindConfiguration()
+		{
+			return Configuration(100, 200);
+		}
+	}
+
+	public static class FlushManager extends Manager
+	{
+		public FlushManager() throws SQLException, NamingException
+		{
+			super();
+		}
+
+		@Override
+		public WriteBehindConfiguration GetWriteBehindConfiguration()
+		{
+			return Configuration(100, 600000);
+		}
+	}
+
+	@Before
+	public void setUp() throws Exception
+	{
+		DATABASE.Reset();
+	}
+
+	@Test
+	public void batchSizeTriggersSave() throws Exception
+	{
+		SizeManager manager = new SizeManager();
+		manager.SaveBehind(TestItem.Sample(1, "uno"));
+		manager.SaveBehind(TestItem.Sample(2, "due"));
+		Thread.sleep(200);
+		//sotto BatchSize, con FlushInterval lontano, nulla viene salvato
+		assertEquals(0, DATABASE.Count());
+		manager.SaveBehind(TestItem.Sample(3, "tre"));
+		assertTrue(_awaitCount(3, 5000));
+		assertEquals("tre", DATABASE.ReadName(3));
+	}
+
+	@Test
+	public void flushIntervalTriggersSave() throws Exception
+	{
+		IntervalManager manager = new IntervalManager();
+		long start = System.nanoTime();
+		manager.SaveBehind(TestItem.Sample(1, "uno"));
+		assertTrue(_awaitCount(1, 5000));
+		//la entity resta in attesa per FlushInterval prima del salvataggio
+		assertTrue(System.nanoTime() - start >= 150 * 1000000L);
+		assertEquals("uno", DATABASE.ReadName(1));
+
+		//dopo un salvataggio il buffer torna vuoto e la scadenza si conta dalla nuova entity
+		manager.SaveBehind(TestItem.Sample(2, "due"));
+		assertTrue(_awaitCount(2, 5000));
+	}
+
+	@Test
+	public void flushSavesOutsideCallerUnitOfWork() throws Exception
+	{
+		FlushManager manager = new FlushManager();
+		manager.SaveBehind(TestItem.Sample(1, "uno"));
+		manager.SaveBehind(TestItem.Sample(2, "due"));
+		UnitOfWork unitOfWork = UnitOfWork.Begin();
+		try
+		{
+			assertTrue(manager.Save(TestItem.Sample(3, "tre"), TestItemList.class).Success);
+			manager.FlushWriteBehind();
+			unitOfWork.Rollback();
+		}
+		finally
+		{
+			unitOfWork.Close();
+		}
+		//la Rollback annulla soltanto la Save del chiamante, le entity del buffer sono confermate
+		assertEquals(2, DATABASE.Count());
+		assertEquals("uno", DATABASE.ReadName(1));
+		assertEquals("due", DATABASE.ReadName(2));
+		WriteBehindStatistics statistics = manager.GetWriteBehindStatistics();
+		assertEquals(2, statistics.Saved);
+		assertEquals(0, statistics.QueueDepth);
+	}
+
+	private static boolean _awaitCount(int expected, long timeout) throws Exception
+	{
+		long deadline = System.currentTimeMillis() + timeout;
+		while (System.currentTimeMillis() < deadline)
+		{
+			if (DATABASE.Count() >= expected)
+				return true;
+			Thread.sleep(20);
+		}
+		return false;
+	}
+}
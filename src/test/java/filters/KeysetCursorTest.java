@@ -0,0 +1,108 @@
+package filters;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+
+import org.junit.Test;
+
+import entities.BaseEntity;
+import entities.EntityAttribute;
+import entities.EntityFieldAttribute;
+import sql.SQLFieldMetadata;
+import sql.SQLQuerableMetadata;
+
+public class KeysetCursorTest
+{
+	@EntityAttribute(Name = "EVENT")
+	public static class Event extends BaseEntity
+	{
+		@EntityFieldAttribute(Name = "CREATED", Key = true)
+		public Timestamp Created;
+
+		@EntityFieldAttribute(Name = "AMOUNT", Key = true)
+		public BigDecimal Amount;
+
+		@EntityFieldAttribute(Name = "CODE", Key = true)
+		public String Code;
+
+		@EntityFieldAttribute(Name = "DESCRIPTION")
+		public String Description;
+	}
+
+	private static final SQLFieldMetadata[] KEY_FIELDS = SQLQuerableMetadata.Get(Event.class).KeyFields;
+
+	@Test
+	public void tokenRoundTripKeepsTypesAndPrecision() throws Exception
+	{
+		Event event = new Event();
+		event.Created = Timestamp.valueOf("2024-02-29 23:59:58.123456789");
+		event.Amount = new BigDecimal("-1234.5600");
+		event.Code = "a,b ~%";
+		String token = KeysetCursor.Encode(KEY_FIELDS, event);
+		Object[] values = KeysetCursor.Decode(KEY_FIELDS, token);
+		assertEquals(3, values.length);
+		assertEquals(event.Created, values[0]);
+		assertEquals(123456789, ((Timestamp)values[0]).getNanos());
+		//la scala del BigDecimal viene conservata
+		assertEquals(event.Amount, values[1]);
+		assertEquals("a,b ~%", values[2]);
+	}
+
+	@Test
+	public void nullKeyPartsAreKept() throws Exception
+	{
+		Event event = new Event();
+		event.Amount = BigDecimal.ONE;
+		Object[] values = KeysetCursor.Decode(KEY_FIELDS, KeysetCursor.Encode(KEY_FIELDS, event));
+		assertNull(values[0]);
+		assertEquals(BigDecimal.ONE, values[1]);
+		assertNull(values[2]);
+	}
+
+	@Test
+	public void emptyStringIsNotConfusedWithNull() throws Exception
+	{
+		Event event = new Event();
+		event.Code = "";
+		assertArrayEquals(new Object[] { null, null, "" }, KeysetCursor.Decode(KEY_FIELDS, KeysetCursor.Encode(KEY_FIELDS, event)));
+	}
+
+	@Test
+	public void tokenWithWrongNumberOfPartsIsRejected()
+	{
+		try
+		{
+			KeysetCursor.Decode(KEY_FIELDS, "1:0,2");
+			fail();
+		}
+		catch (IllegalArgumentException exc)
+		{
+		}
+	}
+
+	@Test
+	public void tokenWithValuesOfAnotherTypeIsRejected()
+	{
+		try
+		{
+			KeysetCursor.Decode(KEY_FIELDS, "1:0,abc,x");
+			fail();
+		}
+		catch (IllegalArgumentException exc)
+		{
+		}
+		try
+		{
+			KeysetCursor.Decode(KEY_FIELDS, "now,1,x");
+			fail();
+		}
+		catch (IllegalArgumentException exc)
+		{
+		}
+	}
+}
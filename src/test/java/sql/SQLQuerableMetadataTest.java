@@ -0,0 +1,45 @@
+package sql;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import entities.BaseEntity;
+import filters.BaseFilter;
+import filters.FilterFieldAttribute;
+
+public class SQLQuerableMetadataTest
+{
+	public static class Item extends BaseEntity
+	{
+	}
+
+	public static class BaseItemFilter extends BaseFilter<Item>
+	{
+		@FilterFieldAttribute(Name = "FIRST")
+		public Long First;
+
+		@FilterFieldAttribute(Name = "SECOND")
+		public Long Second;
+	}
+
+	public static class DerivedItemFilter extends BaseItemFilter
+	{
+		@FilterFieldAttribute(Name = "THIRD")
+		public Long Third;
+
+		@FilterFieldAttribute(Name = "FOURTH")
+		public Long Fourth;
+	}
+
+	@Test
+	public void fieldsFollowDeclarationOrderFromTheRootClass()
+	{
+		SQLFieldMetadata[] fields = SQLQuerableMetadata.Get(DerivedItemFilter.class).Fields;
+		assertEquals(4, fields.length);
+		assertEquals("FIRST", fields[0].Name);
+		assertEquals("SECOND", fields[1].Name);
+		assertEquals("THIRD", fields[2].Name);
+		assertEquals("FOURTH", fields[3].Name);
+	}
+}
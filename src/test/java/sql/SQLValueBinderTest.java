@@ -0,0 +1,30 @@
+package sql;
+
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+import org.junit.Test;
+
+public class SQLValueBinderTest
+{
+	@Test
+	public void equalNumericKeysNormalizeToTheSameValue()
+	{
+		Object key = SQLValueBinder.NormalizeKey(Long.valueOf(12));
+		assertEquals(key, SQLValueBinder.NormalizeKey(Integer.valueOf(12)));
+		assertEquals(key, SQLValueBinder.NormalizeKey(BigInteger.valueOf(12)));
+		assertEquals(key, SQLValueBinder.NormalizeKey(new BigDecimal("12.000")));
+		assertEquals(new BigDecimal("1.5"), SQLValueBinder.NormalizeKey(new BigDecimal("1.50")));
+	}
+
+	@Test
+	public void zeroWithAScaleNormalizesLikeZero()
+	{
+		Object zero = SQLValueBinder.NormalizeKey(Long.valueOf(0));
+		assertEquals(zero, SQLValueBinder.NormalizeKey(BigDecimal.ZERO));
+		assertEquals(zero, SQLValueBinder.NormalizeKey(new BigDecimal("0.00")));
+		assertEquals(zero, SQLValueBinder.NormalizeKey(BigDecimal.valueOf(0, -3)));
+	}
+}